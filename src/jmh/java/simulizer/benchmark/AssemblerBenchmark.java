@@ -0,0 +1,47 @@
+package simulizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Program;
+
+/**
+ * time taken to assemble the example programs
+ * @author mbway
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssemblerBenchmark {
+
+    @Param({"add", "bubblesort", "quick-sort", "binary-search", "snake", "tower-of-hanoi", "canvas"})
+    public String program;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = BenchmarkPrograms.source(program);
+    }
+
+    @Benchmark
+    public Program assemble() {
+        return Assembler.assemble(source, new ProblemCountLogger(null), false);
+    }
+}
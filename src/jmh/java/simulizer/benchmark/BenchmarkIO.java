@@ -0,0 +1,15 @@
+package simulizer.benchmark;
+
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+
+/**
+ * I/O for benchmarks: input is read from a buffer and output is thrown away so
+ * that it does not accumulate between invocations
+ * @author mbway
+ */
+class BenchmarkIO extends BufferIO {
+    @Override public void printString(IOStream stream, String str) {}
+    @Override public void printInt(IOStream stream, int num) {}
+    @Override public void printChar(IOStream stream, char letter) {}
+}
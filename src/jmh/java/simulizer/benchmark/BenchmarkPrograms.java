@@ -0,0 +1,92 @@
+package simulizer.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Program;
+
+/**
+ * loads the example programs from work/code and generates input for them
+ * so that they can be run without a user
+ * @author mbway
+ */
+final class BenchmarkPrograms {
+    private static final String codeDirectory = "work/code/";
+
+    private BenchmarkPrograms() {}
+
+    /**
+     * @param name the name of the program (without the .s extension)
+     * @return the program source
+     */
+    static String source(String name) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(codeDirectory + name + ".s")), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("could not read program: " + name
+                    + " (benchmarks must be run from the project directory)", e);
+        }
+    }
+
+    /**
+     * @param name the name of the program (without the .s extension)
+     * @return the assembled program
+     * @throws IllegalStateException if the program has problems
+     */
+    static Program assemble(String name) {
+        ProblemCountLogger log = new ProblemCountLogger(null);
+        Program p = Assembler.assemble(source(name), log, false);
+        if(p == null || log.problemCount != 0) {
+            throw new IllegalStateException("could not assemble program: " + name);
+        }
+        return p;
+    }
+
+    /**
+     * generate the input which the program reads from standard input
+     * (the same input is generated every time for a given name and size)
+     *
+     * @param name the name of the program (without the .s extension)
+     * @param size the number of elements to give the program
+     * @return the input, one value per line
+     */
+    static String input(String name, int size) {
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        switch(name) {
+            case "bubblesort":
+                // the number of elements then the elements
+                sb.append(size).append('\n');
+                for(int i = 0; i < size; ++i) {
+                    sb.append(r.nextInt(1000) + 1).append('\n');
+                }
+                break;
+            case "quick-sort":
+                // elements terminated by 0
+                for(int i = 0; i < size; ++i) {
+                    sb.append(r.nextInt(1000) + 1).append('\n');
+                }
+                sb.append("0\n");
+                break;
+            case "binary-search":
+                // ascending elements terminated by 0 then values to search for terminated by 0
+                for(int i = 1; i <= size; ++i) {
+                    sb.append(i * 2).append('\n');
+                }
+                sb.append("0\n");
+                for(int i = 0; i < size; ++i) {
+                    sb.append(r.nextInt(size * 2) + 1).append('\n');
+                }
+                sb.append("0\n");
+                break;
+            default:
+                throw new IllegalArgumentException("no input known for program: " + name);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package simulizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.components.CPUPipeline;
+import simulizer.simulation.messages.Message;
+import simulizer.simulation.messages.SimulationListener;
+
+/**
+ * time taken to run whole programs on the CPU as fast as possible
+ *
+ * each program is run with generated input on both the non-pipelined and pipelined
+ * CPU, with and without a listener attached (with no listeners the messages are
+ * still sent but nothing processes them)
+ * @author mbway
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CPUBenchmark {
+
+    @Param({"bubblesort", "quick-sort", "binary-search"})
+    public String program;
+
+    @Param({"100"})
+    public int inputSize;
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    @Param({"false", "true"})
+    public boolean listening;
+
+    private Program assembled;
+    private String input;
+    private BenchmarkIO io;
+    private CPU cpu;
+    private final AtomicLong messagesReceived = new AtomicLong();
+
+    /**
+     * a listener which does the minimum amount of work for each message
+     */
+    private class CountingListener extends SimulationListener {
+        @Override public void processMessage(Message m) {
+            messagesReceived.incrementAndGet();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        assembled = BenchmarkPrograms.assemble(program);
+        input = BenchmarkPrograms.input(program, inputSize);
+        io = new BenchmarkIO();
+        cpu = pipelined ? new CPUPipeline(io) : new CPU(io);
+        cpu.setCycleFreq(0); // as fast as possible
+        if(listening) {
+            cpu.registerListener(new CountingListener());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        io.feedInput(input);
+        cpu.loadProgram(assembled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cpu.shutdown();
+    }
+
+    @Benchmark
+    public int runProgram() {
+        cpu.runProgram();
+        return cpu.getRegisterValue(Register.v0);
+    }
+
+    @Benchmark
+    public int runUnobserved() {
+        cpu.runUnobserved();
+        return cpu.getRegisterValue(Register.v0);
+    }
+}
@@ -0,0 +1,58 @@
+package simulizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulizer.simulation.data.representation.DataConverter;
+
+/**
+ * converting between integers and their big endian byte representation
+ * @author mbway
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class DataConverterBenchmark {
+
+    // not final so that the values are not constant folded
+    private long value = -123456789L;
+    private byte[] word = new byte[]{(byte) 0xF8, (byte) 0xA4, 0x32, (byte) 0xEB};
+    private byte[] half = new byte[]{(byte) 0xF8, (byte) 0xA4};
+
+    @Benchmark
+    public byte[] encodeAsSigned() {
+        return DataConverter.encodeAsSigned(value);
+    }
+
+    @Benchmark
+    public byte[] encodeAsUnsigned() {
+        return DataConverter.encodeAsUnsigned(value);
+    }
+
+    @Benchmark
+    public long decodeWordAsSigned() {
+        return DataConverter.decodeAsSigned(word);
+    }
+
+    @Benchmark
+    public long decodeWordAsUnsigned() {
+        return DataConverter.decodeAsUnsigned(word);
+    }
+
+    @Benchmark
+    public long decodeHalfAsSigned() {
+        return DataConverter.decodeAsSigned(half);
+    }
+}
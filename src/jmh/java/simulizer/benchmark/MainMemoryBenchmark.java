@@ -0,0 +1,104 @@
+package simulizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.components.MainMemory;
+import simulizer.simulation.exceptions.HeapException;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.exceptions.StackException;
+
+/**
+ * reading and writing main memory through both the primitive accessors used by the
+ * CPU and the byte array accessors used by syscalls and the GUI
+ * @author mbway
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class MainMemoryBenchmark {
+    private static final int bufferSize = 4096;
+
+    private CPU cpu;
+    private MainMemory memory;
+    private int staticAddress;
+    private int stackAddress;
+    private int offset;
+    private final byte[] toWrite = new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+    @Setup
+    public void setup() {
+        String program = "" +
+                ".data\n" +
+                "buf: .space " + bufferSize + "\n" +
+                ".text\n" +
+                "main: nop\n";
+        cpu = new CPU(new BenchmarkIO());
+        cpu.loadProgram(Assembler.assemble(program, new ProblemCountLogger(null), false));
+        memory = cpu.getMainMemory();
+        staticAddress = cpu.labels.get("buf").getValue();
+        stackAddress = cpu.getRegisterValue(Register.sp) - bufferSize;
+        offset = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        cpu.shutdown();
+    }
+
+    /**
+     * @return the next word aligned offset into the buffer, cycling through the buffer
+     */
+    private int nextOffset() {
+        offset = (offset + 16) & (bufferSize - 1);
+        return offset;
+    }
+
+    @Benchmark
+    public int loadWordStatic() throws MemoryException, HeapException {
+        return memory.loadWord(staticAddress + nextOffset());
+    }
+
+    @Benchmark
+    public void storeWordStatic() throws MemoryException, HeapException {
+        memory.storeWord(staticAddress + nextOffset(), offset);
+    }
+
+    @Benchmark
+    public int loadWordStack() throws MemoryException, HeapException {
+        return memory.loadWord(stackAddress + nextOffset());
+    }
+
+    @Benchmark
+    public void storeWordStack() throws MemoryException, HeapException {
+        memory.storeWord(stackAddress + nextOffset(), offset);
+    }
+
+    @Benchmark
+    public byte[] readFromMem() throws MemoryException, HeapException, StackException {
+        return memory.readFromMem(staticAddress + nextOffset(), toWrite.length);
+    }
+
+    @Benchmark
+    public void writeToMem() throws MemoryException, HeapException, StackException {
+        memory.writeToMem(staticAddress + nextOffset(), toWrite);
+    }
+}
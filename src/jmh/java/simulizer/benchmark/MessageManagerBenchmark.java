@@ -0,0 +1,84 @@
+package simulizer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.messages.Message;
+import simulizer.simulation.messages.MessageManager;
+import simulizer.simulation.messages.RegisterChangedMessage;
+import simulizer.simulation.messages.SimulationListener;
+import simulizer.simulation.messages.StageEnterMessage;
+
+/**
+ * throughput of sending messages through the message manager to the listeners.
+ * Each invocation sends a batch of messages and waits for them all to be processed
+ * @author mbway
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageManagerBenchmark {
+    private static final int batchSize = 1000;
+
+    @Param({"1", "4"})
+    public int listenerCount;
+
+    private MessageManager manager;
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private final Message[] batch = new Message[batchSize];
+
+    @Setup
+    public void setup() {
+        manager = new MessageManager(new BenchmarkIO());
+        for(int i = 0; i < listenerCount; ++i) {
+            manager.registerListener(new SimulationListener() {
+                @Override public void processMessage(Message m) {
+                    messagesReceived.incrementAndGet();
+                }
+            });
+        }
+
+        // a typical mix of messages sent during a cycle
+        StageEnterMessage.Stage[] stages = StageEnterMessage.Stage.values();
+        for(int i = 0; i < batchSize; ++i) {
+            if(i % 2 == 0) {
+                batch[i] = new StageEnterMessage(stages[i % stages.length]);
+            } else {
+                batch[i] = new RegisterChangedMessage(Register.fromID(i % 32));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(batchSize)
+    public long dispatch() {
+        for(Message m : batch) {
+            manager.sendMessage(m);
+        }
+        manager.waitForAll();
+        return messagesReceived.get();
+    }
+}
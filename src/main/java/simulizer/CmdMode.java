@@ -1,12 +1,25 @@
 package simulizer;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import com.google.gson.Gson;
+
 import simulizer.annotations.AnnotationManager;
-import simulizer.assembler.Assembler;
+import simulizer.assembler.ProgramCache;
+import simulizer.assembler.ProgramParser;
+import simulizer.assembler.extractor.ParallelExtractor;
 import simulizer.assembler.extractor.problem.StoreProblemLogger;
 import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.ProgramSerializer;
+import simulizer.cmd.BatchRunner;
 import simulizer.cmd.CmdIO;
 import simulizer.cmd.CmdSimulationListener;
 import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.messages.Message;
 import simulizer.utils.FileUtils;
 
 /**
@@ -20,50 +33,152 @@ class CmdMode {
 
 	public static CmdIO io;
 	public static CPU cpu;
+	public static AnnotationManager annotations;
 	public static CmdSimulationListener simListener;
 
 	public static void start(String[] rawArgs, CommandLineArguments parsedArgs) {
 		args = parsedArgs.cmdMode;
 
-		// >1 case already checked by arguments parser
 		if (args.files.size() == 0) {
 			System.err.println("no file specified");
 			return;
 		}
 
+		ParallelExtractor.setEnabled(!args.serialExtraction);
+
+		if (args.batch) {
+			runBatch();
+			return;
+		}
+
 		io = new CmdIO(args.showDebugStream);
 
 		cpu = new CPU(io); // not pipelined
 
-		AnnotationManager a = null;
+		annotations = null;
 		if (args.runAnnotations) {
-			a = new AnnotationManager(cpu, io, false/*enable visualisations*/);
-			a.newExecutor();
+			annotations = new AnnotationManager(cpu, io, false/*enable visualisations*/);
+			annotations.setTimingEnabled(args.annotationTiming);
+			annotations.newExecutor();
 		}
 
-		simListener = new CmdSimulationListener(a);
+		simListener = new CmdSimulationListener(annotations);
 
-		cpu.registerListener(simListener);
+		cpu.registerListener(simListener, EnumSet.of(Message.Type.Annotation, Message.Type.Problem));
 		cpu.setCycleFreq(0); // Hz
 
-		String programText = FileUtils.getFileContent(args.files.get(0));
-		assembleAndRun(programText, args.permissive);
+		if (args.precompiled) {
+			loadAndRun(new File(args.files.get(0)));
+		} else if (args.files.size() > 1) {
+			// keyed by the path given rather than the file name, since files in different
+			// directories may have the same name
+			LinkedHashMap<String, String> files = new LinkedHashMap<>();
+			for (String path : args.files) {
+				if (files.containsKey(path)) {
+					System.err.println("the file \"" + path + "\" was given more than once");
+					return;
+				}
+				files.put(path, FileUtils.getFileContent(path));
+			}
+			assembleAndRun(files, args.permissive);
+		} else {
+			String programText = FileUtils.getFileContent(args.files.get(0));
+			assembleAndRun(programText, args.permissive);
+		}
+	}
+
+	/**
+	 * check each program separately, printing a line of JSON for each
+	 */
+	private static void runBatch() {
+		String input = "";
+		if (args.inputPath != null) {
+			input = FileUtils.getFileContent(args.inputPath);
+			if (input == null) {
+				return;
+			}
+		}
+
+		List<File> files;
+		try {
+			files = BatchRunner.findPrograms(args.files);
+		} catch (IOException e) {
+			System.err.println("Could Not Search For Programs: " + e.getMessage());
+			return;
+		}
+
+		long timeoutMillis = args.timeout * 1000L;
+		BatchRunner runner = new BatchRunner(args.permissive, !args.assembleOnly, input, timeoutMillis, args.threads);
+
+		Gson gson = new Gson();
+		long start = System.nanoTime();
+		runner.check(files, report -> System.out.println(gson.toJson(report)));
+		System.err.printf("checked %d programs in %.1fms on %d threads%n",
+				files.size(), (System.nanoTime() - start) / 1e6, args.threads);
+	}
+
+	private static void loadAndRun(File file) {
+		long loadStart = System.nanoTime();
+		final Program p;
+		try {
+			p = ProgramSerializer.read(file);
+		} catch (IOException e) {
+			System.err.println("Could Not Load The Assembled Program: " + e.getMessage());
+			return;
+		}
+		if (args.turbo) {
+			System.err.printf("loaded in %.1fms%n", (System.nanoTime() - loadStart) / 1e6);
+		}
+		run(p);
 	}
 
 	private static void assembleAndRun(String programText, boolean permissive) {
 		StoreProblemLogger log = new StoreProblemLogger();
-		final Program p = Assembler.assemble(programText, log, permissive);
+		long assembleStart = System.nanoTime();
+		final Program p = ProgramCache.getDefault().assemble(programText, log, permissive);
+		if (args.turbo) {
+			System.err.printf("assembled in %.1fms (parsing: %s)%n",
+					(System.nanoTime() - assembleStart) / 1e6, ProgramParser.getLastParseTiming());
+		}
+		runIfValid(p, log);
+	}
+
+	private static void assembleAndRun(LinkedHashMap<String, String> files, boolean permissive) {
+		StoreProblemLogger log = new StoreProblemLogger();
+		long assembleStart = System.nanoTime();
+		final Program p = ProgramCache.getDefault().assemble(files, log, permissive);
+		if (args.turbo) {
+			System.err.printf("assembled %d files in %.1fms%n", files.size(), (System.nanoTime() - assembleStart) / 1e6);
+		}
+		runIfValid(p, log);
+	}
+
+	private static void runIfValid(Program p, StoreProblemLogger log) {
 		if (p == null) {
 			int size = log.getProblems().size();
 			System.err.println("Could Not Run. The Program Contains " + (size == 1 ? "An Error!" : size + " Errors!"));
 		} else {
-			cpu.loadProgram(p);
+			run(p);
+		}
+	}
+
+	private static void run(Program p) {
+		cpu.loadProgram(p);
 
-			try {
+		try {
+			if (args.turbo) {
+				cpu.runUnobserved();
+				System.err.printf("executed %d instructions (%.0f instructions per second)%n",
+						cpu.getCycles(), cpu.getInstructionsPerSecond());
+			} else {
 				cpu.runProgram();
-			} catch (Exception e) {
-				System.err.println("Exception: " + e.getMessage());
 			}
+		} catch (Exception e) {
+			System.err.println("Exception: " + e.getMessage());
+		}
+
+		if (annotations != null) {
+			annotations.onEndProgram();
 		}
 	}
 }
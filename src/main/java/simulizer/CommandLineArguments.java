@@ -40,11 +40,38 @@ class CommandLineArguments {
         @Parameter(names = {"-a", "--run-annotations"}, description = "whether annotations should be run")
         boolean runAnnotations = false;
 
+        @Parameter(names = {"--annotation-timing"}, description = "write the time taken by each annotation to the debug stream when the program finishes (requires --run-annotations and --show-debug-stream)")
+        boolean annotationTiming = false;
+
+        @Parameter(names = {"-t", "--turbo"}, description = "run as fast as possible without simulating the individual stages of each cycle (syscalls, breakpoints and annotations still run). Reports the time taken to assemble and the instructions per second when finished")
+        boolean turbo = false;
+
+        @Parameter(names = {"--precompiled"}, description = "the file is an assembled program saved from the GUI (File > Save Assembled Program) rather than source code")
+        boolean precompiled = false;
+
+        @Parameter(names = {"--serial-extraction"}, description = "extract the segments of the program one at a time rather than in parallel when assembling (for comparing the assembly times)")
+        boolean serialExtraction = false;
+
+        @Parameter(names = {"--batch"}, description = "treat each file as a separate program and check them all in parallel, printing a report for each as a line of JSON. Directories are searched for .s files")
+        boolean batch = false;
+
+        @Parameter(names = {"--assemble-only"}, description = "in batch mode, only assemble the programs rather than running them")
+        boolean assembleOnly = false;
+
+        @Parameter(names = {"--input"}, description = "in batch mode, a file containing the input to give to each program")
+        String inputPath = null;
+
+        @Parameter(names = {"--timeout"}, description = "in batch mode, the number of seconds after which a running program is stopped (0 for no limit)")
+        int timeout = 10;
+
+        @Parameter(names = {"--threads"}, description = "in batch mode, the number of programs to check at once (defaults to the number of processors)")
+        int threads = Runtime.getRuntime().availableProcessors();
+
         //TODO: not implemented
         //@Parameter(names = {"--output-errors"}, description = "file to output encountered parse errors")
         //public String errorOutputPath;
 
-        @Parameter(description = "<file to run>")
+        @Parameter(description = "<file to run> [<library file>...] (labels in library files are only visible to the other files if exported with .globl) or with --batch: <file or directory>...")
         List<String> files = new ArrayList<>();
     }
 
@@ -127,8 +154,18 @@ class CommandLineArguments {
             }
         } else if(command.equals("cmd")) {
             main.mode = Mode.CMD_MODE;
-            if(main.cmdMode.files.size() > 1) {
-                System.err.println("Invalid File Arguments: " + Arrays.toString(main.guiMode.files.toArray()) + " must only specify one file to open");
+            if(main.cmdMode.batch && main.cmdMode.precompiled) {
+                System.err.println("Invalid Arguments: batch mode only checks source files, not precompiled programs");
+                printUsage();
+                return null;
+            }
+            if(main.cmdMode.threads < 1) {
+                System.err.println("Invalid Arguments: there must be at least one thread");
+                printUsage();
+                return null;
+            }
+            if(main.cmdMode.files.size() > 1 && main.cmdMode.precompiled) {
+                System.err.println("Invalid File Arguments: " + Arrays.toString(main.cmdMode.files.toArray()) + " must only specify one precompiled program to run");
                 printUsage();
                 return null;
             }
@@ -49,7 +49,7 @@ public class Simulizer {
      * handle exceptions differently depending on whether running in GUI or CMD mode.
      * in UI-only areas of the code-base, just call UIUtils directly.
      */
-    public static void handleException(Exception e) {
+    public static void handleException(Throwable e) {
 		if(mode == CommandLineArguments.Mode.CMD_MODE) {
 		    e.printStackTrace();
 		} else if(mode == CommandLineArguments.Mode.GUI_MODE) {
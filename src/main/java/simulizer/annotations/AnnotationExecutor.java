@@ -1,6 +1,10 @@
 package simulizer.annotations;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
@@ -28,12 +32,24 @@ import simulizer.utils.UIUtils;
 public class AnnotationExecutor {
 
 	private final NashornScriptEngine engine;
+	/**
+	 * the objects bound from Java (eg the bridges). Visible to scripts, but
+	 * assigning to one of these names from a script creates a variable in nhGlobals
+	 * which hides the Java object.
+	 */
 	private final Bindings globals;
 	/**
-	 * Nashorn globals object. flushed every time eval is called.
-	 * elements are manually promoted to globals (which is persistent).
+	 * Nashorn globals object. Persistent between calls to eval, so the variables
+	 * and functions defined by one annotation are available to the later ones
+	 * without having to copy them anywhere.
 	 */
 	private ScriptObjectMirror nhGlobals;
+	/**
+	 * the annotations which have been run, compiled so that annotations in loops
+	 * are only parsed once. A new executor is created for each program so the
+	 * annotations of old programs are not kept.
+	 */
+	private final Map<Annotation, CompiledScript> compiled;
 
 
 	private static class AnnotationClassFilter implements ClassFilter {
@@ -52,6 +68,8 @@ public class AnnotationExecutor {
 	 * create a new executor
 	 */
 	AnnotationExecutor() {
+		compiled = new HashMap<>();
+
 		NashornScriptEngineFactory factory = new NashornScriptEngineFactory();
 		AnnotationClassFilter filter = new AnnotationClassFilter();
 		engine = (NashornScriptEngine) factory.getScriptEngine(filter);
@@ -119,6 +137,10 @@ public class AnnotationExecutor {
 	 * @return the object, casted to the correct class
 	 */
 	private <T> T getGlobal(String name, Class<T> tClass) {
+		// variables defined by scripts hide the objects bound from Java
+		if(nhGlobals.containsKey(name)) {
+			return tClass.cast(nhGlobals.get(name));
+		}
 		return tClass.cast(globals.get(name));
 	}
 
@@ -128,6 +150,14 @@ public class AnnotationExecutor {
 	 * @return the result of evaulating the script (ie the script `var x = 14; x;` returns `Integer(14)`)
 	 */
 	Object exec(Annotation annotation) throws ScriptException, SecurityException, AnnotationEarlyReturn, AssertionError {
+		return exec(annotation, true);
+	}
+
+	/**
+	 * @param annotation the annotation to execute
+	 * @param keepCompiled whether the annotation will be run again, so should be compiled and kept
+	 */
+	private Object exec(Annotation annotation, boolean keepCompiled) throws ScriptException, SecurityException, AnnotationEarlyReturn, AssertionError {
 		@SuppressWarnings("UnusedAssignment") // this is actually necessary
 		Object res = null;
 
@@ -135,14 +165,17 @@ public class AnnotationExecutor {
 		// exceptions thrown from java executed from a script are not wrapped
 
 		try {
-			res = engine.eval(annotation.code);
+			if(keepCompiled) {
+				res = getCompiled(annotation).eval();
+			} else {
+				res = engine.eval(annotation.code);
+			}
 		} catch(ScriptException e) {
 			// exceptions thrown from inside the script are wrapped in a ScriptException
 			if (e.getCause() instanceof ECMAException) {
 				Object cause = ((ECMAException) e.getCause()).thrown;
 
 				if (cause instanceof AnnotationEarlyReturn) {
-					promoteToGlobal();
 					throw (AnnotationEarlyReturn) cause;
 				} else {
 					throw e;
@@ -151,30 +184,33 @@ public class AnnotationExecutor {
 				throw e;
 			}
 		} catch(AssertionError e) {
-			promoteToGlobal();
 			throw new AssertionError(annotation.code); // exception message = code that caused it
 		} catch(Exception e) { // propagate the exception
 			throw new ScriptException(e);
 		}
-		promoteToGlobal();
 		return res;
 	}
 
 	/**
-	 * Execute some javascript code
-	 * @param script the script to execute
+	 * @return the compiled code of the annotation, compiling it if this is the first time it has been run
+	 * @throws ScriptException if the code has a syntax error (in which case the annotation is not kept)
 	 */
-	private void exec(String script) throws ScriptException, SecurityException {
-		engine.eval(script);
-		promoteToGlobal();
+	private CompiledScript getCompiled(Annotation annotation) throws ScriptException {
+		CompiledScript script = compiled.get(annotation);
+		if(script == null) {
+			// evaluated in the context of the engine, the same as engine.eval(code)
+			script = engine.compile(annotation.code);
+			compiled.put(annotation, script);
+		}
+		return script;
 	}
 
 	/**
-	 * set all variables local to a script become global
+	 * Execute some javascript code
+	 * @param script the script to execute
 	 */
-	private void promoteToGlobal() {
-		globals.putAll(nhGlobals);
-		nhGlobals.clear();
+	private void exec(String script) throws ScriptException, SecurityException {
+		engine.eval(script);
 	}
 
 	/**
@@ -201,7 +237,7 @@ public class AnnotationExecutor {
 				line = io.readString(IOStream.DEBUG);
 				Object res = null;
 				try {
-					res = exec(new Annotation(line));
+					res = exec(new Annotation(line), false); // each line is only run once
 				} catch(AssertionError | AnnotationEarlyReturn e) {
 					io.printString(IOStream.DEBUG, e.getClass().getName());
 				}
@@ -1,24 +1,80 @@
 package simulizer.annotations;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.script.ScriptException;
 
+import simulizer.assembler.representation.Annotation;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.simulation.cpu.user_interaction.IO;
 import simulizer.simulation.cpu.user_interaction.IOStream;
+import simulizer.simulation.exceptions.HeapException;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.exceptions.StackException;
 import simulizer.simulation.messages.AnnotationMessage;
 import simulizer.ui.WindowManager;
+import simulizer.utils.ThreadUtils;
 import simulizer.utils.UIUtils;
 
 /**
  * Holds data regarding the processing of annotations and display of visualisations
  *
+ * Annotations normally run while the simulation waits for them. Asynchronous
+ * annotations (see AnnotationSnapshot) are given a snapshot of the registers and
+ * the memory they declare, then run on a separate thread while the simulation
+ * continues. All annotations run in the order they were reached, so a synchronous
+ * annotation waits for the asynchronous annotations before it to finish. Once
+ * maxAsyncBacklog asynchronous annotations are waiting, the simulation thread waits
+ * for them to catch up before sending the next annotation (the thread processing
+ * the annotation messages never waits for the backlog).
+ *
  * @author mbway
  */
 @SuppressWarnings("WeakerAccess") // because bridges accessed from javascript
 public class AnnotationManager {
 	private AnnotationExecutor ex;
 	private static final boolean giveDetailedInfo = false;
-	private boolean enabled = true;
+	private volatile boolean enabled = true;
+
+	/**
+	 * the time spent running an annotation
+	 */
+	private static class Timing {
+		final String location;
+		long runs = 0;
+		long totalNanos = 0;
+		long maxNanos = 0;
+
+		Timing(String location) {
+			this.location = location;
+		}
+	}
+
+	private boolean timingEnabled = false;
+	/**
+	 * the timings for the annotations of the current program, in the order they first ran
+	 */
+	private Map<Annotation, Timing> timings = new HashMap<>();
+	private List<Timing> timingOrder = new ArrayList<>();
+
+	private static final int maxAsyncBacklog = 64;
+	private final ExecutorService asyncExecutor; // a single thread, so the annotations run in order
+	private final AtomicInteger asyncBacklog; // the number of asynchronous annotations queued or running
+	private final Object asyncProgress; // notified when an asynchronous annotation finishes
+	/**
+	 * the declarations at the start of the annotations of the current program (null if there is not one)
+	 * only accessed from the thread processing the annotation messages
+	 */
+	private final Map<Annotation, AnnotationSnapshot.Declaration> declarations = new HashMap<>();
+	private boolean programAsync = false; // whether the initial annotation made every annotation asynchronous
 
 	private WindowManager wm = null;
 	private CPU cpu;
@@ -35,6 +91,13 @@ public class AnnotationManager {
 		this.cpu = cpu;
 		this.io = io;
 
+		asyncExecutor = Executors.newSingleThreadExecutor(new ThreadUtils.NamedThreadFactory("Async-Annotations"));
+		asyncBacklog = new AtomicInteger(0);
+		asyncProgress = new Object();
+		if (cpu != null) {
+			cpu.setAnnotationBackpressure(this::waitForAsyncBacklog);
+		}
+
 		debugBridge = new DebugBridge();
 		simulationBridge = new SimulationBridge();
 
@@ -50,6 +113,7 @@ public class AnnotationManager {
 		this(wm.getCPU(), wm.getIO(), true/* enable visualisations */);
 		this.wm = wm;
 		this.enabled = (boolean) wm.getSettings().get("simulation.annotations");
+		this.timingEnabled = (boolean) wm.getSettings().get("simulation.annotation-timing");
 	}
 
 	/**
@@ -65,11 +129,16 @@ public class AnnotationManager {
 	 * @param cpu
 	 *            the new CPU object
 	 */
-	public synchronized void onNewProgram(CPU cpu) {
-		// refresh for each new program
-		newExecutor();
+	public void onNewProgram(CPU cpu) {
+		waitForAsync(); // annotations left over from the last program
 
-		simulationBridge.cpu = cpu;
+		synchronized (this) {
+			// refresh for each new program
+			newExecutor();
+
+			simulationBridge.cpu = cpu;
+		}
+		cpu.setAnnotationBackpressure(this::waitForAsyncBacklog);
 	}
 
 	/**
@@ -92,7 +161,11 @@ public class AnnotationManager {
 	 * handle the end of the program by disabling some access of the bridges
 	 */
 	public void onEndProgram() {
+		waitForAsync();
 		simulationBridge.cpu = null;
+		if (timingEnabled) {
+			reportTimings();
+		}
 	}
 
 	/**
@@ -100,6 +173,10 @@ public class AnnotationManager {
 	 */
 	public synchronized void newExecutor() {
 		ex = new AnnotationExecutor();
+		timings.clear();
+		timingOrder.clear();
+		declarations.clear();
+		programAsync = false;
 
 		ex.bindGlobal("debug", debugBridge);
 
@@ -114,23 +191,136 @@ public class AnnotationManager {
 
 	private String getAnnotationLineString(AnnotationMessage msg) {
 		if (msg.boundAddress != null) {
-			// TODO: in edge cases the simulation might have finished, creating a NullPointerException here. Maybe cache the program at the beginning to get around this?
-			int lineNum = cpu.getProgram().lineNumbers.get(msg.boundAddress);
-			return "the annotation bound to line: " + (lineNum + 1) + ".";
+			return "the annotation bound to " + getAnnotationLocation(msg) + ".";
 		} else {
 			return "the initial annotation.";
 		}
 	}
 
 	/**
-	 * extract the annotation from the message and send it to the executor to be executed
+	 * @return the line (or address) that the annotation is bound to
+	 */
+	private String getAnnotationLocation(AnnotationMessage msg) {
+		if (msg.boundAddress == null) {
+			return "initial";
+		}
+		// TODO: in edge cases the simulation might have finished, creating a NullPointerException here. Maybe cache the program at the beginning to get around this?
+		Integer lineNum = cpu.getProgram().lineNumbers.get(msg.boundAddress);
+		if (lineNum == null) {
+			// bound to an instruction from a library file rather than the main program
+			return "address: " + msg.boundAddress;
+		}
+		return "line: " + (lineNum + 1);
+	}
+
+	/**
+	 * extract the annotation from the message and send it to the executor to be executed.
+	 * Returns once the annotation has run, or once it has been queued if it is asynchronous
 	 *
 	 * @param msg
 	 *            the message containing the annotation to run
 	 */
-	public synchronized void processAnnotationMessage(AnnotationMessage msg) {
+	public void processAnnotationMessage(AnnotationMessage msg) {
 		if (!enabled)
 			return;
+
+		AnnotationSnapshot.Declaration declaration;
+		try {
+			declaration = getDeclaration(msg.annotation);
+		} catch (IllegalArgumentException e) {
+			reportError(msg, e.getMessage());
+			return;
+		}
+
+		if (msg.boundAddress == null) {
+			// the initial annotation decides the mode for the rest of the program
+			programAsync = declaration != null && declaration.async;
+		}
+		boolean async = msg.boundAddress != null && (declaration == null ? programAsync : declaration.async);
+
+		if (!async) {
+			waitForAsync();
+			runAnnotation(msg, null);
+			return;
+		}
+
+		// the simulation is waiting for this message to be processed, so the snapshot is consistent
+		Runnable task;
+		try {
+			List<AnnotationSnapshot.Region> regions = declaration == null ? Collections.emptyList() : declaration.regions;
+			AnnotationSnapshot snapshot = new AnnotationSnapshot(simulationBridge.cpu, regions);
+			task = () -> runAnnotation(msg, snapshot);
+		} catch (MemoryException | HeapException | StackException | IllegalArgumentException e) {
+			// reported in order with the output of the annotations before it
+			task = () -> reportError(msg, e.getMessage());
+		}
+
+		// never blocks, the simulation thread waits for the backlog before sending the next annotation
+		asyncBacklog.incrementAndGet();
+		final Runnable queued = task;
+		asyncExecutor.execute(() -> {
+			try {
+				queued.run();
+			} finally {
+				if (asyncBacklog.decrementAndGet() < maxAsyncBacklog) {
+					synchronized (asyncProgress) {
+						asyncProgress.notifyAll();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * block until there is room for another asynchronous annotation. Called on the
+	 * simulation thread before each annotation is sent (see CPU.setAnnotationBackpressure)
+	 */
+	private void waitForAsyncBacklog() {
+		if (asyncBacklog.get() < maxAsyncBacklog) {
+			return;
+		}
+		try {
+			synchronized (asyncProgress) {
+				while (asyncBacklog.get() >= maxAsyncBacklog) {
+					asyncProgress.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private AnnotationSnapshot.Declaration getDeclaration(Annotation annotation) {
+		if (declarations.containsKey(annotation)) {
+			return declarations.get(annotation);
+		}
+		AnnotationSnapshot.Declaration d = AnnotationSnapshot.Declaration.parse(annotation.code);
+		declarations.put(annotation, d);
+		return d;
+	}
+
+	/**
+	 * block until every asynchronous annotation queued so far has finished
+	 */
+	public void waitForAsync() {
+		if (asyncBacklog.get() == 0) {
+			return; // nothing queued or running
+		}
+		try {
+			asyncExecutor.submit(() -> {}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			UIUtils.showExceptionDialog(e);
+		}
+	}
+
+	/**
+	 * @param snapshot the snapshot to read from, or null to read from the CPU
+	 */
+	private synchronized void runAnnotation(AnnotationMessage msg, AnnotationSnapshot snapshot) {
+		long start = timingEnabled ? System.nanoTime() : 0;
+		simulationBridge.snapshot = snapshot;
 		try {
 			ex.exec(msg.annotation);
 		} catch (AnnotationEarlyReturn ignored) {
@@ -139,11 +329,61 @@ public class AnnotationManager {
 			io.printString(IOStream.ERROR, "  From " + getAnnotationLineString(msg) + "\n");
 			io.printString(IOStream.ERROR, "  With the code: \"" + e.getMessage().trim() + "\"\n");
 		} catch (ScriptException e) {
-			io.printString(IOStream.ERROR, "Annotation error: " + e.getMessage() + "\n");
-			io.printString(IOStream.ERROR, "  From " + getAnnotationLineString(msg) + "\n");
+			reportError(msg, e.getMessage());
 			if (giveDetailedInfo)
 				UIUtils.showExceptionDialog(e);
+		} finally {
+			simulationBridge.snapshot = null;
+			if (timingEnabled) {
+				recordTiming(msg, System.nanoTime() - start);
+			}
+		}
+	}
+
+	private void reportError(AnnotationMessage msg, String message) {
+		io.printString(IOStream.ERROR, "Annotation error: " + message + "\n");
+		io.printString(IOStream.ERROR, "  From " + getAnnotationLineString(msg) + "\n");
+	}
+
+	private void recordTiming(AnnotationMessage msg, long nanos) {
+		Timing t = timings.get(msg.annotation);
+		if (t == null) {
+			// found while the program is definitely loaded
+			t = new Timing(getAnnotationLocation(msg));
+			timings.put(msg.annotation, t);
+			timingOrder.add(t);
 		}
+		t.runs++;
+		t.totalNanos += nanos;
+		t.maxNanos = Math.max(t.maxNanos, nanos);
+	}
+
+	/**
+	 * write the time taken by each annotation of the current program so far to the debug stream
+	 */
+	public synchronized void reportTimings() {
+		long runs = 0;
+		long totalNanos = 0;
+		for (Timing t : timingOrder) {
+			runs += t.runs;
+			totalNanos += t.totalNanos;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("Annotation timing: %d runs of %d annotations took %.1fms%n",
+				runs, timingOrder.size(), totalNanos / 1e6));
+		for (Timing t : timingOrder) {
+			sb.append(String.format("  %s - %d runs, total: %.3fms, mean: %.3fms, max: %.3fms%n",
+					t.location, t.runs, t.totalNanos / 1e6, t.totalNanos / 1e6 / t.runs, t.maxNanos / 1e6));
+		}
+		io.printString(IOStream.DEBUG, sb.toString());
+	}
+
+	/**
+	 * @param value whether to time each annotation and report the timings at the end of the program
+	 */
+	public synchronized void setTimingEnabled(boolean value) {
+		timingEnabled = value;
 	}
 
 	public synchronized void setEnabled(boolean value) {
@@ -0,0 +1,276 @@
+package simulizer.annotations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.components.MemoryView;
+import simulizer.simulation.exceptions.HeapException;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.exceptions.StackException;
+
+/**
+ * A copy of the registers, and the regions of memory declared by an asynchronous
+ * annotation, taken when the annotation was reached. Asynchronous annotations run
+ * while the simulation continues, so they read from the snapshot rather than the
+ * CPU (see SimulationBridge).
+ *
+ * An annotation is declared asynchronous by starting it with a comment, which is
+ * joined with the annotations after it bound to the same instruction:
+ * <pre>
+ *   addi $t0, $t0, 1 # @{ // async $a0:40, $sp+4:$a1, 0x10010000:16, buf-4:8 }@
+ *                    # @{ log(sim.readStringFromMem($a0.get())); }@
+ * </pre>
+ * Each region of memory is BASE[+OFFSET]:LENGTH where the base is a register, a
+ * label or an address and the length is a register or a number of bytes. The
+ * register values are the values when the annotation is reached.
+ *
+ * If the initial annotation (before any segment) starts with "// async" then every
+ * annotation of the program is asynchronous unless it starts with "// sync".
+ *
+ * @author mbway
+ */
+class AnnotationSnapshot {
+	private static final Pattern header = Pattern.compile("^\\s*//\\s*(async|sync)\\b(.*)");
+	private static final String value = "\\$\\w+|0x[0-9a-fA-F]+|\\d+";
+	private static final String label = "[A-Za-z_.][\\w.]*";
+	private static final Pattern region = Pattern.compile("(" + value + "|" + label + ")(?:([+-])(0x[0-9a-fA-F]+|\\d+))?:(" + value + ")");
+
+	/**
+	 * how an annotation has declared it should be run
+	 */
+	static class Declaration {
+		final boolean async;
+		final List<Region> regions;
+
+		Declaration(boolean async, List<Region> regions) {
+			this.async = async;
+			this.regions = regions;
+		}
+
+		/**
+		 * @param code the code of the annotation
+		 * @return the declaration at the start of the annotation, or null if there is not one
+		 * @throws IllegalArgumentException if the declaration is not valid
+		 */
+		static Declaration parse(String code) {
+			String firstLine = code.trim();
+			int newline = firstLine.indexOf('\n');
+			if(newline != -1) {
+				firstLine = firstLine.substring(0, newline);
+			}
+
+			Matcher m = header.matcher(firstLine);
+			if(!m.matches()) {
+				return null;
+			}
+			boolean async = m.group(1).equals("async");
+			String rest = m.group(2).trim();
+
+			List<Region> regions = new ArrayList<>();
+			if(!rest.isEmpty()) {
+				if(!async) {
+					throw new IllegalArgumentException("synchronous annotations cannot declare memory: \"" + rest + "\"");
+				}
+				for(String r : rest.split("[,\\s]+")) {
+					regions.add(Region.parse(r));
+				}
+			}
+			return new Declaration(async, Collections.unmodifiableList(regions));
+		}
+	}
+
+	/**
+	 * a region of memory to copy into the snapshot
+	 */
+	static class Region {
+		final Register baseRegister; // null if the base is not a register
+		final String baseLabel; // null if the base is not a label
+		final int base;
+		final int offset;
+		final Register lengthRegister; // null if the length is a constant
+		final int length;
+
+		private Region(Register baseRegister, String baseLabel, int base, int offset, Register lengthRegister, int length) {
+			this.baseRegister = baseRegister;
+			this.baseLabel = baseLabel;
+			this.base = base;
+			this.offset = offset;
+			this.lengthRegister = lengthRegister;
+			this.length = length;
+		}
+
+		static Region parse(String r) {
+			Matcher m = region.matcher(r);
+			if(!m.matches()) {
+				throw new IllegalArgumentException("invalid memory region for an asynchronous annotation: \"" + r
+						+ "\" (expected BASE[+OFFSET]:LENGTH eg $a0:16)");
+			}
+			String b = m.group(1);
+			Register baseRegister = parseRegister(b);
+			String baseLabel = baseRegister == null && !Character.isDigit(b.charAt(0)) ? b : null;
+			int base = baseRegister == null && baseLabel == null ? parseNumber(b) : 0;
+			int offset = m.group(3) == null ? 0 : parseNumber(m.group(3));
+			if("-".equals(m.group(2))) {
+				offset = -offset;
+			}
+			Register lengthRegister = parseRegister(m.group(4));
+			int length = lengthRegister == null ? parseNumber(m.group(4)) : 0;
+			return new Region(baseRegister, baseLabel, base, offset, lengthRegister, length);
+		}
+
+		private static Register parseRegister(String s) {
+			if(!s.startsWith("$")) {
+				return null;
+			}
+			String name = s.substring(1);
+			try {
+				if(name.chars().allMatch(Character::isDigit)) {
+					return Register.fromID(Integer.parseInt(name));
+				} else {
+					return Register.fromString(name);
+				}
+			} catch(NoSuchElementException | NumberFormatException e) {
+				throw new IllegalArgumentException("unknown register in asynchronous annotation: \"" + s + "\"");
+			}
+		}
+
+		private static int parseNumber(String s) {
+			try {
+				if(s.startsWith("0x")) {
+					return (int) Long.parseLong(s.substring(2), 16);
+				}
+				return Integer.parseInt(s);
+			} catch(NumberFormatException e) {
+				throw new IllegalArgumentException("invalid number in asynchronous annotation: \"" + s + "\"");
+			}
+		}
+	}
+
+	/**
+	 * a copy of some memory
+	 */
+	private static class Copy {
+		final int start;
+		final byte[] data;
+
+		Copy(int start, byte[] data) {
+			this.start = start;
+			this.data = data;
+		}
+
+		boolean contains(int address, int length) {
+			// using longs so that regions at the top of memory do not overflow
+			return address >= start && (long) address + length <= (long) start + data.length;
+		}
+	}
+
+	private final int[] registers;
+	private final int hi;
+	private final int lo;
+	private final List<Copy> memory;
+
+	/**
+	 * take a snapshot. Must be called while the CPU is waiting (eg while it waits for
+	 * the annotation message to be processed) for the snapshot to be consistent.
+	 * @param cpu the CPU to copy from
+	 * @param regions the memory to copy
+	 * @throws MemoryException if a region is not valid memory to read
+	 */
+	AnnotationSnapshot(CPU cpu, List<Region> regions) throws MemoryException, HeapException, StackException {
+		Register[] all = Register.values();
+		registers = new int[all.length];
+		for(Register r : all) {
+			registers[r.getID()] = cpu.getRegisterValue(r);
+		}
+		hi = cpu.getHiValue();
+		lo = cpu.getLoValue();
+
+		memory = new ArrayList<>(regions.size());
+		for(Region r : regions) {
+			int start = baseOf(r, cpu) + r.offset;
+			int length = r.lengthRegister == null ? r.length : getRegisterValue(r.lengthRegister);
+			if(length <= 0) {
+				throw new IllegalArgumentException("the memory declared by an asynchronous annotation must have a positive length (not " + length + ")");
+			}
+			memory.add(new Copy(start, cpu.getMainMemory().readFromMem(start, length)));
+		}
+	}
+
+	private int baseOf(Region r, CPU cpu) {
+		if(r.baseRegister != null) {
+			return getRegisterValue(r.baseRegister);
+		} else if(r.baseLabel != null) {
+			Address address = cpu.labels == null ? null : cpu.labels.get(r.baseLabel);
+			if(address == null) {
+				throw new IllegalArgumentException("unknown label in asynchronous annotation: \"" + r.baseLabel + "\"");
+			}
+			return address.getValue();
+		} else {
+			return r.base;
+		}
+	}
+
+	int getRegisterValue(Register r) {
+		return registers[r.getID()];
+	}
+
+	int getHiValue() {
+		return hi;
+	}
+
+	int getLoValue() {
+		return lo;
+	}
+
+	private Copy find(int address, int length) {
+		for(Copy c : memory) {
+			if(c.contains(address, length)) {
+				return c;
+			}
+		}
+		throw new IllegalStateException(String.format(
+				"the memory 0x%08x to 0x%08x was not declared by the asynchronous annotation", address, address + length));
+	}
+
+	/**
+	 * @return a copy of the snapshot of the given memory
+	 * @throws IllegalStateException if the memory is not part of the snapshot
+	 */
+	byte[] read(int address, int length) {
+		Copy c = find(address, length);
+		int from = address - c.start;
+		return Arrays.copyOfRange(c.data, from, from + length);
+	}
+
+	/**
+	 * @return a view of the snapshot of the given memory
+	 * @throws IllegalStateException if the memory is not part of the snapshot
+	 */
+	MemoryView view(int address, int length) {
+		Copy c = find(address, length);
+		return new MemoryView(c.data, address - c.start, address, length);
+	}
+
+	/**
+	 * @return the bytes up to (not including) the first null character
+	 * @throws IllegalStateException if the null character is not part of the snapshot
+	 */
+	byte[] readUntilNull(int address) {
+		Copy c = find(address, 1);
+		for(int i = address - c.start; i < c.data.length; ++i) {
+			if(c.data[i] == 0) {
+				return Arrays.copyOfRange(c.data, address - c.start, i);
+			}
+		}
+		throw new IllegalStateException(String.format(
+				"the string at 0x%08x continues past the memory declared by the asynchronous annotation", address));
+	}
+}
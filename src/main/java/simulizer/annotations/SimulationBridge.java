@@ -3,6 +3,7 @@ package simulizer.annotations;
 import simulizer.assembler.representation.Register;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.simulation.cpu.components.MainMemory;
+import simulizer.simulation.cpu.components.MemoryView;
 import simulizer.simulation.data.representation.DataConverter;
 import simulizer.simulation.data.representation.Word;
 import simulizer.simulation.exceptions.HeapException;
@@ -23,6 +24,13 @@ public class SimulationBridge {
 	// package-visible Attributes not visible from JavaScript
 	// set package-visible attributes using BridgeFactory
 	CPU cpu = null;
+	// set while an asynchronous annotation is running, which must read from the snapshot rather than the CPU
+	AnnotationSnapshot snapshot = null;
+
+	private void checkNotAsync() {
+		if(snapshot != null)
+			throw new IllegalStateException("asynchronous annotations cannot modify the simulation");
+	}
 
 	public void pause() { cpu.pause(); }
 	public void stop() {
@@ -41,61 +49,97 @@ public class SimulationBridge {
 	}
 
 	public Word[] getRegisters() {
+		if(snapshot != null) {
+			Register[] all = Register.values();
+			Word[] words = new Word[all.length];
+			for(Register r : all)
+				words[r.getID()] = new Word(DataConverter.encodeAsSigned(snapshot.getRegisterValue(r)));
+			return words;
+		}
 		if(cpu == null)
 			throw new IllegalStateException();
 		return cpu.getRegisters();
 	}
 
 	public long getRegisterU(Register r) {
+		if(snapshot != null)
+			return snapshot.getRegisterValue(r) & 0xFFFFFFFFL;
 		return DataConverter.decodeAsUnsigned(cpu.getRegister(r).getBytes());
 	}
 	public long getRegisterS(Register r) {
+		if(snapshot != null)
+			return snapshot.getRegisterValue(r);
 		return DataConverter.decodeAsSigned(cpu.getRegister(r).getBytes());
 	}
 
 	public void setRegisterU(Register r, long val) {
+		checkNotAsync();
 		Word w = new Word(DataConverter.encodeAsUnsigned(val));
         cpu.setRegister(r, w);
 	}
 	public void setRegisterS(Register r, long val) {
+		checkNotAsync();
 		Word w = new Word(DataConverter.encodeAsSigned(val));
 		cpu.setRegister(r, w);
 	}
 
 	public List<Long> readUnsignedWordsFromMem(int startAddress, int length) throws MemoryException, HeapException, StackException {
-		MainMemory mem = cpu.getMainMemory();
 		List<Long> words = new ArrayList<>();
 
 		assert (length > 0) && (length % 4 == 0);
 		int end = startAddress+length;
+		if(snapshot != null) {
+			MemoryView view = snapshot.view(startAddress, length + 4);
+			for(int i = 0; i <= length; i+=4) {
+				words.add(view.getUnsignedWord(i));
+			}
+			return words;
+		}
+		MainMemory mem = cpu.getMainMemory();
 		for(int i = startAddress; i <= end; i+=4) {
-			words.add(DataConverter.decodeAsUnsigned(mem.readFromMem(i, 4)));
+			words.add(mem.loadWord(i) & 0xFFFFFFFFL);
 		}
 		return words;
 	}
+	/**
+	 * a read-only view of memory which reads the current values without copying
+	 * (eg to pass to CanvasModel.drawPixels every frame)
+	 */
+	public MemoryView viewMem(int startAddress, int length) throws MemoryException, HeapException, StackException {
+		if(snapshot != null)
+			return snapshot.view(startAddress, length);
+		return cpu.getMainMemory().view(startAddress, length);
+	}
 	public String readStringFromMem(int startAddress) throws MemoryException, HeapException, StackException {
+		if(snapshot != null)
+			return new String(snapshot.readUntilNull(startAddress), StandardCharsets.UTF_8);
 		MainMemory mem = cpu.getMainMemory();
         byte[] data = mem.readUntilNull(startAddress);
 		return new String(data, StandardCharsets.UTF_8);
 	}
 	public byte[] readBytesFromMem(int startAddress, int length) throws MemoryException, HeapException, StackException {
+		if(snapshot != null)
+			return snapshot.read(startAddress, length);
 		MainMemory mem = cpu.getMainMemory();
         return mem.readFromMem(startAddress, length);
 	}
 	public boolean[] readBoolsFromMem(int startAddress, int length) throws MemoryException, HeapException, StackException {
-		MainMemory mem = cpu.getMainMemory();
-		byte[] bytes = mem.readFromMem(startAddress, length);
-		boolean[] bools = new boolean[bytes.length];
-		for(int i = 0; i < bytes.length; ++i)
-			bools[i] = bytes[i] != 0;
+		MemoryView view = viewMem(startAddress, length);
+		boolean[] bools = new boolean[length];
+		for(int i = 0; i < length; ++i)
+			bools[i] = view.getBool(i);
 		return bools;
 	}
 	
 	public byte[] getLo() {
+		if(snapshot != null)
+			return DataConverter.encodeAsSigned(snapshot.getLoValue());
 		return cpu.getLo().getBytes();
 	}
 	
 	public byte[] getHi() {
+		if(snapshot != null)
+			return DataConverter.encodeAsSigned(snapshot.getHiValue());
 		return cpu.getHi().getBytes();
 	}
 }
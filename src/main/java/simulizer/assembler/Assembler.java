@@ -1,21 +1,16 @@
 package simulizer.assembler;
 
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 import java.util.*;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
-
+import simulizer.assembler.extractor.ParallelExtractor;
 import simulizer.assembler.extractor.ProgramExtractor;
 import simulizer.assembler.extractor.problem.Problem;
 import simulizer.assembler.extractor.problem.ProblemCountLogger;
 import simulizer.assembler.extractor.problem.ProblemLogger;
 import simulizer.assembler.extractor.problem.StoreProblemLogger;
 import simulizer.assembler.representation.*;
+import simulizer.assembler.representation.operand.AddressOperand;
 import simulizer.assembler.representation.operand.Operand;
-import simulizer.parser.SimpLexer;
 import simulizer.parser.SimpParser;
 import simulizer.simulation.data.representation.DataConverter;
 import simulizer.simulation.data.representation.Word;
@@ -39,18 +34,11 @@ public class Assembler {
 
         input += '\n'; // to parse correctly, must end with a newline
 
-        SimpLexer lexer = new SimpLexer(new ANTLRInputStream(input));
-        SimpParser parser = new SimpParser(new CommonTokenStream(lexer));
-
-        // prevent outputting to the console
-        lexer.removeErrorListeners();
-        parser.removeErrorListeners();
-
         // try to parse a program from the input
-        SimpParser.ProgramContext tree = parser.program();
+        SimpParser.ProgramContext tree = ProgramParser.parse(input);
 
-        ProgramExtractor extractor = new ProgramExtractor(log);
-        ParseTreeWalker.DEFAULT.walk(extractor, tree);
+        ProgramExtractor extractor = ParallelExtractor.extract(tree, log);
+        checkLabelsDefined(extractor, log);
 
         return log.getProblems();
     }
@@ -65,19 +53,90 @@ public class Assembler {
 
         input += '\n'; // to parse correctly, must end with a newline
 
-        SimpLexer lexer = new SimpLexer(new ANTLRInputStream(input));
-        SimpParser parser = new SimpParser(new CommonTokenStream(lexer));
+        // try to parse a program from the input
+        SimpParser.ProgramContext tree = ProgramParser.parse(input);
 
-        // prevent outputting to the console
-        lexer.removeErrorListeners();
-        parser.removeErrorListeners();
+        ProblemCountLogger counter = new ProblemCountLogger(log);
+        ProgramExtractor extractor = ParallelExtractor.extract(tree, counter);
+        checkLabelsDefined(extractor, counter);
 
-        // try to parse a program from the input
-        SimpParser.ProgramContext tree = parser.program();
+        if(permissive) {
+            if(counter.criticalCount > 0) {
+                return null;
+            }
+        } else {
+            if(counter.problemCount > 0) {
+                return null;
+            }
+        }
 
+        int sourceHash = input.hashCode();
+        return layout(Collections.singletonList(CompilationUnit.wholeProgram(extractor, sourceHash)), sourceHash);
+    }
+
+    /**
+     * Join several source files together into a single program. The text and
+     * data segments of the units are placed one after another in the order given.
+     *
+     * The first unit is the main program and all of its labels are visible to
+     * the other units. The labels of the other units are only visible to the
+     * other units if they are named by a .globl directive. Labels defined inside
+     * a unit take priority over the global labels of other units.
+     *
+     * The problems of each unit are sent to the logger first (with the name of
+     * the unit at the start of the message) followed by any problems found
+     * when joining the units.
+     *
+     * @param units the units to join, starting with the main program
+     * @param log the logger to send the error messages (may be null)
+     * @param permissive whether to allow non-critical problems
+     * @return the assembled program (or null if errors are encountered)
+     */
+    public static Program link(List<CompilationUnit> units, ProblemLogger log, boolean permissive) {
         ProblemCountLogger counter = new ProblemCountLogger(log);
-        ProgramExtractor extractor = new ProgramExtractor(counter);
-        ParseTreeWalker.DEFAULT.walk(extractor, tree);
+
+        for(CompilationUnit unit : units) {
+            for(Problem p : unit.getProblems()) {
+                counter.logProblem(unitMessage(unit, p.message), p.lineNum, p.rangeStart, p.rangeEnd, p.severity);
+            }
+        }
+
+        // the unit defining each global label
+        Map<String, CompilationUnit> globals = new HashMap<>();
+        for(int u = 0; u < units.size(); u++) {
+            CompilationUnit unit = units.get(u);
+            for(String label : globalLabels(unit.extractor, u == 0)) {
+                CompilationUnit other = globals.putIfAbsent(label, unit);
+                if(other != null) {
+                    counter.logProblem("the global label \"" + label + "\" is defined in both " +
+                            describeUnit(other) + " and " + describeUnit(unit), Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
+                }
+            }
+        }
+
+        CompilationUnit mainUnit = globals.get("main");
+        if(mainUnit == null || !mainUnit.extractor.textSegmentLabels.containsKey("main")) {
+            counter.logProblem("The program has no 'main' label", Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
+        }
+
+        for(CompilationUnit unit : units) {
+            ProgramExtractor e = unit.extractor;
+            for(Statement s : e.textSegment) {
+                for(Operand op : s.getOperandList()) {
+                    if(op.getType() != Operand.Type.Address) {
+                        continue;
+                    }
+                    Optional<String> labelName = op.asAddressOp().labelName;
+                    if(labelName.isPresent()
+                            && !e.textSegmentLabels.containsKey(labelName.get())
+                            && !e.dataSegmentLabels.containsKey(labelName.get())
+                            && !globals.containsKey(labelName.get())) {
+                        counter.logProblem(unitMessage(unit, "the label \"" + labelName.get() + "\" is not defined"),
+                                s.getLineNumber() + 1, Problem.Severity.CRITICAL);
+                    }
+                }
+            }
+        }
 
         if(permissive) {
             if(counter.criticalCount > 0) {
@@ -89,39 +148,104 @@ public class Assembler {
             }
         }
 
-        Map<Integer, List<String>> reverseTextLabels = DataUtils.reverseMapping(extractor.textSegmentLabels);
-        Map<Integer, List<String>> reverseDataLabels = DataUtils.reverseMapping(extractor.dataSegmentLabels);
+        int sourceHash = 0;
+        for(CompilationUnit unit : units) {
+            sourceHash = 31 * sourceHash + unit.getSourceHash();
+        }
+        return layout(units, sourceHash);
+    }
+
+    private static String unitMessage(CompilationUnit unit, String message) {
+        return unit.getName().isEmpty() ? message : unit.getName() + ": " + message;
+    }
 
+    private static String describeUnit(CompilationUnit unit) {
+        return unit.getName().isEmpty() ? "the program" : unit.getName();
+    }
+
+    /**
+     * @param extractor the extractor of a unit
+     * @param mainProgram whether the unit is the main program (in which case every label is global)
+     * @return the labels defined in the unit which are visible to the other units
+     */
+    private static Set<String> globalLabels(ProgramExtractor extractor, boolean mainProgram) {
+        Set<String> labels = new TreeSet<>();
+        if(mainProgram) {
+            labels.addAll(extractor.textSegmentLabels.keySet());
+            labels.addAll(extractor.dataSegmentLabels.keySet());
+        } else {
+            for(String label : extractor.globalLabels) {
+                if(extractor.textSegmentLabels.containsKey(label) || extractor.dataSegmentLabels.containsKey(label)) {
+                    labels.add(label);
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * assign addresses to the contents of some valid units and fill in the
+     * addresses of the labels they refer to (see link)
+     * @param units the units to place in the program. Every label must be defined
+     * @param sourceHash the hash of the source code of the units
+     * @return the program
+     */
+    private static Program layout(List<CompilationUnit> units, int sourceHash) {
         Program p = new Program();
 
+        p.sourceHash = sourceHash;
 
-        p.sourceHash = input.hashCode();
+        // the addresses of the labels visible inside each unit, and to every unit
+        List<Map<String, Integer>> localLabels = new ArrayList<>();
+        Map<String, Integer> globalLabels = new HashMap<>();
+        List<Set<String>> unitGlobals = new ArrayList<>();
+        for(int u = 0; u < units.size(); u++) {
+            localLabels.add(new HashMap<>());
+            unitGlobals.add(globalLabels(units.get(u).extractor, u == 0));
+        }
 
         Address address = new Address(0x00400000); // text segment offset
 
         p.textSegmentStart = address;
 
-        if(!extractor.initAnnotationCode.isEmpty()) {
-            p.initAnnotation = new Annotation(extractor.initAnnotationCode);
+        StringBuilder initAnnotationCode = new StringBuilder();
+        for(CompilationUnit unit : units) {
+            initAnnotationCode.append(unit.extractor.initAnnotationCode);
+        }
+        if(initAnnotationCode.length() > 0) {
+            p.initAnnotation = new Annotation(initAnnotationCode.toString());
         }
 
-        for(int i = 0; i < extractor.textSegment.size(); i++) {
-            Statement s = extractor.textSegment.get(i);
-
-            if(reverseTextLabels.containsKey(i)) {
-                for(String labelName : reverseTextLabels.get(i)) {
-                    p.labels.put(new Label(labelName, s.getLineNumber(), Label.Type.INSTRUCTION), address);
+        List<Address> unitTextStart = new ArrayList<>();
+        for(int u = 0; u < units.size(); u++) {
+            ProgramExtractor extractor = units.get(u).extractor;
+            Map<Integer, List<String>> reverseTextLabels = DataUtils.reverseMapping(extractor.textSegmentLabels);
+            unitTextStart.add(address);
+
+            for(int i = 0; i < extractor.textSegment.size(); i++) {
+                Statement s = extractor.textSegment.get(i);
+
+                if(reverseTextLabels.containsKey(i)) {
+                    for(String labelName : reverseTextLabels.get(i)) {
+                        localLabels.get(u).put(labelName, address.getValue());
+                        if(unitGlobals.get(u).contains(labelName)) {
+                            globalLabels.put(labelName, address.getValue());
+                            p.labels.put(new Label(labelName, s.getLineNumber(), Label.Type.INSTRUCTION), address);
+                        }
+                    }
                 }
-            }
 
-            if(extractor.annotations.containsKey(i)) {
-                p.annotations.put(address, new Annotation(extractor.annotations.get(i)));
-            }
+                if(extractor.annotations.containsKey(i)) {
+                    p.annotations.put(address, new Annotation(extractor.annotations.get(i)));
+                }
 
-            p.textSegment.put(address, s);
-            p.lineNumbers.put(address, s.getLineNumber());
+                // the line numbers of the other units refer to different files
+                if(u == 0) {
+                    p.lineNumbers.put(address, s.getLineNumber());
+                }
 
-            address = new Address(address.getValue() + 4);
+                address = new Address(address.getValue() + 4);
+            }
         }
         p.textSegmentLast = new Address(address.getValue() - 4);
 
@@ -129,36 +253,65 @@ public class Assembler {
         address = new Address(0x10010000); // (static) data segment skip over the 64KB .extern segment
         p.dataSegmentStart = address;
 
-        List<Byte> tmpDataSegment = new ArrayList<>();
-
-        for(int i = 0; i < extractor.dataSegment.size(); i++) {
-            Variable v = extractor.dataSegment.get(i);
-
-            if(reverseDataLabels.containsKey(i)) {
-                for(String labelName : reverseDataLabels.get(i)) {
-                    p.labels.put(new Label(labelName, v.getLineNumber(), Label.Type.VARIABLE), address);
+        // only the initialised variables need to be stored in the buffer
+        int initialisedSize = 0;
+        for(CompilationUnit unit : units) {
+            for(Variable v : unit.extractor.dataSegment) {
+                if(v.getInitialValue().isPresent()) {
+                    initialisedSize += v.getSize();
                 }
             }
+        }
+        DataSegment.Builder data = new DataSegment.Builder(initialisedSize);
+
+        for(int u = 0; u < units.size(); u++) {
+            ProgramExtractor extractor = units.get(u).extractor;
+            Map<Integer, List<String>> reverseDataLabels = DataUtils.reverseMapping(extractor.dataSegmentLabels);
+
+            // start the data of each unit on a word boundary
+            int padding = (4 - data.length() % 4) % 4;
+            data.putZeroes(padding);
+            address = new Address(address.getValue() + padding);
+
+            for(int i = 0; i < extractor.dataSegment.size(); i++) {
+                Variable v = extractor.dataSegment.get(i);
+
+                if(reverseDataLabels.containsKey(i)) {
+                    for(String labelName : reverseDataLabels.get(i)) {
+                        localLabels.get(u).put(labelName, address.getValue());
+                        if(unitGlobals.get(u).contains(labelName)) {
+                            globalLabels.put(labelName, address.getValue());
+                            p.labels.put(new Label(labelName, v.getLineNumber(), Label.Type.VARIABLE), address);
+                        }
+                    }
+                }
 
-            p.dataSegmentVariables.put(address, v);
-
-            byte[] data = variableInitialBytes(v);
-            assert data.length == v.getSize();
+                p.dataSegmentVariables.put(address, v);
 
-            for(byte b : data) {
-                tmpDataSegment.add(b);
-            }
+                int sizeBefore = data.length();
+                writeInitialValue(data, v);
+                assert data.length() - sizeBefore == v.getSize();
 
-            // Antlr line numbers start from 1
-            // the convention in simulizer is to start from 0
-            p.lineNumbers.put(address, v.getLineNumber());
+                // Antlr line numbers start from 1
+                // the convention in simulizer is to start from 0
+                if(u == 0) {
+                    p.lineNumbers.put(address, v.getLineNumber());
+                }
 
-            address = new Address(address.getValue() + v.getSize());
+                address = new Address(address.getValue() + v.getSize());
+            }
         }
 
-        p.dataSegment = new byte[tmpDataSegment.size()];
-        for(int i = 0; i < p.dataSegment.length; i++) {
-            p.dataSegment[i] = tmpDataSegment.get(i);
+        p.dataSegment = data.build();
+
+        // now that every label has an address, place the statements with their labels resolved
+        for(int u = 0; u < units.size(); u++) {
+            ProgramExtractor extractor = units.get(u).extractor;
+            int start = unitTextStart.get(u).getValue();
+            for(int i = 0; i < extractor.textSegment.size(); i++) {
+                Statement s = resolveLabels(extractor.textSegment.get(i), localLabels.get(u), globalLabels);
+                p.textSegment.put(new Address(start + 4 * i), s);
+            }
         }
 
         p.dynamicSegmentStart = new Address(0x10040000); // start of the dynamic data segment
@@ -171,39 +324,99 @@ public class Assembler {
     }
 
 
-    private static byte[] variableInitialBytes(Variable v) {
+    /**
+     * log a problem for every address operand which refers to a label which is
+     * not defined anywhere in the program
+     * @param extractor the extractor which has walked the program
+     * @param log the logger to send the problems to
+     */
+    static void checkLabelsDefined(ProgramExtractor extractor, ProblemLogger log) {
+        for(Statement s : extractor.textSegment) {
+            for(Operand op : s.getOperandList()) {
+                if(op.getType() != Operand.Type.Address) {
+                    continue;
+                }
+                Optional<String> labelName = op.asAddressOp().labelName;
+                if(labelName.isPresent()
+                        && !extractor.textSegmentLabels.containsKey(labelName.get())
+                        && !extractor.dataSegmentLabels.containsKey(labelName.get())) {
+                    // Antlr line numbers start from 1, statement line numbers start from 0
+                    log.logProblem("the label \"" + labelName.get() + "\" is not defined",
+                            s.getLineNumber() + 1, Problem.Severity.CRITICAL);
+                }
+            }
+        }
+    }
+
+    /**
+     * fill in the addresses of the labels referred to by the address operands of
+     * a statement, so that the simulation does not have to look them up.
+     * The statement is copied rather than modified, since the same unit may be
+     * linked into several programs
+     * @param s the statement to resolve
+     * @param localLabels the addresses of the labels defined in the same unit as the statement
+     * @param globalLabels the addresses of the labels visible to every unit
+     * @return the statement with every label resolved (or s if it does not refer to any labels)
+     */
+    private static Statement resolveLabels(Statement s, Map<String, Integer> localLabels, Map<String, Integer> globalLabels) {
+        boolean hasLabel = false;
+        for(Operand op : s.getOperandList()) {
+            if(op.getType() == Operand.Type.Address && op.asAddressOp().labelName.isPresent()) {
+                hasLabel = true;
+                break;
+            }
+        }
+        if(!hasLabel) {
+            return s;
+        }
+
+        List<Operand> operands = new ArrayList<>(s.getOperandList().size());
+        for(Operand op : s.getOperandList()) {
+            if(op.getType() == Operand.Type.Address && op.asAddressOp().labelName.isPresent()) {
+                AddressOperand a = op.asAddressOp();
+                String labelName = a.labelName.get();
+                Integer labelAddress = localLabels.get(labelName);
+                if(labelAddress == null) {
+                    labelAddress = globalLabels.get(labelName);
+                }
+                AddressOperand resolved = new AddressOperand(a.labelName, a.constant, a.register);
+                resolved.resolve(labelAddress);
+                operands.add(resolved);
+            } else {
+                operands.add(op);
+            }
+        }
+        return new Statement(s.getInstruction(), operands, s.getLineNumber());
+    }
+
+    private static void writeInitialValue(DataSegment.Builder data, Variable v) {
         Optional<Operand> operand = v.getInitialValue();
         Operand op;
         if(!operand.isPresent()) {
-            return new byte[v.getSize()];
+            data.putZeroes(v.getSize());
+            return;
         } else {
             op = operand.get();
         }
 
         switch(v.getType()) {
-            case Byte: {
-                int val = op.asIntegerOp().value;
-                return new byte[]{(byte) val};
-            }
-            case Half: {
-                int val = op.asIntegerOp().value;
-                return new byte[]{
-                    (byte)((val >> 8) & 0xFF),
-                    (byte)(val & 0xFF)
-                };
-            }
-            case Word: {
-                int val = op.asIntegerOp().value;
-                return ByteBuffer.allocate(4).putInt(val).array();
-            }
+            case Byte:
+                data.putByte(op.asIntegerOp().value);
+                break;
+            case Half:
+                data.putHalf(op.asIntegerOp().value);
+                break;
+            case Word:
+                data.putWord(op.asIntegerOp().value);
+                break;
             case ASCII:
-            case ASCIIZ: {
+            case ASCIIZ:
                 // null terminator was added earlier so these are equivalent
-                String val = op.asStringOp().value;
-                return val.getBytes(Charset.forName("US-ASCII"));
-            }
+                data.putASCII(op.asStringOp().value);
+                break;
             case Space:
-                return new byte[v.getSize()];
+                data.putZeroes(v.getSize());
+                break;
             default:
                 throw new IllegalArgumentException();
         }
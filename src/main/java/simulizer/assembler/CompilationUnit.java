@@ -0,0 +1,87 @@
+package simulizer.assembler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import simulizer.assembler.extractor.ParallelExtractor;
+import simulizer.assembler.extractor.ProgramExtractor;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.parser.SimpParser;
+
+/**
+ * One of the source files making up a program, which has been parsed and checked
+ * but not yet given addresses. The statements and variables refer to labels by
+ * name, so the same unit can be placed anywhere in the program.
+ *
+ * Units are joined together into a program by Assembler.link. The labels of a
+ * unit are only visible inside that unit unless they are named by a .globl
+ * directive, except for the first unit (the main program) whose labels are all
+ * visible to the other units.
+ *
+ * A unit is not modified when it is linked, so it can be reused in several
+ * programs (see ProgramCache).
+ *
+ * @author mbway
+ */
+public class CompilationUnit {
+    private final String name;
+    private final int sourceHash;
+    final ProgramExtractor extractor;
+    private final List<Problem> problems;
+
+    private CompilationUnit(String name, int sourceHash, ProgramExtractor extractor, List<Problem> problems) {
+        this.name = name;
+        this.sourceHash = sourceHash;
+        this.extractor = extractor;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * parse and check a source file
+     * @param name the name of the file (used in problem messages)
+     * @param input the content of the file
+     * @return the unit for the file (check getProblems to see if it is valid)
+     */
+    public static CompilationUnit extract(String name, String input) {
+        input += '\n'; // to parse correctly, must end with a newline
+
+        SimpParser.ProgramContext tree = ProgramParser.parse(input);
+
+        StoreProblemLogger log = new StoreProblemLogger();
+        ProgramExtractor extractor = ParallelExtractor.extract(tree, log, false);
+        return new CompilationUnit(name, input.hashCode(), extractor, new ArrayList<>(log.getProblems()));
+    }
+
+    /**
+     * @param extractor an extractor which has walked a whole program
+     * @param sourceHash the hash of the source of the program
+     * @return a unit containing the whole program, for linking on its own
+     */
+    static CompilationUnit wholeProgram(ProgramExtractor extractor, int sourceHash) {
+        return new CompilationUnit("", sourceHash, extractor, new ArrayList<>());
+    }
+
+    /**
+     * @return the name of the file
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return a hash of the source of the file
+     */
+    public int getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * @return the problems found in the file on its own (undefined labels are
+     *         only found when the units are linked)
+     */
+    public List<Problem> getProblems() {
+        return problems;
+    }
+}
@@ -0,0 +1,230 @@
+package simulizer.assembler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.RuleNode;
+
+import simulizer.assembler.extractor.ProgramExtractor;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.ProblemLogger;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.parser.SimpParser;
+
+/**
+ * Finds the problems with a program which is being edited, for continuous
+ * checking in the editor. Produces the same problems as Assembler.checkForProblems
+ * but each line is parsed separately and the parse trees are cached by the
+ * content of the line, so after an edit only the lines which changed are parsed
+ * again (parsing is by far the most expensive part of checking).
+ *
+ * The trees are then walked in order with a single ProgramExtractor, so the
+ * checks which depend on the rest of the program (which segment a line is in,
+ * duplicate and undefined labels, binding annotations) are done for the whole
+ * program as normal. Line numbers and character ranges of the problems are
+ * shifted to where the line is in the program.
+ *
+ * Lexer tokens never span multiple lines, so valid programs are treated exactly
+ * the same as when parsing the whole program at once. The parser may recover from
+ * a syntax error slightly differently because it cannot see the following lines.
+ *
+ * A check can be cancelled part way through (eg when the program is edited again
+ * before the check finishes). The lines parsed before cancelling are kept so that
+ * the next check does not have to parse them again.
+ *
+ * @author mbway
+ */
+public class IncrementalChecker {
+    /**
+     * the parse trees of the lines of the last program checked, by line content
+     */
+    private Map<String, SimpParser.ProgramContext> lineCache;
+    private int linesParsed;
+
+    public IncrementalChecker() {
+        lineCache = new HashMap<>();
+        linesParsed = 0;
+    }
+
+    /**
+     * @param input the program string to check
+     * @return any problems with the program (empty list if program valid)
+     */
+    public List<Problem> checkForProblems(String input) {
+        return checkForProblems(input, () -> false);
+    }
+
+    /**
+     * @param input the program string to check
+     * @param cancelled checked between lines, returns true if the check should be abandoned
+     * @return any problems with the program (empty list if program valid)
+     * @throws CancellationException if the check was cancelled
+     */
+    public synchronized List<Problem> checkForProblems(String input, BooleanSupplier cancelled) {
+        StoreProblemLogger log = new StoreProblemLogger();
+        OffsetProblemLogger offsetLog = new OffsetProblemLogger(log);
+        ProgramExtractor extractor = new ProgramExtractor(offsetLog);
+        SegmentWalker walker = new SegmentWalker();
+
+        // only keep the lines of this version of the program
+        Map<String, SimpParser.ProgramContext> newCache = new HashMap<>();
+        linesParsed = 0;
+
+        boolean inTextSegment = false;
+        // problems about a whole segment, which extend to the end of the segment
+        List<Problem> segmentProblems = new ArrayList<>();
+        int lastStop = -1; // the end of the last thing walked
+        int lineNum = 0;
+        int lineStart = 0;
+        while(lineStart <= input.length()) {
+            int lineEnd = input.indexOf('\n', lineStart);
+            if(lineEnd == -1) {
+                lineEnd = input.length(); // the last line
+            }
+            String line = input.substring(lineStart, lineEnd);
+
+            if(cancelled.getAsBoolean()) {
+                // keep the work done so far for the next check
+                lineCache.putAll(newCache);
+                throw new CancellationException("check cancelled after " + lineNum + " lines");
+            }
+
+            SimpParser.ProgramContext tree = newCache.get(line);
+            if(tree == null) {
+                tree = lineCache.get(line);
+                if(tree == null) {
+                    // to parse correctly, must end with a newline
+                    tree = ProgramParser.parse(line + '\n');
+                    ++linesParsed;
+                }
+                newCache.put(line, tree);
+            }
+
+            extractor.setLineOffset(lineNum);
+            offsetLog.setOffset(lineNum, lineStart);
+
+            for(ParseTree child : tree.children) {
+                // when parsing the whole program, a segment contains every line up to the
+                // next segment, so the end of the text segment has to be found here instead
+                boolean segment = child instanceof SimpParser.TextSegmentContext
+                        || child instanceof SimpParser.DataSegmentContext;
+                if(segment) {
+                    endSegment(segmentProblems, lastStop);
+                    if(inTextSegment) {
+                        extractor.exitTextSegment(null);
+                    }
+                    inTextSegment = child instanceof SimpParser.TextSegmentContext;
+                }
+
+                int problemCount = log.getProblems().size();
+                walker.walk(extractor, child);
+
+                if(child instanceof ParserRuleContext) {
+                    ParserRuleContext ctx = (ParserRuleContext) child;
+                    if(ctx.getStop() != null) {
+                        int start = lineStart + ctx.getStart().getStartIndex();
+                        int stop = lineStart + ctx.getStop().getStopIndex();
+                        if(segment) {
+                            for(Problem p : log.getProblems().subList(problemCount, log.getProblems().size())) {
+                                if(p.rangeStart == start && p.rangeEnd == stop) {
+                                    segmentProblems.add(p);
+                                }
+                            }
+                        }
+                        lastStop = stop;
+                    }
+                }
+            }
+
+            lineStart = lineEnd + 1;
+            ++lineNum;
+        }
+
+        endSegment(segmentProblems, lastStop);
+        if(inTextSegment) {
+            extractor.exitTextSegment(null);
+        }
+        extractor.exitProgram(null);
+        Assembler.checkLabelsDefined(extractor, log);
+
+        lineCache = newCache;
+        return log.getProblems();
+    }
+
+    /**
+     * when parsing the whole program, a segment contains every line up to the next
+     * segment, so problems about the segment span all of those lines
+     * @param segmentProblems the problems about the segment which has ended (cleared)
+     * @param segmentStop the index of the last character of the segment
+     */
+    private static void endSegment(List<Problem> segmentProblems, int segmentStop) {
+        for(Problem p : segmentProblems) {
+            p.rangeEnd = segmentStop;
+        }
+        segmentProblems.clear();
+    }
+
+    /**
+     * @return the number of lines which had to be parsed during the last check
+     */
+    public synchronized int getLinesParsed() {
+        return linesParsed;
+    }
+
+    /**
+     * walks a parse tree, except that the end of a text segment is not reported
+     * (as it would be after the first line of the segment)
+     */
+    private static class SegmentWalker extends ParseTreeWalker {
+        @Override
+        protected void exitRule(ParseTreeListener listener, RuleNode r) {
+            if(r instanceof SimpParser.TextSegmentContext) {
+                listener.exitEveryRule((SimpParser.TextSegmentContext) r);
+            } else {
+                super.exitRule(listener, r);
+            }
+        }
+    }
+
+    /**
+     * moves problems found in a single line to the position of the line in the program
+     */
+    private static class OffsetProblemLogger extends ProblemLogger {
+        private final ProblemLogger redirect;
+        private int lineOffset;
+        private int charOffset;
+
+        OffsetProblemLogger(ProblemLogger redirect) {
+            this.redirect = redirect;
+        }
+
+        /**
+         * @param lineOffset the (0-based) line number of the line
+         * @param charOffset the index of the first character of the line in the program
+         */
+        void setOffset(int lineOffset, int charOffset) {
+            this.lineOffset = lineOffset;
+            this.charOffset = charOffset;
+        }
+
+        @Override
+        public void logProblem(Problem p) {
+            if(p.lineNum != Problem.NO_LINE_NUM) {
+                p.lineNum += lineOffset;
+            }
+            if(p.rangeStart != -1) {
+                p.rangeStart += charOffset;
+                p.rangeEnd += charOffset;
+            }
+            redirect.logProblem(p);
+        }
+    }
+}
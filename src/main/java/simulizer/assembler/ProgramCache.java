@@ -0,0 +1,298 @@
+package simulizer.assembler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.ProblemLogger;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Program;
+
+/**
+ * Remembers the results of assembling programs so that assembling the same
+ * source again (eg running a program several times, switching between files,
+ * or running the same program with many inputs) does not have to repeat the work.
+ *
+ * Programs are identified by a SHA-256 digest of the source code along with the
+ * assembler options, so different programs cannot be confused. The problems
+ * found while assembling are stored too and copies of them are passed to the
+ * logger on every hit (so a logger which modifies the problems does not modify
+ * the stored problems).
+ * Programs which fail to assemble are also remembered. The least recently used
+ * program is forgotten once the cache is full.
+ *
+ * Assembled programs are not modified by the simulation (the CPU copies what it
+ * needs when loading a program) so the same program can be run many times.
+ *
+ * For programs made from several files, each file is remembered separately as
+ * a CompilationUnit (identified by its name and a digest of its content) so that
+ * only the files which have changed are parsed again. The units are linked
+ * together every time, which is quick compared to parsing.
+ *
+ * @author mbway
+ */
+public class ProgramCache {
+    private static final int defaultCapacity = 16;
+    private static final ProgramCache defaultCache = new ProgramCache(defaultCapacity);
+
+    private final LinkedHashMap<Key, Entry> entries;
+    private final LinkedHashMap<Key, CompilationUnit> units;
+    private long hits;
+    private long misses;
+    private long unitHits;
+    private long unitMisses;
+
+    /**
+     * the source code digest and assembler options identifying a program
+     * (or the name and source code digest identifying a unit)
+     */
+    private static class Key {
+        final byte[] digest;
+        final boolean permissive;
+        final int hash;
+
+        Key(String input, boolean permissive) {
+            this(null, input, permissive);
+        }
+
+        Key(String name, String input, boolean permissive) {
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                if(name != null) {
+                    md.update(name.getBytes(StandardCharsets.UTF_8));
+                    md.update((byte) 0);
+                }
+                this.digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 should be available on every Java platform", e);
+            }
+            this.permissive = permissive;
+            this.hash = 31 * Arrays.hashCode(digest) + Boolean.hashCode(permissive);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return permissive == k.permissive && Arrays.equals(digest, k.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * the result of assembling a program
+     */
+    private static class Entry {
+        final Program program; // null => has errors
+        final List<Problem> problems;
+
+        Entry(Program program, List<Problem> problems) {
+            this.program = program;
+            this.problems = problems;
+        }
+    }
+
+    /**
+     * @param capacity the maximum number of programs (and separately, units) to remember
+     */
+    public ProgramCache(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("the cache must be able to hold at least 1 program");
+        }
+        // access order => iterates from least to most recently used
+        entries = new LinkedHashMap<Key, Entry>(capacity * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+        units = new LinkedHashMap<Key, CompilationUnit>(capacity * 2, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompilationUnit> eldest) {
+                return size() > capacity;
+            }
+        };
+        hits = 0;
+        misses = 0;
+        unitHits = 0;
+        unitMisses = 0;
+    }
+
+    /**
+     * @return the cache shared by the different ways of running programs
+     */
+    public static ProgramCache getDefault() {
+        return defaultCache;
+    }
+
+    /**
+     * Assemble a program, or fetch it from the cache if the same source has been
+     * assembled with the same options before. Behaves the same as Assembler.assemble
+     * @param input the program string to assemble (null if the program could not be read)
+     * @param log the logger to send the error messages (may be null)
+     * @param permissive whether to allow non-critical problems
+     * @return the assembled program (or null if errors are encountered)
+     */
+    public Program assemble(String input, ProblemLogger log, boolean permissive) {
+        if(input == null) {
+            if(log != null) {
+                log.logProblem("the program could not be read", Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
+            }
+            return null;
+        }
+        Key key = new Key(input, permissive);
+
+        Entry e;
+        synchronized (this) {
+            e = entries.get(key);
+            if(e != null) {
+                ++hits;
+            } else {
+                ++misses;
+            }
+        }
+
+        if(e == null) {
+            // not holding the lock while assembling, so other programs can be fetched meanwhile
+            StoreProblemLogger store = new StoreProblemLogger();
+            Program p = Assembler.assemble(input, store, permissive);
+            e = new Entry(p, new ArrayList<>(store.getProblems()));
+            synchronized (this) {
+                entries.put(key, e);
+            }
+        }
+
+        if(log != null) {
+            for(Problem p : e.problems) {
+                log.logProblem(p.message, p.lineNum, p.rangeStart, p.rangeEnd, p.severity);
+            }
+        }
+        return e.program;
+    }
+
+    /**
+     * Assemble a program made from several files. Only the files which have not
+     * been assembled before are parsed, then the units are linked together.
+     * Behaves the same as Assembler.link
+     * @param files the names and contents of the files, in order (the first being the main program).
+     *              The content is null for a file which could not be read
+     * @param log the logger to send the error messages (may be null)
+     * @param permissive whether to allow non-critical problems
+     * @return the assembled program (or null if errors are encountered)
+     */
+    public Program assemble(LinkedHashMap<String, String> files, ProblemLogger log, boolean permissive) {
+        List<CompilationUnit> fileUnits = new ArrayList<>(files.size());
+        boolean unreadable = false;
+        for(Map.Entry<String, String> file : files.entrySet()) {
+            CompilationUnit unit = getUnit(file.getKey(), file.getValue());
+            if(unit == null) {
+                if(log != null) {
+                    log.logProblem("the file \"" + file.getKey() + "\" could not be read", Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
+                }
+                unreadable = true;
+            } else {
+                fileUnits.add(unit);
+            }
+        }
+        if(unreadable) {
+            return null;
+        }
+        return Assembler.link(fileUnits, log, permissive);
+    }
+
+    /**
+     * Parse and check a single file, or fetch it from the cache if a file with
+     * the same name and content has been parsed before
+     * @param name the name of the file
+     * @param input the content of the file (null if the file could not be read)
+     * @return the unit for the file (null if the file could not be read)
+     */
+    public CompilationUnit getUnit(String name, String input) {
+        if(input == null) {
+            return null;
+        }
+        Key key = new Key(name, input, false);
+
+        CompilationUnit unit;
+        synchronized (this) {
+            unit = units.get(key);
+            if(unit != null) {
+                ++unitHits;
+            } else {
+                ++unitMisses;
+            }
+        }
+
+        if(unit == null) {
+            unit = CompilationUnit.extract(name, input);
+            synchronized (this) {
+                units.put(key, unit);
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * forget every program and unit (the statistics are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        units.clear();
+    }
+
+    /**
+     * @return the number of programs currently remembered
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of times a program was found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of times a program had to be assembled
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of times a unit was found in the cache
+     */
+    public synchronized long getUnitHits() {
+        return unitHits;
+    }
+
+    /**
+     * @return the number of times a unit had to be parsed
+     */
+    public synchronized long getUnitMisses() {
+        return unitMisses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProgramCache [size=" + entries.size() + ", hits=" + hits + ", misses=" + misses +
+                ", units=" + units.size() + ", unitHits=" + unitHits + ", unitMisses=" + unitMisses + "]";
+    }
+}
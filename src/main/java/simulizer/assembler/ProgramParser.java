@@ -0,0 +1,103 @@
+package simulizer.assembler;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import simulizer.parser.SimpLexer;
+import simulizer.parser.SimpParser;
+
+/**
+ * Parses Simp programs in two stages. The fast SLL prediction mode is tried first
+ * and gives up at the first syntax error. Only if that fails is the program parsed
+ * again with full LL prediction and error recovery, so that the problems can be
+ * reported. For programs without syntax errors the two modes give the same parse
+ * tree, so the problems found are the same as always using LL.
+ *
+ * Each thread keeps its own lexer and parser which are reused between parses.
+ *
+ * @author mbway
+ */
+public class ProgramParser {
+
+    /**
+     * how long the last parse on a thread took
+     */
+    public static class ParseTiming {
+        /** the total time taken to parse, in milliseconds */
+        public final double milliseconds;
+        /** whether the SLL stage failed and the program had to be parsed again with LL */
+        public final boolean fellBackToLL;
+
+        private ParseTiming(double milliseconds, boolean fellBackToLL) {
+            this.milliseconds = milliseconds;
+            this.fellBackToLL = fellBackToLL;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1fms (%s)", milliseconds, fellBackToLL ? "SLL failed, parsed with LL" : "SLL");
+        }
+    }
+
+    private static final ThreadLocal<SimpLexer> lexers = ThreadLocal.withInitial(() -> {
+        SimpLexer lexer = new SimpLexer(null);
+        lexer.removeErrorListeners(); // prevent outputting to the console
+        return lexer;
+    });
+    private static final ThreadLocal<SimpParser> parsers = ThreadLocal.withInitial(() -> {
+        SimpParser parser = new SimpParser(null);
+        parser.removeErrorListeners(); // prevent outputting to the console
+        return parser;
+    });
+    private static final ThreadLocal<ParseTiming> lastTiming = new ThreadLocal<>();
+
+    /**
+     * parse a program without printing any errors to the console
+     * (the errors are instead found by walking the tree with a ProgramExtractor)
+     * @param input the program string to parse, must end with a newline
+     * @return the parse tree of the program
+     */
+    public static SimpParser.ProgramContext parse(String input) {
+        long start = System.nanoTime();
+
+        SimpLexer lexer = lexers.get();
+        lexer.setInputStream(new ANTLRInputStream(input));
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+
+        SimpParser parser = parsers.get();
+        parser.setTokenStream(tokens);
+
+        SimpParser.ProgramContext tree;
+        boolean fellBack = false;
+        try {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            tree = parser.program();
+        } catch(ParseCancellationException e) {
+            // syntax error (or SLL not powerful enough), parse again to find the problems
+            fellBack = true;
+            parser.reset(); // also rewinds the tokens
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            tree = parser.program();
+        } finally {
+            // don't keep the program alive through the reused parser
+            parser.setTokenStream(null);
+            lexer.setInputStream(null);
+        }
+
+        lastTiming.set(new ParseTiming((System.nanoTime() - start) / 1e6, fellBack));
+        return tree;
+    }
+
+    /**
+     * @return how long the last parse on this thread took (null if nothing has been parsed)
+     */
+    public static ParseTiming getLastParseTiming() {
+        return lastTiming.get();
+    }
+}
@@ -0,0 +1,178 @@
+package simulizer.assembler.extractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.ProblemLogger;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.parser.SimpParser;
+
+/**
+ * Walks the parse tree of a program with a ProgramExtractor, extracting each
+ * .text and .data segment on a separate thread (of the common fork-join pool).
+ *
+ * Apart from the labels, the segments are independent of each other, so each is
+ * extracted by its own ProgramExtractor and the results are joined in order
+ * afterwards. The problems from each segment are stored and passed on to the
+ * logger in the order of the segments, so the problems are the same (and in the
+ * same order) as walking the tree on a single thread.
+ *
+ * When the segments do depend on each other (a label is defined twice, a label
+ * or annotation crosses a segment boundary, or an annotation binds to a statement
+ * in an earlier segment) the tree is walked again on a single thread so that the
+ * result is exactly the same. These are all mistakes so this is rare.
+ *
+ * Parallel extraction can be switched off to compare against walking on a single thread.
+ *
+ * @author mbway
+ */
+public class ParallelExtractor {
+    private static volatile boolean enabled = true;
+
+    /**
+     * the result of extracting some of the top level parts of the program
+     */
+    private static class Part {
+        final ProgramExtractor extractor;
+        final StoreProblemLogger log;
+
+        Part(ProgramExtractor extractor, StoreProblemLogger log) {
+            this.extractor = extractor;
+            this.log = log;
+        }
+    }
+
+    /**
+     * @param enabled whether segments should be extracted in parallel (otherwise the
+     *                whole tree is walked on the calling thread)
+     */
+    public static void setEnabled(boolean enabled) {
+        ParallelExtractor.enabled = enabled;
+    }
+
+    /**
+     * @return whether segments are extracted in parallel
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * extract the contents of a program. Equivalent to walking the tree with a ProgramExtractor
+     * @param tree the parse tree of the whole program
+     * @param log the logger to send the problems to
+     * @return the extractor containing the contents of the program
+     */
+    public static ProgramExtractor extract(SimpParser.ProgramContext tree, ProblemLogger log) {
+        return extract(tree, log, true);
+    }
+
+    /**
+     * extract the contents of a program. Equivalent to walking the tree with a ProgramExtractor
+     * @param tree the parse tree of the whole program (or file)
+     * @param log the logger to send the problems to
+     * @param wholeProgram false if the tree is one of several files making up the program
+     * @return the extractor containing the contents of the program
+     */
+    public static ProgramExtractor extract(SimpParser.ProgramContext tree, ProblemLogger log, boolean wholeProgram) {
+        if(enabled) {
+            List<List<ParseTree>> groups = splitSegments(tree);
+            if(groups != null && groups.size() > 1) {
+                ProgramExtractor extractor = extractParallel(groups, log, wholeProgram);
+                if(extractor != null) {
+                    return extractor;
+                }
+            }
+        }
+
+        ProgramExtractor extractor = new ProgramExtractor(log, wholeProgram);
+        ParseTreeWalker.DEFAULT.walk(extractor, tree);
+        return extractor;
+    }
+
+    /**
+     * split the top level of the tree into the lines before the first segment, then each segment
+     * @return the groups of children (or null if the tree cannot be split)
+     */
+    private static List<List<ParseTree>> splitSegments(SimpParser.ProgramContext tree) {
+        List<List<ParseTree>> groups = new ArrayList<>();
+        if(tree.children == null) {
+            return groups;
+        }
+
+        List<ParseTree> prelude = new ArrayList<>();
+        for(ParseTree child : tree.children) {
+            boolean segment = child instanceof SimpParser.TextSegmentContext
+                    || child instanceof SimpParser.DataSegmentContext;
+            if(segment) {
+                List<ParseTree> group = new ArrayList<>();
+                group.add(child);
+                groups.add(group);
+            } else if(groups.isEmpty()) {
+                prelude.add(child);
+            } else if(!(child instanceof SimpParser.LineContext) && child.getChildCount() == 0) {
+                // the end of file token (or an error node) following the last segment
+                groups.get(groups.size() - 1).add(child);
+            } else {
+                // a segment continues up to the next segment, so this should not happen
+                return null;
+            }
+        }
+
+        if(!prelude.isEmpty()) {
+            groups.add(0, prelude);
+        }
+        return groups;
+    }
+
+    /**
+     * @return the extractor containing the joined results, or null if the segments
+     *         depend on each other and have to be extracted together instead
+     */
+    private static ProgramExtractor extractParallel(List<List<ParseTree>> groups, ProblemLogger log, boolean wholeProgram) {
+        List<Part> parts = groups.parallelStream().map(group -> {
+            StoreProblemLogger store = new StoreProblemLogger();
+            ProgramExtractor extractor = new ProgramExtractor(store);
+            for(ParseTree child : group) {
+                ParseTreeWalker.DEFAULT.walk(extractor, child);
+            }
+            return new Part(extractor, store);
+        }).collect(Collectors.toList());
+
+        // don't log anything until it is certain that the parts can be joined
+        ProgramExtractor joined = new ProgramExtractor(log, wholeProgram);
+        for(Part part : parts) {
+            ProgramExtractor e = part.extractor;
+            if(e.hasOutstanding()) {
+                return null;
+            }
+            if(e.reliesOnEmptyTextSegment() && !joined.textSegment.isEmpty()) {
+                return null;
+            }
+            for(String label : e.textSegmentLabels.keySet()) {
+                if(joined.textSegmentLabels.containsKey(label) || joined.dataSegmentLabels.containsKey(label)) {
+                    return null;
+                }
+            }
+            for(String label : e.dataSegmentLabels.keySet()) {
+                if(joined.textSegmentLabels.containsKey(label) || joined.dataSegmentLabels.containsKey(label)) {
+                    return null;
+                }
+            }
+            joined.append(e);
+        }
+
+        for(Part part : parts) {
+            for(Problem p : part.log.getProblems()) {
+                log.logProblem(p);
+            }
+        }
+        joined.exitProgram(null);
+        return joined;
+    }
+}
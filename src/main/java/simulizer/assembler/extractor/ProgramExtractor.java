@@ -2,10 +2,12 @@ package simulizer.assembler.extractor;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ErrorNode;
@@ -44,6 +46,12 @@ public class ProgramExtractor extends SimpBaseListener {
     public final Map<String, Integer> dataSegmentLabels;
     public final List<Variable> dataSegment;
 
+    /**
+     * the labels named by .globl directives, which are visible to the other
+     * files of a program made from several files (see CompilationUnit)
+     */
+    public final Set<String> globalLabels;
+
     /**
      * store annotations relating to statements in the text segment
      */
@@ -82,26 +90,64 @@ public class ProgramExtractor extends SimpBaseListener {
 	 */
 	public String initAnnotationCode;
 
+	/**
+	 * added to the line numbers of the parse tree, for when the program is
+	 * parsed in pieces (see IncrementalChecker)
+	 */
+	private int lineOffset;
+
+	/**
+	 * whether the extraction depended on the text segment being empty, which may
+	 * not be the case when only some of the segments are walked (see ParallelExtractor)
+	 */
+	private boolean reliesOnEmptyTextSegment;
+
+	/**
+	 * whether the source being walked is the whole program, and so must contain
+	 * the main label. Otherwise it is one of several files making up the program
+	 */
+	private final boolean wholeProgram;
+
 
     public ProgramExtractor(ProblemLogger log) {
+        this(log, true);
+    }
+
+    /**
+     * @param log the logger to send the problems to
+     * @param wholeProgram false if the source is one of several files making up
+     *                     the program, so need not contain the main label
+     */
+    public ProgramExtractor(ProblemLogger log, boolean wholeProgram) {
         currentState = State.OUTSIDE;
         this.log = log;
+        this.wholeProgram = wholeProgram;
 
         textSegmentLabels = new HashMap<>();
         textSegment = new ArrayList<>();
         dataSegmentLabels = new HashMap<>();
         dataSegment = new ArrayList<>();
+        globalLabels = new LinkedHashSet<>();
 
         annotations = new HashMap<>();
 
         outstandingLabels = new ArrayList<>();
 		outstandingAnnotations = new ArrayList<>();
 		initAnnotationCode = "";
+		lineOffset = 0;
+		reliesOnEmptyTextSegment = false;
     }
 
+	/**
+	 * @param lineOffset the line number of the first line of the parse tree(s) being walked next
+	 */
+	public void setLineOffset(int lineOffset) {
+		this.lineOffset = lineOffset;
+	}
+
 
 	private int startLine(ParserRuleContext ctx) {
-		return ctx.getStart().getLine() - 1; // Antlr uses 1-based, simulizer uses 0-based
+		return ctx.getStart().getLine() - 1 + lineOffset; // Antlr uses 1-based, simulizer uses 0-based
 	}
 
 
@@ -211,7 +257,7 @@ public class ProgramExtractor extends SimpBaseListener {
 
     @Override
     public void exitProgram(SimpParser.ProgramContext ctx) {
-        if(!textSegmentLabels.containsKey("main")) {
+        if(wholeProgram && !textSegmentLabels.containsKey("main")) {
             log.logProblem("The program has no 'main' label", Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
         }
         if(!outstandingLabels.isEmpty()) {
@@ -265,11 +311,12 @@ public class ProgramExtractor extends SimpBaseListener {
         if(currentState == State.DATA_SEGMENT) {
             switch(directive) {
                 case ".globl":
-                    // ignored other than to log errors
                     if(operands.isEmpty() || !operands.stream().allMatch(op ->
                         op.getType() == Operand.Type.Address &&
                         op.asAddressOp().labelOnly())) {
                         log.logProblem("invalid operand(s) to .globl directive. format: .globl LABEL(, LABEL)*", ctx, Problem.Severity.NON_CRITICAL);
+                    } else {
+                        pushGlobals(operands);
                     }
                     break;
                 case ".align":
@@ -343,9 +390,9 @@ public class ProgramExtractor extends SimpBaseListener {
                     break;
             }
         } else if(currentState == State.TEXT_SEGMENT) {
-            // noinspection StatementWithEmptyBody (intellij)
             if(directive.equals(".globl")) {
-                // ignore this directive
+                // invalid operands are ignored in the text segment
+                pushGlobals(operands);
             } else {
                 log.logProblem("only .globl directives should be placed inside the .text segment", ctx, Problem.Severity.NON_CRITICAL);
             }
@@ -439,12 +486,58 @@ public class ProgramExtractor extends SimpBaseListener {
 			}
 			// annotation before first statement or label
 			else if(textSegment.isEmpty() && outstandingLabels.isEmpty()) {
+				reliesOnEmptyTextSegment = true;
 				log.logProblem("Annotations inside the .text segment must be placed after a statement or label", ctx, Problem.Severity.CRITICAL);
 			}
 		}
 
     }
 
+	/**
+	 * @return whether there are labels or annotations waiting for something to bind to
+	 */
+	boolean hasOutstanding() {
+		return !outstandingLabels.isEmpty() || !outstandingAnnotations.isEmpty();
+	}
+
+	/**
+	 * @return whether the result would have been different if the text segment
+	 *         had not been empty when this extractor started walking
+	 */
+	boolean reliesOnEmptyTextSegment() {
+		return reliesOnEmptyTextSegment;
+	}
+
+	/**
+	 * add the results of another extractor which walked the segment(s) directly
+	 * after the ones walked by this extractor. The indices of the statements and
+	 * variables are shifted to follow on from the ones already extracted.
+	 * (see ParallelExtractor)
+	 * @param next the extractor for the following segment(s)
+	 */
+	void append(ProgramExtractor next) {
+		int textOffset = textSegment.size();
+		int dataOffset = dataSegment.size();
+
+		textSegment.addAll(next.textSegment);
+		dataSegment.addAll(next.dataSegment);
+		for(Map.Entry<String, Integer> e : next.textSegmentLabels.entrySet()) {
+			textSegmentLabels.put(e.getKey(), e.getValue() + textOffset);
+		}
+		for(Map.Entry<String, Integer> e : next.dataSegmentLabels.entrySet()) {
+			dataSegmentLabels.put(e.getKey(), e.getValue() + dataOffset);
+		}
+		for(Map.Entry<Integer, String> e : next.annotations.entrySet()) {
+			annotations.put(e.getKey() + textOffset, e.getValue());
+		}
+		globalLabels.addAll(next.globalLabels);
+		initAnnotationCode += next.initAnnotationCode;
+
+		if(next.currentState != State.OUTSIDE) {
+			currentState = next.currentState;
+		}
+	}
+
 	private void pushAnnotations() {
 		if(!outstandingAnnotations.isEmpty()) {
 			String annotationCode = String.join("\n", outstandingAnnotations);
@@ -453,6 +546,7 @@ public class ProgramExtractor extends SimpBaseListener {
 				outstandingAnnotations.clear();
 			} else {
 				if (textSegment.isEmpty()) {
+					reliesOnEmptyTextSegment = true;
 					// could happen if text segment is: "label: # @{}@" with no instructions
 					log.logProblem("annotation could not be bound to an instruction: \"" + annotationCode + "\"", Problem.NO_LINE_NUM, Problem.Severity.CRITICAL);
 					return;
@@ -496,6 +590,14 @@ public class ProgramExtractor extends SimpBaseListener {
 		}
     }
 
+    private void pushGlobals(List<Operand> operands) {
+        for(Operand op : operands) {
+            if(op.getType() == Operand.Type.Address && op.asAddressOp().labelOnly()) {
+                globalLabels.add(op.asAddressOp().labelName.get());
+            }
+        }
+    }
+
     private void pushVariable(Variable v) {
         dataSegment.add(v);
 		if(!outstandingLabels.isEmpty()) {
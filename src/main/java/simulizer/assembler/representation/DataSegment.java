@@ -0,0 +1,183 @@
+package simulizer.assembler.representation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The initial contents of the static data segment of a program.
+ *
+ * Stored sparsely: only the chunks which contain initialised data are kept and
+ * everything else is zero. This way large reservations (eg .space 4000000) cost
+ * nothing until the simulation writes to them.
+ *
+ * @author mbway
+ */
+public class DataSegment {
+    /**
+     * a contiguous range of initialised data
+     */
+    public static class Chunk {
+        /** the offset of the first byte from the start of the segment */
+        public final int offset;
+        public final byte[] data;
+
+        Chunk(int offset, byte[] data) {
+            this.offset = offset;
+            this.data = data;
+        }
+    }
+
+    private final int length;
+    private final List<Chunk> chunks;
+
+    /**
+     * @param length the size of the segment in bytes
+     * @param chunks the initialised parts of the segment, in order and not overlapping
+     */
+    public DataSegment(int length, List<Chunk> chunks) {
+        this.length = length;
+        this.chunks = Collections.unmodifiableList(chunks);
+    }
+
+    /**
+     * @return the size of the segment in bytes
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the initialised parts of the segment (everything else is zero)
+     */
+    public List<Chunk> getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return the whole segment as an array (including the zeroes)
+     */
+    public byte[] toArray() {
+        byte[] result = new byte[length];
+        for(Chunk c : chunks) {
+            System.arraycopy(c.data, 0, result, c.offset, c.data.length);
+        }
+        return result;
+    }
+
+    /**
+     * Builds a data segment by appending values to the end. The values are written
+     * straight into a growable array, and large runs of zeroes are not stored at all.
+     */
+    public static class Builder {
+        /**
+         * runs of zeroes at least this long are left out rather than stored
+         */
+        private static final int sparseThreshold = 1024;
+
+        private final List<Chunk> chunks;
+        private byte[] buffer; // the contents of the current chunk
+        private int used; // the number of bytes of the buffer in use
+        private int chunkStart; // the offset of the current chunk from the start of the segment
+        private int expectedRemaining; // the expected number of bytes not yet in a finished chunk
+
+        /**
+         * @param expectedSize the number of bytes of initialised data expected (used to size the buffer)
+         */
+        public Builder(int expectedSize) {
+            chunks = new ArrayList<>();
+            buffer = new byte[Math.max(expectedSize, 16)];
+            used = 0;
+            chunkStart = 0;
+            expectedRemaining = expectedSize;
+        }
+
+        /**
+         * @return the size of the segment so far
+         */
+        public int length() {
+            return chunkStart + used;
+        }
+
+        private void ensureSpace(int bytes) {
+            if(used + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, used + bytes));
+            }
+        }
+
+        public void putByte(int value) {
+            ensureSpace(1);
+            buffer[used++] = (byte) value;
+        }
+
+        /**
+         * append a 16 bit value (big endian)
+         */
+        public void putHalf(int value) {
+            ensureSpace(2);
+            buffer[used++] = (byte) (value >> 8);
+            buffer[used++] = (byte) value;
+        }
+
+        /**
+         * append a 32 bit value (big endian)
+         */
+        public void putWord(int value) {
+            ensureSpace(4);
+            buffer[used++] = (byte) (value >> 24);
+            buffer[used++] = (byte) (value >> 16);
+            buffer[used++] = (byte) (value >> 8);
+            buffer[used++] = (byte) value;
+        }
+
+        /**
+         * append a string as ASCII, one byte per character. Characters outside
+         * of ASCII are replaced with '?'
+         */
+        public void putASCII(String s) {
+            int n = s.length();
+            ensureSpace(n);
+            for(int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                buffer[used++] = c < 128 ? (byte) c : (byte) '?';
+            }
+        }
+
+        /**
+         * append zeroes
+         * @param bytes the number of zeroes
+         */
+        public void putZeroes(int bytes) {
+            if(bytes < 0) {
+                throw new IllegalArgumentException("cannot reserve a negative amount of space: " + bytes);
+            }
+            if(bytes < sparseThreshold) {
+                ensureSpace(bytes);
+                used += bytes; // the buffer is already zeroed
+            } else {
+                endChunk();
+                chunkStart += bytes;
+            }
+        }
+
+        private void endChunk() {
+            if(used > 0) {
+                chunks.add(new Chunk(chunkStart, used == buffer.length ? buffer : Arrays.copyOf(buffer, used)));
+                chunkStart += used;
+                expectedRemaining -= used;
+                buffer = new byte[Math.max(expectedRemaining, 16)];
+                used = 0;
+            }
+        }
+
+        /**
+         * @return the data segment which has been built
+         */
+        public DataSegment build() {
+            int length = length();
+            endChunk();
+            return new DataSegment(length, chunks);
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class Program {
     /**
      * the initial state of the static data segment
      */
-    public byte[] dataSegment;
+    public DataSegment dataSegment;
     /**
      * the initial value of the break
      */
@@ -0,0 +1,325 @@
+package simulizer.assembler.representation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import simulizer.assembler.representation.operand.AddressOperand;
+import simulizer.assembler.representation.operand.IntegerOperand;
+import simulizer.assembler.representation.operand.Operand;
+import simulizer.assembler.representation.operand.RegisterOperand;
+import simulizer.assembler.representation.operand.StringOperand;
+import simulizer.simulation.data.representation.DataConverter;
+import simulizer.simulation.data.representation.Word;
+
+/**
+ * Save an assembled program to a compact binary file, and load it again without
+ * needing the source code or the assembler. Loading maps the file into memory
+ * and reads it in a single pass, which is much faster than assembling large programs.
+ *
+ * The file contains (all big endian):
+ *   header:        magic number, format version
+ *   program info:  source hash, segment addresses, initial gp and sp
+ *   text segment:  a table of statements: address, instruction, line number and
+ *                  operands (with the label addresses already resolved)
+ *   data segment:  the length and the initialised chunks, followed by the variables
+ *   labels, line numbers, annotations and the init annotation
+ *
+ * Instructions, registers and types are stored by ordinal, so the format version
+ * must be incremented if any of those enums change.
+ *
+ * @author mbway
+ */
+public class ProgramSerializer {
+    private static final int magic = 0x53494D50; // "SIMP"
+    private static final int version = 2;
+
+    // flags for the parts of an address operand
+    private static final int hasLabel    = 1;
+    private static final int hasConstant = 2;
+    private static final int hasRegister = 4;
+    private static final int isResolved  = 8;
+
+    private static final Instruction[] instructions = Instruction.values();
+    private static final Operand.Type[] operandTypes = Operand.Type.values();
+    private static final Variable.Type[] variableTypes = Variable.Type.values();
+    private static final Label.Type[] labelTypes = Label.Type.values();
+
+    /**
+     * save a program to a file
+     * @param p the program to save
+     * @param file the file to write to (overwritten if it exists)
+     * @throws IOException if the file could not be written
+     */
+    public static void write(Program p, File file) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+
+            out.writeInt(p.sourceHash);
+            out.writeInt(p.textSegmentStart.getValue());
+            out.writeInt(p.textSegmentLast.getValue());
+            out.writeInt(p.dataSegmentStart.getValue());
+            out.writeInt(p.dynamicSegmentStart.getValue());
+            out.writeInt(toInt(p.initialGP));
+            out.writeInt(toInt(p.initialSP));
+
+            out.writeInt(p.textSegment.size());
+            for(Map.Entry<Address, Statement> e : p.textSegment.entrySet()) {
+                Statement s = e.getValue();
+                out.writeInt(e.getKey().getValue());
+                out.writeShort(s.getInstruction().ordinal());
+                out.writeInt(s.getLineNumber());
+                out.writeByte(s.getOperandList().size());
+                for(Operand op : s.getOperandList()) {
+                    writeOperand(out, op);
+                }
+            }
+
+            // data segment
+            DataSegment data = p.dataSegment == null ? new DataSegment(0, new ArrayList<>()) : p.dataSegment;
+            out.writeInt(data.length());
+            out.writeInt(data.getChunks().size());
+            for(DataSegment.Chunk c : data.getChunks()) {
+                out.writeInt(c.offset);
+                out.writeInt(c.data.length);
+                out.write(c.data);
+            }
+
+            out.writeInt(p.dataSegmentVariables.size());
+            for(Map.Entry<Address, Variable> e : p.dataSegmentVariables.entrySet()) {
+                Variable v = e.getValue();
+                out.writeInt(e.getKey().getValue());
+                out.writeByte(v.getType().ordinal());
+                out.writeInt(v.getSize());
+                out.writeInt(v.getLineNumber());
+                out.writeBoolean(v.getInitialValue().isPresent());
+                if(v.getInitialValue().isPresent()) {
+                    writeOperand(out, v.getInitialValue().get());
+                }
+            }
+
+            out.writeInt(p.labels.size());
+            for(Map.Entry<Label, Address> e : p.labels.entrySet()) {
+                Label l = e.getKey();
+                writeString(out, l.getName());
+                out.writeInt(l.getLineNumber());
+                out.writeByte(l.getType().ordinal());
+                out.writeInt(e.getValue().getValue());
+            }
+
+            out.writeInt(p.lineNumbers.size());
+            for(Map.Entry<Address, Integer> e : p.lineNumbers.entrySet()) {
+                out.writeInt(e.getKey().getValue());
+                out.writeInt(e.getValue());
+            }
+
+            out.writeInt(p.annotations.size());
+            for(Map.Entry<Address, Annotation> e : p.annotations.entrySet()) {
+                out.writeInt(e.getKey().getValue());
+                writeString(out, e.getValue().code);
+            }
+
+            out.writeBoolean(p.initAnnotation != null);
+            if(p.initAnnotation != null) {
+                writeString(out, p.initAnnotation.code);
+            }
+        }
+    }
+
+    /**
+     * load a program which was saved with write
+     * @param file the file to read
+     * @return the program
+     * @throws IOException if the file could not be read or is not a saved program
+     */
+    public static Program read(File file) throws IOException {
+        ByteBuffer in;
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return read(in);
+        } catch(BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("the saved program is incomplete or corrupt: " + file, e);
+        }
+    }
+
+    private static Program read(ByteBuffer in) throws IOException {
+        if(in.remaining() < 8 || in.getInt() != magic) {
+            throw new IOException("not a saved Simulizer program");
+        }
+        int fileVersion = in.getInt();
+        if(fileVersion != version) {
+            throw new IOException("the saved program is from a different version of Simulizer " +
+                    "(format " + fileVersion + ", expected " + version + "). Assemble the source again");
+        }
+
+        Program p = new Program();
+        p.sourceHash = in.getInt();
+        p.textSegmentStart = new Address(in.getInt());
+        p.textSegmentLast = new Address(in.getInt());
+        p.dataSegmentStart = new Address(in.getInt());
+        p.dynamicSegmentStart = new Address(in.getInt());
+        p.initialGP = toWord(in.getInt());
+        p.initialSP = toWord(in.getInt());
+
+        int statements = in.getInt();
+        for(int i = 0; i < statements; i++) {
+            Address address = new Address(in.getInt());
+            Instruction instruction = instructions[in.getShort()];
+            int lineNumber = in.getInt();
+            int numOperands = in.get();
+            List<Operand> operands = new ArrayList<>(numOperands);
+            for(int j = 0; j < numOperands; j++) {
+                operands.add(readOperand(in));
+            }
+            p.textSegment.put(address, new Statement(instruction, operands, lineNumber));
+        }
+
+        int dataLength = in.getInt();
+        int chunks = in.getInt();
+        List<DataSegment.Chunk> dataChunks = new ArrayList<>(chunks);
+        for(int i = 0; i < chunks; i++) {
+            int offset = in.getInt();
+            byte[] bytes = new byte[in.getInt()];
+            in.get(bytes);
+            dataChunks.add(new DataSegment.Chunk(offset, bytes));
+        }
+        p.dataSegment = new DataSegment(dataLength, dataChunks);
+
+        int variables = in.getInt();
+        for(int i = 0; i < variables; i++) {
+            Address address = new Address(in.getInt());
+            Variable.Type type = variableTypes[in.get()];
+            int size = in.getInt();
+            int lineNumber = in.getInt();
+            Optional<Operand> initialValue = in.get() != 0 ? Optional.of(readOperand(in)) : Optional.empty();
+            p.dataSegmentVariables.put(address, new Variable(type, size, initialValue, lineNumber));
+        }
+
+        int labels = in.getInt();
+        for(int i = 0; i < labels; i++) {
+            String name = readString(in);
+            int lineNumber = in.getInt();
+            Label.Type type = labelTypes[in.get()];
+            p.labels.put(new Label(name, lineNumber, type), new Address(in.getInt()));
+        }
+
+        int lineNumbers = in.getInt();
+        for(int i = 0; i < lineNumbers; i++) {
+            Address address = new Address(in.getInt());
+            p.lineNumbers.put(address, in.getInt());
+        }
+
+        int annotations = in.getInt();
+        for(int i = 0; i < annotations; i++) {
+            Address address = new Address(in.getInt());
+            p.annotations.put(address, new Annotation(readString(in)));
+        }
+
+        if(in.get() != 0) {
+            p.initAnnotation = new Annotation(readString(in));
+        }
+
+        return p;
+    }
+
+    private static void writeOperand(DataOutputStream out, Operand op) throws IOException {
+        out.writeByte(op.getType().ordinal());
+        switch(op.getType()) {
+            case Integer:
+                out.writeInt(op.asIntegerOp().value);
+                break;
+            case String:
+                writeString(out, op.asStringOp().value);
+                break;
+            case Register:
+                out.writeByte(op.asRegisterOp().value.getID());
+                break;
+            case Address: {
+                AddressOperand a = op.asAddressOp();
+                int flags = (a.labelName.isPresent() ? hasLabel : 0)
+                        | (a.constant.isPresent() ? hasConstant : 0)
+                        | (a.register.isPresent() ? hasRegister : 0)
+                        | (a.isResolved() ? isResolved : 0);
+                out.writeByte(flags);
+                if(a.labelName.isPresent()) {
+                    writeString(out, a.labelName.get());
+                }
+                if(a.constant.isPresent()) {
+                    out.writeInt(a.constant.get());
+                }
+                if(a.register.isPresent()) {
+                    out.writeByte(a.register.get().getID());
+                }
+                if(a.isResolved()) {
+                    out.writeInt(a.getConstantAddress());
+                }
+                break;
+            }
+            default:
+                throw new IOException("cannot save operand of type: " + op.getType());
+        }
+    }
+
+    private static Operand readOperand(ByteBuffer in) throws IOException {
+        Operand.Type type = operandTypes[in.get()];
+        switch(type) {
+            case Integer:
+                return new IntegerOperand(in.getInt());
+            case String:
+                return new StringOperand(readString(in));
+            case Register:
+                return new RegisterOperand(Register.fromID(in.get()));
+            case Address: {
+                int flags = in.get();
+                Optional<String> labelName = (flags & hasLabel) != 0 ? Optional.of(readString(in)) : Optional.empty();
+                Optional<Integer> constant = (flags & hasConstant) != 0 ? Optional.of(in.getInt()) : Optional.empty();
+                Optional<Register> register = (flags & hasRegister) != 0 ? Optional.of(Register.fromID(in.get())) : Optional.empty();
+                AddressOperand a = new AddressOperand(labelName, constant, register);
+                if((flags & isResolved) != 0) {
+                    int constantAddress = in.getInt();
+                    if(labelName.isPresent()) {
+                        a.resolve(constantAddress - constant.orElse(0));
+                    }
+                }
+                return a;
+            }
+            default:
+                throw new IOException("cannot load operand of type: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int toInt(Word w) {
+        return (int) DataConverter.decodeAsUnsigned(w.getBytes());
+    }
+
+    private static Word toWord(int value) {
+        return new Word(DataConverter.encodeAsUnsigned(value));
+    }
+}
@@ -142,7 +142,7 @@ public class ProgramStringBuilder {
 
             sb.append("## Raw Data Segment (as hex) ##\n");
             // split hex into words
-            sb.append(StringUtils.insert(DatatypeConverter.printHexBinary(p.dataSegment), " ", 4));
+            sb.append(StringUtils.insert(DatatypeConverter.printHexBinary(p.dataSegment.toArray()), " ", 4));
 
             sb.append("\n\n");
         }
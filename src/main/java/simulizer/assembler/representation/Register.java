@@ -1,6 +1,5 @@
 package simulizer.assembler.representation;
 
-import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 /**
@@ -50,6 +49,9 @@ public enum Register {
 	private final int id;
 	private final String description;
 
+	// the registers are declared in order of their IDs
+	private static final Register[] byID = values();
+
 	Register(int id, String description) {
 		this.id = id;
 		this.description = description;
@@ -96,7 +98,10 @@ public enum Register {
 	 * @return the register with the given id
 	 */
 	public static Register fromID(int id) {
-		return Arrays.stream(values()).filter(r -> r.getID() == id).findAny().get();
+		if(id < 0 || id >= byID.length) {
+			throw new NoSuchElementException();
+		}
+		return byID[id];
 	}
 
 }
@@ -24,6 +24,10 @@ public class AddressOperand extends Operand {
     // either as a base, offset, or as the only part
     public final Optional<Register> register;
 
+    // the address of the label, filled in when the program is linked
+    private int labelAddress;
+    private boolean resolved;
+
     @Override
     public Type getType() {
         return Type.Address;
@@ -51,6 +55,36 @@ public class AddressOperand extends Operand {
         this.labelName = labelName;
         this.constant  = constant;
         this.register  = register;
+        this.labelAddress = 0;
+        this.resolved  = !labelName.isPresent(); // nothing to resolve
+    }
+
+    /**
+     * set the address of the label once it is known (done by the assembler)
+     * @param labelAddress the address the label refers to
+     */
+    public void resolve(int labelAddress) {
+        this.labelAddress = labelAddress;
+        this.resolved = true;
+    }
+
+    /**
+     * whether the address of the label (if any) is known, so that getConstantAddress can be used
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * the part of the address which does not depend on the base register (if any)
+     * @return the address of the label (if any) plus the constant offset (if any)
+     * @throws IllegalStateException if the label has not been resolved
+     */
+    public int getConstantAddress() {
+        if(!resolved) {
+            throw new IllegalStateException("the label \"" + labelName.get() + "\" has not been resolved");
+        }
+        return labelAddress + constant.orElse(0);
     }
 
     /**
@@ -0,0 +1,289 @@
+package simulizer.cmd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Program;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+import simulizer.simulation.messages.Message;
+import simulizer.simulation.messages.ProblemMessage;
+import simulizer.simulation.messages.SimulationListener;
+
+/**
+ * Assembles (and optionally runs) many independent programs at once, eg to check
+ * a directory of submissions. Each program is handled on one of a fixed number of
+ * threads, and each run gets its own CPU and BufferIO so the programs cannot see
+ * each other's output.
+ *
+ * Annotations are not run since their output is not part of the report.
+ *
+ * @author mbway
+ */
+public class BatchRunner {
+
+    /**
+     * the outcome of checking a single program
+     */
+    public enum Status {
+        /** the file could not be read */
+        UNREADABLE,
+        /** the program has errors so could not be assembled */
+        INVALID,
+        /** the program assembled and was not run */
+        ASSEMBLED,
+        /** the program ran until it exited */
+        FINISHED,
+        /** the simulation reported a problem (eg a bad memory access) and stopped */
+        RUNTIME_ERROR,
+        /** the program was stopped for running for too long */
+        TIMED_OUT,
+        /** the simulation threw an exception (eg reading more input than was given) */
+        CRASHED
+    }
+
+    /**
+     * a problem found while assembling the program
+     */
+    public static class ReportedProblem {
+        public final String message;
+        public final int lineNum;
+        public final String severity;
+
+        ReportedProblem(Problem p) {
+            message = p.message;
+            lineNum = p.lineNum;
+            severity = p.severity.toString();
+        }
+    }
+
+    /**
+     * the result of checking a single program. The fields are public so the
+     * report can be serialised directly (eg with Gson)
+     */
+    public static class Report {
+        public final String file;
+        public Status status;
+        public List<ReportedProblem> problems = new ArrayList<>();
+        /** problems reported by the simulation while running */
+        public List<String> runtimeProblems = new ArrayList<>();
+        public String output = "";
+        public String errorOutput = "";
+        public long instructions = 0;
+        public double assembleMillis = 0;
+        public double runMillis = 0;
+        /** the total time taken for this program, including reading the file */
+        public double wallMillis = 0;
+
+        Report(String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * collects the problems reported by a CPU
+     */
+    private static class RuntimeProblems extends SimulationListener {
+        final List<String> problems = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void processProblemMessage(ProblemMessage m) {
+            problems.add(m.e.getMessage() == null ? m.e.toString() : m.e.getMessage());
+        }
+    }
+
+    private final boolean permissive;
+    private final boolean run;
+    private final String input;
+    private final long timeoutMillis;
+    private final int threads;
+
+    /**
+     * @param permissive whether to assemble in permissive mode
+     * @param run whether to run the programs which assemble, rather than just assembling them
+     * @param input the standard input given to each program when it runs
+     * @param timeoutMillis the time after which a running program is stopped (<= 0 for no limit)
+     * @param threads the number of programs to check at once
+     */
+    public BatchRunner(boolean permissive, boolean run, String input, long timeoutMillis, int threads) {
+        if(threads < 1) {
+            throw new IllegalArgumentException("there must be at least one thread");
+        }
+        this.permissive = permissive;
+        this.run = run;
+        this.input = input == null ? "" : input;
+        this.timeoutMillis = timeoutMillis;
+        this.threads = threads;
+    }
+
+    /**
+     * expand the given paths into the programs to check. Directories are searched
+     * (recursively) for files ending in ".s"
+     * @param paths files and directories
+     * @return the program files, directories sorted by path
+     * @throws IOException if a directory could not be searched
+     */
+    public static List<File> findPrograms(List<String> paths) throws IOException {
+        List<File> programs = new ArrayList<>();
+        for(String path : paths) {
+            File f = new File(path);
+            if(f.isDirectory()) {
+                try(Stream<Path> files = Files.walk(f.toPath())) {
+                    programs.addAll(files
+                            .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".s"))
+                            .sorted()
+                            .map(Path::toFile)
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                programs.add(f);
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * check each program, passing the reports to the callback in the same order as
+     * the files were given (as soon as each report and those before it are ready)
+     * @param files the programs to check
+     * @param callback called with each report on the calling thread
+     */
+    public void check(List<File> files, Consumer<Report> callback) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        try {
+            List<Future<Report>> reports = new ArrayList<>();
+            for(File f : files) {
+                reports.add(pool.submit(() -> check(f, watchdog)));
+            }
+            for(int i = 0; i < reports.size(); ++i) {
+                Report r;
+                try {
+                    r = reports.get(i).get();
+                } catch(ExecutionException e) {
+                    // check handles all the exceptions from running the program
+                    r = new Report(files.get(i).getPath());
+                    r.status = Status.CRASHED;
+                    r.runtimeProblems.add(e.getCause().toString());
+                }
+                callback.accept(r);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+    }
+
+    /**
+     * check each program
+     * @param files the programs to check
+     * @return the reports in the same order as the files
+     */
+    public List<Report> check(List<File> files) {
+        List<Report> reports = new ArrayList<>();
+        check(files, reports::add);
+        return reports;
+    }
+
+    private Report check(File file, ScheduledExecutorService watchdog) {
+        long start = System.nanoTime();
+        Report r = new Report(file.getPath());
+
+        String source;
+        try {
+            source = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            r.status = Status.UNREADABLE;
+            r.runtimeProblems.add(e.toString());
+            r.wallMillis = (System.nanoTime() - start) / 1e6;
+            return r;
+        }
+
+        StoreProblemLogger log = new StoreProblemLogger();
+        long assembleStart = System.nanoTime();
+        Program p = Assembler.assemble(source, log, permissive);
+        r.assembleMillis = (System.nanoTime() - assembleStart) / 1e6;
+        for(Problem problem : log.getProblems()) {
+            r.problems.add(new ReportedProblem(problem));
+        }
+
+        if(p == null) {
+            r.status = Status.INVALID;
+        } else if(!run) {
+            r.status = Status.ASSEMBLED;
+        } else {
+            run(p, r, watchdog);
+        }
+
+        r.wallMillis = (System.nanoTime() - start) / 1e6;
+        return r;
+    }
+
+    private void run(Program p, Report r, ScheduledExecutorService watchdog) {
+        BufferIO io = new BufferIO(input);
+        CPU cpu = new CPU(io); // not pipelined
+        RuntimeProblems problems = new RuntimeProblems();
+        cpu.registerListener(problems, EnumSet.of(Message.Type.Problem));
+        cpu.setCycleFreq(0);
+
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> timeout = null;
+        long runStart = System.nanoTime();
+        try {
+            cpu.loadProgram(p);
+            if(timeoutMillis > 0) {
+                timeout = watchdog.schedule(() -> {
+                    timedOut.set(true);
+                    cpu.stopRunning();
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            cpu.runUnobserved();
+
+            if(timedOut.get()) {
+                r.status = Status.TIMED_OUT;
+            } else if(!problems.problems.isEmpty()) {
+                r.status = Status.RUNTIME_ERROR;
+            } else {
+                r.status = Status.FINISHED;
+            }
+        } catch(Exception e) {
+            r.status = Status.CRASHED;
+            problems.problems.add(e.toString());
+        } finally {
+            if(timeout != null) {
+                timeout.cancel(false);
+            }
+            r.runMillis = (System.nanoTime() - runStart) / 1e6;
+            cpu.shutdown();
+        }
+
+        r.instructions = cpu.getCycles();
+        r.runtimeProblems.addAll(problems.problems);
+        r.output = io.getOutput(IOStream.STANDARD);
+        r.errorOutput = io.getOutput(IOStream.ERROR);
+    }
+}
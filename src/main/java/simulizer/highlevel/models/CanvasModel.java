@@ -6,6 +6,7 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Paint;
 import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
+import simulizer.simulation.cpu.components.MemoryView;
 import simulizer.simulation.cpu.user_interaction.IO;
 import simulizer.utils.CircularIntBuffer;
 
@@ -109,6 +110,33 @@ public class CanvasModel extends DataStructureModel {
 		submitFrame();
 	}
 
+	/**
+	 * draw pixels straight from memory (one byte per pixel, lit if non-zero)
+	 * eg c.drawPixels(sim.viewMem(address, rows*cols), cols);
+	 */
+	public void drawPixels(MemoryView pixels, int cols) {
+		assert(pixels.length() > 0 && cols > 0 && pixels.length() % cols == 0);
+
+		clear();
+
+		int rows = pixels.length() / cols;
+
+		int pixelWidth = (int) (canvas.getWidth() / cols);
+		int pixelHeight = (int) (canvas.getHeight() / rows);
+
+		ctx.setFill(pixelColor);
+
+		for(int row = 0; row < rows; ++row) {
+			int rowOffset = row*cols;
+			for(int col = 0; col < cols; ++col) {
+				if(pixels.getBool(rowOffset + col)) // pixel is lit
+					ctx.fillRect(col*pixelWidth, row*pixelHeight, pixelWidth, pixelHeight);
+			}
+		}
+
+		submitFrame();
+	}
+
 	/**
      * like drawPixels but with a slight border between each pixel
 	 * @param margin the spacing around each pixel (eg 0.1 => border of 0.1*dimension between each pixel (each contributing half of the margin))
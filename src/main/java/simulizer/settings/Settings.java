@@ -109,6 +109,7 @@ public class Settings {
 						.add(new DoubleSetting("default-CPU-frequency", "Default CPU cycle frequency", "Default number of cycles (runs of fetch+decode+execute) per second (Hz)", 4, 0.05, 5000))
 						.add(new BooleanSetting("pipelined", "Use pipelined CPU?", "Should the mips program run on a pipelined cpu?", false))
 						.add(new BooleanSetting("annotations", "Run Annotations", "Enable/Disable executing javascript annotations", true))
+						.add(new BooleanSetting("annotation-timing", "Time Annotations", "Write the time taken by each annotation to the debug stream when the simulation stops", false))
 					);
 		
 		settings.add(new ObjectSetting("editor", "Editor")
@@ -129,6 +130,7 @@ public class Settings {
 		settings.add(new ObjectSetting("logger", "Logger")
 				.add(new BooleanSetting("emphasise", "Emphasise Logger", "Toggles whether to emphasise logger when requesting input", true))
 				.add(new IntegerSetting("font-size", "Font Size", "Font size for the Program I/O", 15, 1, 100))
+				.add(new IntegerSetting("scrollback", "Scrollback", "Maximum number of lines kept for each Program I/O stream", 10000, 1, 1000000))
 				);
 		
 		settings.add(new ObjectSetting("hlvis", "High Level Visualiser")
@@ -20,7 +20,10 @@ public class ALU {
     public static final byte[] branchFalse = new byte[]{0b0,0b0,0b0,0b0};//if branch returns false
     static boolean branchFlag = false;//flag to determine branching (true = successful branch has been executed)
 
+    private static final Instruction[] instructions = Instruction.values();//indexed by opcode (ordinal)
+
     /**this method uses a switch statement to execute some operation on two words
+     * (a wrapper around exec and branch for code which works with words)
      *
      * @param instruction the precise instruction to execute
      * @param firstWord the first word to work on
@@ -31,12 +34,12 @@ public class ALU {
      */
     public static Word execute(Instruction instruction, Optional<Word> firstWord, Optional<Word> secondWord, Optional<CPU> cpu) throws InstructionException
     {
-        byte[] firstValue;
-        byte[] secondValue;
+        int firstValue;
+        int secondValue;
 
         if(firstWord.isPresent())//if a value stored
         {
-            firstValue = firstWord.get().getBytes();
+            firstValue = toInt(firstWord.get());
         }
         else
         {
@@ -45,267 +48,241 @@ public class ALU {
 
         if(secondWord.isPresent())//if a value stored
         {
-            secondValue = secondWord.get().getBytes();
+            secondValue = toInt(secondWord.get());
         }
         else
         {
-            secondValue = new byte[]{0x00,0x00,0x00,0x00};//this is probably the best workaround in case of something silly
+            secondValue = 0;//this is probably the best workaround in case of something silly
             //this will either end up returning the original value, or produce undefined behaviour
         }
 
+        if(isBranch(instruction)) {
+            return new Word(branch(instruction.ordinal(), firstValue, secondValue) ? branchTrue : branchFalse);
+        }
+
+        switch(instruction) {
+            case mul:
+                if(!cpu.isPresent()) {
+                    return null;
+                }
+                break;
+            case mult:
+            case multi:
+                exec(instruction.ordinal(), firstValue, secondValue, cpu.orElse(null));
+                return null;
+            default:
+                break;
+        }
+
+        return encode(exec(instruction.ordinal(), firstValue, secondValue, cpu.orElse(null)));
+    }
+
+    /**
+     * @param instruction the instruction to test
+     * @return whether the instruction is evaluated using branch rather than exec
+     */
+    public static boolean isBranch(Instruction instruction) {
+        switch(instruction) {
+            case b: case beq: case bne: case bgez: case bgtz: case blez: case bltz: case beqz:
+            case bge: case bgeu: case bgt: case bgtu: case ble: case bleu: case blt: case bltu:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**carry out an arithmetic/logical operation on the raw contents of two registers
+     *
+     * @param opcode the instruction to execute (Instruction.ordinal())
+     * @param a the first operand
+     * @param b the second operand (0 if the instruction only has one operand)
+     * @param s where to store the results of multiplication (may be null if not multiplying)
+     * @return the result of the operation (0 for instructions which only write to lo and hi)
+     * @throws InstructionException if unsupported instruction attempted
+     */
+    public static int exec(int opcode, int a, int b, CpuState s) throws InstructionException
+    {
+        Instruction instruction = instructions[opcode];
         switch(instruction) {//checking each possible instruction
             case abs:
-                return encodeS(Math.abs(decodeS(firstValue)));
+                return (int) Math.abs((long) a);
             case and: case andi:
-                byte[] resultAnd = new byte[4];
-                for(int i = 0; i < resultAnd.length; i++) {
-                    resultAnd[i] = (byte) (firstValue[i] & secondValue[i]);
-                }
-                return new Word(resultAnd);
-            case add:
-                return encodeS(decodeS(firstValue) + decodeS(secondValue));
-            case addu:
-                return encodeU(decodeU(firstValue) + decodeU(secondValue));
-            case addi:
-                return encodeS(decodeS(firstValue) + decodeS(secondValue));
-            case addiu:
-                return encodeU(decodeU(firstValue) + decodeU(secondValue));
-            case sub:
-                return encodeS(decodeS(firstValue) - decodeS(secondValue));
-            case subu:
-                return encodeU(decodeU(firstValue) - decodeU(secondValue));
-            case subi:
-                return encodeS(decodeS(firstValue) - decodeS(secondValue));
-            case subiu:
-                return encodeU(decodeU(firstValue) - decodeU(secondValue));
-            case mul:
-            	if(cpu.isPresent()) {
-            		byte[] result = DataConverter.encodeAsUnsignedLong(decodeS(firstValue) * decodeS(secondValue));
-            		cpu.get().setHi(new Word(new byte[]{result[0],result[1],result[2],result[3]}));
-            		cpu.get().setLo(new Word(new byte[]{result[4],result[5],result[6],result[7]}));
-            		return cpu.get().getLo();
-            	}
-                return null;
+                return a & b;
+            case add: case addu: case addi: case addiu:
+                return a + b;
+            case sub: case subu: case subi: case subiu:
+                return a - b;
+            case mul: {
+                long result = (long) a * (long) b;
+                s.setHiValue((int) (result >>> 32));
+                s.setLoValue((int) result);
+                return (int) result;
+            }
             case mult:
             case multi:
-            	if(cpu.isPresent()) {
-            		byte[] result = DataConverter.encodeAsUnsignedLong(decodeS(firstValue) * decodeS(secondValue));
-            		cpu.get().setHi(new Word(new byte[]{result[0],result[1],result[2],result[3]}));
-            		cpu.get().setLo(new Word(new byte[]{result[4],result[5],result[6],result[7]}));
-            	}
-            	return null;
+                if(s != null) {
+                    long result = (long) a * (long) b;
+                    s.setHiValue((int) (result >>> 32));
+                    s.setLoValue((int) result);
+                }
+                return 0;
             case mulo:
-                return encodeS(decodeS(firstValue) * decodeS(secondValue));//might have to take more into account with overflow
             case mulou:
-                return encodeU(decodeU(firstValue) * decodeU(secondValue));//might have to take more into account with overflow
+                return a * b;//might have to take more into account with overflow
             case div:
-                return encodeS(decodeS(firstValue) / decodeS(secondValue));
+                return (int) ((long) a / (long) b);
             case divu:
-                return encodeU(decodeU(firstValue) / decodeU(secondValue));
+                return (int) (unsigned(a) / unsigned(b));
             case rem:
-            	return encodeS(decodeS(firstValue) % decodeS(secondValue));
+                return (int) ((long) a % (long) b);
             case remu:
-            	return encodeU(decodeU(firstValue) % decodeU(secondValue));
+                return (int) (unsigned(a) % unsigned(b));
             case neg:
-                return encodeS(decodeS(firstValue)*-1);
             case negu:
-                return encodeU(decodeS(firstValue)*-1);
+                return -a;
             case rol:
-            	long shiftNoRol = decodeU(secondValue) % 32;
-            	long toShiftRol = decodeU(firstValue);
-            	return encodeU((toShiftRol << shiftNoRol) | (toShiftRol >> (32-shiftNoRol)));
+                return Integer.rotateLeft(a, b & 31);
             case ror:
-            	long shiftNoRor = decodeU(secondValue) % 32;
-            	long toShiftRor = decodeU(firstValue);
-            	return encodeU((toShiftRor >>> shiftNoRor) | (toShiftRor << (32-shiftNoRor)));
+                return Integer.rotateRight(a, b & 31);
             case sll:
-            	return encodeU(decodeU(firstValue) << decodeU(secondValue));
+                // a long shift so the count is taken mod 64 rather than 32: a count of 32 to 63
+                // clears the word but a count of 64 leaves it unchanged
+                return (int) (unsigned(a) << unsigned(b));
             case sllv:
-            	long shiftNoL = decodeU(secondValue) % 32;
-            	return encodeU(decodeU(firstValue) << shiftNoL);
+                return a << (b & 31);
             case sra:
-            	return encodeS(decodeS(firstValue) >> decodeU(secondValue));//shift bits should always be positive really, otherwise use other instruction
+                return (int) ((long) a >> unsigned(b));//shift bits should always be positive really, otherwise use other instruction
             case srav:
-            	long shiftNoRa = decodeU(secondValue) % 32;
-            	return encodeS(decodeS(firstValue) >> shiftNoRa);
+                return a >> (b & 31);
             case srl:
-            	return encodeU(decodeU(firstValue) >>> decodeU(secondValue));
+                return (int) (unsigned(a) >>> unsigned(b));
             case srlv:
-            	long shiftNoR = decodeU(secondValue) % 32;
-            	return encodeU(decodeU(firstValue) >>> shiftNoR);
+                return a >>> (b & 31);
             case nor:
-                byte[] resultNor = new byte[4];
-                for(int i = 0; i < resultNor.length; i++) {
-                    resultNor[i] = (byte) ~(firstValue[i] | secondValue[i]);
-                }
-                return new Word(resultNor);
+                return ~(a | b);
             case not:
-                byte[] resultNot = new byte[4];
-                for(int i = 0; i < resultNot.length; i++) {
-                    resultNot[i] = (byte) ~(firstValue[i]);
-                }
-                return new Word(resultNot);
+                return ~a;
             case or: case ori:
-                byte[] resultOr = new byte[4];
-                for(int i = 0; i < resultOr.length; i++) {
-                    resultOr[i] = (byte) (firstValue[i] | secondValue[i]);
-                }
-                return new Word(resultOr);
+                return a | b;
             case xor: case xori:
-                byte[] resultXor = new byte[4];
-                for(int i = 0; i < resultXor.length; i++) {
-                    resultXor[i] = (byte) (firstValue[i] ^ secondValue[i]);
-                }
-                return new Word(resultXor);
+                return a ^ b;
+            case move:
+                return a;
+            case seq:
+                return a == b ? 1 : 0;
+            case sge:
+                return a >= b ? 1 : 0;
+            case sgeu:
+                return Integer.compareUnsigned(a, b) >= 0 ? 1 : 0;
+            case sgt:
+                return a > b ? 1 : 0;
+            case sgtu:
+                return Integer.compareUnsigned(a, b) > 0 ? 1 : 0;
+            case sle:
+                return a <= b ? 1 : 0;
+            case sleu:
+                return Integer.compareUnsigned(a, b) <= 0 ? 1 : 0;
+            case slt: case slti:
+                return a < b ? 1 : 0;
+            case sltu: case sltiu:
+                return Integer.compareUnsigned(a, b) < 0 ? 1 : 0;
+            case sne:
+                return a != b ? 1 : 0;
+            default:
+                throw new InstructionException("Invalid/Unsupported Instruction.",instruction);
+        }
+    }
+
+    /**evaluate the condition of a branch instruction, also sets the branch flag
+     *
+     * @param opcode the branch instruction (Instruction.ordinal())
+     * @param a the first value to compare
+     * @param b the second value to compare (0 if the instruction only has one comparison)
+     * @return whether the branch should be taken
+     * @throws InstructionException if the instruction is not a branch
+     */
+    public static boolean branch(int opcode, int a, int b) throws InstructionException
+    {
+        boolean taken;
+        Instruction instruction = instructions[opcode];
+        switch(instruction) {
             case b:
-            	branchFlag = true;
-                return new Word(branchTrue);
+                taken = true;
+                break;
             case beq:
-                for(int i = 0; i < firstValue.length; i++) {
-                    if(firstValue[i] != secondValue[i]) {
-                    	branchFlag = false;
-                        return new Word(branchFalse);
-                    }
-                }
-                branchFlag = true;
-                return new Word(branchTrue);//if all bytes equal
+                taken = a == b;
+                break;
             case bne:
-                for(int i = 0; i < firstValue.length; i++) {
-                    if(firstValue[i] != secondValue[i]) {//if a difference found
-                    	branchFlag = true;
-                        return new Word(branchTrue);
-                    }
-                }
-                branchFlag = false;
-                return new Word(branchFalse);//if all bytes equal then false
+                taken = a != b;
+                break;
             case bgez:
-                if(decodeS(firstValue) >= 0) {branchFlag = true; return new Word(branchTrue);}
-                else {branchFlag = false; return new Word(branchFalse);}
+                taken = a >= 0;
+                break;
             case bgtz:
-                if(decodeS(firstValue) > 0) {branchFlag = true; return new Word(branchTrue);}
-                else {branchFlag = false; return new Word(branchFalse);}
+                taken = a > 0;
+                break;
             case blez:
-                if(decodeS(firstValue) <= 0) {branchFlag = true; return new Word(branchTrue);}
-                else {branchFlag = false; return new Word(branchFalse);}
+                taken = a <= 0;
+                break;
             case bltz:
-                if(decodeS(firstValue) < 0) {branchFlag = true; return new Word(branchTrue);}
-                else {branchFlag = false; return new Word(branchFalse);}
+                taken = a < 0;
+                break;
             case beqz:
-                if(decodeS(firstValue) == 0) {branchFlag = true; return new Word(branchTrue);}
-                else {branchFlag = false; return new Word(branchFalse);}
+                taken = a == 0;
+                break;
             case bge:
-            	if(decodeS(firstValue) >= decodeS(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = a >= b;
+                break;
             case bgeu:
-            	if(decodeU(firstValue) >= decodeU(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = Integer.compareUnsigned(a, b) >= 0;
+                break;
             case bgt:
-            	if(decodeS(firstValue) > decodeS(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = a > b;
+                break;
             case bgtu:
-            	if(decodeU(firstValue) > decodeU(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = Integer.compareUnsigned(a, b) > 0;
+                break;
             case ble:
-            	if(decodeS(firstValue) <= decodeS(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = a <= b;
+                break;
             case bleu:
-            	if(decodeU(firstValue) <= decodeU(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = Integer.compareUnsigned(a, b) <= 0;
+                break;
             case blt:
-            	if(decodeS(firstValue) < decodeS(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
+                taken = a < b;
+                break;
             case bltu:
-            	if(decodeU(firstValue) < decodeU(secondValue)) {branchFlag = true; return new Word(branchTrue);}
-            	else {branchFlag = false; return new Word(branchFalse);}
-            case move:
-                return new Word(firstValue);
-            case seq:
-            	for(int i = 0; i < firstValue.length; i++) {
-                    if(firstValue[i] != secondValue[i]) {
-                        return encodeS(0);
-                    }
-                }
-            	return encodeS(1);
-            case sge:
-            	if(decodeS(firstValue) >= decodeS(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sgeu:
-            	if(decodeU(firstValue) >= decodeU(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sgt:
-            	if(decodeS(firstValue) > decodeS(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sgtu:
-            	if(decodeU(firstValue) > decodeU(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sle:
-            	if(decodeS(firstValue) <= decodeS(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sleu:
-            	if(decodeU(firstValue) <= decodeU(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case slt:
-            	if(decodeS(firstValue) < decodeS(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case slti:
-            	if(decodeS(firstValue) < decodeS(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sltu:
-            	if(decodeU(firstValue) < decodeU(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sltiu:
-            	if(decodeU(firstValue) < decodeU(secondValue)) {return encodeS(1);}
-            	return encodeS(0);
-            case sne:
-            	for(int i = 0; i < firstValue.length; i++) {
-                    if(firstValue[i] != secondValue[i]) {
-                        return encodeS(1);
-                    }
-                }
-            	return encodeS(0);
+                taken = Integer.compareUnsigned(a, b) < 0;
+                break;
             default:
                 throw new InstructionException("Invalid/Unsupported Instruction.",instruction);
         }
+        branchFlag = taken;
+        return taken;
     }
 
     /**
-     * interpret a byte array as a 4 byte signed integer
-     *
-     * @param word the word to interpret
-     * @return the interpreted value
+     * @param value a 32 bit value
+     * @return the value interpreted as unsigned
      */
-    private static long decodeS(byte[] word) {
-        return DataConverter.decodeAsSigned(word);
+    private static long unsigned(int value) {
+        return value & 0xFFFFFFFFL;
     }
 
     /**
-     * interpret a byte array as a 4 byte unsigned integer
-     *
      * @param word the word to interpret
-     * @return the interpreted value
-     */
-    private static long decodeU(byte[] word) {
-        return DataConverter.decodeAsUnsigned(word);
-    }
-
-    /**
-     * take a value interpreted as having a sign and encode it as a word
-     *
-     * @param value the signed value to encode
-     * @return the encoded value
+     * @return the raw 32 bit contents of the word
      */
-    private static Word encodeS(long value) {
-        return new Word(DataConverter.encodeAsSigned(value));
+    private static int toInt(Word word) {
+        return (int) DataConverter.decodeAsUnsigned(word.getBytes());
     }
 
     /**
-     * take a value interpreted as being unsigned and encode it as a word
-     *
-     * @param value the unsigned value to encode
-     * @return the encoded value
+     * @param value the raw 32 bit value
+     * @return the value encoded as a word
      */
-    private static Word encodeU(long value) {
+    private static Word encode(int value) {
         return new Word(DataConverter.encodeAsUnsigned(value));
     }
 
-}
\ No newline at end of file
+}
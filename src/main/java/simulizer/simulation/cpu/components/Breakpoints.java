@@ -95,6 +95,14 @@ public class Breakpoints {
                 .map(Breakpoints::getAddressOfLine)
                 .collect(Collectors.toList()));
     }
+    /**
+     * a cheap check which does not require locking so that it can be made every cycle
+     * @return whether there may be any breakpoints set (in which case isBreakpoint should be queried)
+     */
+    static boolean anyBreakpoints() {
+        return !breakpointLineNumbers.isEmpty() || !breakpointAddresses.isEmpty();
+    }
+
     static synchronized boolean isBreakpoint(Address a) {
         if(p == null)
             throw new IllegalStateException("cannot query Breakpoints without specifying a program first!");
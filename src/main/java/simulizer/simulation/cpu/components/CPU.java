@@ -3,6 +3,7 @@ package simulizer.simulation.cpu.components;
 
 import java.util.*;
 import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 import javafx.application.Platform;
 import simulizer.Simulizer;
@@ -19,8 +20,10 @@ import simulizer.simulation.data.representation.DataConverter;
 import simulizer.simulation.data.representation.Word;
 import simulizer.simulation.exceptions.*;
 import simulizer.simulation.instructions.InstructionFormat;
+import simulizer.simulation.instructions.PredecodedInstruction;
 import simulizer.simulation.messages.AnnotationMessage;
 import simulizer.simulation.messages.DataMovementMessage;
+import simulizer.simulation.messages.HiLoChangeMessage;
 import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.MessageManager;
 import simulizer.simulation.messages.PipelineStateMessage;
@@ -39,21 +42,29 @@ import simulizer.simulation.messages.StageEnterMessage.Stage;
  * - Instruction Register - Statement object
  * - ALU - External object
  * - L/S Unit - Not required (will still be shown in visualisation)
- * - Registers - array of 4 byte words
+ * - Registers - array of primitive 32 bit integers (Word views are created on request)
  * - Main Memory - External Memory Object
  * 
  * @author Charlie Street
  *
  */
-public class CPU {
+public class CPU implements CpuState {
 
 	private MessageManager messageManager;
 
 	Address programCounter;
 	Statement instructionRegister;
+	/**
+	 * the predecoded form of the statement in the instruction register
+	 */
+	PredecodedInstruction predecodedRegister;
 
 	final Clock clock;
 	long cycles;
+	/**
+	 * the duration of the last call to runUnobserved in nanoseconds
+	 */
+	private long unobservedDuration;
 	/**
 	 * used for resume for single cycle
 	 */
@@ -61,17 +72,27 @@ public class CPU {
     private final Semaphore tickLock;
 	private long lastFXWait;
 
-	private Word[] registers;
+	/**
+	 * general purpose register file. Stored as primitive ints so that the simulation does not allocate
+	 * when reading/writing registers. Word objects are only created when requested (eg by the UI or annotations)
+	 */
+	private final int[] registers;
 	private MainMemory memory;
 
 	private Decoder decoder;
 	private Executor executor;
+	private FastExecutor fastExecutor;
 
 	private Program program;// all information on how to run the program
 	public Map<String, Address> labels;
 	private Map<String, Label> labelMetaData;
 
 	protected Map<Address, Annotation> annotations;
+	/**
+	 * run on the simulation thread before each annotation is sent, so that whatever
+	 * runs the annotations can hold up the simulation when it falls behind (may be null)
+	 */
+	private volatile Runnable annotationBackpressure;
 
 	volatile boolean isRunning;// for program status
 	Address lastAddress;// used to determine end of program
@@ -79,8 +100,8 @@ public class CPU {
 	private IO io;
 	
 	//LO/HI Registers
-	private Word lo;
-	private Word hi;
+	private int lo;
+	private int hi;
 
 	/**
 	 * the constructor will set all the components up
@@ -90,6 +111,7 @@ public class CPU {
 	 */
 	public CPU(IO io) {
 		this.messageManager = new MessageManager(io);
+		this.registers = new int[32];
 		this.clearRegisters();
 		this.clock = new Clock();
 		this.cycles = 0;
@@ -101,8 +123,9 @@ public class CPU {
 		this.io = io;
 		this.decoder = new Decoder(this);
 		this.executor = new Executor(this);
-		this.lo = Word.ZERO;
-		this.hi = Word.ZERO;
+		this.fastExecutor = new FastExecutor(this, this.registers, this.decoder, this.executor);
+		this.lo = 0;
+		this.hi = 0;
 		
 	}
 
@@ -235,6 +258,7 @@ public class CPU {
 				throw new EndedException();
 			}
 
+            // only blocks if a listener has fallen behind, otherwise just compares sequence numbers
             messageManager.waitForAll();
 
             // if the clock is stopped then it advances by 1 tick to unlock this thread
@@ -260,6 +284,19 @@ public class CPU {
 		this.messageManager.registerListener(l);
 	}
 
+	/**
+	 * Register a listener to receive only some types of message.
+	 * Messages which no listener is subscribed to are not created by the CPU
+	 *
+	 * @param l
+	 *            the listener to send messages to
+	 * @param messageTypes
+	 *            the types of message the listener is interested in
+	 */
+	public void registerListener(SimulationListener l, EnumSet<Message.Type> messageTypes) {
+		this.messageManager.registerListener(l, messageTypes);
+	}
+
 	/**
 	 * Unregisters a listener from the list
 	 * wrapper for method in listener, things listen to the CPU
@@ -282,6 +319,46 @@ public class CPU {
 		this.messageManager.sendMessage(m);
 	}
 
+	/**
+	 * send an annotation to be run, first waiting if whatever runs the annotations
+	 * has asked for the simulation to be held up
+	 *
+	 * @param annotation
+	 *            the annotation to run
+	 * @param boundAddress
+	 *            the address of the instruction the annotation is bound to (null for the initial annotation)
+	 */
+	void sendAnnotation(Annotation annotation, Address boundAddress) {
+		Runnable backpressure = annotationBackpressure;
+		if (backpressure != null) {
+			backpressure.run();
+		}
+		sendMessage(new AnnotationMessage(annotation, boundAddress));
+	}
+
+	/**
+	 * @param backpressure
+	 *            called on the simulation thread before each annotation is sent, may block
+	 *            to hold up the simulation (null for none)
+	 */
+	public void setAnnotationBackpressure(Runnable backpressure) {
+		this.annotationBackpressure = backpressure;
+	}
+
+	/**
+	 * send a message only if anything would receive it, so that the message is not created otherwise
+	 *
+	 * @param type
+	 *            the type of message
+	 * @param message
+	 *            creates the message to send
+	 */
+	void sendIfSubscribed(Message.Type type, Supplier<Message> message) {
+		if (messageManager.isSubscribed(type)) {
+			sendMessage(message.get());
+		}
+	}
+
 	/**
 	 * this method is used to set up the cpu whenever a new program is loaded into it
 	 *
@@ -291,6 +368,7 @@ public class CPU {
 	public void loadProgram(Program program) {
 		this.program = program;
 		this.instructionRegister = null;// nothing to put in yet so null
+		this.predecodedRegister = null;
 
 		Breakpoints.specifyProgram(program);
 
@@ -299,12 +377,7 @@ public class CPU {
 		// setting up memory
 		Address dataSegmentStart = this.program.dataSegmentStart;
 		Address dynamicSegmentStart = this.program.dynamicSegmentStart;
-		Address stackPointer = new Address((int) DataConverter.decodeAsSigned(this.program.initialSP.getBytes()));
-        // copy the static data segment because the program's initial state should be preserved in case the cached
-		// program is run again
-		byte[] staticDataSegment = Arrays.copyOf(this.program.dataSegment, this.program.dataSegment.length);
-		Map<Address, Statement> textSegment = this.program.textSegment;
-		this.memory = new MainMemory(textSegment, staticDataSegment, dataSegmentStart, dynamicSegmentStart, stackPointer);
+		Address stackPointer = new Address(toInt(this.program.initialSP));
 
 		labels = new HashMap<>();
 		labelMetaData = new HashMap<>();
@@ -314,6 +387,12 @@ public class CPU {
 			labelMetaData.put(key, l.getKey());
 		}
 
+		// labels must be known before predecoding so that label addresses can be resolved
+		PredecodedInstruction[] textSegment = predecodeTextSegment(this.program);
+		// the static data segment is copied into memory so the program's initial state is preserved in case the
+		// cached program is run again
+		this.memory = new MainMemory(textSegment, this.program.textSegmentStart, this.program.dataSegment, dataSegmentStart, dynamicSegmentStart, stackPointer);
+
 		annotations = program.annotations;
 
 		try {
@@ -322,25 +401,45 @@ public class CPU {
 			sendMessage(new ProblemMessage(e));
 		}
 
-		this.registers[Register.gp.getID()] = this.program.initialGP;// setting global pointer
-		sendMessage(new RegisterChangedMessage(Register.gp));
-		this.registers[Register.sp.getID()] = this.program.initialSP;// setting up stack pointer
-		sendMessage(new RegisterChangedMessage(Register.gp));
+		this.registers[Register.gp.getID()] = toInt(this.program.initialGP);// setting global pointer
+		sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.gp));
+		this.registers[Register.sp.getID()] = toInt(this.program.initialSP);// setting up stack pointer
+		sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.sp));
 
 		this.lastAddress = program.textSegmentLast;
 
 		sendMessage(new SimulationMessage(SimulationMessage.Detail.PROGRAM_LOADED));
 	}
 
+	/**
+	 * predecode every statement in the text segment of a program so that the work
+	 * which does not depend on the state of the simulation is only done once
+	 *
+	 * @param program
+	 *            the program to predecode (the labels must already be loaded)
+	 * @return the predecoded statements, indexed by their word offset from the start of the text segment
+	 */
+	private PredecodedInstruction[] predecodeTextSegment(Program program) {
+		// the text segment is contiguous starting at textSegmentStart
+		PredecodedInstruction[] textSegment = new PredecodedInstruction[program.textSegment.size()];
+		int start = program.textSegmentStart.getValue();
+
+		for (Map.Entry<Address, Statement> s : program.textSegment.entrySet()) {
+			int index = (s.getKey().getValue() - start) >> 2;
+			textSegment[index] = decoder.predecodeOrDefer(s.getValue());
+		}
+		return textSegment;
+	}
+
 	/**
 	 * this method resets the registers in the memory
 	 * it then initialises them to some default value
 	 */
 	private void clearRegisters() {
-		this.registers = new Word[32];
+		Arrays.fill(this.registers, 0);
 		for (int i = 0; i < this.registers.length; i++) {
-			this.registers[i] = new Word(DataConverter.encodeAsUnsigned(0));
-			sendMessage(new RegisterChangedMessage(Register.fromID(i)));// firing to visualisation
+			Register r = Register.fromID(i);
+			sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(r));// firing to visualisation
 		}
 	}
 
@@ -368,9 +467,10 @@ public class CPU {
 	 *
 	 */
 	protected void fetch() throws MemoryException {
-		sendMessage(new StageEnterMessage(Stage.Fetch));// signal start of stage
-		this.instructionRegister = this.memory.readFromTextSegment(this.programCounter);
-		sendMessage(new DataMovementMessage(Optional.empty(), Optional.of(this.instructionRegister)));
+		sendIfSubscribed(Message.Type.StageEnter, () -> new StageEnterMessage(Stage.Fetch));// signal start of stage
+		this.predecodedRegister = this.memory.readPredecoded(this.programCounter);
+		this.instructionRegister = this.predecodedRegister.statement;
+		sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.empty(), Optional.of(this.instructionRegister)));
 		this.programCounter = new Address(this.programCounter.getValue() + 4);// incrementing the program counter
 	}
 
@@ -390,6 +490,30 @@ public class CPU {
 		return this.decoder.decode(instruction, operandList);
 	}
 
+	/**
+	 * method decodes a predecoded statement within the cpu
+	 *
+	 * @param statement
+	 *            the predecoded statement
+	 * @return InstructionFormat the instruction ready for execution
+	 * @throws DecodeException
+	 *             if the statement could not be decoded
+	 */
+	protected InstructionFormat decode(PredecodedInstruction statement) throws DecodeException {
+		return this.decoder.decode(statement);
+	}
+
+	/**
+	 * predecode a statement which is not part of the text segment (eg a bubble in the pipeline)
+	 *
+	 * @param statement
+	 *            the statement to predecode
+	 * @return the predecoded statement
+	 */
+	protected PredecodedInstruction predecode(Statement statement) {
+		return this.decoder.predecodeOrDefer(statement);
+	}
+
 	/**
 	 * this method will execute the instruction given to it
 	 * wrapper for method in Executor, gives nice inheritance layout
@@ -431,20 +555,20 @@ public class CPU {
 		}
 
 		fetch();
-		sendMessage(new PipelineStateMessage(thisInstruction, null, null));
+		sendIfSubscribed(Message.Type.PipelineState, () -> new PipelineStateMessage(thisInstruction, null, null));
 
 		waitForNextTick();
 
-		InstructionFormat instruction = decode(instructionRegister.getInstruction(), instructionRegister.getOperandList());
-		sendMessage(new PipelineStateMessage(null, thisInstruction, null));
+		InstructionFormat instruction = decode(predecodedRegister);
+		sendIfSubscribed(Message.Type.PipelineState, () -> new PipelineStateMessage(null, thisInstruction, null));
 
 		waitForNextTick();
 
 		execute(instruction);
-		sendMessage(new PipelineStateMessage(null, null, thisInstruction));
+		sendIfSubscribed(Message.Type.PipelineState, () -> new PipelineStateMessage(null, null, thisInstruction));
 
 		if (annotations.containsKey(thisInstruction) && this.isRunning) {
-			sendMessage(new AnnotationMessage(annotations.get(thisInstruction), thisInstruction));
+			sendAnnotation(annotations.get(thisInstruction), thisInstruction);
 		}
 
 		waitForNextTick();
@@ -483,7 +607,7 @@ public class CPU {
 		// if clock speed set, then this applies on the first tick since the clock is
 		// started below
 		if (program.initAnnotation != null) {
-			sendMessage(new AnnotationMessage(program.initAnnotation, null));
+			sendAnnotation(program.initAnnotation, null);
 		}
 
 		// start the clock now for the listeners that check for it to see if the simulation is active
@@ -525,19 +649,165 @@ public class CPU {
 		sendMessage(new SimulationMessage(SimulationMessage.Detail.SIMULATION_STOPPED));
 	}
 
+	/**
+	 * run the program given to the CPU as fast as possible without sending any messages about the
+	 * state of the simulation and without waiting for the clock. Intended for when nothing is watching
+	 * the simulation (eg command line mode). Syscalls, breakpoints and annotations are still handled,
+	 * the registers are reported as changed once the simulation finishes.
+	 *
+	 * @see #getInstructionsPerSecond()
+	 */
+	public void runUnobserved() {
+		isRunning = true;
+		breakAfterCycle = false;
+		cycles = 0;
+		unobservedDuration = 0;
+
+		messageManager.waitForAll();
+
+		if (program.initAnnotation != null) {
+			sendAnnotation(program.initAnnotation, null);
+		}
+
+		// the clock is only used to pause the simulation
+		clock.start();
+
+		sendMessage(new SimulationMessage(SimulationMessage.Detail.SIMULATION_STARTED));
+
+		messageManager.waitForAll();
+
+		// annotations indexed in the same way as the text segment, so no Address has to be created each cycle
+		int start = program.textSegmentStart.getValue();
+		Annotation[] annotationsByIndex = new Annotation[program.textSegment.size()];
+		for (Map.Entry<Address, Annotation> a : annotations.entrySet()) {
+			int index = (a.getKey().getValue() - start) >> 2;
+			if (index >= 0 && index < annotationsByIndex.length) {
+				annotationsByIndex[index] = a.getValue();
+			}
+		}
+
+		int pc = programCounter.getValue();
+		int end = lastAddress.getValue() + 4;
+		long startTime = System.nanoTime();
+
+		try {
+			while (isRunning) {
+				if (Breakpoints.anyBreakpoints() && Breakpoints.isBreakpoint(new Address(pc))) {
+					pause();
+				}
+				if (clock.getStatus() == Clock.Status.PAUSED) {
+					programCounter = new Address(pc);
+					clock.waitForNextTick(); // blocks until resumed or stopped
+					if (!isRunning) {
+						break;
+					}
+				}
+
+				PredecodedInstruction instruction = memory.readPredecoded(pc);
+				int thisInstruction = pc;
+				pc = fastExecutor.execute(instruction, pc + 4);
+
+				Annotation annotation = annotationsByIndex[(thisInstruction - start) >> 2];
+				if (annotation != null && isRunning) {
+					// the annotation should see the state immediately after the instruction
+					sendAnnotation(annotation, new Address(thisInstruction));
+					messageManager.waitForAll();
+				}
+
+				if (pc == end && isRunning) {// if end of program reached
+					// clean exit but representing in reality an error would be thrown
+					sendMessage(new ProblemMessage(
+							new MemoryException(
+									"Program tried to execute a program outside the text segment.\n" +
+									"  This could be because you forgot to exit cleanly.\n" +
+									"  To exit cleanly please call syscall with code 10.\n", new Address(pc))));
+					stopRunning();
+					break;
+				}
+
+				cycles++;
+				if (breakAfterCycle) {
+					pause();
+				}
+			}
+		} catch (MemoryException | DecodeException | InstructionException | ExecuteException | HeapException | StackException e) {
+			sendMessage(new ProblemMessage(e));
+			stopRunning();
+		} catch (InterruptedException e) {
+			sendMessage(new SimulationMessage(SimulationMessage.Detail.SIMULATION_INTERRUPTED));
+			stopRunning();
+		}
+
+		unobservedDuration = System.nanoTime() - startTime;
+		programCounter = new Address(pc);
+
+		// clean up
+
+		if(clock.getStatus() != Clock.Status.STOPPED)
+			clock.stop();
+		io.cancelRead();
+
+		// individual register changes were not reported
+		for (int i = 0; i < this.registers.length; i++) {
+			Register r = Register.fromID(i);
+			sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(r));
+		}
+		sendIfSubscribed(Message.Type.RegisterChanged, () -> new HiLoChangeMessage());
+
+		// make sure the simulation stopped message is the very last message
+		messageManager.waitForAll();
+		sendMessage(new SimulationMessage(SimulationMessage.Detail.SIMULATION_STOPPED));
+	}
+
+	/**
+	 * @return the number of instructions executed per second during the last call to runUnobserved
+	 */
+	public double getInstructionsPerSecond() {
+		if (unobservedDuration <= 0) {
+			return 0;
+		}
+		return cycles * 1e9 / unobservedDuration;
+	}
+
+	/**
+	 * @return the number of cycles (instructions for the non-pipelined CPU) run since the program started
+	 */
+	public long getCycles() {
+		return cycles;
+	}
+
 	// Standard get methods, don't do anything special
 
 	/**
-     * only use this method with the simulation bridge.
+	 * create a snapshot of the register file as Word objects.
+	 * only use this method with the simulation bridge.
 	 */
 	public Word[] getRegisters() {
-		return registers;
+		Word[] words = new Word[registers.length];
+		for(int i = 0; i < registers.length; i++) {
+			words[i] = toWord(registers[i]);
+		}
+		return words;
 	}
+
+	/**
+	 * @return a Word view of the current contents of the register (allocated on each call)
+	 */
 	public Word getRegister(Register r) {
-		return registers[r.getID()];
+		return toWord(registers[r.getID()]);
 	}
 	public void setRegister(Register r, Word w) {
-		registers[r.getID()] = w;
+		registers[r.getID()] = toInt(w);
+	}
+
+	/**
+	 * @return the raw 32 bit contents of the register
+	 */
+	public int getRegisterValue(Register r) {
+		return registers[r.getID()];
+	}
+	public void setRegisterValue(Register r, int value) {
+		registers[r.getID()] = value;
 	}
 
 	public MainMemory getMainMemory() {
@@ -549,21 +819,57 @@ public class CPU {
 	}
 	
 	public Word getLo() {
-		return this.lo;
+		return toWord(this.lo);
 	}
 	
 	public Word getHi() {
-		return this.hi;
+		return toWord(this.hi);
 	}
 	
 	public void setLo(Word lo) {
-		this.lo = lo;
+		this.lo = toInt(lo);
 	}
 	
 	public void setHi(Word hi) {
+		this.hi = toInt(hi);
+	}
+
+	@Override
+	public int getLoValue() {
+		return this.lo;
+	}
+
+	@Override
+	public int getHiValue() {
+		return this.hi;
+	}
+
+	@Override
+	public void setLoValue(int lo) {
+		this.lo = lo;
+	}
+
+	@Override
+	public void setHiValue(int hi) {
 		this.hi = hi;
 	}
 
+	/**
+	 * @param value the raw 32 bit value
+	 * @return the value encoded as a word (big endian)
+	 */
+	private static Word toWord(int value) {
+		return new Word(DataConverter.encodeAsUnsigned(value));
+	}
+
+	/**
+	 * @param w the word to interpret
+	 * @return the raw 32 bit contents of the word
+	 */
+	private static int toInt(Word w) {
+		return (int) DataConverter.decodeAsUnsigned(w.getBytes());
+	}
+
 	public IO getIO() {
 		return io;
 	}
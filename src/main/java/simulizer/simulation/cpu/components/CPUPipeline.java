@@ -1,13 +1,11 @@
 package simulizer.simulation.cpu.components;
 
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 import simulizer.assembler.representation.Address;
 import simulizer.assembler.representation.Instruction;
 import simulizer.assembler.representation.Register;
 import simulizer.assembler.representation.Statement;
-import simulizer.assembler.representation.operand.OperandFormat;
 import simulizer.simulation.cpu.user_interaction.IO;
 import simulizer.simulation.data.representation.DataConverter;
 import simulizer.simulation.data.representation.Word;
@@ -26,8 +24,11 @@ import simulizer.simulation.messages.PipelineHazardMessage.Hazard;
  */
 public class CPUPipeline extends CPU {
 
-	private Statement IF;//used for storing between fetch and decode
+	private PredecodedInstruction IF;//used for storing between fetch and decode
 	private InstructionFormat ID;//user for storing between decode and execute
+	private PredecodedInstruction IDSource;//the instruction that ID was decoded from, used for detecting hazards
+	private final PredecodedInstruction nopStatement;//dummy nop used when bubbling and flushing, never changes so can be shared
+	private final SpecialInstruction nopInstruction;
 	private boolean canFetch;//useful for pipeline stalling
 	/**
 	 * used to trigger the end of the program
@@ -47,8 +48,11 @@ public class CPUPipeline extends CPU {
 	 */
 	public CPUPipeline(IO io) {
 		super(io);
-		this.IF = createNopStatement();
-		this.ID = createNopInstruction();
+		this.nopStatement = predecode(new Statement(Instruction.nop,new ArrayList<>(),-1));
+		this.nopInstruction = new SpecialInstruction(Instruction.nop);
+		this.IF = nopStatement;
+		this.ID = nopInstruction;
+		this.IDSource = nopStatement;
 		this.canFetch = true;
 		this.isFinished = 0;
 		this.nopCount = 2;//initially 2
@@ -75,124 +79,20 @@ public class CPUPipeline extends CPU {
 		return clock.getTickFrequency();
 	}
 
-	/**method will go through a statement and extract the registers
-	 * that will be read by this instruction
-	 * @param statement the statement to be decoded and then executed
-	 * @return the list of registers to be read
+	/**method will look at the instruction being executed and determine which
+	 * registers it writes to. This is known when the program is loaded except for
+	 * syscall, where it depends on the syscall code
+	 * @param instruction the predecoded form of the instruction being checked
+	 * @return the registers being written to due to this instruction, one bit per register index
 	 */
-	private List<Register> registersRead(Statement statement) {
-		ArrayList<Register> registers = new ArrayList<>();
-		
-		//now to get all registers read out from the statement
-		OperandFormat opForm = statement.getInstruction().getOperandFormat();
-		boolean readZero = opForm.equals(OperandFormat.register) || opForm.equals(OperandFormat.srcAddr) ||
-						   opForm.equals(OperandFormat.cmpCmpLabel) || opForm.equals(OperandFormat.cmpLabel);
-		
-		boolean readOne = opForm.equals(OperandFormat.destSrc) || opForm.equals(OperandFormat.destSrcImm) ||
-						  opForm.equals(OperandFormat.destSrcSrc) || opForm.equals(OperandFormat.cmpCmpLabel);
-		
-		boolean readTwo = opForm.equals(OperandFormat.destSrcSrc);
-		
-		boolean readRegAddress = opForm.equals(OperandFormat.destAddr) || opForm.equals(OperandFormat.srcAddr);
-		
-		
-		if(readZero) {//formats with a read in first operand
-			registers.add(statement.getOperandList().get(0).asRegisterOp().value);
-		}
-		if(readOne) {//formats with a read in second operand
-			registers.add(statement.getOperandList().get(1).asRegisterOp().value);
-		}
-		if(readTwo) {//formats with a read in third operand
-			registers.add(statement.getOperandList().get(2).asRegisterOp().value);
-		}
-		
-		if(readRegAddress) {//formats with an address represented as a base and offset
-			if(!statement.getOperandList().get(1).asAddressOp().labelOnly()) {//if base and offset 
-				registers.add(statement.getOperandList().get(1).asAddressOp().register.get());
+	private int registersBeingWritten(PredecodedInstruction instruction) {
+		if(instruction.instruction == Instruction.syscall) {
+			int syscallCode = getRegisterValue(Register.v0);
+			if(syscallCode == 5||syscallCode==8||syscallCode==9||syscallCode==12) {//these syscall codes write to v0
+				return 1 << Register.v0.getID();
 			}
 		}
-		return registers;
-	}
-	
-	
-	/**method will look at the instruction being executed and retrieving the names
-	 * of all instructions being written
-	 * for most of our current instructions, only a single register will be returned
-	 * however there may be a case with complicated instructions, multiple could be written
-	 * and so the return type is as it is
-	 * @param instruction the instruction being checked
-	 * @return the registers being written to due to this instruction
-	 */
-	private List<Register> registersBeingWritten(InstructionFormat instruction) {
-		ArrayList<Register> registers = new ArrayList<>();
-		switch(instruction.mode) {
-			case RTYPE://all rtype instructions have a destination register
-				Register destRegR = instruction.asRType().getDestReg();
-				if(destRegR != null) {//instructions using lo and hi set the dest register to null hence this check
-					registers.add(destRegR);
-				}
-				break;
-			case JTYPE://jal will write to the return address register
-				if(instruction.getInstruction().equals(Instruction.jal)
-						|| instruction.getInstruction().equals(Instruction.jalr))
-				{
-					registers.add(Register.ra);
-				}
-				break;
-			case LSTYPE://load instructions write to registers
-				Optional<Register> dest = instruction.asLSType().getRegisterName();
-				if(dest.isPresent()) {
-					registers.add(dest.get());
-				}
-				break;
-			case SPECIAL:
-				if(instruction.getInstruction().equals(Instruction.syscall)) {
-					long syscallCode = DataConverter.decodeAsSigned(getRegister(Register.v0).getBytes());
-					if(syscallCode == 5||syscallCode==8||syscallCode==9||syscallCode==12) {//these syscall codes write to v0
-						registers.add(Register.v0);
-					}
-				}
-				break;
-			default:
-				break;
-		}
-		
-		return registers;
-	}
-	
-	
-	/**method will take the registers being read and the registers being written
-	 * and determine whether or not any stalling needs to be done in the pipeline
-	 * @param <A> the type of list being read, need multiple times so generics is appropriate
-	 * @param reads the registers being read
-	 * @param writes the registers being written
-	 * @return whether or not there is a crossover between the two lists
-	 */
-	private <A> boolean needToBubble(List<A> reads, List<A> writes) {
-		for (A write : writes) {
-			for (A read : reads) {
-				if (write != null && write.equals(read)) {
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-	
-	/**creates a dummy nop statement for the pipeline bubbling
-	 * 
-	 * @return the dummy nop statement
-	 */
-	private Statement createNopStatement() {
-		return new Statement(Instruction.nop,new ArrayList<>(),-1);
-	}
-	
-	/**method will create a dummy nop instruction for the ID register
-	 * when using bubbling
-	 * @return the dummy nop instruction
-	 */
-	private SpecialInstruction createNopInstruction() {
-		return new SpecialInstruction(Instruction.nop);
+		return instruction.writeMask;
 	}
 	
 	/**method will overwrite the method in the CPU class for running a cycle
@@ -232,17 +132,18 @@ public class CPUPipeline extends CPU {
 			isFinished = 1;//stop fetching essentially and begin to terminate program
         }
 		
-		boolean needToBubbleRAWReg = needToBubble(registersRead(IF), registersBeingWritten(ID));//detecting pipeline hazards
+		boolean needToBubbleRAWReg = (IF.readMask & registersBeingWritten(IDSource)) != 0;//detecting pipeline hazards
 		
 		InstructionFormat oldIDToExecute = ID;//storing old value of ID before overwritten, this is what I should be executing
 		if (needToBubbleRAWReg) { //if we need to stall to prevent incorrect reads
-			sendMessage(new PipelineHazardMessage(Hazard.RAW));
-			Statement nopBubble = createNopStatement();
-			ID = decode(nopBubble.getInstruction(),nopBubble.getOperandList());
+			sendIfSubscribed(Message.Type.PipelineHazard, () -> new PipelineHazardMessage(Hazard.RAW));
+			ID = nopInstruction;
+			IDSource = nopStatement;
 			this.canFetch = false;
 		} else {
-			ID = decode(IF.getInstruction(), IF.getOperandList());
-			IF = instructionRegister;//updating IF
+			ID = decode(IF);
+			IDSource = IF;
+			IF = predecodedRegister;//updating IF
 		}
 		
 		execute(oldIDToExecute);
@@ -252,15 +153,16 @@ public class CPUPipeline extends CPU {
 				(oldIDToExecute.mode.equals(AddressMode.ITYPE) && ALU.branchFlag);
 		
 		if(jumped) {//flush pipeline and allow continuation of running
-			sendMessage(new PipelineHazardMessage(Hazard.CONTROL));
+			sendIfSubscribed(Message.Type.PipelineHazard, () -> new PipelineHazardMessage(Hazard.CONTROL));
 			this.isFinished = 0;//considering edge case where jump on last instruction
 			this.isRunning = true;//keep the program running
-			IF = createNopStatement();
-			ID = createNopInstruction();
+			IF = nopStatement;
+			ID = nopInstruction;
+			IDSource = nopStatement;
 		}
 
 		if(annotations.containsKey(executeAddress) && nopCount==0 && this.isRunning) {//checking for annotations (not when a fake nop is executed)
-			sendMessage(new AnnotationMessage(annotations.get(executeAddress), executeAddress));
+			sendAnnotation(annotations.get(executeAddress), executeAddress);
 		}
 		
 		//Dealing with pipeline state messages
@@ -281,7 +183,8 @@ public class CPUPipeline extends CPU {
 				rawOccured = false;
 			}
 		}
-		sendMessage(new PipelineStateMessage(fetchAddress, decodeAddress, executeAddress));
+		Address fetched = fetchAddress, decoded = decodeAddress, executed = executeAddress;
+		sendIfSubscribed(Message.Type.PipelineState, () -> new PipelineStateMessage(fetched, decoded, executed));
 
 		// decrement until 0 but no further
 		nopCount = (nopCount <= 0) ? 0 : nopCount-1;
@@ -310,8 +213,9 @@ public class CPUPipeline extends CPU {
 		this.isFinished = 0;
 		this.nopCount = 2;//decode and execute bubbled initially
 		this.rawOccured = false;
-		this.IF = createNopStatement();
-		this.ID = createNopInstruction();
+		this.IF = nopStatement;
+		this.ID = nopInstruction;
+		this.IDSource = nopStatement;
 		super.runProgram();//calling original run program
 	}
 
@@ -1,7 +1,18 @@
 package simulizer.simulation.cpu.components;
 
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * Created by matthew on 13/09/16.
+ *
+ * The simulation thread waits for ticks by parking, so no CPU time is used while
+ * the clock is slow or paused. Changing the state of the clock (or the frequency)
+ * wakes the waiting thread immediately.
+ *
+ * Parking for very short periods is not accurate, so when the tick period is less
+ * than batchPeriod the waiting thread is instead woken once per batchPeriod and then
+ * allowed to run all of the ticks which have become due without waiting. The average
+ * frequency is the same but the ticks arrive in bursts.
  */
 public class Clock {
     public enum Status {
@@ -9,16 +20,21 @@ public class Clock {
         RUNNING,
         PAUSED
     }
-    private long tickPeriod; // in ns (10^-9 seconds)
+    private static final long batchPeriod = 1000000; // 1ms in ns, ie batch ticks above 1kHz
+    private static final long maxLag = 100000000; // 100ms in ns, don't catch up on ticks missed longer ago
+
+    private volatile long tickPeriod; // in ns (10^-9 seconds)
     private volatile Status status;
+    private volatile Thread waiter; // the thread waiting for the next tick (if any)
 
-    private long lastTickns;
+    private volatile long nextTickns; // when the next tick is due (also set by resume)
     private long ticks;
 
     Clock() {
         tickPeriod = 0;
         status = Status.STOPPED;
-        lastTickns = 0;
+        waiter = null;
+        nextTickns = 0;
         ticks = 0;
     }
 
@@ -29,6 +45,7 @@ public class Clock {
         } else {
             tickPeriod = (long) (1e9 / freq);
         }
+        wakeWaiter();
     }
 
     double getTickFrequency() {
@@ -40,34 +57,67 @@ public class Clock {
     }
 
     void waitForNextTick() throws InterruptedException {
-        while(status != Status.RUNNING) {
-            if(status == Status.STOPPED)
-                return;
-            else if(status == Status.PAUSED) {
-                // doesn't matter if resuming isn't absolutely instant and not using notify/wait simplifies the logic
-                Thread.sleep(10);
+        waiter = Thread.currentThread();
+        try {
+            while(status != Status.RUNNING) {
+                if(status == Status.STOPPED)
+                    return;
+                LockSupport.park(this); // woken by resume or stop
+                checkInterrupted();
             }
-        }
 
-        if (tickPeriod == 0) {
-            ++ticks;
-            return;
-        }
+            long period = tickPeriod;
+            if (period == 0) {
+                ++ticks;
+                return;
+            }
 
-        long tickDuration;
-        for (; ; ) {
-            tickDuration = System.nanoTime() - lastTickns;
+            for (; ; ) {
+                long now = System.nanoTime();
+                long remaining = nextTickns - now;
+
+                if (remaining <= 0 || status == Status.STOPPED)
+                    break;
+
+                if (period < batchPeriod) {
+                    // wake up once per batch and then run the ticks which are due back to back
+                    LockSupport.parkNanos(this, Math.max(remaining, batchPeriod - period));
+                } else {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                checkInterrupted();
+
+                if (tickPeriod != period) {
+                    // frequency changed while waiting
+                    nextTickns += tickPeriod - period;
+                    period = tickPeriod;
+                    if (period == 0)
+                        break;
+                }
+            }
 
-            if (tickDuration >= tickPeriod || status == Status.STOPPED)
-                break;
-            else if (tickPeriod - tickDuration > 10000) // >10ms left to wait
-                Thread.sleep(8);
+            long now = System.nanoTime();
+            if (now - nextTickns > maxLag) {
+                // fell a long way behind (eg a slow syscall) so don't try to catch up
+                nextTickns = now;
+            }
+            nextTickns += period;
+            ++ticks;
+        } finally {
+            waiter = null;
         }
+    }
 
-        lastTickns = System.nanoTime();
-        ++ticks;
+    private void checkInterrupted() throws InterruptedException {
+        if(Thread.interrupted())
+            throw new InterruptedException();
     }
 
+    private void wakeWaiter() {
+        Thread t = waiter;
+        if(t != null)
+            LockSupport.unpark(t);
+    }
 
     void pause() {
         status = Status.PAUSED;
@@ -75,18 +125,23 @@ public class Clock {
     void resume() {
         if(status == Status.STOPPED)
             throw new IllegalStateException("cannot resume stopped clock");
+        if(status == Status.PAUSED)
+            nextTickns = System.nanoTime(); // the next tick is due immediately
         status = Status.RUNNING;
+        wakeWaiter();
     }
 
     void stop() {
         // OK to call even if already stopped
         status = Status.STOPPED;
+        wakeWaiter();
     }
 
     void start() {
-        lastTickns = System.nanoTime();
+        nextTickns = System.nanoTime() + tickPeriod;
         ticks = 0;
         status = Status.RUNNING;
+        wakeWaiter();
     }
 
     Status getStatus() {
@@ -0,0 +1,13 @@
+package simulizer.simulation.cpu.components;
+
+/**the parts of the CPU state which the ALU is able to modify
+ * (the lo and hi registers used by the multiplication instructions)
+ * @author mbway
+ *
+ */
+public interface CpuState {
+	int getLoValue();
+	int getHiValue();
+	void setLoValue(int lo);
+	void setHiValue(int hi);
+}
@@ -6,6 +6,7 @@ import java.util.Optional;
 import simulizer.assembler.representation.Address;
 import simulizer.assembler.representation.Instruction;
 import simulizer.assembler.representation.Register;
+import simulizer.assembler.representation.Statement;
 import simulizer.assembler.representation.operand.AddressOperand;
 import simulizer.assembler.representation.operand.IntegerOperand;
 import simulizer.assembler.representation.operand.Operand;
@@ -19,9 +20,12 @@ import simulizer.simulation.instructions.ITypeInstruction;
 import simulizer.simulation.instructions.InstructionFormat;
 import simulizer.simulation.instructions.JTypeInstruction;
 import simulizer.simulation.instructions.LSInstruction;
+import simulizer.simulation.instructions.PredecodedInstruction;
+import simulizer.simulation.instructions.PredecodedInstruction.Kind;
 import simulizer.simulation.instructions.RTypeInstruction;
 import simulizer.simulation.instructions.SpecialInstruction;
 import simulizer.simulation.messages.DataMovementMessage;
+import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.StageEnterMessage;
 import simulizer.simulation.messages.StageEnterMessage.Stage;
 
@@ -51,8 +55,131 @@ class Decoder {
      * @throws DecodeException if something goes wrong during decode
      */
     protected InstructionFormat decode(Instruction instruction, List<Operand> operandList) throws DecodeException {
+        return decode(predecodeOrDefer(new Statement(instruction, operandList, -1)));
+    }
+
+    /**decode a statement which has already been predecoded. Only the register
+     * contents are read here, everything else was worked out when the program was loaded
+     * @param p the predecoded statement
+     * @return InstructionFormat the instruction ready for execution
+     * @throws DecodeException if the statement could not be predecoded
+     */
+    protected InstructionFormat decode(PredecodedInstruction p) throws DecodeException {
+
+    	cpu.sendIfSubscribed(Message.Type.StageEnter, () -> new StageEnterMessage(Stage.Decode));//signal start of decode
+        if(p.problem != null) {
+            throw p.problem;
+        }
+
+        Instruction instruction = p.instruction;
+
+        //separating into different instruction types now
+        switch(p.kind) {
+            case DEST_SRC_SRC: {// R-type instruction: 2 src, 1 dest
+                Optional<Word> src1 = Optional.of(decodeRegister(p.src1));
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(src1,Optional.empty()));
+                Optional<Word> src2 = Optional.of(decodeRegister(p.src2));
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(src2,Optional.empty()));
+                return new RTypeInstruction(instruction, Optional.empty(), Register.fromID(p.dest), src1, src2);
+            }
+            case DEST_SRC_IMM: { //immediate arithmetic operations (signed or unsigned)
+                Optional<Word> srcRegister = Optional.of(decodeRegister(p.src1));
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(srcRegister,Optional.empty()));
+                Optional<Word> immValue = Optional.of(encode(p.immediate));
+                return new RTypeInstruction(instruction, Optional.empty(), Register.fromID(p.dest), srcRegister, immValue);
+            }
+            case DEST_SRC: {//single register ops like neg or abs (or move)
+                Optional<Word> srcRegister = Optional.of(decodeRegister(p.src1));
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(srcRegister,Optional.empty()));
+                return new RTypeInstruction(instruction, Optional.empty(), Register.fromID(p.dest), srcRegister, Optional.empty());
+            }
+            case DEST_IMM: {//instructions such as li
+                Optional<Word> immValue = Optional.of(encode(p.immediate));
+                return new LSInstruction(instruction,Optional.empty(),Optional.of(Register.fromID(p.dest)),Optional.empty(),immValue);
+            }
+            case SPECIAL://syscall, nop, break
+                return new SpecialInstruction(instruction);
+            case JUMP_ADDRESS: {//branch, jal, j
+                Optional<Address> goToAddress = Optional.of(decodeAddress(p));//where to jump
+                Optional<Word> currentAddress = Optional.of(encode(this.cpu.getProgramCounter().getValue()));
+                return new JTypeInstruction(instruction,goToAddress,currentAddress);
+            }
+            case JUMP_REGISTER: {//for jr or j
+                Word registerContents = decodeRegister(p.src1);//getting register contents
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(registerContents),Optional.empty()));
+                Optional<Address> registerAddress = Optional.of(new Address(cpu.getRegisterValue(Register.fromID(p.src1))));//put into correct format
+                Optional<Word> currentAddress = Optional.of(encode(this.cpu.getProgramCounter().getValue()));
+                return new JTypeInstruction(instruction,registerAddress,currentAddress);
+            }
+            case CMP_CMP_ADDRESS: {//for branch equal etc.
+                Optional<Word> cmp1 = Optional.of(decodeRegister(p.src1));//first comparison value
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(cmp1,Optional.empty()));
+                Optional<Word> cmp2 = Optional.of(decodeRegister(p.src2));//second comparison value
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(cmp2,Optional.empty()));
+                Optional<Address> branchAddr = Optional.of(decodeAddress(p));//where to branch to if comparison returns true
+                return new ITypeInstruction(instruction,cmp1,cmp2,branchAddr);
+            }
+            case CMP_ADDRESS: {//for bltz etc
+                Optional<Word> cmp = Optional.of(decodeRegister(p.src1));//value to compare
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(cmp,Optional.empty()));
+                Optional<Address> branchAddr = Optional.of(decodeAddress(p));//branch address
+                return new ITypeInstruction(instruction,cmp,Optional.empty(),branchAddr);
+            }
+            case SRC_ADDRESS: {//for store instructions
+                Optional<Word> src = Optional.of(decodeRegister(p.src1));//word to store
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(src,Optional.empty()));
+                Optional<Address> toStore = Optional.of(decodeAddress(p));
+                return new LSInstruction(instruction,src,Optional.empty(),toStore,Optional.empty());
+            }
+            case DEST_ADDRESS: {//for load stuff
+                Optional<Register> loadInto = Optional.of(Register.fromID(p.dest));//register to store
+                Optional<Address> toRetrieve = Optional.of(decodeAddress(p));
+                return new LSInstruction(instruction,Optional.empty(),loadInto,toRetrieve,Optional.empty());
+            }
+            case SRC_SRC: {
+                Optional<Word> srcOne = Optional.of(decodeRegister(p.src1));
+                Optional<Word> srcTwo = Optional.of(decodeRegister(p.src2));
+                return new RTypeInstruction(instruction,Optional.empty(),null,srcOne,srcTwo);
+            }
+            case DEST:
+                return new LSInstruction(instruction,Optional.empty(),Optional.of(Register.fromID(p.dest)),Optional.empty(),Optional.empty());
+            case SRC:
+                return new LSInstruction(instruction,Optional.of(decodeRegister(p.src1)),Optional.empty(),Optional.empty(),Optional.empty());
+            case SRC_IMM: {
+                Optional<Word> src = Optional.of(decodeRegister(p.src1));
+                Optional<Word> imm = Optional.of(encode(p.immediate));
+                return new RTypeInstruction(instruction,Optional.empty(),null,src,imm);
+            }
+            default:
+                //invalid instruction format
+                throw new DecodeException("Invalid instruction format.", null);
+        }
+    }
+
+    /**predecode a statement, deferring any problems until the statement is executed
+     * (since the statement may never be reached)
+     * @param statement the statement to predecode
+     * @return the predecoded statement (which holds the problem if one was encountered)
+     */
+    PredecodedInstruction predecodeOrDefer(Statement statement) {
+        try {
+            return predecode(statement);
+        } catch (DecodeException e) {
+            return new PredecodedInstruction(statement, e);
+        }
+    }
+
+    /**work out everything about a statement which doesn't depend on the state of the simulation
+     * (validity of the operands, register indices, immediate values and label addresses).
+     * The labels of the currently loaded program are used to resolve addresses
+     * @param statement the statement to predecode
+     * @return the predecoded statement
+     * @throws DecodeException if the operands are not valid for the instruction
+     */
+    PredecodedInstruction predecode(Statement statement) throws DecodeException {
+        Instruction instruction = statement.getInstruction();
+        List<Operand> operandList = statement.getOperandList();
 
-    	cpu.sendMessage(new StageEnterMessage(Stage.Decode));//signal start of decode
         Operand op1 = null;
         OperandType op1Type = null;
         Operand op2 = null;
@@ -79,140 +206,107 @@ class Decoder {
             throw new DecodeException("Not valid set of operands.", op1);//if invalid operands given
         }
 
+        final int NONE = PredecodedInstruction.NONE;
+
         //separating into different instruction types now
         if(instruction.getOperandFormat() == OperandFormat.destSrcSrc) {
             // R-type instruction: 2 src, 1 dest
             assert (op1 != null) && (op2 != null) && (op3 != null);
 
-            Register destinationRegister = op1.asRegisterOp().value;//store destination register
-            Optional<Word> src1 = Optional.of(decodeRegister(op2.asRegisterOp()));
-            cpu.sendMessage(new DataMovementMessage(src1,Optional.empty()));
-            Optional<Word> src2 = Optional.of(decodeRegister(op3.asRegisterOp()));
-            cpu.sendMessage(new DataMovementMessage(src2,Optional.empty()));
-            return new RTypeInstruction(instruction, Optional.empty(), destinationRegister, src1, src2);
+            return new PredecodedInstruction(statement, Kind.DEST_SRC_SRC, registerIndex(op1), registerIndex(op2), registerIndex(op3), 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.destSrcImm) { //immediate arithmetic operations (signed or unsigned)
             assert (op1 != null) && (op2 != null) && (op3 != null);
 
-            Register destinationRegister = op1.asRegisterOp().value;
-            Optional<Word> srcRegister = Optional.of(this.decodeRegister(op2.asRegisterOp()));
-            cpu.sendMessage(new DataMovementMessage(srcRegister,Optional.empty()));
-            Optional<Word> immValue = Optional.of(this.decodeIntegerOperand(op3.asIntegerOp()));
-            return new RTypeInstruction(instruction, Optional.empty(), destinationRegister, srcRegister, immValue);
+            return new PredecodedInstruction(statement, Kind.DEST_SRC_IMM, registerIndex(op1), registerIndex(op2), NONE, decodeIntegerOperand(op3.asIntegerOp()), NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.destSrc) {//single register ops like neg or abs (or move)
             assert (op1 != null) && (op2 != null) && (op3 == null);
 
-            Register destinationRegister = op1.asRegisterOp().value;
-            Optional<Word> srcRegister = Optional.of(this.decodeRegister(op2.asRegisterOp()));
-            cpu.sendMessage(new DataMovementMessage(srcRegister,Optional.empty()));
-            return new RTypeInstruction(instruction, Optional.empty(), destinationRegister, srcRegister, Optional.empty());
+            return new PredecodedInstruction(statement, Kind.DEST_SRC, registerIndex(op1), registerIndex(op2), NONE, 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.destImm) {//instructions such as li
             assert (op1 != null) && (op2 != null) && (op3 == null);
 
-            Optional<Register> destinationRegister = Optional.of(op1.asRegisterOp().value);
-            Optional<Address> memAddress = Optional.empty();
-            Optional<Word> immValue = Optional.of(this.decodeIntegerOperand(op2.asIntegerOp()));
-            return new LSInstruction(instruction,Optional.empty(),destinationRegister,memAddress,immValue);
+            return new PredecodedInstruction(statement, Kind.DEST_IMM, registerIndex(op1), NONE, NONE, decodeIntegerOperand(op2.asIntegerOp()), NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.noArguments||instruction.equals(Instruction.BREAK)) {//syscall, nop, break
-            return new SpecialInstruction(instruction);
+            return new PredecodedInstruction(statement, Kind.SPECIAL, NONE, NONE, NONE, 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.label
                 || (instruction.getOperandFormat() == OperandFormat.labelOrReg && op1 != null && op1.asAddressOp() != null)) {//branch, jal, j
             assert (op1 != null) && (op2 == null) && (op3 == null);
 
-            Optional<Address> goToAddress = Optional.of(this.decodeAddressOperand(op1.asAddressOp()));//where to jump
-            Optional<Word> currentAddress = Optional.of(new Word(DataConverter.encodeAsSigned((long)this.cpu.getProgramCounter().getValue())));
-            return new JTypeInstruction(instruction,goToAddress,currentAddress);
+            AddressOperand address = op1.asAddressOp();
+            return new PredecodedInstruction(statement, Kind.JUMP_ADDRESS, NONE, NONE, NONE, 0, addressBase(address), addressOffset(address));
         }
         else if(instruction.getOperandFormat() == OperandFormat.register
                 || (instruction.getOperandFormat() == OperandFormat.labelOrReg && op1 != null && op1.asRegisterOp() != null)) {//for jr or j
             assert (op1 != null) && (op2 == null) && (op3 == null);
 
-            Word registerContents = this.decodeRegister(op1.asRegisterOp());//getting register contents
-            cpu.sendMessage(new DataMovementMessage(Optional.of(registerContents),Optional.empty()));
-            Optional<Address> registerAddress = Optional.of(new Address((int)DataConverter.decodeAsUnsigned(registerContents.getBytes())));//put into correct format
-            Optional<Word> currentAddress = Optional.of(new Word(DataConverter.encodeAsSigned((long)this.cpu.getProgramCounter().getValue())));
-            return new JTypeInstruction(instruction,registerAddress,currentAddress);
+            return new PredecodedInstruction(statement, Kind.JUMP_REGISTER, NONE, registerIndex(op1), NONE, 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.cmpCmpLabel) {//for branch equal etc.
             assert (op1 != null) && (op2 != null) && (op3 != null);
 
-            Optional<Word> cmp1 = Optional.of(this.decodeRegister(op1.asRegisterOp()));//first comparison value
-            cpu.sendMessage(new DataMovementMessage(cmp1,Optional.empty()));
-            Optional<Word> cmp2 = Optional.of(this.decodeRegister(op2.asRegisterOp()));//second comparison value
-            cpu.sendMessage(new DataMovementMessage(cmp2,Optional.empty()));
-            Optional<Address> branchAddr = Optional.of(this.decodeAddressOperand(op3.asAddressOp()));//where to branch to if comparison returns true
-            return new ITypeInstruction(instruction,cmp1,cmp2,branchAddr);
+            AddressOperand address = op3.asAddressOp();
+            return new PredecodedInstruction(statement, Kind.CMP_CMP_ADDRESS, NONE, registerIndex(op1), registerIndex(op2), 0, addressBase(address), addressOffset(address));
         }
         else if(instruction.getOperandFormat() == OperandFormat.cmpLabel) {//for bltz etc
             assert (op1 != null) && (op2 != null) && (op3 == null);
 
-            Optional<Word> cmp = Optional.of(this.decodeRegister(op1.asRegisterOp()));//value to compare
-            cpu.sendMessage(new DataMovementMessage(cmp,Optional.empty()));
-            Optional<Address> branchAddr = Optional.of(this.decodeAddressOperand(op2.asAddressOp()));//branch address
-            return new ITypeInstruction(instruction,cmp,Optional.empty(),branchAddr);
+            AddressOperand address = op2.asAddressOp();
+            return new PredecodedInstruction(statement, Kind.CMP_ADDRESS, NONE, registerIndex(op1), NONE, 0, addressBase(address), addressOffset(address));
         }
         else if(instruction.getOperandFormat() == OperandFormat.srcAddr) {//for store instructions
             assert (op1 != null) && (op2 != null) && (op3 == null);
 
-            Optional<Word> src = Optional.of(this.decodeRegister(op1.asRegisterOp()));//word to store
-            cpu.sendMessage(new DataMovementMessage(src,Optional.empty()));
-            Optional<Address> toStore = Optional.of(this.decodeAddressOperand(op2.asAddressOp()));
-            return new LSInstruction(instruction,src,Optional.empty(),toStore,Optional.empty());
+            AddressOperand address = op2.asAddressOp();
+            return new PredecodedInstruction(statement, Kind.SRC_ADDRESS, NONE, registerIndex(op1), NONE, 0, addressBase(address), addressOffset(address));
         }
         else if(instruction.getOperandFormat() == OperandFormat.destAddr) {//for load stuff
             assert (op1 != null) && (op2 != null) && (op3 == null);
 
-            Optional<Register> loadInto = Optional.of(op1.asRegisterOp().value);//register to store
-            Optional<Address> toRetrieve = Optional.of(this.decodeAddressOperand(op2.asAddressOp()));
-            return new LSInstruction(instruction,Optional.empty(),loadInto,toRetrieve,Optional.empty());
+            AddressOperand address = op2.asAddressOp();
+            return new PredecodedInstruction(statement, Kind.DEST_ADDRESS, registerIndex(op1), NONE, NONE, 0, addressBase(address), addressOffset(address));
         }
         else if(instruction.getOperandFormat() == OperandFormat.srcSrc) {
         	assert (op1 != null) && (op2 != null) && (op3 == null);
-        	
-        	Optional<Word> srcOne = Optional.of(this.decodeRegister(op1.asRegisterOp()));
-        	Optional<Word> srcTwo = Optional.of(this.decodeRegister(op2.asRegisterOp()));
-        	return new RTypeInstruction(instruction,Optional.empty(),null,srcOne,srcTwo);
 
+        	return new PredecodedInstruction(statement, Kind.SRC_SRC, NONE, registerIndex(op1), registerIndex(op2), 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.dest) {
         	assert (op1 != null) && (op2 == null) && (op3 == null);
-        	
-        	return new LSInstruction(instruction,Optional.empty(),Optional.of(op1.asRegisterOp().value),Optional.empty(),Optional.empty());
+
+        	return new PredecodedInstruction(statement, Kind.DEST, registerIndex(op1), NONE, NONE, 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.src) {
         	assert (op1 != null) && (op2 == null) && (op3 == null);
-        	
-        	return new LSInstruction(instruction,Optional.of(this.decodeRegister(op1.asRegisterOp())),Optional.empty(),Optional.empty(),Optional.empty());
+
+        	return new PredecodedInstruction(statement, Kind.SRC, NONE, registerIndex(op1), NONE, 0, NONE, 0);
         }
         else if(instruction.getOperandFormat() == OperandFormat.srcImm) {
         	assert (op1 != null) && (op2 != null) && (op3 == null);
-        	
-        	Optional<Word> src = Optional.of(this.decodeRegister(op1.asRegisterOp()));
-        	Optional<Word> imm = Optional.of(this.decodeIntegerOperand(op2.asIntegerOp()));
-        	return new RTypeInstruction(instruction,Optional.empty(),null,src,imm);
+
+        	return new PredecodedInstruction(statement, Kind.SRC_IMM, NONE, registerIndex(op1), NONE, decodeIntegerOperand(op2.asIntegerOp()), NONE, 0);
         }
         else {
             //invalid instruction format
             throw new DecodeException("Invalid instruction format.", op1);
         }
     }
-	
-	/**this method will decode an integer operand into a 4 byte word
+
+	/**this method will decode an integer operand into the 32 bit value it represents
     *
     * @param operand the operand to decode
-    * @return the decoded word
+    * @return the decoded value
     * @throws DecodeException if something goes wrong during decode
     */
-   private Word decodeIntegerOperand(IntegerOperand operand) throws DecodeException {
-       if(operand.getOperandFormatType().equals(OperandFormat.OperandType.UNSIGNED_IMMEDIATE)) {//if unsigned
-           return new Word(DataConverter.encodeAsUnsigned((long)operand.value));
-       }
-       else if(operand.getOperandFormatType().equals(OperandType.IMMEDIATE)) {//signed immediate
-           return new Word(DataConverter.encodeAsSigned((long)operand.value));
+   private int decodeIntegerOperand(IntegerOperand operand) throws DecodeException {
+       if(operand.getOperandFormatType().equals(OperandFormat.OperandType.UNSIGNED_IMMEDIATE)
+               || operand.getOperandFormatType().equals(OperandType.IMMEDIATE)) {
+           // signed and unsigned immediate values have the same 32 bit representation
+           return operand.value;
        }
        else {
            throw new DecodeException("Error decoding integer operand.", operand);
@@ -220,15 +314,28 @@ class Decoder {
    }
 
    /**
-    * calculate the address for an operand with the current simulation state
+    * @param operand the address operand
+    * @return the index of the base register of the address (or NONE if the address has no register)
+    */
+   private static int addressBase(AddressOperand operand) {
+       return operand.register.isPresent() ? operand.register.get().getID() : PredecodedInstruction.NONE;
+   }
+
+   /**
+    * resolve the parts of an address operand which do not change during the simulation
+    * (labels are normally resolved by the assembler, the label table is only consulted
+    * for operands which were constructed without being assembled)
     *
     * @param operand the operand to decode
-    * @return the calculated address
+    * @return the label address (if any) plus the constant offset (if any)
     */
-   private Address decodeAddressOperand(AddressOperand operand) throws DecodeException {
+   private int addressOffset(AddressOperand operand) {
+       if(operand.isResolved()) {
+           return operand.getConstantAddress();
+       }
+
        int labelAddress    = 0;
        int constantAddress = 0;
-       int registerAddress = 0;
 
        if(operand.labelName.isPresent()) {
            labelAddress = cpu.labels.getOrDefault(operand.labelName.get(), Address.NULL).getValue();
@@ -236,39 +343,49 @@ class Decoder {
        if(operand.constant.isPresent()) {
            constantAddress = operand.constant.get();
        }
-       if(operand.register.isPresent()) {
-           Register r = operand.register.get();
-           registerAddress = (int) DataConverter.decodeAsUnsigned(cpu.getRegister(r).getBytes());
-       }
-       return new Address(labelAddress + constantAddress + registerAddress);
+       return labelAddress + constantAddress;
    }
 
-   /**this method will decode a register operand
-    * if it is not a destination register then the data will be retrieved, otherwise
-    * a null Word will be returned
-    * @param operand the operand to decode
-    * @return the word of data from the register
-    * @throws DecodeException if something goes wrong during decode
+   /**
+    * calculate the address for a predecoded operand with the current simulation state
+    *
+    * @param p the predecoded statement
+    * @return the calculated address
     */
-   private Word decodeRegister(RegisterOperand operand) throws DecodeException {
-       if(operand == null) {
-           return Word.ZERO;
-       }
-       else if(operand.getOperandFormatType().equals(OperandFormat.OperandType.DEST_REGISTER)) {
-           return Word.ZERO;
-       }
-       else if(operand.getOperandFormatType().equals(OperandFormat.OperandType.SRC_REGISTER)) {
-           return cpu.getRegister(operand.value);//return the word stored at that register
-       }
-       else if(operand.getOperandFormatType().equals(OperandFormat.OperandType.TARGET_REGISTER)) {
-           return this.cpu.getRegister(operand.value);//this is probably wrong for now
-       }
-       else if(operand.getOperandFormatType().equals(OperandFormat.OperandType.REGISTER)) {//standard register
-           return this.cpu.getRegister(operand.value);//return the word stored at that register
+   private Address decodeAddress(PredecodedInstruction p) {
+       int registerAddress = 0;
+       if(p.addressBase != PredecodedInstruction.NONE) {
+           registerAddress = cpu.getRegisterValue(Register.fromID(p.addressBase));
        }
-       else {
+       return new Address(p.addressOffset + registerAddress);
+   }
+
+   /**
+    * @param operand the register operand
+    * @return the index of the register
+    * @throws DecodeException if the operand is not a register
+    */
+   private static int registerIndex(Operand operand) throws DecodeException {
+       RegisterOperand r = operand.asRegisterOp();
+       if(r == null) {
            throw new DecodeException("Error decoding Register.", operand);
        }
+       return r.value.getID();
+   }
+
+   /**this method will retrieve the contents of a register
+    * @param index the index of the register to read
+    * @return the word of data from the register
+    */
+   private Word decodeRegister(int index) {
+       return cpu.getRegister(Register.fromID(index));//return the word stored at that register
+   }
+
+   /**
+    * @param value the value to encode
+    * @return the value as a word
+    */
+   private static Word encode(int value) {
+       return new Word(DataConverter.encodeAsUnsigned(value));
    }
-	
 }
@@ -3,8 +3,6 @@ package simulizer.simulation.cpu.components;
 import simulizer.assembler.representation.Address;
 import simulizer.simulation.exceptions.HeapException;
 
-import java.util.Arrays;
-
 /**this class represents the dynamic heap section of the memory 
  * for our simulated Mips processor
  * @author Charlie Street
@@ -16,15 +14,34 @@ public class DynamicDataSegment
 	private Address heapBaseAddress;
 	private int heapBreak; // index of one-past the highest element, relative to the base of the heap
 	private int maxLength;
-	private byte[] heap;
+	private int capacity; // the number of bytes currently reserved for the heap
+	private final PagedMemory store; // heap contents, stored at their absolute addresses
 
 
 	public DynamicDataSegment(Address heapBaseAddress, int maxLength)
+	{
+		this(heapBaseAddress, maxLength, new PagedMemory());
+	}
+
+	/**
+	 * @param heapBaseAddress the address of the bottom of the heap
+	 * @param maxLength the maximum size of the heap
+	 * @param store where to keep the contents of the heap (may be shared with other segments)
+	 */
+	DynamicDataSegment(Address heapBaseAddress, int maxLength, PagedMemory store)
 	{
 		this.heapBaseAddress = heapBaseAddress;
 		this.heapBreak = 0;
 		this.maxLength = maxLength;
-        heap = new byte[]{};
+		this.capacity = 0;
+		this.store = store;
+	}
+
+	/**
+	 * @return the break relative to the base of the heap (everything below the break is readable and writable)
+	 */
+	int getBreak() {
+		return heapBreak;
 	}
 	
 	/**this method will add bytes new bytes onto the heap
@@ -36,10 +53,10 @@ public class DynamicDataSegment
 	public Address sbrk(int additionalBytes) throws HeapException
 	{
 		if(additionalBytes % 4 != 0) {//spim only allows sbrk to be called with multiples of 4
-			throw new HeapException("Sbrk needs to be called with multiples of 4 bytes.", heapBreak, heap.length);
+			throw new HeapException("Sbrk needs to be called with multiples of 4 bytes.", heapBreak, capacity);
 
-		}else if(additionalBytes < -heap.length) { // shrink below 0 length
-			throw new HeapException("sbrk requested shrink below the start of the heap.",heapBreak,heap.length);
+		}else if(additionalBytes < -capacity) { // shrink below 0 length
+			throw new HeapException("sbrk requested shrink below the start of the heap.",heapBreak,capacity);
 
 		} if(additionalBytes < 0) {// shrink the heap
             heapBreak += additionalBytes; // additional bytes is negative
@@ -50,17 +67,14 @@ public class DynamicDataSegment
 
 		} else { // grow the heap
 
-            if(heap.length + additionalBytes > maxLength) {
-                throw new HeapException("sbrk requested extends past maximum heap length.",heapBreak,heap.length);
+            if(capacity + additionalBytes > maxLength) {
+                throw new HeapException("sbrk requested extends past maximum heap length.",heapBreak,capacity);
             }
 
             // at least a growth factor of 1.5. definitely enough to accommodate the additional requested bytes
             // but no longer than the maximum length (if the growth factor extends past it)
-            int newLength = Math.min(Math.max((int) (heap.length * 1.5), heap.length+additionalBytes), maxLength);
-            byte[] newHeap = new byte[newLength];
-            // the old heap is placed at the start of the new heap
-            System.arraycopy(heap, 0, newHeap, 0, heap.length);
-            heap = newHeap;
+            // the store allocates pages as they are written so nothing has to be copied
+            capacity = Math.min(Math.max((int) (capacity * 1.5), capacity+additionalBytes), maxLength);
 
 			Address oldBreak = new Address(heapBaseAddress.getValue() + heapBreak);
 			heapBreak += additionalBytes;
@@ -68,26 +82,36 @@ public class DynamicDataSegment
 		}
 	}
 
-	/**method will get n bytes from the heap
+	/**check that a range of the heap may be read from
 	 *
-	 * @param relativeAddress address relative to the base of the heap to place the MSB of the data
-	 * @param length the number of bytes to retrieve, starting at the given address
-	 * @return the bytes in an array
+	 * @param relativeAddress address relative to the base of the heap of the first byte to read
+	 * @param length the number of bytes to read
+	 * @throws HeapException if the range is not (entirely) readable
 	 */
-	public byte[] getBytes(int relativeAddress, int length) throws HeapException
+	void checkRead(int relativeAddress, int length) throws HeapException
 	{
 		if(length <= 0) {
-			throw new HeapException("Invalid read on heap. (non-positive length)", heapBreak, heap.length);
+			throw new HeapException("Invalid read on heap. (non-positive length)", heapBreak, capacity);
 		} else if(relativeAddress + length > heapBreak) {
 			throw new HeapException("Invalid read on heap. (attempt to read above the break from " +
-					relativeAddress + " up to " + (relativeAddress+length-1) + ")", heapBreak, heap.length);
+					relativeAddress + " up to " + (relativeAddress+length-1) + ")", heapBreak, capacity);
 
 		} else if(relativeAddress < 0) {
 			throw new HeapException("Invalid read on heap. (attempt to read below the heap from " +
-					relativeAddress + " up to " + (relativeAddress+length-1) + ")", heapBreak, heap.length);
+					relativeAddress + " up to " + (relativeAddress+length-1) + ")", heapBreak, capacity);
 		}
+	}
 
-		return Arrays.copyOfRange(heap, relativeAddress, relativeAddress+length);
+	/**method will get n bytes from the heap
+	 *
+	 * @param relativeAddress address relative to the base of the heap to place the MSB of the data
+	 * @param length the number of bytes to retrieve, starting at the given address
+	 * @return the bytes in an array
+	 */
+	public byte[] getBytes(int relativeAddress, int length) throws HeapException
+	{
+		checkRead(relativeAddress, length);
+		return store.read(heapBaseAddress.getValue() + relativeAddress, length);
 	}
 
 
@@ -101,16 +125,34 @@ public class DynamicDataSegment
 	 */
 	public byte[] readUntilNull(int relativeAddress) throws HeapException {
 		int i = relativeAddress;
-		if(0 <= i && i < heap.length) {
-			for(; i < heap.length; ++i) {
-				if(heap[i] == '\0') {
-					return Arrays.copyOfRange(heap, relativeAddress, i); // exclusive so null is excluded
-				}
+		if(0 <= i && i < capacity) {
+			int base = heapBaseAddress.getValue();
+			long nullAddress = store.findNull(base + relativeAddress, base + capacity);
+			if(nullAddress != -1) {
+				return store.read(base + relativeAddress, (int) (nullAddress - base) - relativeAddress); // null is excluded
 			}
+			i = capacity;
 		}
 		throw new HeapException("Reading from invalid area of memory (scanning for a null character)", relativeAddress, i);
 	}
 
+	/**check that a range of the heap may be written to
+	 *
+	 * @param relativeAddress address relative to the base of the heap of the first byte to write
+	 * @param length the number of bytes to write
+	 * @throws HeapException if the range is not (entirely) writable
+	 */
+	void checkWrite(int relativeAddress, int length) throws HeapException
+	{
+        if(length <= 0) {
+            throw new HeapException("Invalid write on heap. (non-positive length)", heapBreak, capacity);
+        } else if(relativeAddress + length > heapBreak) {
+			throw new HeapException("Invalid write on heap. (attempt to write above the break)", heapBreak, capacity);
+		} else if(relativeAddress < 0) {
+			throw new HeapException("Invalid write on heap. (attempt to write below the heap)", heapBreak, capacity);
+		}
+	}
+
 	/**allows to set multiple bytes in one go on the heap
 	 *
      * @param relativeAddress address relative to the base of the heap to place the MSB of the data
@@ -118,16 +160,8 @@ public class DynamicDataSegment
 	 */
 	public void setBytes(int relativeAddress, byte[] toWrite) throws HeapException
 	{
-        if(toWrite.length <= 0) {
-            throw new HeapException("Invalid write on heap. (non-positive length)", heapBreak, heap.length);
-        } else if(relativeAddress + toWrite.length > heapBreak) {
-			throw new HeapException("Invalid write on heap. (attempt to write above the break)", heapBreak, heap.length);
-		} else if(relativeAddress < 0) {
-			throw new HeapException("Invalid write on heap. (attempt to write below the heap)", heapBreak, heap.length);
-		}
-
-		// src, srcPos, dest, destPos, length
-		System.arraycopy(toWrite, 0, heap, relativeAddress, toWrite.length);
+		checkWrite(relativeAddress, toWrite.length);
+		store.write(heapBaseAddress.getValue() + relativeAddress, toWrite);
 	}
 	
 }
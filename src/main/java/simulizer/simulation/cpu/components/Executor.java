@@ -1,7 +1,6 @@
 package simulizer.simulation.cpu.components;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.Optional;
 
 import simulizer.assembler.representation.Address;
@@ -21,6 +20,7 @@ import simulizer.simulation.instructions.InstructionFormat;
 import simulizer.simulation.messages.DataMovementMessage;
 import simulizer.simulation.messages.HiLoChangeMessage;
 import simulizer.simulation.messages.InstructionTypeMessage;
+import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.RegisterChangedMessage;
 import simulizer.simulation.messages.StageEnterMessage;
 import simulizer.simulation.messages.StageEnterMessage.Stage;
@@ -55,41 +55,42 @@ class Executor {
      */
     public Address execute(InstructionFormat instruction, Address programCounter) throws InstructionException, ExecuteException, MemoryException, HeapException, StackException {
         Address toReturn = programCounter;
-    	cpu.sendMessage(new StageEnterMessage(Stage.Execute));//signal start of execution
+    	cpu.sendIfSubscribed(Message.Type.StageEnter, () -> new StageEnterMessage(Stage.Execute));//signal start of execution
     	switch(instruction.mode) {//switch based on instruction format
             case RTYPE:
-            	cpu.sendMessage(new InstructionTypeMessage(AddressMode.RTYPE));//send message giving idea of datapath selected
-                Word result = ALU.execute(instruction.getInstruction(), instruction.asRType().getSrc1(), instruction.asRType().getSrc2(),Optional.of(cpu));
-                cpu.sendMessage(new DataMovementMessage(instruction.asRType().getSrc1(),Optional.empty()));//moved into alu
-                cpu.sendMessage(new DataMovementMessage(instruction.asRType().getSrc2(),Optional.empty()));
+            	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.RTYPE));//send message giving idea of datapath selected
+                Word result = alu(instruction.getInstruction(), instruction.asRType().getSrc1(), instruction.asRType().getSrc2());
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(instruction.asRType().getSrc1(),Optional.empty()));//moved into alu
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(instruction.asRType().getSrc2(),Optional.empty()));
                 
                 if(instruction.asRType().getDestReg() == null) {//mult, multi etc.
-                	cpu.sendMessage(new HiLoChangeMessage());
+                	cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new HiLoChangeMessage());
                 } else {
 	                Register dest = instruction.asRType().getDestReg();
 	                cpu.setRegister(dest, result);
-	                cpu.sendMessage(new DataMovementMessage(Optional.of(result),Optional.empty()));
-	                cpu.sendMessage(new RegisterChangedMessage(instruction.asRType().getDestReg()));
+	                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(result),Optional.empty()));
+	                cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(instruction.asRType().getDestReg()));
 	                
 	                if(instruction.asRType().getInstruction().equals(Instruction.mul)) {
-	                	cpu.sendMessage(new HiLoChangeMessage());
+	                	cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new HiLoChangeMessage());
 	                }
                 }
                 break;
             case ITYPE:
-            	cpu.sendMessage(new InstructionTypeMessage(AddressMode.ITYPE));
-            	cpu.sendMessage(new DataMovementMessage(instruction.asIType().getCmp1(),Optional.empty()));
-            	cpu.sendMessage(new DataMovementMessage(instruction.asIType().getCmp2(),Optional.empty()));
-                Word branchTest = ALU.execute(instruction.getInstruction(), instruction.asIType().getCmp1(), instruction.asIType().getCmp2(),Optional.of(cpu));//carrying out comparison
-                if(Arrays.equals(branchTest.getBytes(), ALU.branchTrue)) {
-                    toReturn = instruction.asIType().getBranchAddress().get();//set the program counter
-                    cpu.sendMessage(new DataMovementMessage(Optional.of(encodeU((long)toReturn.getValue())),Optional.empty()));
+            	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.ITYPE));
+            	cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(instruction.asIType().getCmp1(),Optional.empty()));
+            	cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(instruction.asIType().getCmp2(),Optional.empty()));
+                boolean branchTaken = ALU.branch(instruction.getInstruction().ordinal(), decodeInt(instruction.asIType().getCmp1()), decodeInt(instruction.asIType().getCmp2()));//carrying out comparison
+                if(branchTaken) {
+                    Address branchAddress = instruction.asIType().getBranchAddress().get();
+                    toReturn = branchAddress;//set the program counter
+                    cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(encodeU((long)branchAddress.getValue())),Optional.empty()));
                 }
                 break;
             case SPECIAL:
-            	cpu.sendMessage(new InstructionTypeMessage(AddressMode.SPECIAL));
+            	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.SPECIAL));
                 if(instruction.getInstruction().equals(Instruction.syscall)) {//syscall
-                    int v0 = (int)DataConverter.decodeAsSigned(cpu.getRegister(Register.v0).getBytes());//getting code for syscall
+                    int v0 = cpu.getRegisterValue(Register.v0);//getting code for syscall
                     syscall(v0);//carry out specified syscall op
                 }
                 else if(instruction.getInstruction().equals(Instruction.BREAK)) {
@@ -100,20 +101,21 @@ class Executor {
                 }
                 break;
             case JTYPE:
-            	cpu.sendMessage(new InstructionTypeMessage(AddressMode.JTYPE));
+            	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.JTYPE));
                 if(instruction.getInstruction().equals(Instruction.jal)
 						|| instruction.getInstruction().equals(Instruction.jalr)) {//making sure i put current address in ra
 					Word retAddress = instruction.asJType().getCurrentAddress().get();
                     cpu.setRegister(Register.ra, retAddress);
-                    cpu.sendMessage(new DataMovementMessage(Optional.of(retAddress),Optional.empty()));
-                    cpu.sendMessage(new RegisterChangedMessage(Register.ra));
+                    cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(retAddress),Optional.empty()));
+                    cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.ra));
                 }
 
-                toReturn = instruction.asJType().getJumpAddress().get();//loading new address into the PC
-                cpu.sendMessage(new DataMovementMessage(Optional.of(encodeU((long)toReturn.getValue())),Optional.empty()));
+                Address jumpAddress = instruction.asJType().getJumpAddress().get();
+                toReturn = jumpAddress;//loading new address into the PC
+                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(encodeU((long)jumpAddress.getValue())),Optional.empty()));
                 break;
             case LSTYPE:
-            	cpu.sendMessage(new InstructionTypeMessage(AddressMode.LSTYPE));
+            	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.LSTYPE));
                 if(instruction.getInstruction().getOperandFormat().equals(OperandFormat.destImm)) {//li
                 	if(instruction.getInstruction().equals(Instruction.li)) {
                 		  cpu.setRegister(instruction.asLSType().getRegisterName().get(), instruction.asLSType().getImmediate().get());
@@ -123,38 +125,36 @@ class Executor {
                 		cpu.setRegister(instruction.asLSType().getRegisterName().get(), new Word(immediate));
                 	}
                   
-                    cpu.sendMessage(new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
-                    cpu.sendMessage(new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
+                    cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
+                    cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
                     
                 } else if(instruction.getInstruction().getOperandFormat().equals(OperandFormat.dest)) {//mflo and mfhi
-                	cpu.sendMessage(new InstructionTypeMessage(AddressMode.LSTYPE));
+                	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.LSTYPE));
                 	if(instruction.getInstruction().equals(Instruction.mflo)) {
-                		cpu.setRegister(instruction.asLSType().getRegisterName().get(),cpu.getLo());
+                		cpu.setRegisterValue(instruction.asLSType().getRegisterName().get(), cpu.getLoValue());
                 	} else if(instruction.getInstruction().equals(Instruction.mfhi)) {
-                		cpu.setRegister(instruction.asLSType().getRegisterName().get(), cpu.getHi());
+                		cpu.setRegisterValue(instruction.asLSType().getRegisterName().get(), cpu.getHiValue());
                 	}
-                	cpu.sendMessage(new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
-                	cpu.sendMessage(new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
+                	cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
+                	cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
                 
                 } else if(instruction.getInstruction().getOperandFormat().equals(OperandFormat.src)) {
-                	cpu.sendMessage(new InstructionTypeMessage(AddressMode.LSTYPE));
+                	cpu.sendIfSubscribed(Message.Type.InstructionType, () -> new InstructionTypeMessage(AddressMode.LSTYPE));
                 	if(instruction.getInstruction().equals(Instruction.mtlo)) {
                 		cpu.setLo(instruction.asLSType().getRegister().get());
                 	} else if(instruction.getInstruction().equals(Instruction.mthi)) {
                 		cpu.setHi(instruction.asLSType().getRegister().get());
                 	}
-                	cpu.sendMessage(new HiLoChangeMessage());
+                	cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new HiLoChangeMessage());
                 	
                 } else if(instruction.getInstruction().getOperandFormat().equals(OperandFormat.destAddr)) {//load
                     int retrieveAddress = instruction.asLSType().getMemAddress().get().getValue();
 
                     if(instruction.getInstruction().equals(Instruction.la)) {//have to be careful with la
-                    	Word address = new Word(DataConverter.encodeAsSigned((long)retrieveAddress));
-                    	cpu.setRegister(instruction.asLSType().getRegisterName().get(), address);
+                    	cpu.setRegisterValue(instruction.asLSType().getRegisterName().get(), retrieveAddress);
                 	}
                 	else {
 	                    int length = 0;//length to read
-	                    byte[] read;
 
 	                    if(instruction.getInstruction().equals(Instruction.lw)) {//checking length to read
 	                    	length = 4;
@@ -163,9 +163,11 @@ class Executor {
 	                    } else if(instruction.getInstruction().equals(Instruction.lh)||instruction.getInstruction().equals(Instruction.lhu)) {
 	                    	length = 2;
 	                    }
-	                    read = cpu.getMainMemory().readFromMem(retrieveAddress, length);//read bytes from memory
-	                    cpu.sendMessage(new DataMovementMessage(Optional.of(new Word(read)),Optional.empty()));
-	                    
+	                    byte[] fromMem = cpu.getMainMemory().readFromMem(retrieveAddress, length);//read bytes from memory
+	                    cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(new Word(fromMem)),Optional.empty()));
+
+	                    byte[] read = fromMem;
+
 	                    if(instruction.getInstruction().equals(Instruction.lb)||instruction.getInstruction().equals(Instruction.lh)) {//unsigned vs signed
 	                    	long val = DataConverter.decodeAsSigned(read);
 	                    	read = DataConverter.encodeAsSigned(val);
@@ -176,8 +178,8 @@ class Executor {
 	                    
 	                    cpu.setRegister(instruction.asLSType().getRegisterName().get(), new Word(read));
                 	}
-                    cpu.sendMessage(new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
-                	cpu.sendMessage(new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
+                    cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(cpu.getRegister(instruction.asLSType().getRegisterName().get())),Optional.empty()));
+                	cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(instruction.asLSType().getRegisterName().get()));
                 }
                 else if(instruction.getInstruction().getOperandFormat().equals(OperandFormat.srcAddr)) {//store
                 	byte[] toStore;//where to store the data to be put in memory
@@ -185,15 +187,15 @@ class Executor {
                 	if(instruction.getInstruction().equals(Instruction.sb)) {
                 		toStore = new byte[]{instruction.asLSType().getRegister().get().getBytes()[3]};//lowest byte
                 	} else if(instruction.getInstruction().equals(Instruction.sh)) {
-                		toStore = instruction.asLSType().getRegister().get().getBytes();
-                		toStore = new byte[]{toStore[2],toStore[3]};
+                		byte[] register = instruction.asLSType().getRegister().get().getBytes();
+                		toStore = new byte[]{register[2],register[3]};
                 	} else {//sw
 	                    toStore = instruction.asLSType().getRegister().get().getBytes();//all 4 bytes
                 	}
                 	
                 	int storeAddress = instruction.asLSType().getMemAddress().get().getValue();
 	                cpu.getMainMemory().writeToMem(storeAddress, toStore);
-	                cpu.sendMessage(new DataMovementMessage(Optional.of(new Word(toStore)),Optional.empty()));
+	                cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(new Word(toStore)),Optional.empty()));
                 }
                 else {
                     throw new ExecuteException("Error executing load/store instruction.", instruction);
@@ -213,8 +215,8 @@ class Executor {
      * @throws MemoryException if problem reading from memory for read string
      * @throws StackException if problem accessing the stack
      */
-    private void syscall(int v0) throws InstructionException, HeapException, MemoryException, StackException {
-    	int a0 = (int)DataConverter.decodeAsSigned(cpu.getRegister(Register.a0).getBytes());//getting main argument register
+    void syscall(int v0) throws InstructionException, HeapException, MemoryException, StackException {
+    	int a0 = cpu.getRegisterValue(Register.a0);//getting main argument register
     	switch(v0) {
     		case 1://print int
     			cpu.getIO().printInt(IOStream.STANDARD, a0);//printing to console
@@ -223,19 +225,19 @@ class Executor {
 				byte[] stringData = cpu.getMainMemory().readUntilNull(a0);
 				String str = new String(stringData, StandardCharsets.UTF_8);
 
-				cpu.sendMessage(new DataMovementMessage(Optional.of(new Word(new byte[4])), Optional.empty()));
+				cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(new Word(new byte[4])), Optional.empty()));
 				cpu.getIO().printString(IOStream.STANDARD, str);
 			} break;
     		case 5: {//read int
     			int read = cpu.getIO().readInt(IOStream.STANDARD);//reading in from console
     			Word readAsWord = new Word(DataConverter.encodeAsSigned((long)read));
     			cpu.setRegister(Register.v0, readAsWord);//storing in v0
-    			cpu.sendMessage(new DataMovementMessage(Optional.of(readAsWord),Optional.empty()));
-    			cpu.sendMessage(new RegisterChangedMessage(Register.v0));
+    			cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(readAsWord),Optional.empty()));
+    			cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.v0));
     		} break;
     		case 8: {//read string
 				String readInString = cpu.getIO().readString(IOStream.STANDARD);//this string will be cut to maxChars -1 i.e last one will be null terminator
-				int a1 = (int) DataConverter.decodeAsUnsigned(cpu.getRegister(Register.a1).getBytes());//max chars stored here
+				int a1 = cpu.getRegisterValue(Register.a1);//max chars stored here
 				if (readInString.length() + 1 > a1) {//truncating string (+1 to include null terminator)
                     // exclusive, so substring has length a1-1 (leaving room for the null terminator)
 					readInString = readInString.substring(0, a1 - 1);
@@ -243,14 +245,14 @@ class Executor {
 				readInString += '\0';
 				byte[] stringData = readInString.getBytes(StandardCharsets.UTF_8);
 				cpu.getMainMemory().writeToMem(a0, stringData);
-				cpu.sendMessage(new DataMovementMessage(Optional.of(new Word(new byte[4])), Optional.empty())); // send a word of nulls
+				cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(new Word(new byte[4])), Optional.empty())); // send a word of nulls
 			} break;
     		case 9: {//sbrk
 				Address oldBreak = cpu.getMainMemory().getHeap().sbrk(a0);
 				Word oldBreakWord = new Word(DataConverter.encodeAsSigned(oldBreak.getValue()));
 				cpu.setRegister(Register.v0, oldBreakWord);
-				cpu.sendMessage(new DataMovementMessage(Optional.of(oldBreakWord), Optional.empty()));
-				cpu.sendMessage(new RegisterChangedMessage(Register.v0));
+				cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(oldBreakWord), Optional.empty()));
+				cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.v0));
 			} break;
     		case 10://exit program
     			cpu.stopRunning();
@@ -265,8 +267,8 @@ class Executor {
 				long asLong = DataConverter.decodeAsSigned(asBytes);
 				Word charAsWord = new Word(DataConverter.encodeAsSigned(asLong));//format for register storage
 				cpu.setRegister(Register.v0, charAsWord);
-				cpu.sendMessage(new DataMovementMessage(Optional.of(charAsWord), Optional.empty()));
-				cpu.sendMessage(new RegisterChangedMessage(Register.v0));
+				cpu.sendIfSubscribed(Message.Type.DataMovement, () -> new DataMovementMessage(Optional.of(charAsWord), Optional.empty()));
+				cpu.sendIfSubscribed(Message.Type.RegisterChanged, () -> new RegisterChangedMessage(Register.v0));
 			} break;
     		case 67697865://AND HIS NAME IS...
 				UIUtils.openURL("https://www.youtube.com/watch?v=5LitDGyxFh4");
@@ -281,6 +283,33 @@ class Executor {
     	}
     }
     
+   /**carry out an operation using the ALU
+    *
+    * @param instruction the instruction to execute
+    * @param src1 the first operand
+    * @param src2 the second operand (if present)
+    * @return the result as a word, or null for instructions which only write to lo and hi
+    * @throws InstructionException if unsupported instruction or missing operand
+    */
+   private Word alu(Instruction instruction, Optional<Word> src1, Optional<Word> src2) throws InstructionException {
+       if(!src1.isPresent()) {
+           throw new InstructionException("No operand given for alu operation", instruction);
+       }
+       int result = ALU.exec(instruction.ordinal(), decodeInt(src1), decodeInt(src2), cpu);
+       if(instruction == Instruction.mult || instruction == Instruction.multi) {
+           return null;
+       }
+       return encodeU(result);
+   }
+
+   /**
+    * @param word the word to decode (if present)
+    * @return the raw 32 bit contents of the word (0 if not present)
+    */
+   private static int decodeInt(Optional<Word> word) {
+       return word.isPresent() ? (int) DataConverter.decodeAsUnsigned(word.get().getBytes()) : 0;
+   }
+
    /**
     * take a value interpreted as being unsigned and encode it as a word
     *
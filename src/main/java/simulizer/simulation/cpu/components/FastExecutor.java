@@ -0,0 +1,203 @@
+package simulizer.simulation.cpu.components;
+
+import simulizer.assembler.representation.Instruction;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.exceptions.DecodeException;
+import simulizer.simulation.exceptions.ExecuteException;
+import simulizer.simulation.exceptions.HeapException;
+import simulizer.simulation.exceptions.InstructionException;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.exceptions.StackException;
+import simulizer.simulation.instructions.PredecodedInstruction;
+
+/**executes predecoded statements directly on the register file without
+ * sending any messages or waiting for the clock. Used by CPU.runUnobserved
+ * where nothing is watching the individual stages of the simulation.
+ * Syscalls are delegated to the normal Executor. Errors are reported with the
+ * same exceptions as the normal Executor
+ * @author mbway
+ *
+ */
+class FastExecutor {
+	private final CPU cpu;
+	private final int[] registers;//the register file of the cpu
+	private final Decoder decoder;//used to describe instructions which cannot be executed
+	private final Executor executor;//used for syscalls
+
+	/**initialise the executor
+	 *
+	 * @param cpu the cpu to execute on
+	 * @param registers the register file of the cpu
+	 * @param decoder the decoder to use when reporting errors
+	 * @param executor the executor to use for syscalls
+	 */
+	FastExecutor(CPU cpu, int[] registers, Decoder decoder, Executor executor) {
+		this.cpu = cpu;
+		this.registers = registers;
+		this.decoder = decoder;
+		this.executor = executor;
+	}
+
+	/**execute a single predecoded statement
+	 *
+	 * @param p the statement to execute
+	 * @param nextPC the address of the next statement (the program counter after fetch)
+	 * @return the new value of the program counter
+	 * @throws DecodeException if the statement could not be decoded
+	 * @throws InstructionException if problem during a syscall
+	 * @throws ExecuteException if problem during execution
+	 * @throws MemoryException if problem accessing memory
+	 * @throws HeapException if problem accessing the heap
+	 * @throws StackException if problem accessing the stack
+	 */
+	int execute(PredecodedInstruction p, int nextPC) throws DecodeException, InstructionException,
+			ExecuteException, MemoryException, HeapException, StackException {
+		if(p.problem != null) {
+			throw p.problem;
+		}
+
+		Instruction instruction = p.instruction;
+		int[] r = registers;
+
+		switch(p.kind) {
+			case DEST_SRC_SRC:
+				r[p.dest] = ALU.exec(p.opcode, r[p.src1], r[p.src2], cpu);
+				break;
+			case DEST_SRC_IMM:
+				r[p.dest] = ALU.exec(p.opcode, r[p.src1], p.immediate, cpu);
+				break;
+			case DEST_SRC:
+				r[p.dest] = ALU.exec(p.opcode, r[p.src1], 0, cpu);
+				break;
+			case SRC_SRC://mult
+				ALU.exec(p.opcode, r[p.src1], r[p.src2], cpu);
+				break;
+			case SRC_IMM://multi
+				ALU.exec(p.opcode, r[p.src1], p.immediate, cpu);
+				break;
+			case DEST_IMM:
+				if(instruction == Instruction.li) {
+					r[p.dest] = p.immediate;
+				} else if(instruction == Instruction.lui) {
+					r[p.dest] = p.immediate << 16;//lower half of immediate as upper half
+				}
+				break;
+			case DEST://mflo and mfhi
+				if(instruction == Instruction.mflo) {
+					r[p.dest] = cpu.getLoValue();
+				} else if(instruction == Instruction.mfhi) {
+					r[p.dest] = cpu.getHiValue();
+				}
+				break;
+			case SRC://mtlo and mthi
+				if(instruction == Instruction.mtlo) {
+					cpu.setLoValue(r[p.src1]);
+				} else if(instruction == Instruction.mthi) {
+					cpu.setHiValue(r[p.src1]);
+				}
+				break;
+			case SPECIAL:
+				if(instruction == Instruction.syscall) {
+					executor.syscall(r[Register.v0.getID()]);
+				} else if(instruction == Instruction.BREAK) {
+					cpu.pause();
+				} else if(instruction != Instruction.nop) {
+					throw executeError("Error with zero argument instruction", p);
+				}
+				break;
+			case JUMP_ADDRESS:
+				if(instruction == Instruction.jal || instruction == Instruction.jalr) {
+					r[Register.ra.getID()] = nextPC;
+				}
+				return address(p);
+			case JUMP_REGISTER: {
+				int target = r[p.src1];//read before ra is written in case of jalr $ra
+				if(instruction == Instruction.jal || instruction == Instruction.jalr) {
+					r[Register.ra.getID()] = nextPC;
+				}
+				return target;
+			}
+			case CMP_CMP_ADDRESS:
+				if(ALU.branch(p.opcode, r[p.src1], r[p.src2])) {
+					return address(p);
+				}
+				break;
+			case CMP_ADDRESS:
+				if(ALU.branch(p.opcode, r[p.src1], 0)) {
+					return address(p);
+				}
+				break;
+			case DEST_ADDRESS://loads
+				r[p.dest] = load(p, address(p));
+				break;
+			case SRC_ADDRESS://stores
+				store(instruction, address(p), r[p.src1]);
+				break;
+			default:
+				throw executeError("Error during Execution", p);
+		}
+		return nextPC;
+	}
+
+	/**create the exception the normal Executor would throw for an instruction
+	 * @param message the description of the problem
+	 * @param p the predecoded statement which could not be executed
+	 * @return the exception to throw
+	 * @throws DecodeException if the statement could not be decoded
+	 */
+	private ExecuteException executeError(String message, PredecodedInstruction p) throws DecodeException {
+		return new ExecuteException(message, decoder.decode(p));
+	}
+
+	/**calculate the address referred to by a predecoded address operand
+	 * @param p the predecoded statement
+	 * @return the address
+	 */
+	private int address(PredecodedInstruction p) {
+		if(p.addressBase == PredecodedInstruction.NONE) {
+			return p.addressOffset;
+		}
+		return p.addressOffset + registers[p.addressBase];
+	}
+
+	/**load a value from memory (or an address for la)
+	 * @param p the predecoded load statement
+	 * @param address the address to load from
+	 * @return the value to put into the destination register
+	 */
+	private int load(PredecodedInstruction p, int address) throws DecodeException, ExecuteException, MemoryException, HeapException {
+		MainMemory memory = cpu.getMainMemory();
+		switch(p.instruction) {
+			case la:
+				return address;
+			case lw:
+				return memory.loadWord(address);
+			case lh:
+				return memory.loadHalf(address);
+			case lhu:
+				return memory.loadHalf(address) & 0xFFFF;
+			case lb:
+				return memory.loadByte(address);
+			case lbu:
+				return memory.loadByte(address) & 0xFF;
+			default:
+				throw executeError("Error executing load/store instruction.", p);
+		}
+	}
+
+	/**store the contents of a register in memory
+	 * @param instruction the store instruction
+	 * @param address the address to store to
+	 * @param value the contents of the source register
+	 */
+	private void store(Instruction instruction, int address, int value) throws MemoryException, HeapException {
+		MainMemory memory = cpu.getMainMemory();
+		if(instruction == Instruction.sb) {
+			memory.storeByte(address, (byte) value);//lowest byte
+		} else if(instruction == Instruction.sh) {
+			memory.storeHalf(address, (short) value);
+		} else {//sw
+			memory.storeWord(address, value);
+		}
+	}
+}
@@ -1,18 +1,18 @@
 package simulizer.simulation.cpu.components;
 
-import java.util.Arrays;
-import java.util.Map;
 import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.DataSegment;
 import simulizer.assembler.representation.Statement;
 import simulizer.simulation.exceptions.HeapException;
 import simulizer.simulation.exceptions.MemoryException;
 import simulizer.simulation.exceptions.StackException;
+import simulizer.simulation.instructions.PredecodedInstruction;
 
 /**
- * this class represents the RAM of our simulator it is represented via a large
- * Word array, which will be partitioned this memory has the absence of OS
- * reserved data (which we don't need) the stack is also represented in a
- * different data structure
+ * this class represents the RAM of our simulator. The static data, heap and stack
+ * segments are all mapped onto a single paged store (by their actual addresses),
+ * this class is responsible for checking that accesses fall within a valid segment.
+ * The text segment is kept separately as predecoded statements
  * 
  * @author Charlie Street
  * @author mbway
@@ -26,54 +26,68 @@ public class MainMemory {
 	private final Address endOfMemory; //TODO: why is this not used?
 	private static final int mebibyte = 1024*1024;
 
+	// segment boundaries: start inclusive, end exclusive
+	private final int staticStart;
+	private final int staticEnd;
+	private final int heapStart;
+	private final int stackStart; // the end of the region reserved for the heap
+	private final int stackEnd; // top of the stack
 
-	private Map<Address,Statement> textSegment;
-	private byte[] staticDataSegment;
+
+	private PredecodedInstruction[] textSegment; // indexed by word offset from the start of the text segment
+	private final int textSegmentStart;
+	private final PagedMemory store; // contents of the static data, heap and stack segments
 	private DynamicDataSegment heap;
-	private StackSegment stack;
 
 
 	/**
 	 * this constructor just initialises the memory and then initialises all
 	 * partitions in it
 	 *
+	 * @param staticDataSegment the initial contents of the static data segment (copied, not modified).
+	 *        Only the initialised chunks are copied, the rest of the segment reads as zero
 	 */
-	MainMemory(Map<Address,Statement> textSegment, byte[] staticDataSegment, Address startOfStaticData, Address bottomOfDynamicData, Address stackPointer) {
+	MainMemory(PredecodedInstruction[] textSegment, Address textSegmentStart, DataSegment staticDataSegment, Address startOfStaticData, Address bottomOfDynamicData, Address stackPointer) {
 		this.startOfStaticData = startOfStaticData;
 		this.bottomOfDynamicData = bottomOfDynamicData;
 		this.topOfStack = stackPointer;
 		this.endOfMemory = new Address(2147483644);
 
+		this.staticStart = startOfStaticData.getValue();
+		this.staticEnd = staticStart + staticDataSegment.length();
+		this.heapStart = bottomOfDynamicData.getValue();
+		this.stackStart = heapStart + mebibyte;
+		this.stackEnd = topOfStack.getValue();
+
 		this.textSegment = textSegment;
-		this.staticDataSegment = staticDataSegment;
-		this.heap = new DynamicDataSegment(bottomOfDynamicData, mebibyte);
-		int topOfHeap = bottomOfDynamicData.getValue() + mebibyte;
-		int maxStackSize = topOfStack.getValue() - topOfHeap;
-		this.stack = new StackSegment(maxStackSize);
+		this.textSegmentStart = textSegmentStart.getValue();
+		this.store = new PagedMemory();
+		for(DataSegment.Chunk c : staticDataSegment.getChunks()) {
+			this.store.write(staticStart + c.offset, c.data);
+		}
+		this.heap = new DynamicDataSegment(bottomOfDynamicData, mebibyte, store);
 	}
 
 	// definition of being 'in' a segment: if you write 1 byte at that location, that byte would be inside the segment
 	// eg the top of the stack is not inside the stack because it points past the highest element
 
 	private boolean inDynamicSegment(int address) {
-		return address >= bottomOfDynamicData.getValue()
-				  && address < bottomOfDynamicData.getValue() + mebibyte;
+		return address >= heapStart && address < stackStart;
 	}
 	private boolean inDynamicSegment(int address, int length) {
 		return inDynamicSegment(address) && inDynamicSegment(address + length - 1);
 	}
 
 	private boolean inStaticSegment(int address) {
-		return address >= startOfStaticData.getValue()
-				&& address < startOfStaticData.getValue() + staticDataSegment.length;
+		return address >= staticStart && address < staticEnd;
 	}
 	private boolean inStaticSegment(int address, int length) {
 		return inStaticSegment(address) && inStaticSegment(address + length - 1);
 	}
 
 	private boolean inStack(int address) {
-		return address < topOfStack.getValue() // top of stack is not inside the stack
-				&& address >= bottomOfDynamicData.getValue() + mebibyte;
+		return address < stackEnd // top of stack is not inside the stack
+				&& address >= stackStart;
 	}
 	private boolean inStack(int address, int length) {
 		return inStack(address) && inStack(address + length - 1);
@@ -87,6 +101,65 @@ public class MainMemory {
 	{
 		return this.heap;
 	}
+
+	/**check that a range of memory can be read from
+	 * @param address the start address to read from
+	 * @param length the number of bytes to read
+	 */
+	private void checkRead(int address, int length) throws MemoryException, HeapException
+	{
+		if(inStack(address, length) || inStaticSegment(address, length)) {
+			return;
+		} else if(inDynamicSegment(address, length)) {
+			heap.checkRead(address - heapStart, length);
+		} else {
+			throw new MemoryException("Reading from invalid area of memory", new Address(address));
+		}
+	}
+
+	/**check that a range of memory can be written to
+	 * @param address the start address to write to
+	 * @param length the number of bytes to write
+	 */
+	private void checkWrite(int address, int length) throws MemoryException, HeapException
+	{
+		if(inStack(address, length) || inStaticSegment(address, length)) {
+			return;
+		} else if(inDynamicSegment(address, length)) {
+			heap.checkWrite(address - heapStart, length);
+		} else {
+			throw new MemoryException("Writing to an invalid area of memory", new Address(address));
+		}
+	}
+
+	// primitive accessors: the same rules as readFromMem and writeToMem but without allocating
+
+	public int loadWord(int address) throws MemoryException, HeapException {
+		checkRead(address, 4);
+		return store.loadWord(address);
+	}
+	public short loadHalf(int address) throws MemoryException, HeapException {
+		checkRead(address, 2);
+		return store.loadHalf(address);
+	}
+	public byte loadByte(int address) throws MemoryException, HeapException {
+		checkRead(address, 1);
+		return store.loadByte(address);
+	}
+
+	public void storeWord(int address, int value) throws MemoryException, HeapException {
+		checkWrite(address, 4);
+		store.storeWord(address, value);
+	}
+	public void storeHalf(int address, short value) throws MemoryException, HeapException {
+		checkWrite(address, 2);
+		store.storeHalf(address, value);
+	}
+	public void storeByte(int address, byte value) throws MemoryException, HeapException {
+		checkWrite(address, 1);
+		store.storeByte(address, value);
+	}
+
 	/**this method will read from memory, in the places it is allowed to
 	 * 
 	 * @param address the start address to read from
@@ -96,21 +169,27 @@ public class MainMemory {
 	 */
 	public byte[] readFromMem(int address, int length) throws MemoryException, HeapException, StackException
 	{
-        if(inStaticSegment(address, length)) {
-            int relativeAddress = address - startOfStaticData.getValue();
-			return Arrays.copyOfRange(staticDataSegment, relativeAddress, relativeAddress+length);
-
-		} else if(inDynamicSegment(address, length)) {
-			int relativeAddress = address - bottomOfDynamicData.getValue();
-			return heap.getBytes(relativeAddress, length);
-
-		} else if(inStack(address, length)) {
-			int relativeAddress = address - topOfStack.getValue(); // will be negative
-			return stack.getBytes(relativeAddress, length);
+		if(length <= 0 && inStack(address)) {
+			throw new StackException("Invalid read on stack. (non-positive length)", address - stackEnd, address - stackEnd + length - 1);
+		}
+		checkRead(address, length);
+		return store.read(address, length);
+	}
 
-		} else {
-			throw new MemoryException("Reading from invalid area of memory", new Address(address));
+	/**create a read-only view onto memory, checked by the same rules as readFromMem
+	 *
+	 * @param address the start address of the view
+	 * @param length the number of bytes in the view
+	 * @return a view which reads directly from memory without copying
+	 * @throws StackException if invalid use of stack
+	 */
+	public MemoryView view(int address, int length) throws MemoryException, HeapException, StackException
+	{
+		if(length <= 0 && inStack(address)) {
+			throw new StackException("Invalid read on stack. (non-positive length)", address - stackEnd, address - stackEnd + length - 1);
 		}
+		checkRead(address, length);
+		return new MemoryView(store, address, length);
 	}
 
 	/**
@@ -124,21 +203,23 @@ public class MainMemory {
 	 */
 	public byte[] readUntilNull(int address) throws MemoryException, HeapException, StackException {
 		if(inStaticSegment(address)) {
-			int relativeAddress = address - startOfStaticData.getValue();
-            for(int i = relativeAddress; i < staticDataSegment.length; ++i) {
-                if(staticDataSegment[i] == '\0') {
-					return Arrays.copyOfRange(staticDataSegment, relativeAddress, i); // exclusive so null not included
-				}
+			long nullAddress = store.findNull(address, staticEnd);
+			if(nullAddress != -1) {
+				return store.read(address, (int) (nullAddress - address)); // null not included
 			}
 			throw new MemoryException("Reading from invalid area of memory (scanning for a null character)", new Address(address));
 
 		} else if(inDynamicSegment(address)) {
-			int relativeAddress = address - bottomOfDynamicData.getValue();
+			int relativeAddress = address - heapStart;
 			return heap.readUntilNull(relativeAddress);
 
 		} else if(inStack(address)) {
-			int relativeAddress = address - topOfStack.getValue(); // will be negative
-			return stack.readUntilNull(relativeAddress);
+			long nullAddress = store.findNull(address, stackEnd);
+			if(nullAddress != -1) {
+				return store.read(address, (int) (nullAddress - address)); // null not included
+			}
+			// addresses relative to the top of the stack
+			throw new StackException("Reading from invalid area of memory (scanning for a null character)", address - stackEnd, 0);
 
 		} else {
 			throw new MemoryException("Reading from invalid area of memory (scanning for a null character)", new Address(address));
@@ -155,21 +236,11 @@ public class MainMemory {
 	 */
 	public void writeToMem(int address, byte[] toWrite) throws MemoryException, HeapException, StackException
 	{
-		if(inStaticSegment(address, toWrite.length)) {
-		    int relativeAddress = address - startOfStaticData.getValue();
-			System.arraycopy(toWrite, 0, staticDataSegment, relativeAddress, toWrite.length);
-
-		} else if(inDynamicSegment(address, toWrite.length)) {
-		    int relativeAddress = address - bottomOfDynamicData.getValue();
-            heap.setBytes(relativeAddress, toWrite);
-
-		} else if(inStack(address, toWrite.length)) {
-		    int relativeAddress = address - topOfStack.getValue(); // will be negative
-			stack.setBytes(relativeAddress, toWrite);
-
-		} else {
-			throw new MemoryException("Writing to an invalid area of memory", new Address(address));
+		if(toWrite.length <= 0 && inStack(address)) {
+			throw new StackException("Invalid write on stack. (non-positive length)", address - stackEnd, address - stackEnd + toWrite.length - 1);
 		}
+		checkWrite(address, toWrite.length);
+		store.write(address, toWrite);
 	}
 	
 	/**separate method for reading from the text segment of the memory
@@ -179,11 +250,32 @@ public class MainMemory {
 	 */
 	public Statement readFromTextSegment(Address address) throws MemoryException
 	{
-		Statement retrieved = textSegment.get(address);
-		if(retrieved != null) {
-			return retrieved;
+		return readPredecoded(address).statement;
+	}
+
+	/**read the predecoded form of the statement at the given address
+	 *
+	 * @param address the address to retrieve from
+	 * @return the predecoded statement at that address
+	 */
+	public PredecodedInstruction readPredecoded(Address address) throws MemoryException
+	{
+		return readPredecoded(address.getValue());
+	}
+
+	/**read the predecoded form of the statement at the given address
+	 *
+	 * @param address the address to retrieve from
+	 * @return the predecoded statement at that address
+	 */
+	PredecodedInstruction readPredecoded(int address) throws MemoryException
+	{
+		int offset = address - textSegmentStart;
+		int index = offset >> 2;
+		if((offset & 3) == 0 && index >= 0 && index < textSegment.length) {
+			return textSegment[index];
 		} else {
-			throw new MemoryException("Reading from invalid area of memory",address);
+			throw new MemoryException("Reading from invalid area of memory",new Address(address));
 		}
 	}
 
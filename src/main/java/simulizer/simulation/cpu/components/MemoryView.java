@@ -0,0 +1,112 @@
+package simulizer.simulation.cpu.components;
+
+/**
+ * A read-only window onto a range of the simulated memory which reads directly
+ * from the memory rather than copying it. Intended for annotations which read the
+ * same region (eg the pixels of a canvas) many times.
+ *
+ * The range is checked against the segment rules when the view is created (see
+ * MainMemory.view), after that each access is only checked against the bounds of
+ * the view. The view reflects any changes made to the memory after it was created.
+ *
+ * A view can also be made over a copy of some memory (eg a snapshot taken for an
+ * annotation which runs while the simulation continues).
+ *
+ * Offsets are in bytes from the start of the view. Multi-byte values are read big
+ * endian, the same as the simulated CPU.
+ *
+ * @author mbway
+ */
+public class MemoryView {
+	private final PagedMemory store; // null if the view is over a copy
+	private final byte[] copy;
+	private final int copyOffset; // the index in copy of the first byte of the view
+	private final int start;
+	private final int length;
+
+	MemoryView(PagedMemory store, int start, int length) {
+		this.store = store;
+		this.copy = null;
+		this.copyOffset = 0;
+		this.start = start;
+		this.length = length;
+	}
+
+	/**
+	 * create a view over a copy of memory
+	 * @param copy the copied bytes
+	 * @param copyOffset the index in copy of the first byte of the view
+	 * @param start the address that the first byte of the view was copied from
+	 * @param length the number of bytes in the view
+	 */
+	public MemoryView(byte[] copy, int copyOffset, int start, int length) {
+		if(copyOffset < 0 || length < 0 || copyOffset + length > copy.length) {
+			throw new IndexOutOfBoundsException("view of " + length + " bytes outside a copy of " + copy.length + " bytes");
+		}
+		this.store = null;
+		this.copy = copy;
+		this.copyOffset = copyOffset;
+		this.start = start;
+		this.length = length;
+	}
+
+	/**
+	 * @return the address of the first byte of the view
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the number of bytes in the view
+	 */
+	public int length() {
+		return length;
+	}
+
+	private int addressOf(int offset, int size) {
+		if(offset < 0 || offset > length - size) {
+			throw new IndexOutOfBoundsException("offset " + offset + " (" + size + " bytes) outside a view of " + length + " bytes");
+		}
+		return start + offset;
+	}
+
+	public byte getByte(int offset) {
+		int address = addressOf(offset, 1);
+		if(store == null) {
+			return copy[copyOffset + offset];
+		}
+		return store.loadByte(address);
+	}
+	public int getUnsignedByte(int offset) {
+		return getByte(offset) & 0xFF;
+	}
+
+	/**
+	 * @return whether the byte at the given offset is non-zero
+	 */
+	public boolean getBool(int offset) {
+		return getByte(offset) != 0;
+	}
+
+	public short getHalf(int offset) {
+		int address = addressOf(offset, 2);
+		if(store == null) {
+			int i = copyOffset + offset;
+			return (short) ((copy[i] << 8) | (copy[i + 1] & 0xFF));
+		}
+		return store.loadHalf(address);
+	}
+
+	public int getWord(int offset) {
+		int address = addressOf(offset, 4);
+		if(store == null) {
+			int i = copyOffset + offset;
+			return (copy[i] << 24) | ((copy[i + 1] & 0xFF) << 16) | ((copy[i + 2] & 0xFF) << 8) | (copy[i + 3] & 0xFF);
+		}
+		return store.loadWord(address);
+	}
+	public long getUnsignedWord(int offset) {
+		return getWord(offset) & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,161 @@
+package simulizer.simulation.cpu.components;
+
+/**a sparse byte addressable store covering the whole 32 bit address space.
+ * The memory is split into fixed size pages which are only allocated once they are
+ * written to, reading from a page which has never been written to gives zeroes.
+ *
+ * No bounds checking is performed here, it is up to the owner (eg MainMemory) to
+ * determine whether an access is valid. Multi-byte values are stored big endian
+ * (MSB at the lowest address)
+ *
+ * @author mbway
+ */
+public class PagedMemory {
+	private static final int PAGE_BITS = 16;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS; // 64 KiB
+	private static final int OFFSET_MASK = PAGE_SIZE - 1;
+
+	private final byte[][] pages;
+
+	public PagedMemory() {
+		pages = new byte[1 << (32 - PAGE_BITS)][];
+	}
+
+	/**
+	 * @param address the address to find the page of
+	 * @return the page containing the address, allocating it if necessary
+	 */
+	private byte[] writablePage(int address) {
+		int index = address >>> PAGE_BITS;
+		byte[] page = pages[index];
+		if(page == null) {
+			page = new byte[PAGE_SIZE];
+			pages[index] = page;
+		}
+		return page;
+	}
+
+	public byte loadByte(int address) {
+		byte[] page = pages[address >>> PAGE_BITS];
+		return page == null ? 0 : page[address & OFFSET_MASK];
+	}
+
+	public short loadHalf(int address) {
+		int offset = address & OFFSET_MASK;
+		if(offset <= PAGE_SIZE - 2) {
+			byte[] page = pages[address >>> PAGE_BITS];
+			if(page == null) {
+				return 0;
+			}
+			return (short) ((page[offset] << 8) | (page[offset + 1] & 0xFF));
+		} else {
+			// straddles two pages
+			return (short) ((loadByte(address) << 8) | (loadByte(address + 1) & 0xFF));
+		}
+	}
+
+	public int loadWord(int address) {
+		int offset = address & OFFSET_MASK;
+		if(offset <= PAGE_SIZE - 4) {
+			byte[] page = pages[address >>> PAGE_BITS];
+			if(page == null) {
+				return 0;
+			}
+			return (page[offset] << 24)
+					| ((page[offset + 1] & 0xFF) << 16)
+					| ((page[offset + 2] & 0xFF) << 8)
+					| (page[offset + 3] & 0xFF);
+		} else {
+			// straddles two pages
+			return (loadByte(address) << 24)
+					| ((loadByte(address + 1) & 0xFF) << 16)
+					| ((loadByte(address + 2) & 0xFF) << 8)
+					| (loadByte(address + 3) & 0xFF);
+		}
+	}
+
+	public void storeByte(int address, byte value) {
+		writablePage(address)[address & OFFSET_MASK] = value;
+	}
+
+	public void storeHalf(int address, short value) {
+		int offset = address & OFFSET_MASK;
+		if(offset <= PAGE_SIZE - 2) {
+			byte[] page = writablePage(address);
+			page[offset]     = (byte) (value >> 8);
+			page[offset + 1] = (byte) value;
+		} else {
+			storeByte(address,     (byte) (value >> 8));
+			storeByte(address + 1, (byte) value);
+		}
+	}
+
+	public void storeWord(int address, int value) {
+		int offset = address & OFFSET_MASK;
+		if(offset <= PAGE_SIZE - 4) {
+			byte[] page = writablePage(address);
+			page[offset]     = (byte) (value >> 24);
+			page[offset + 1] = (byte) (value >> 16);
+			page[offset + 2] = (byte) (value >> 8);
+			page[offset + 3] = (byte) value;
+		} else {
+			storeByte(address,     (byte) (value >> 24));
+			storeByte(address + 1, (byte) (value >> 16));
+			storeByte(address + 2, (byte) (value >> 8));
+			storeByte(address + 3, (byte) value);
+		}
+	}
+
+	/**
+	 * copy a range of memory into a new array
+	 * @param address the address of the first byte
+	 * @param length the number of bytes to read
+	 * @return the bytes
+	 */
+	public byte[] read(int address, int length) {
+		byte[] result = new byte[length];
+		int done = 0;
+		while(done < length) {
+			int a = address + done;
+			int offset = a & OFFSET_MASK;
+			int chunk = Math.min(length - done, PAGE_SIZE - offset);
+			byte[] page = pages[a >>> PAGE_BITS];
+			if(page != null) {
+				System.arraycopy(page, offset, result, done, chunk);
+			} // otherwise leave as zeroes
+			done += chunk;
+		}
+		return result;
+	}
+
+	/**
+	 * copy an array into memory
+	 * @param address the address to place the first byte
+	 * @param data the bytes to write
+	 */
+	public void write(int address, byte[] data) {
+		int done = 0;
+		while(done < data.length) {
+			int a = address + done;
+			int offset = a & OFFSET_MASK;
+			int chunk = Math.min(data.length - done, PAGE_SIZE - offset);
+			System.arraycopy(data, done, writablePage(a), offset, chunk);
+			done += chunk;
+		}
+	}
+
+	/**
+	 * find the first null byte in a range of memory
+	 * @param from the address to start scanning from (inclusive)
+	 * @param to the address to stop scanning at (exclusive)
+	 * @return the address of the first null byte, or -1 if there is not one in the range
+	 */
+	public long findNull(int from, int to) {
+		for(long a = from; a < to; ++a) {
+			if(loadByte((int) a) == '\0') {
+				return a;
+			}
+		}
+		return -1;
+	}
+}
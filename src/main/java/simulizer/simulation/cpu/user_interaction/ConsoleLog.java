@@ -0,0 +1,187 @@
+package simulizer.simulation.cpu.user_interaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The text printed to a single IO stream, stored as lines so that a display can
+ * fetch only what has changed since it last updated rather than the whole log.
+ *
+ * Only the most recent lines are kept (the scrollback), older lines are evicted
+ * from a ring buffer. The ring starts small and grows as lines are added, so a
+ * large scrollback only costs memory once it is used. Lines are numbered from the start of the log (including
+ * evicted lines) so that a display can tell which of its lines have been evicted.
+ *
+ * Lines longer than maxLineLength are wrapped, so text printed without any line
+ * breaks is still split into lines which can be evicted, and a display which
+ * already has the start of the unterminated line is only sent what was appended to it.
+ *
+ * @author mbway
+ */
+public class ConsoleLog {
+	private static final int initialCapacity = 64;
+	private static final int maxLineLength = 4096;
+
+	private final int maxLines;
+	private String[] lines; // ring buffer of complete lines, grows up to maxLines
+	private long firstLine; // number of the oldest complete line still stored
+	private long endLine; // number of complete lines ever added
+	private final StringBuilder partial; // the last line, which has not been terminated yet
+	private int generation; // incremented when the log is cleared
+
+	/**
+	 * the changes to the log since a display last updated
+	 */
+	public static class Delta {
+		/** the generation of the log, if different from the display then the display must be reset */
+		public final int generation;
+		/** the number of the oldest line stored, lines before this should be removed from the display */
+		public final long firstLine;
+		/** the number of complete lines (pass to changesSince next time) */
+		public final long endLine;
+		/** the complete lines which the display does not have yet */
+		public final List<String> newLines;
+		/**
+		 * the position in the line after the last complete line where partialText starts. If 0 then
+		 * the display should replace that line, otherwise the display already has the text before this
+		 */
+		public final int partialStart;
+		/** the contents of the line after the last complete line, from partialStart */
+		public final String partialText;
+		/** the length of the line after the last complete line (pass to changesSince next time) */
+		public final int partialLength;
+
+		private Delta(int generation, long firstLine, long endLine, List<String> newLines, int partialStart, String partialText, int partialLength) {
+			this.generation = generation;
+			this.firstLine = firstLine;
+			this.endLine = endLine;
+			this.newLines = newLines;
+			this.partialStart = partialStart;
+			this.partialText = partialText;
+			this.partialLength = partialLength;
+		}
+	}
+
+	/**
+	 * @param maxLines the maximum number of complete lines to keep (the scrollback)
+	 */
+	public ConsoleLog(int maxLines) {
+		if(maxLines < 1) {
+			throw new IllegalArgumentException("the scrollback must be at least 1 line");
+		}
+		this.maxLines = maxLines;
+		lines = new String[Math.min(maxLines, initialCapacity)];
+		firstLine = 0;
+		endLine = 0;
+		partial = new StringBuilder();
+		generation = 0;
+	}
+
+	/**
+	 * add text to the end of the log
+	 * @param text the text to add, may contain any number of line breaks
+	 */
+	public synchronized void append(String text) {
+		int start = 0;
+		while(start < text.length()) {
+			int newline = text.indexOf('\n', start);
+			int end = newline == -1 ? text.length() : newline;
+
+			// wrap the line if it is too long
+			while(partial.length() + (end - start) > maxLineLength) {
+				int split = start + maxLineLength - partial.length();
+				partial.append(text, start, split);
+				addPartialLine();
+				start = split;
+			}
+			partial.append(text, start, end);
+
+			if(newline == -1) {
+				break;
+			}
+			addPartialLine();
+			start = newline + 1;
+		}
+	}
+
+	private void addPartialLine() {
+		addLine(partial.toString());
+		partial.setLength(0);
+	}
+
+	private void addLine(String line) {
+		if(endLine - firstLine == lines.length && lines.length < maxLines) {
+			grow();
+		}
+		lines[(int) (endLine % lines.length)] = line;
+		++endLine;
+		if(endLine - firstLine > lines.length) {
+			++firstLine; // evicted by the new line
+		}
+	}
+
+	/**
+	 * double the capacity of the ring (up to maxLines), keeping the stored lines
+	 */
+	private void grow() {
+		String[] grown = new String[(int) Math.min((long) lines.length * 2, maxLines)];
+		for(long l = firstLine; l < endLine; ++l) {
+			grown[(int) (l % grown.length)] = lines[(int) (l % lines.length)];
+		}
+		lines = grown;
+	}
+
+	/**
+	 * remove all of the text from the log
+	 */
+	public synchronized void clear() {
+		lines = new String[Math.min(maxLines, initialCapacity)];
+		firstLine = 0;
+		endLine = 0;
+		partial.setLength(0);
+		++generation;
+	}
+
+	/**
+	 * @param generation the generation of the log when the display last updated
+	 * @param shownEnd the endLine of the log when the display last updated
+	 * @param shownPartialLength the partialLength of the log when the display last updated
+	 * @return the changes since the display last updated (everything if the log has been cleared since)
+	 */
+	public synchronized Delta changesSince(int generation, long shownEnd, int shownPartialLength) {
+		boolean sameGeneration = generation == this.generation;
+		long from = sameGeneration ? Math.max(shownEnd, firstLine) : firstLine;
+		List<String> newLines;
+		if(from >= endLine) {
+			newLines = Collections.emptyList();
+		} else {
+			newLines = new ArrayList<>((int) (endLine - from));
+			for(long l = from; l < endLine; ++l) {
+				newLines.add(lines[(int) (l % lines.length)]);
+			}
+		}
+		// if no lines have been completed since, the display has the start of the partial line already
+		int partialStart = sameGeneration && shownEnd == endLine && shownPartialLength <= partial.length() ? shownPartialLength : 0;
+		return new Delta(this.generation, firstLine, endLine, newLines, partialStart, partial.substring(partialStart), partial.length());
+	}
+
+	/**
+	 * @return the number of complete lines stored
+	 */
+	public synchronized int lineCount() {
+		return (int) (endLine - firstLine);
+	}
+
+	/**
+	 * @return the stored text of the log
+	 */
+	public synchronized String getText() {
+		StringBuilder sb = new StringBuilder();
+		for(long l = firstLine; l < endLine; ++l) {
+			sb.append(lines[(int) (l % lines.length)]).append('\n');
+		}
+		sb.append(partial);
+		return sb.toString();
+	}
+}
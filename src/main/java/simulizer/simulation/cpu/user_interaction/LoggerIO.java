@@ -14,13 +14,19 @@ import simulizer.ui.windows.Logger;
  */
 public class LoggerIO extends Observable implements IO {
 	private final Workspace workspace;
-	private final StringBuilder[] logs; // the output streams
+	private final ConsoleLog[] logs; // the output streams
 
-	public LoggerIO(Workspace workspace) {
+	/**
+	 * @param workspace
+	 *            the workspace containing the Logger window
+	 * @param scrollback
+	 *            the maximum number of lines to keep for each stream
+	 */
+	public LoggerIO(Workspace workspace, int scrollback) {
 		this.workspace = workspace;
-		logs = new StringBuilder[IOStream.values().length];
+		logs = new ConsoleLog[IOStream.values().length];
 		for (int i = 0; i < IOStream.values().length; i++)
-			logs[i] = new StringBuilder();
+			logs[i] = new ConsoleLog(scrollback);
 
 	}
 
@@ -63,14 +69,14 @@ public class LoggerIO extends Observable implements IO {
 
 	@Override
 	public void printInt(IOStream stream, int num) {
-		logs[stream.getID()].append(num);
+		logs[stream.getID()].append(Integer.toString(num));
 		setChanged();
 		notifyObservers(stream);
 	}
 
 	@Override
 	public void printChar(IOStream stream, char letter) {
-		logs[stream.getID()].append(letter);
+		logs[stream.getID()].append(Character.toString(letter));
 		setChanged();
 		notifyObservers(stream);
 	}
@@ -104,7 +110,7 @@ public class LoggerIO extends Observable implements IO {
 	 */
 	public void clear() {
 		for (IOStream i : IOStream.values()) {
-			logs[i.getID()] = new StringBuilder();
+			logs[i.getID()].clear();
 			setChanged();
 			notifyObservers(i);
 		}
@@ -115,10 +121,21 @@ public class LoggerIO extends Observable implements IO {
 	 * 
 	 * @param stream
 	 *            the IOStream to get
-	 * @return the log history
+	 * @return the log history (limited to the scrollback)
 	 */
 	public String getLog(IOStream stream) {
-		return logs[stream.getID()].toString();
+		return logs[stream.getID()].getText();
+	}
+
+	/**
+	 * Gets the model of the log for an IOStream, which can be used to fetch only the changes
+	 * 
+	 * @param stream
+	 *            the IOStream to get
+	 * @return the log
+	 */
+	public ConsoleLog getConsoleLog(IOStream stream) {
+		return logs[stream.getID()];
 	}
 
 }
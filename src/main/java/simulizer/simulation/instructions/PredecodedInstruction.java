@@ -0,0 +1,133 @@
+package simulizer.simulation.instructions;
+
+import simulizer.assembler.representation.Instruction;
+import simulizer.assembler.representation.Register;
+import simulizer.assembler.representation.Statement;
+import simulizer.simulation.exceptions.DecodeException;
+
+/**the statically known parts of a decoded statement.
+ * everything that does not depend on the state of the simulation (the operand
+ * format, register indices, immediate values and resolved label addresses) is
+ * worked out once when the program is loaded, so that decoding an instruction
+ * at run time only has to read the current register values
+ * @author mbway
+ *
+ */
+public class PredecodedInstruction {
+
+	/**the layout of the operands, one for each way the decoder can interpret a statement
+	 */
+	public enum Kind {
+		DEST_SRC_SRC,    // dest <- src1 op src2
+		DEST_SRC_IMM,    // dest <- src1 op immediate
+		DEST_SRC,        // dest <- op src1
+		DEST_IMM,        // li, lui
+		SPECIAL,         // syscall, nop, break
+		JUMP_ADDRESS,    // b, j, jal to a label
+		JUMP_REGISTER,   // jr, jalr, j or jal to a register
+		CMP_CMP_ADDRESS, // beq etc.
+		CMP_ADDRESS,     // bltz etc.
+		SRC_ADDRESS,     // stores
+		DEST_ADDRESS,    // loads and la
+		SRC_SRC,         // mult
+		DEST,            // mflo, mfhi
+		SRC,             // mtlo, mthi
+		SRC_IMM          // multi
+	}
+
+	/**used for register indices which are not present
+	 */
+	public static final int NONE = -1;
+
+	public final Statement statement;
+	public final Instruction instruction;
+	public final int opcode; // the ordinal of the instruction
+	public final Kind kind;
+
+	public final int dest; // index of the destination register
+	public final int src1; // index of the first source/comparison register
+	public final int src2; // index of the second source/comparison register
+	public final int immediate;
+
+	public final int addressBase; // index of the base register of the address operand
+	public final int addressOffset; // resolved label address plus any constant offset
+
+	/**the registers read and written by the instruction, one bit per register index.
+	 * used by the pipeline to detect hazards. The registers written by a syscall
+	 * depend on the syscall code so are not included
+	 */
+	public final int readMask;
+	public final int writeMask;
+
+	/**
+	 * the problem encountered while decoding the statement, thrown when the
+	 * instruction is executed rather than when the program is loaded
+	 */
+	public final DecodeException problem;
+
+	/**initialises all fields
+	 *
+	 * @param statement the statement which was decoded
+	 * @param kind the layout of the operands
+	 * @param dest the destination register index (or NONE)
+	 * @param src1 the first source register index (or NONE)
+	 * @param src2 the second source register index (or NONE)
+	 * @param immediate the immediate value (0 if not used)
+	 * @param addressBase the address base register index (or NONE)
+	 * @param addressOffset the resolved constant part of the address (0 if not used)
+	 */
+	public PredecodedInstruction(Statement statement, Kind kind, int dest, int src1, int src2,
+								 int immediate, int addressBase, int addressOffset) {
+		this.statement = statement;
+		this.instruction = statement.getInstruction();
+		this.opcode = instruction.ordinal();
+		this.kind = kind;
+		this.dest = dest;
+		this.src1 = src1;
+		this.src2 = src2;
+		this.immediate = immediate;
+		this.addressBase = addressBase;
+		this.addressOffset = addressOffset;
+		this.problem = null;
+
+		this.readMask = bit(src1) | bit(src2) | bit(addressBase);
+		int writes = bit(dest);
+		if(instruction == Instruction.jal || instruction == Instruction.jalr) {
+			writes |= bit(Register.ra.getID());
+		}
+		this.writeMask = writes;
+	}
+
+	/**create an entry for a statement which could not be decoded
+	 *
+	 * @param statement the statement which failed to decode
+	 * @param problem the reason the statement could not be decoded
+	 */
+	public PredecodedInstruction(Statement statement, DecodeException problem) {
+		this.statement = statement;
+		this.instruction = statement.getInstruction();
+		this.opcode = instruction.ordinal();
+		this.kind = null;
+		this.dest = NONE;
+		this.src1 = NONE;
+		this.src2 = NONE;
+		this.immediate = 0;
+		this.addressBase = NONE;
+		this.addressOffset = 0;
+		this.problem = problem;
+		this.readMask = 0;
+		this.writeMask = 0;
+	}
+
+	/**
+	 * @param register a register index (or NONE)
+	 * @return the mask with only the bit for the register set (or 0 for NONE)
+	 */
+	private static int bit(int register) {
+		return register == NONE ? 0 : 1 << register;
+	}
+
+	@Override public String toString() {
+		return "PredecodedInstruction(kind=" + kind + ", statement=" + statement + ")";
+	}
+}
@@ -25,4 +25,9 @@ public class InstructionTypeMessage extends Message{
 	public AddressMode getMode() {
 		return this.mode;
 	}
+
+	@Override
+	public Type getType() {
+		return Type.InstructionType;
+	}
 }
@@ -6,4 +6,26 @@ package simulizer.simulation.messages;
  */
 public class Message {
 
+	/**
+	 * the kinds of message which a listener can subscribe to
+	 */
+	public enum Type {
+		Annotation,
+		DataMovement,
+		InstructionType,
+		PipelineHazard,
+		PipelineState,
+		Problem,
+		RegisterChanged, // including changes to hi and lo
+		Simulation,
+		StageEnter,
+		Other
+	}
+
+	/**
+	 * @return the kind of this message (used to decide which listeners receive it)
+	 */
+	public Type getType() {
+		return Type.Other;
+	}
 }
@@ -1,17 +1,13 @@
 package simulizer.simulation.messages;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 import simulizer.Simulizer;
 import simulizer.simulation.cpu.user_interaction.IO;
@@ -19,184 +15,452 @@ import simulizer.simulation.cpu.user_interaction.IOStream;
 import simulizer.utils.ThreadUtils;
 
 /**
- * Manages a thread which processes messages sent from the simulation
+ * Delivers messages sent from the simulation to the registered listeners.
+ *
+ * Messages are published into a ring buffer and each listener has a thread
+ * which drains the buffer in batches, so every listener receives every message
+ * in the order they were sent without any per-message task being created.
+ * Each message is identified by a sequence number, waitForAll only has to
+ * compare the sequence number of the last published message with how far each
+ * listener has got.
+ *
+ * If the buffer is full, messages wait in an overflow queue until the slowest
+ * listener makes room. The lock for publishing is never held while waiting, and
+ * the listener threads (which may send messages themselves, eg an annotation which
+ * pauses the simulation) never wait for room, only the other senders do. If the
+ * slowest listener does not make room in time then it stops receiving messages
+ * rather than holding up the simulation indefinitely.
+ *
+ * The slots of the buffer are cleared once every listener has processed them so
+ * that old messages are not kept alive.
+ *
+ * Listeners may subscribe to only some types of message, in which case the other
+ * messages are skipped by that listener's thread. Senders can check isSubscribed
+ * to avoid creating messages which no listener will receive.
+ *
  * @author Charlie Street
  * @author mbway
  */
 public class MessageManager {
 
 	private final static long allowedProcessingTime = 1000; // milliseconds
+	private final static int bufferSize = 1 << 13; // must be a power of 2
+	private final static int bufferMask = bufferSize - 1;
 
-	private final CopyOnWriteArrayList<SimulationListener> listeners;
-	private final ThreadPoolExecutor executor;
+	private final Message[] buffer;
+	private final AtomicLong published; // sequence number of the last published message
+	private long cleared; // sequence number of the last message removed from the buffer (guarded by publishLock)
+	private final Object publishLock;
+	private final ArrayDeque<Message> overflow; // messages waiting for room in the buffer (guarded by publishLock)
+	private final AtomicInteger overflowSize;
+	private final ThreadLocal<Boolean> isListenerThread;
+
+	private final CopyOnWriteArrayList<ListenerWorker> workers;
 	private final ThreadUtils.NamedTaggedThreadFactory threadFactory;
-	private final BlockingQueue<Message> messages;
-	private final AtomicBoolean noWaitingMessages; // all messages submitted
-	private final List<MessageTask> tasks;
-	private final static int maxTasks = 5; // >> numCores is useless because the switching becomes significant
+	private volatile boolean isShutdown;
+	private volatile EnumSet<Message.Type> subscribed; // union of the listener subscriptions (never modified)
+
+	// workers wait on newMessages for messages to be published
+	private final Object newMessages;
+	private final AtomicInteger sleepingWorkers;
+	// threads waiting for the workers to catch up wait on progress
+	private final Object progress;
+	private final AtomicInteger progressWaiters;
 
 	private final IO io;
 
 	public MessageManager(IO io) {
-		listeners = new CopyOnWriteArrayList<>();
-		threadFactory = new ThreadUtils.NamedTaggedThreadFactory("Message-Manager");
-		executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(maxTasks+1, threadFactory);
-
+		buffer = new Message[bufferSize];
+		published = new AtomicLong(-1);
+		cleared = -1;
+		publishLock = new Object();
+		overflow = new ArrayDeque<>();
+		overflowSize = new AtomicInteger(0);
+		isListenerThread = ThreadLocal.withInitial(() -> false);
 
-		// one of the threads is dedicated to dispatching to the others
-		messages = new LinkedBlockingQueue<>();
-		noWaitingMessages = new AtomicBoolean(true);
-		executor.submit(this::processMessageQueue);
+		workers = new CopyOnWriteArrayList<>();
+		threadFactory = new ThreadUtils.NamedTaggedThreadFactory("Message-Manager");
+		isShutdown = false;
+		subscribed = EnumSet.noneOf(Message.Type.class);
 
-		// if the executor runs out of threads, the calling thread to submit the tasks has to run them
-		// this essentially means the list of waiting messages can grow indefinitely, as the dispatching
-		// thread will have to process some of the messages itsself
-		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		newMessages = new Object();
+		sleepingWorkers = new AtomicInteger(0);
+		progress = new Object();
+		progressWaiters = new AtomicInteger(0);
 
-		tasks = new ArrayList<>(maxTasks);
 		this.io = io;
 	}
 
 	public void shutdown() {
-		synchronized (this) {
-			threadFactory.killThreads();
-			messages.clear();
-			synchronized (tasks) {
-				tasks.clear();
-			}
-
-			executor.shutdown();
-			try {
-				executor.awaitTermination(allowedProcessingTime, TimeUnit.MILLISECONDS);
-			} catch (InterruptedException e) {
-				executor.shutdownNow();
-			}
+		isShutdown = true;
+		for(ListenerWorker w : workers) {
+			w.running = false;
+		}
+		workers.clear();
+		synchronized (publishLock) {
+			overflow.clear();
+			overflowSize.set(0);
+			Arrays.fill(buffer, null);
+			cleared = published.get();
 		}
+		updateSubscribed();
+		threadFactory.killThreads();
+		wakeWorkers();
+		wakeProgressWaiters();
 	}
 
 	/**
-     * Register a listener to receive messages
+     * Register a listener to receive every type of message
+     * (the listener receives the messages sent after it was registered)
      * @param l the listener to send messages to
      */
     public void registerListener(SimulationListener l) {
-		listeners.add(l);
+		registerListener(l, EnumSet.allOf(Message.Type.class));
     }
 
+	/**
+	 * Register a listener to receive only some types of message
+	 * (the listener receives the messages sent after it was registered)
+	 * @param l the listener to send messages to
+	 * @param messageTypes the types of message the listener is interested in
+	 */
+	public void registerListener(SimulationListener l, EnumSet<Message.Type> messageTypes) {
+		if(isShutdown) {
+			return;
+		}
+		ListenerWorker w;
+		synchronized (publishLock) {
+			w = new ListenerWorker(l, EnumSet.copyOf(messageTypes), published.get());
+			workers.add(w);
+		}
+		updateSubscribed();
+		threadFactory.newThread(w).start();
+	}
+
     /**
      * Unregisters a listener from the list
      * @param l the listener to be removed
      */
     public void unregisterListener(SimulationListener l){
-		listeners.remove(l);
+		for(ListenerWorker w : workers) {
+			if(w.listener == l) {
+				removeWorker(w);
+				break;
+			}
+		}
     }
 
-	public void sendMessage(Message m) {
-		try {
-			noWaitingMessages.set(false);
-			messages.put(m);
-		} catch (InterruptedException ignored) {
+	/**
+	 * stop delivering messages to a listener, the buffer is no longer held back by
+	 * the messages it has not processed
+	 * @param w the worker for the listener
+	 */
+	private void removeWorker(ListenerWorker w) {
+		w.running = false;
+		if(!workers.remove(w)) {
+			return;
+		}
+		updateSubscribed();
+		synchronized (publishLock) {
+			drainOverflow();
+			clearConsumed();
+		}
+		wakeWorkers();
+		wakeProgressWaiters();
+	}
+
+	/**
+	 * @param type the type of message
+	 * @return whether any listener would receive a message of the given type
+	 */
+	public boolean isSubscribed(Message.Type type) {
+		return subscribed.contains(type);
+	}
+
+	private void updateSubscribed() {
+		synchronized (workers) {
+			EnumSet<Message.Type> union = EnumSet.noneOf(Message.Type.class);
+			for(ListenerWorker w : workers) {
+				union.addAll(w.messageTypes);
+			}
+			subscribed = union;
 		}
 	}
 
-	private class MessageTask implements Runnable {
-		public Message m;
-		Future<?> future;
+	/**
+	 * publish a message to all of the registered listeners. Sending may be done from
+	 * any thread but the messages are published one at a time. If the buffer is full
+	 * then the message is queued, and unless this is a listener thread, this blocks
+	 * until the slowest listener has made room for the queued messages (or that
+	 * listener is removed for taking too long).
+	 * @param m the message to send
+	 */
+	public void sendMessage(Message m) {
+		if(isShutdown) {
+			return;
+		}
 
-		MessageTask(Message m) {
-			this.m = m;
+		boolean queued;
+		synchronized (publishLock) {
+			if(overflow.isEmpty() && hasSpace()) {
+				publish(m);
+				queued = false;
+			} else {
+				overflow.add(m);
+				overflowSize.incrementAndGet();
+				// a listener may have made room just before the message was queued
+				// without seeing it, so try again now that the message is visible
+				drainOverflow();
+				queued = overflowSize.get() > 0;
+			}
 		}
 
+		if(sleepingWorkers.get() > 0) {
+			wakeWorkers();
+		}
 
-		@Override
-		public void run() {
-			try {
-				for (SimulationListener l : listeners) {
-					l.delegateMessage(m);
+		if(queued && !isListenerThread.get()) {
+			// each time the wait expires, the listener holding back the buffer is removed
+			// so this cannot wait for longer than allowedProcessingTime per listener
+			while(!isShutdown && !waitUntil(this::overflowDrained, allowedProcessingTime)) {
+				ListenerWorker slowest = slowestWorker();
+				warnSlowListener(slowest, "The listener will no longer receive messages.");
+				if(slowest != null) {
+					removeWorker(slowest);
 				}
-			} catch (Exception e) {
-				Simulizer.handleException(e);
 			}
 		}
 	}
 
 	/**
-	 * send messages to all of the registered listeners
+	 * @return whether the next message can be published without overwriting a message
+	 *         which a listener has not processed yet (must hold publishLock)
 	 */
-	private void processMessageQueue() {
-		for(;;) {
+	private boolean hasSpace() {
+		long mustHaveConsumed = published.get() + 1 - bufferSize; // the sequence number previously occupying the slot
+		return slowestConsumed() >= mustHaveConsumed;
+	}
 
-			Message m;
-			try {
-				m = messages.poll(10, TimeUnit.MILLISECONDS); // wait until one becomes available
-				if(executor.isShutdown())
-					return;
-				if(m == null)
-					continue;
-				synchronized (messages) {
-					messages.notifyAll();
-				}
-			} catch (InterruptedException ignored) {
-				return;
-			}
+	/**
+	 * put a message into the buffer (must hold publishLock and have checked hasSpace)
+	 */
+	private void publish(Message m) {
+		long next = published.get() + 1;
+		buffer[(int) next & bufferMask] = m;
+		published.set(next); // the volatile write makes the slot visible to the workers
+	}
 
-			synchronized (this) {
-				// make sure not to add tasks after shutdown
-				// to avoid java.util.concurrent.RejectedExecutionException
-				if (executor.isShutdown())
-					return;
-				synchronized (tasks) {
-					MessageTask t = new MessageTask(m);
-					t.future = executor.submit(t);
-					tasks.add(t);
-
-					if(messages.isEmpty()) {
-						synchronized (noWaitingMessages) {
-							noWaitingMessages.set(true);
-							noWaitingMessages.notifyAll();
-						}
-					}
+	/**
+	 * remove the messages which every listener has processed from the buffer so that
+	 * they can be garbage collected (must hold publishLock)
+	 */
+	private void clearConsumed() {
+		long upTo = slowestConsumed();
+		// slots which have been reused since the last clear hold newer messages
+		long from = Math.max(cleared + 1, published.get() - bufferSize + 1);
+		for(long s = from; s <= upTo; ++s) {
+			buffer[(int) s & bufferMask] = null;
+		}
+		cleared = Math.max(cleared, upTo);
+	}
 
-					if(tasks.size() > 50) {
-						tasks.removeIf((task) -> task.future.isDone());
-					}
-				}
-			}
+	/**
+	 * publish as many of the queued messages as there is room for (must hold publishLock)
+	 * @return whether any messages were published
+	 */
+	private boolean drainOverflow() {
+		boolean any = false;
+		while(!overflow.isEmpty() && hasSpace()) {
+			publish(overflow.remove());
+			overflowSize.decrementAndGet();
+			any = true;
 		}
+		return any;
 	}
 
+	/**
+	 * @return whether every queued message has been published
+	 */
+	private boolean overflowDrained() {
+		if(overflowSize.get() == 0) {
+			return true;
+		}
+		synchronized (publishLock) {
+			drainOverflow();
+		}
+		return overflowSize.get() == 0;
+	}
+
+	/**
+	 * block until all of the messages sent so far have been processed by every listener
+	 * (or until the listeners take too long, in which case a warning is printed)
+	 */
 	public void waitForAll() {
-		waitForAll(allowedProcessingTime);
+		if(!waitUntil(this::allConsumed, allowedProcessingTime)) {
+			warnSlowListener(slowestWorker(), "The simulation will continue without waiting.");
+		}
+	}
+
+	private boolean allConsumed() {
+		return overflowDrained() && slowestConsumed() >= published.get();
 	}
-	private void waitForAll(long timeoutTime) {
+
+	/**
+	 * @param condition the condition to wait for, checked whenever a listener makes progress
+	 * @param timeoutTime the maximum time to wait in milliseconds
+	 * @return whether the condition became true (false if the timeout expired)
+	 */
+	private boolean waitUntil(BooleanSupplier condition, long timeoutTime) {
+		// fast path: nothing to wait for
+		if(condition.getAsBoolean()) {
+			return true;
+		}
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutTime);
+		progressWaiters.incrementAndGet();
 		try {
-			synchronized (noWaitingMessages) {
-				while (!noWaitingMessages.get()) {
-					noWaitingMessages.wait(timeoutTime);
+			synchronized (progress) {
+				while (!condition.getAsBoolean() && !isShutdown) {
+					long remaining = deadline - System.nanoTime();
+					if(remaining <= 0) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(progress, remaining);
 				}
 			}
 		} catch (InterruptedException ignored) {
-			return;
+		} finally {
+			progressWaiters.decrementAndGet();
 		}
+		return true;
+	}
 
-		synchronized (tasks) {
-			for (MessageTask t : tasks) {
-				try {
-					if(!t.future.isDone()) {
-						t.future.get(timeoutTime, TimeUnit.MILLISECONDS);
-					}
-				} catch (InterruptedException e) {
-					return;
-				} catch (ExecutionException | TimeoutException e) {
-					io.printString(IOStream.ERROR, "" +
-							"A simulation message is taking too long to process.\n" +
-							"  The simulation will continue without waiting.\n" +
-							"  Detail: " + t.m + "\n"
-					);
-				}
+	/**
+	 * @return the sequence number of the last message processed by every listener
+	 */
+	private long slowestConsumed() {
+		long slowest = published.get();
+		for(ListenerWorker w : workers) {
+			slowest = Math.min(slowest, w.consumed);
+		}
+		return slowest;
+	}
+
+	/**
+	 * @return the worker which has processed the fewest messages (null if there are no workers)
+	 */
+	private ListenerWorker slowestWorker() {
+		ListenerWorker slowest = null;
+		for(ListenerWorker w : workers) {
+			if(slowest == null || w.consumed < slowest.consumed) {
+				slowest = w;
 			}
+		}
+		return slowest;
+	}
+
+	private void warnSlowListener(ListenerWorker slowest, String consequence) {
+		io.printString(IOStream.ERROR, "" +
+				"A simulation message is taking too long to process.\n" +
+				"  " + consequence + "\n" +
+				"  Detail: " + (slowest == null ? null : slowest.current) + "\n"
+		);
+	}
+
+	private void wakeWorkers() {
+		synchronized (newMessages) {
+			newMessages.notifyAll();
+		}
+	}
 
-			tasks.clear();
+	private void wakeProgressWaiters() {
+		synchronized (progress) {
+			progress.notifyAll();
 		}
 	}
 
+	/**
+	 * delivers the messages in the buffer to a single listener, in order
+	 */
+	private class ListenerWorker implements Runnable {
+		final SimulationListener listener;
+		final EnumSet<Message.Type> messageTypes; // the messages to deliver to the listener
+		volatile long consumed; // sequence number of the last message processed
+		volatile boolean running;
+		volatile Message current; // the message being processed (for reporting slow listeners)
+
+		ListenerWorker(SimulationListener listener, EnumSet<Message.Type> messageTypes, long consumed) {
+			this.listener = listener;
+			this.messageTypes = messageTypes;
+			this.consumed = consumed;
+			this.running = true;
+			this.current = null;
+		}
+
+		@Override
+		public void run() {
+			isListenerThread.set(true);
+			try {
+				deliver();
+			} finally {
+				// a worker which has stopped must not hold back the buffer
+				removeWorker(this);
+			}
+		}
+
+		private void deliver() {
+			while(running && !isShutdown) {
+				long available = published.get();
+
+				if(available > consumed) {
+					// process everything published so far as a single batch
+					for(long s = consumed + 1; s <= available && running; ++s) {
+						Message m = buffer[(int) s & bufferMask];
+						if(m == null) {
+							break; // cleared because this worker was removed
+						}
+						if(!messageTypes.contains(m.getType())) {
+							continue;
+						}
+						current = m;
+						try {
+							listener.delegateMessage(m);
+						} catch (Throwable e) {
+							// including errors (eg a stack overflow in an annotation)
+							Simulizer.handleException(e);
+						}
+					}
+					current = null;
+					consumed = available;
+
+					boolean drained;
+					synchronized (publishLock) {
+						drained = overflowSize.get() > 0 && drainOverflow();
+						clearConsumed();
+					}
+					if(drained) {
+						wakeWorkers();
+					}
+
+					if(progressWaiters.get() > 0) {
+						wakeProgressWaiters();
+					}
+				} else {
+					sleepingWorkers.incrementAndGet();
+					try {
+						synchronized (newMessages) {
+							// check again now that the publisher knows this thread may be sleeping
+							if(published.get() == consumed && running && !isShutdown) {
+								newMessages.wait();
+							}
+						}
+					} catch (InterruptedException e) {
+						return;
+					} finally {
+						sleepingWorkers.decrementAndGet();
+					}
+				}
+			}
+		}
+	}
 }
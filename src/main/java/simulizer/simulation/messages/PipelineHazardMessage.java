@@ -53,4 +53,8 @@ public class PipelineHazardMessage extends Message {
 		return this.hazard;
 	}
 
+	@Override
+	public Type getType() {
+		return Type.PipelineHazard;
+	}
 }
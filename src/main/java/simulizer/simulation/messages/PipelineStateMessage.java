@@ -50,4 +50,8 @@ public class PipelineStateMessage extends Message{
 		return this.executed;
 	}
 
+	@Override
+	public Type getType() {
+		return Type.PipelineState;
+	}
 }
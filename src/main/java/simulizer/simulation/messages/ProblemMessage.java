@@ -10,4 +10,9 @@ public class ProblemMessage extends Message {
     public ProblemMessage(Exception e) {
         this.e = e;
     }
+
+    @Override
+    public Type getType() {
+        return Type.Problem;
+    }
 }
@@ -9,24 +9,17 @@ public abstract class SimulationListener {
     void delegateMessage(Message m) {
         processMessage(m);
 
-        if (m instanceof AnnotationMessage) {
-            processAnnotationMessage((AnnotationMessage) m);
-        } else if (m instanceof DataMovementMessage) {
-            processDataMovementMessage((DataMovementMessage) m);
-        } else if (m instanceof InstructionTypeMessage) {
-            processInstructionTypeMessage((InstructionTypeMessage) m);
-        } else if (m instanceof PipelineHazardMessage) {
-            processPipelineHazardMessage((PipelineHazardMessage) m);
-        } else if (m instanceof PipelineStateMessage) {
-            processPipelineStateMessage((PipelineStateMessage) m);
-        } else if (m instanceof ProblemMessage) {
-            processProblemMessage((ProblemMessage) m);
-        } else if (m instanceof RegisterChangedMessage) {
-            processRegisterChangedMessage((RegisterChangedMessage) m);
-        } else if (m instanceof SimulationMessage) {
-            processSimulationMessage((SimulationMessage) m);
-        } else if (m instanceof StageEnterMessage) {
-            processStageEnterMessage((StageEnterMessage) m);
+        switch (m.getType()) {
+            case Annotation:      processAnnotationMessage((AnnotationMessage) m); break;
+            case DataMovement:    processDataMovementMessage((DataMovementMessage) m); break;
+            case InstructionType: processInstructionTypeMessage((InstructionTypeMessage) m); break;
+            case PipelineHazard:  processPipelineHazardMessage((PipelineHazardMessage) m); break;
+            case PipelineState:   processPipelineStateMessage((PipelineStateMessage) m); break;
+            case Problem:         processProblemMessage((ProblemMessage) m); break;
+            case RegisterChanged: processRegisterChangedMessage((RegisterChangedMessage) m); break;
+            case Simulation:      processSimulationMessage((SimulationMessage) m); break;
+            case StageEnter:      processStageEnterMessage((StageEnterMessage) m); break;
+            default: break;
         }
     }
 
@@ -1,6 +1,7 @@
 package simulizer.ui;
 
 import java.io.IOException;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -17,7 +18,7 @@ import javafx.stage.Stage;
 import simulizer.BuildInfo;
 import simulizer.GuiMode;
 import simulizer.annotations.AnnotationManager;
-import simulizer.assembler.Assembler;
+import simulizer.assembler.ProgramCache;
 import simulizer.assembler.extractor.problem.StoreProblemLogger;
 import simulizer.assembler.representation.Program;
 import simulizer.highlevel.models.HLVisualManager;
@@ -26,6 +27,7 @@ import simulizer.simulation.cpu.CPUChangedListener;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.simulation.cpu.components.CPUPipeline;
 import simulizer.simulation.cpu.user_interaction.LoggerIO;
+import simulizer.simulation.messages.Message;
 import simulizer.ui.components.AssemblingDialog;
 import simulizer.ui.components.CurrentFile;
 import simulizer.ui.components.MainMenuBar;
@@ -95,7 +97,7 @@ public class WindowManager extends GridPane {
 			primaryStage.setFullScreen(true);
 
 		// Creates CPU Simulation
-		io = new LoggerIO(workspace);
+		io = new LoggerIO(workspace, (int) settings.get("logger.scrollback"));
 		newCPU(GuiMode.args.pipelined || (boolean) settings.get("simulation.pipelined"));
 
 		// Set the theme
@@ -241,32 +243,26 @@ public class WindowManager extends GridPane {
 			final StoreProblemLogger log = new StoreProblemLogger();
 
 			try {
-				final Program cachedP = CurrentFile.getCachedAssembledProgram(programText);
-
-				if (cachedP == null) { // no cached version available
-					final Program p = Assembler.assemble(programText, log, false);
-
-					// doing as little as possible in the FX thread
-					// open the editor and set problems if program has problems or if the editor is already open.
-					// Leave the editor closed if it is closed and there are no problems
-					if (p == null || Editor.getEditor() != null) {
-						getWorkspace().openEditorWithCallback((editor2) -> {
-							// if no problems, has the effect of clearing
-							editor2.setProblems(log.getProblems());
-							if (p == null) {
-								int size = log.getProblems().size();
-								UIUtils.showErrorDialog("Could Not Run", "The Program Contains " + (size == 1 ? "An Error!" : size + " Errors!"), "You must fix them before you can\nexecute the program.");
-								AssemblingDialog.closeAssemblingDialog();
-							}
-						});
-					}
+				// the problems are passed to the log even if the program was assembled previously
+				final Program p = ProgramCache.getDefault().assemble(programText, log, false);
+
+				// doing as little as possible in the FX thread
+				// open the editor and set problems if program has problems or if the editor is already open.
+				// Leave the editor closed if it is closed and there are no problems
+				if (p == null || Editor.getEditor() != null) {
+					getWorkspace().openEditorWithCallback((editor2) -> {
+						// if no problems, has the effect of clearing
+						editor2.setProblems(log.getProblems());
+						if (p == null) {
+							int size = log.getProblems().size();
+							UIUtils.showErrorDialog("Could Not Run", "The Program Contains " + (size == 1 ? "An Error!" : size + " Errors!"), "You must fix them before you can\nexecute the program.");
+							AssemblingDialog.closeAssemblingDialog();
+						}
+					});
+				}
 
-					if (p != null) {
-						CurrentFile.submitAssembledProgramToCache(programText, p);
-						runProgram(p); // spawns another thread
-					}
-				} else {
-					runProgram(cachedP); // spawns another thread
+				if (p != null) {
+					runProgram(p); // spawns another thread
 				}
 			} finally {
 				Platform.runLater(() -> primaryStage.setTitle("Simulizer (" + BuildInfo.getInstance().VERSION_STRING + ")"));
@@ -362,7 +358,8 @@ public class WindowManager extends GridPane {
 		} else {
 			cpu = new CPU(io);
 		}
-		cpu.registerListener(simListener);
+		cpu.registerListener(simListener, EnumSet.of(Message.Type.Simulation, Message.Type.Annotation,
+				Message.Type.PipelineState, Message.Type.Problem, Message.Type.PipelineHazard));
 		if (oldCycleFreq < 0) {
 			cpu.setCycleFreq((Double) settings.get("simulation.default-CPU-frequency"));
 		} else {
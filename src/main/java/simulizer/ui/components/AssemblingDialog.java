@@ -1,5 +1,6 @@
 package simulizer.ui.components;
 
+import java.util.EnumSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -8,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 import javafx.application.Platform;
 import javafx.scene.Cursor;
 import javafx.scene.control.Alert;
+import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.SimulationListener;
 import simulizer.simulation.messages.SimulationMessage;
 import simulizer.ui.WindowManager;
@@ -70,7 +72,7 @@ public class AssemblingDialog extends Alert {
 			getDialogPane().setCursor(Cursor.WAIT);
 		});
 
-		wm.getCPU().registerListener(new AssemblingFinishedListener());
+		wm.getCPU().registerListener(new AssemblingFinishedListener(), EnumSet.of(Message.Type.Simulation));
 
 		executor = Executors.newSingleThreadScheduledExecutor(new ThreadUtils.NamedThreadFactory("Assembling-Dialog"));
 		updateTask = executor.scheduleAtFixedRate(() -> Platform.runLater(() -> setContentText(getNext(getContentText()))), 0, 500,
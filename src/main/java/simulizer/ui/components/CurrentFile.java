@@ -4,9 +4,8 @@ import javafx.application.Platform;
 import javafx.scene.control.ButtonType;
 import javafx.stage.FileChooser;
 import simulizer.GuiMode;
-import simulizer.assembler.Assembler;
+import simulizer.assembler.IncrementalChecker;
 import simulizer.assembler.extractor.problem.Problem;
-import simulizer.assembler.representation.Program;
 import simulizer.ui.windows.Editor;
 import simulizer.utils.FileUtils;
 import simulizer.utils.ThreadUtils;
@@ -14,11 +13,13 @@ import simulizer.utils.UIUtils;
 
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 
@@ -53,32 +54,6 @@ public class CurrentFile {
 		return defaultDirectory;
 	}
 
-	/**
-	 * Immutable structure to hold the results of continuous assembly.
-	 * Because of this the information will always be consistent (the hash always refers to that program)
-	 */
-	private static class AssembledProgram {
-		/**
-		 * the hash of the file content at the time of assembling
-		 */
-		private int hash;
-		/**
-		 * The assembled program. null => has errors
-		 */
-		private Program program;
-
-		AssembledProgram(int hash, Program program) {
-			this.hash = hash;
-			this.program = program;
-		}
-		public int getHash() {
-			return hash;
-		}
-		public Program getProgram() {
-			return program;
-		}
-	}
-
 	private static boolean continuousCheckingEnabled = false;
 	private static final AtomicBoolean checkInProgress = new AtomicBoolean(false);
 	private static final ScheduledExecutorService continuousChecking =
@@ -86,22 +61,15 @@ public class CurrentFile {
 	private static ScheduledFuture<?> checkTask = null;
     private static int checkedProgramHash = 0;
 	/**
-	 * if a program is assembled then it is cached here so as not to waste time assembling again
+	 * only re-parses the lines which have been edited since the last check
 	 */
-	private static AssembledProgram assembledProgram = null;
-
-
+	private static final IncrementalChecker checker = new IncrementalChecker();
+	/**
+	 * incremented whenever the text in the editor changes, so that a check of an
+	 * older version of the text can be abandoned
+	 */
+	private static final AtomicInteger editCount = new AtomicInteger(0);
 
-	public static Program getCachedAssembledProgram(String text) {
-		if(assembledProgram != null && text.hashCode() == assembledProgram.getHash()) {
-			return assembledProgram.getProgram();
-		} else {
-			return null;
-		}
-	}
-	public static void submitAssembledProgramToCache(String programText, Program p) {
-		assembledProgram = new AssembledProgram(programText.hashCode(), p);
-	}
 
 
 	private static void tryGetEditor(Consumer<Editor> ifSuccessful, boolean wait) {
@@ -339,9 +307,18 @@ public class CurrentFile {
 		return checkInProgress.get();
 	}
 
+	/**
+	 * called when the text in the editor changes. Cancels any check in progress
+	 * since the result would already be out of date
+	 */
+	public static void notifyEdited() {
+		editCount.incrementAndGet();
+	}
+
 	private static void startContinuousChecking() {
 		if(checkTask != null) {
-			checkTask.cancel(false); // wait to finish
+			checkTask.cancel(false); // let the current run finish
+			notifyEdited(); // but abandon any check in progress
 		}
 
         continuousCheckingEnabled           = (boolean) GuiMode.settings.get("editor.continuous-assembly");
@@ -355,6 +332,7 @@ public class CurrentFile {
 					return;
 
 				try {
+					final int editsBeforeCheck = editCount.get();
 					String program = getCurrentText();
 					if(program == null || program.length() == 0) return;
 					int thisProgramHash = program.hashCode();
@@ -367,10 +345,12 @@ public class CurrentFile {
 							tryGetEditor(Editor::refreshTitle, false);
 
 							//DebugUtils.Timer t = new DebugUtils.Timer("Continuous Assembly");
-							final List<Problem> problems = Assembler.checkForProblems(program);
+							final List<Problem> problems = checker.checkForProblems(program, () -> editCount.get() != editsBeforeCheck);
 							tryGetEditor((editor) -> editor.setProblems(problems), false);
                             checkedProgramHash = thisProgramHash;
 							//t.stopAndPrint();
+						} catch (CancellationException e) {
+							// edited during the check, the newer text is checked next time
 						} finally {
 							checkInProgress.set(false);
 						}
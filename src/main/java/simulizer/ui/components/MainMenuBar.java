@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import javafx.application.Platform;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
@@ -17,7 +18,9 @@ import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Stage;
 import simulizer.BuildInfo;
 import simulizer.assembler.Assembler;
+import simulizer.assembler.ProgramCache;
 import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.ProgramSerializer;
 import simulizer.assembler.representation.ProgramStringBuilder;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.ui.WindowManager;
@@ -114,6 +117,10 @@ public class MainMenuBar extends MenuBar {
 				CurrentFile.promptSaveAs();
 		});
 
+		// | |-- Save Assembled
+		MenuItem saveAssembledItem = new MenuItem("Save Assembled Program...");
+		saveAssembledItem.setOnAction(e -> saveAssembledProgram());
+
 		// | |-- Re-load
 		MenuItem reloadItem = new MenuItem("Reload");
 		reloadItem.setDisable(allowDisabling && wm.getCPU().isRunning());
@@ -131,7 +138,40 @@ public class MainMenuBar extends MenuBar {
 		MenuItem exitItem = new MenuItem("Exit");
 		exitItem.setOnAction(e -> wm.shutdown());
 
-		fileMenu.getItems().addAll(newItem, loadItem, saveItem, saveAsItem, reloadItem, optionsItem, exitItem);
+		fileMenu.getItems().addAll(newItem, loadItem, saveItem, saveAsItem, saveAssembledItem, reloadItem, optionsItem, exitItem);
+	}
+
+	/**
+	 * assemble the current program and save it so that it can be run without assembling (cmd --precompiled)
+	 */
+	private void saveAssembledProgram() {
+		final String programText = CurrentFile.getCurrentText();
+
+		// avoid lots of work on the JavaFX thread, only the dialogs are shown from it
+		Thread assembleThread = new Thread(() -> {
+			final Program p = ProgramCache.getDefault().assemble(programText, null, false);
+			Platform.runLater(() -> {
+				if (p == null) {
+					UIUtils.showErrorDialog("Could Not Save", "The Program Contains Errors", "You must fix them before you can\nsave the assembled program.");
+					return;
+				}
+
+				File f = UIUtils.saveFileSelector("Save the assembled program", wm.getPrimaryStage(), CurrentFile.getDefaultDirectory(), new ExtensionFilter("Assembled programs *.simpc", "*.simpc"));
+				if (f != null) {
+					final File file = f.getName().endsWith(".simpc") ? f : new File(f.getAbsolutePath() + ".simpc");
+					Thread saveThread = new Thread(() -> {
+						try {
+							ProgramSerializer.write(p, file);
+						} catch (IOException ex) {
+							Platform.runLater(() -> UIUtils.showExceptionDialog(ex));
+						}
+					}, "Save-Assembled");
+					saveThread.start();
+				}
+			});
+		}, "Assemble");
+		assembleThread.setDaemon(true);
+		assembleThread.start();
 	}
 
 	private Menu editMenu() {
@@ -1,5 +1,6 @@
 package simulizer.ui.components;
 
+import java.util.EnumSet;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.geometry.Pos;
@@ -8,6 +9,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import simulizer.simulation.cpu.CPUChangedListener;
 import simulizer.simulation.cpu.components.Clock;
+import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.SimulationListener;
 import simulizer.simulation.messages.SimulationMessage;
 import simulizer.ui.WindowManager;
@@ -39,7 +41,7 @@ class MenuBarControls {
 	private class ButtonCPUChangedListener implements CPUChangedListener {
 		@Override public void cpuChanged(simulizer.simulation.cpu.components.CPU newCPU) {
 			cpu = newCPU;
-			cpu.registerListener(listener);
+			cpu.registerListener(listener, EnumSet.of(Message.Type.Simulation));
 		}
 	}
 
@@ -78,7 +80,7 @@ class MenuBarControls {
 		listener = new ButtonCPUListener();
 		ButtonCPUChangedListener changedListener = new ButtonCPUChangedListener();
 		wm.addCPUChangedListener(changedListener);
-		cpu.registerListener(listener);
+		cpu.registerListener(listener, EnumSet.of(Message.Type.Simulation));
 
 		invisible = new ImageView(new Image(FileUtils.getResourcePath("/img/invisible.png")));
 
@@ -0,0 +1,148 @@
+package simulizer.ui.components;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import com.google.gson.Gson;
+
+import simulizer.assembler.extractor.problem.Problem;
+
+/**
+ * Keeps track of the problems shown in the editor so that only the problems
+ * which have changed since the last check are sent to the editor, and splits the
+ * changes into batches so that no single frame has to send too many.
+ *
+ * Passing objects to the javascript of the editor is slow (every field access
+ * goes through the bridge), so the batches are sent as a single JSON string.
+ * The last batch of the changes is marked so that the editor can refresh the
+ * annotations in the gutter once rather than after every batch.
+ *
+ * Not thread safe, should only be used from the JavaFX thread.
+ *
+ * @author mbway
+ */
+public class ProblemUpdates {
+    private static final Gson gson = new Gson();
+
+    /**
+     * a problem as sent to the editor
+     */
+    @SuppressWarnings("unused") // serialised by Gson
+    private static class ShownProblem {
+        final int id;
+        final String message;
+        final int lineNum;
+        final int rangeStart;
+        final int rangeEnd;
+
+        ShownProblem(int id, Problem p) {
+            this.id = id;
+            this.message = p.message;
+            this.lineNum = p.lineNum;
+            this.rangeStart = p.rangeStart;
+            this.rangeEnd = p.rangeEnd;
+        }
+    }
+
+    /**
+     * the changes to send to the editor in one go
+     */
+    @SuppressWarnings("unused") // serialised by Gson
+    private static class Batch {
+        final List<Integer> removed = new ArrayList<>();
+        final List<ShownProblem> added = new ArrayList<>();
+        boolean last; // whether there are no more changes after this batch
+    }
+
+    /**
+     * the problems which the editor has been sent, by description
+     */
+    private final Map<String, Integer> sent;
+    private final Queue<String> pendingRemoved;
+    private final Queue<Problem> pendingAdded;
+    private boolean refreshPending;
+    private int nextID;
+
+    public ProblemUpdates() {
+        sent = new HashMap<>();
+        pendingRemoved = new ArrayDeque<>();
+        pendingAdded = new ArrayDeque<>();
+        refreshPending = false;
+        nextID = 0;
+    }
+
+    private static String describe(Problem p) {
+        // does not include the severity since it does not affect how the problem is shown
+        return p.toString();
+    }
+
+    /**
+     * Replace the problems which should be shown. Any changes which are still
+     * waiting to be sent for the previous problems are discarded.
+     * At least one batch is sent afterwards, even if nothing has changed, so that
+     * the editor can put back any markers removed while the program was being edited
+     * @param problems the problems with the current program
+     */
+    public void setProblems(List<Problem> problems) {
+        pendingRemoved.clear();
+        pendingAdded.clear();
+        refreshPending = true;
+
+        Set<String> current = new HashSet<>();
+        for(Problem p : problems) {
+            String d = describe(p);
+            if(current.add(d) && !sent.containsKey(d)) {
+                pendingAdded.add(p);
+            }
+        }
+        for(String d : sent.keySet()) {
+            if(!current.contains(d)) {
+                pendingRemoved.add(d);
+            }
+        }
+    }
+
+    /**
+     * @return whether there are changes which have not been sent yet
+     */
+    public boolean hasPending() {
+        return refreshPending || !pendingRemoved.isEmpty() || !pendingAdded.isEmpty();
+    }
+
+    /**
+     * take the next batch of changes, which are assumed to be sent to the editor
+     * @param maxProblems the maximum number of problems to add or remove in the batch
+     * @return the batch as JSON: {"removed": [id...], "added": [{id, message, lineNum, rangeStart, rangeEnd}...], "last": bool}
+     */
+    public String nextBatch(int maxProblems) {
+        Batch batch = new Batch();
+        int count = 0;
+        while(count < maxProblems && !pendingRemoved.isEmpty()) {
+            batch.removed.add(sent.remove(pendingRemoved.remove()));
+            ++count;
+        }
+        while(count < maxProblems && !pendingAdded.isEmpty()) {
+            Problem p = pendingAdded.remove();
+            int id = nextID++;
+            sent.put(describe(p), id);
+            batch.added.add(new ShownProblem(id, p));
+            ++count;
+        }
+        refreshPending = false;
+        batch.last = !hasPending();
+        return gson.toJson(batch);
+    }
+
+    /**
+     * @return the number of problems which have been sent (and not removed)
+     */
+    public int getShownCount() {
+        return sent.size();
+    }
+}
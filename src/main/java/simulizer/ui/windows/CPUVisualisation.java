@@ -1,8 +1,11 @@
 package simulizer.ui.windows;
 
+import java.util.EnumSet;
+
 import javafx.scene.CacheHint;
 import javafx.scene.Node;
 import javafx.scene.layout.Pane;
+import simulizer.simulation.messages.Message;
 import simulizer.ui.components.CPU;
 import simulizer.ui.components.cpu.listeners.CPUChangedListener;
 import simulizer.ui.components.cpu.listeners.CPUListener;
@@ -190,6 +193,6 @@ public class CPUVisualisation extends InternalWindow {
 	public void attachCPU(simulizer.simulation.cpu.components.CPU simCpu) {
 		cpuListener = new CPUListener(cpu, simCpu, cpu.animationProcessor);
 		cpu.animationProcessor.setCpuListener(cpuListener);
-		simCpu.registerListener(cpuListener);
+		simCpu.registerListener(cpuListener, EnumSet.of(Message.Type.DataMovement, Message.Type.StageEnter));
 	}
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
+import javafx.animation.AnimationTimer;
 import javafx.concurrent.Task;
 import org.w3c.dom.Document;
 
@@ -28,6 +29,7 @@ import simulizer.settings.Settings;
 import simulizer.simulation.cpu.components.Breakpoints;
 import simulizer.ui.WindowManager;
 import simulizer.ui.components.CurrentFile;
+import simulizer.ui.components.ProblemUpdates;
 import simulizer.ui.interfaces.InternalWindow;
 import simulizer.ui.interfaces.WindowEnum;
 import simulizer.ui.theme.Theme;
@@ -50,6 +52,14 @@ public class Editor extends InternalWindow {
 
 	private volatile boolean contentIsModified; // changes have been made in the editor since loading
 
+	/**
+	 * the maximum number of problems to add to or remove from the editor each frame,
+	 * so that a large number of problems does not stall the UI
+	 */
+	private static final int maxProblemsPerFrame = 200;
+	private final ProblemUpdates problemUpdates;
+	private final AnimationTimer problemFlush;
+
 	// handle key combos for copy and paste
 	final static private KeyCombination C_c = new KeyCodeCombination(KeyCode.C, KeyCombination.CONTROL_DOWN);
 	final static private KeyCombination C_x = new KeyCodeCombination(KeyCode.X, KeyCombination.CONTROL_DOWN);
@@ -95,6 +105,7 @@ public class Editor extends InternalWindow {
 		}
 
 		public void onChange() {
+			CurrentFile.notifyEdited();
 			if(!editor.contentIsModified) {
 				editor.setEdited(true);
 			}
@@ -134,6 +145,18 @@ public class Editor extends InternalWindow {
 		pageLoaded = false;
 		bridge = new Bridge(this);
 
+		problemUpdates = new ProblemUpdates();
+		problemFlush = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				if(problemUpdates.hasPending()) {
+					jsWindow.call("updateProblems", problemUpdates.nextBatch(maxProblemsPerFrame));
+				} else {
+					stop();
+				}
+			}
+		};
+
 		engine = view.getEngine();
 		engine.setJavaScriptEnabled(true);
 
@@ -319,6 +342,7 @@ public class Editor extends InternalWindow {
 
 		if(!cancelled) {
 			editor = null;
+			problemFlush.stop();
 
 			super.close();
 		}
@@ -375,8 +399,15 @@ public class Editor extends InternalWindow {
 		engine.executeScript(sb.toString());
 	}
 
+	/**
+	 * Show the problems with the program in the editor. Only the changes since
+	 * the last call are sent to the editor, spread over several frames if
+	 * there are many of them.
+	 * @warning must be called from a JavaFX thread
+	 */
 	public void setProblems(List<Problem> problems) {
-		jsWindow.call("refreshProblems", problems);
+		problemUpdates.setProblems(problems);
+		problemFlush.start();
 	}
 
 
@@ -1,41 +1,54 @@
 package simulizer.ui.windows;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.scene.Cursor;
 import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
-import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
-import javafx.scene.text.Font;
+import simulizer.simulation.cpu.user_interaction.ConsoleLog;
 import simulizer.simulation.cpu.user_interaction.IOStream;
 import simulizer.ui.interfaces.InternalWindow;
 import simulizer.utils.FileUtils;
-import simulizer.utils.ThreadUtils;
 import simulizer.utils.UIUtils;
 
 /**
  * Provides Input/Output for SIMP programs and output for javascript debug/error messages
  * 
+ * The output is displayed one line per list cell so that only the visible lines are
+ * rendered. At most once per frame the lines added since the last frame are fetched
+ * from the log and appended, so printing costs the same however long the log is.
+ * Several lines can be selected (with shift or ctrl) and copied with ctrl+c or the
+ * context menu.
+ * 
  * @author Michael
  *
  */
 public class Logger extends InternalWindow implements Observer {
-	private ScheduledExecutorService flush = Executors.newSingleThreadScheduledExecutor(new ThreadUtils.NamedThreadFactory("Logger"));
-	private static final long BUFFER_TIME = 20; // milliseconds
+	private final AnimationTimer flush;
 	private volatile boolean callUpdate = true;
 
 	private TextField input = new TextField();
@@ -47,14 +60,25 @@ public class Logger extends InternalWindow implements Observer {
 
 	private TabPane tabPane;
 	private boolean[] ioChanged;
-	private TextArea[] outputs;
+	private List<ListView<String>> outputs;
+	// the state of the log when each output was last updated
+	private int[] shownGeneration;
+	private long[] shownFirstLine;
+	private long[] shownEndLine;
+	private int[] shownPartialLength;
+
+	private static final KeyCombination copyKeys = new KeyCodeCombination(KeyCode.C, KeyCombination.SHORTCUT_DOWN);
 
 	private boolean emphasise = true;
 	private final ImageView notifyIcon = new ImageView(new Image(FileUtils.getResourcePath("/img/notify.png")));
 
 	public Logger() {
 		ioChanged = new boolean[IOStream.values().length];
-		outputs = new TextArea[IOStream.values().length];
+		outputs = new ArrayList<>(IOStream.values().length);
+		shownGeneration = new int[IOStream.values().length];
+		shownFirstLine = new long[IOStream.values().length];
+		shownEndLine = new long[IOStream.values().length];
+		shownPartialLength = new int[IOStream.values().length];
 		GridPane pane = new GridPane();
 
 		inputWait = new Semaphore(0, true);
@@ -66,14 +90,25 @@ public class Logger extends InternalWindow implements Observer {
 			tab.setText(IOStream.values()[i].toString());
 			tab.setClosable(false);
 
-			TextArea output = new TextArea();
-			output.setEditable(false);
-			output.textProperty().addListener((e) -> output.setScrollTop(Double.MAX_VALUE));
-			output.setOnMouseClicked((e) -> input.requestFocus());
+			ListView<String> output = new ListView<>();
+			output.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+			output.setOnMouseClicked((e) -> {
+				// leave the focus on the output while selecting lines to copy
+				if (e.getButton() == MouseButton.PRIMARY && !e.isShiftDown() && !e.isShortcutDown())
+					input.requestFocus();
+			});
+			output.addEventHandler(KeyEvent.KEY_PRESSED, (e) -> {
+				if (copyKeys.match(e)) {
+					copySelection(output);
+					e.consume();
+				}
+			});
+			output.setContextMenu(createContextMenu(output));
 			tab.setContent(output);
 
 			ioChanged[i] = false;
-			outputs[i] = output;
+			shownGeneration[i] = -1; // nothing shown yet
+			outputs.add(output);
 
 			tabPane.getTabs().add(tab);
 		}
@@ -111,6 +146,97 @@ public class Logger extends InternalWindow implements Observer {
 		submit.getStyleClass().add("logger-submit");
 
 		getContentPane().getChildren().add(pane);
+
+		flush = new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				if (callUpdate) {
+					synchronized (ioChanged) {
+						callUpdate = false;
+						for (IOStream i : IOStream.values())
+							updateOutput(i);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Append the lines printed since the output was last updated
+	 * 
+	 * @param stream
+	 *            the stream to update the output of
+	 */
+	private void updateOutput(IOStream stream) {
+		int i = stream.getID();
+		ListView<String> output = outputs.get(i);
+		ObservableList<String> lines = output.getItems();
+		ConsoleLog.Delta d = getWindowManager().getIO().getConsoleLog(stream).changesSince(shownGeneration[i], shownEndLine[i], shownPartialLength[i]);
+
+		String partialLine;
+		if (d.generation != shownGeneration[i]) {
+			lines.clear();
+			partialLine = d.partialText;
+		} else {
+			if (d.newLines.isEmpty() && d.partialText.isEmpty()) {
+				ioChanged[i] = false;
+				return; // nothing new
+			}
+			String shownPartialLine = lines.remove(lines.size() - 1); // the partial line is replaced
+			partialLine = d.partialStart == 0 ? d.partialText : shownPartialLine + d.partialText;
+
+			// lines which have been evicted from the scrollback
+			long evicted = d.firstLine - shownFirstLine[i];
+			if (evicted > 0)
+				lines.remove(0, (int) Math.min(evicted, lines.size()));
+		}
+		lines.addAll(d.newLines);
+		lines.add(partialLine);
+
+		shownGeneration[i] = d.generation;
+		shownFirstLine[i] = d.firstLine;
+		shownEndLine[i] = d.endLine;
+		shownPartialLength[i] = d.partialLength;
+
+		output.scrollTo(lines.size() - 1);
+
+		Tab t = tabPane.getTabs().get(i);
+		boolean empty = d.endLine == d.firstLine && d.partialLength == 0;
+		if (!t.isSelected() && ioChanged[i] && !empty)
+			t.setGraphic(notifyIcon);
+		ioChanged[i] = false;
+	}
+
+	private ContextMenu createContextMenu(ListView<String> output) {
+		MenuItem copy = new MenuItem("Copy");
+		copy.setAccelerator(copyKeys);
+		copy.setOnAction((e) -> copySelection(output));
+
+		MenuItem selectAll = new MenuItem("Select All");
+		selectAll.setOnAction((e) -> output.getSelectionModel().selectAll());
+
+		return new ContextMenu(copy, selectAll);
+	}
+
+	/**
+	 * Copy the selected lines of an output to the clipboard
+	 */
+	private void copySelection(ListView<String> output) {
+		List<Integer> selected = new ArrayList<>(output.getSelectionModel().getSelectedIndices());
+		if (selected.isEmpty())
+			return;
+		selected.sort(null); // in the order shown rather than the order selected
+
+		ObservableList<String> lines = output.getItems();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < selected.size(); i++) {
+			if (i > 0)
+				sb.append('\n');
+			sb.append(lines.get(selected.get(i)));
+		}
+		ClipboardContent content = new ClipboardContent();
+		content.putString(sb.toString());
+		Clipboard.getSystemClipboard().setContent(content);
 	}
 
 	private void submitText() {
@@ -144,24 +270,11 @@ public class Logger extends InternalWindow implements Observer {
 		emphasise = (boolean) getWindowManager().getSettings().get("logger.emphasise");
 		int fontSize = (int) getWindowManager().getSettings().get("logger.font-size");
 
-		flush.scheduleAtFixedRate(() -> {
-			if (callUpdate) {
-				Platform.runLater(() -> {
-					synchronized (ioChanged) {
-						callUpdate = false;
-						for (IOStream i : IOStream.values()) {
-							String log = getWindowManager().getIO().getLog(i);
-							Tab t = tabPane.getTabs().get(i.getID());
-							if (!t.isSelected() && ioChanged[i.getID()] && !log.equals(""))
-								t.setGraphic(notifyIcon);
-							outputs[i.getID()].setText(log);
-							outputs[i.getID()].setFont(new Font(fontSize));
-							ioChanged[i.getID()] = false;
-						}
-					}
-				});
-			}
-		}, 0, BUFFER_TIME, TimeUnit.MILLISECONDS);
+		for (ListView<String> output : outputs)
+			output.setStyle("-fx-font-size: " + fontSize + ";");
+
+		callUpdate = true;
+		flush.start();
 
 		super.ready();
 	}
@@ -170,7 +283,7 @@ public class Logger extends InternalWindow implements Observer {
 	public void close() {
 		super.close();
 		getWindowManager().getIO().deleteObserver(this);
-		flush.shutdown();
+		flush.stop();
 	}
 
 	/**
@@ -178,10 +291,12 @@ public class Logger extends InternalWindow implements Observer {
 	 */
 	public void clear() {
 		lastInput = "";
-		for (TextArea output : outputs)
-			output.setText("");
-		for (int i = 0; i < ioChanged.length; i++)
+		for (ListView<String> output : outputs)
+			output.getItems().clear();
+		for (int i = 0; i < ioChanged.length; i++) {
 			ioChanged[i] = false;
+			shownGeneration[i] = -1; // refresh from the log on the next update
+		}
 	}
 
 	/**
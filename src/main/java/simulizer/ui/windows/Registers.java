@@ -1,6 +1,7 @@
 package simulizer.ui.windows;
 
 import java.nio.ByteBuffer;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Timer;
@@ -21,6 +22,7 @@ import simulizer.assembler.representation.Register;
 import simulizer.simulation.cpu.CPUChangedListener;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.simulation.data.representation.DataConverter;
+import simulizer.simulation.messages.Message;
 import simulizer.simulation.messages.PipelineStateMessage;
 import simulizer.simulation.messages.RegisterChangedMessage;
 import simulizer.simulation.messages.SimulationListener;
@@ -99,7 +101,7 @@ public class Registers extends InternalWindow implements CPUChangedListener {
 		// Add Listeners
 		getWindowManager().addCPUChangedListener(this);
 		cpu = getWindowManager().getCPU();
-		cpu.registerListener(listener);
+		cpu.registerListener(listener, EnumSet.of(Message.Type.RegisterChanged, Message.Type.PipelineState));
 
 		// Create Name column
 		TableColumn<Data, String> registerName = new TableColumn<>("Name");
@@ -282,7 +284,7 @@ public class Registers extends InternalWindow implements CPUChangedListener {
 			cpu.unregisterListener(listener);
 		this.cpu = cpu;
 		if (cpu != null)
-			cpu.registerListener(listener);
+			cpu.registerListener(listener, EnumSet.of(Message.Type.RegisterChanged, Message.Type.PipelineState));
 	}
 
 	/**
@@ -1,6 +1,6 @@
 package simulizer.utils.runner;
 
-import simulizer.assembler.Assembler;
+import simulizer.assembler.ProgramCache;
 import simulizer.assembler.extractor.problem.StoreProblemLogger;
 import simulizer.assembler.representation.Program;
 import simulizer.simulation.cpu.components.CPU;
@@ -18,7 +18,21 @@ public class SimulizerRunner {
 	public CPU cpu;
 	public BufferIO io;
 
+	/**
+	 * programs are assembled once and shared between runners
+	 */
+	private final ProgramCache programCache;
+
 	public SimulizerRunner(boolean pipelined) {
+		this(pipelined, ProgramCache.getDefault());
+	}
+
+	/**
+	 * @param pipelined whether to use a pipelined CPU
+	 * @param programCache where to find programs which have been assembled before
+	 */
+	public SimulizerRunner(boolean pipelined, ProgramCache programCache) {
+		this.programCache = programCache;
 		problemLogger = new StoreProblemLogger();
 		io = new BufferIO();
 		cpu = pipelined ? new CPUPipeline(io) : new CPU(io);
@@ -33,7 +47,7 @@ public class SimulizerRunner {
 	public String run(String program, String input) {
 		io.feedInput(input);
 
-		Program p = Assembler.assemble(program, problemLogger, true);
+		Program p = programCache.assemble(program, problemLogger, true);
 
 		if(!problemLogger.getProblems().isEmpty()) {
 			return null;
@@ -0,0 +1,292 @@
+package simulizer.annotations;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.components.MemoryView;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.exceptions.HeapException;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.exceptions.StackException;
+
+/**
+ * tests for parsing the declarations of asynchronous annotations and reading from
+ * the snapshots they are given
+ *
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class AnnotationSnapshotTests {
+
+	private CPU cpu;
+	private int msg; // the address of the string "hello"
+	private int words; // the address of the words 1 to 5
+
+	@Before
+	public void setupCPU() {
+		String program = "" +
+				".data\n" +
+				"msg: .asciiz \"hello\"\n" +
+				".align 2\n" +
+				"words: .word 1, 2, 3, 4, 5\n" +
+				".text\n" +
+				"main:\n" +
+				"    li $v0, 10\n" +
+				"    syscall\n";
+		ProblemCountLogger log = new ProblemCountLogger(null);
+		Program p = Assembler.assemble(program, log, false);
+		assertEquals(0, log.problemCount);
+
+		cpu = new CPU(new BufferIO());
+		cpu.loadProgram(p);
+		msg = cpu.labels.get("msg").getValue();
+		words = cpu.labels.get("words").getValue();
+	}
+
+	@After
+	public void shutdownCPU() {
+		cpu.shutdown();
+		cpu = null;
+	}
+
+	private static AnnotationSnapshot.Region region(String r) {
+		return AnnotationSnapshot.Region.parse(r);
+	}
+
+	private AnnotationSnapshot snapshot(String... regions) throws MemoryException, HeapException, StackException {
+		AnnotationSnapshot.Declaration d = AnnotationSnapshot.Declaration.parse("// async " + String.join(", ", regions));
+		assertNotNull(d);
+		return new AnnotationSnapshot(cpu, d.regions);
+	}
+
+	private static void assertInvalid(String code, String expectedMessage) {
+		try {
+			AnnotationSnapshot.Declaration.parse(code);
+			fail("expected \"" + code + "\" to be invalid");
+		} catch(IllegalArgumentException e) {
+			assertEquals(expectedMessage, e.getMessage());
+		}
+	}
+
+	@Test
+	public void testHeader() {
+		assertNull(AnnotationSnapshot.Declaration.parse("log('// async')"));
+		assertNull(AnnotationSnapshot.Declaration.parse("// asynchronous"));
+		assertNull(AnnotationSnapshot.Declaration.parse("\n// a comment\n// async"));
+
+		AnnotationSnapshot.Declaration d = AnnotationSnapshot.Declaration.parse("  //async\nlog(1)");
+		assertTrue(d.async);
+		assertEquals(Collections.emptyList(), d.regions);
+
+		d = AnnotationSnapshot.Declaration.parse("// sync\nlog(1)");
+		assertFalse(d.async);
+		assertEquals(Collections.emptyList(), d.regions);
+
+		// only the first line is the declaration
+		d = AnnotationSnapshot.Declaration.parse("// async $a0:4\n// async $a1:4");
+		assertEquals(1, d.regions.size());
+		assertEquals(Register.a0, d.regions.get(0).baseRegister);
+
+		// separated by commas and/or whitespace
+		d = AnnotationSnapshot.Declaration.parse("// async $a0:4,$a1:4 $a2:4 , $a3:4");
+		assertEquals(4, d.regions.size());
+	}
+
+	@Test
+	public void testRegisterBase() {
+		AnnotationSnapshot.Region r = region("$a0:16");
+		assertEquals(Register.a0, r.baseRegister);
+		assertNull(r.baseLabel);
+		assertEquals(0, r.offset);
+		assertNull(r.lengthRegister);
+		assertEquals(16, r.length);
+
+		// by number
+		r = region("$4+8:$5");
+		assertEquals(Register.a0, r.baseRegister);
+		assertEquals(8, r.offset);
+		assertEquals(Register.a1, r.lengthRegister);
+
+		r = region("$sp-0x10:0x20");
+		assertEquals(Register.sp, r.baseRegister);
+		assertEquals(-16, r.offset);
+		assertEquals(32, r.length);
+	}
+
+	@Test
+	public void testLabelAndAddressBase() {
+		AnnotationSnapshot.Region r = region("msg:6");
+		assertNull(r.baseRegister);
+		assertEquals("msg", r.baseLabel);
+		assertEquals(6, r.length);
+
+		r = region("my_label.2+4:$t0");
+		assertEquals("my_label.2", r.baseLabel);
+		assertEquals(4, r.offset);
+		assertEquals(Register.t0, r.lengthRegister);
+
+		r = region("0x10010000-4:8");
+		assertNull(r.baseRegister);
+		assertNull(r.baseLabel);
+		assertEquals(0x10010000, r.base);
+		assertEquals(-4, r.offset);
+
+		r = region("268500992:8");
+		assertNull(r.baseLabel);
+		assertEquals(0x10010000, r.base);
+	}
+
+	@Test
+	public void testInvalidDeclarations() {
+		String expected = " (expected BASE[+OFFSET]:LENGTH eg $a0:16)";
+		assertInvalid("// async $a0", "invalid memory region for an asynchronous annotation: \"$a0\"" + expected);
+		assertInvalid("// async $a0:", "invalid memory region for an asynchronous annotation: \"$a0:\"" + expected);
+		assertInvalid("// async $a0:-4", "invalid memory region for an asynchronous annotation: \"$a0:-4\"" + expected);
+		assertInvalid("// async $a0:msg", "invalid memory region for an asynchronous annotation: \"$a0:msg\"" + expected);
+		assertInvalid("// async $a0:4.5", "invalid memory region for an asynchronous annotation: \"$a0:4.5\"" + expected);
+		assertInvalid("// async $a0+$t0:4", "invalid memory region for an asynchronous annotation: \"$a0+$t0:4\"" + expected);
+		assertInvalid("// async 12ab:4", "invalid memory region for an asynchronous annotation: \"12ab:4\"" + expected);
+
+		assertInvalid("// async $nope:4", "unknown register in asynchronous annotation: \"$nope\"");
+		assertInvalid("// async $a0:$99", "unknown register in asynchronous annotation: \"$99\"");
+		assertInvalid("// async $a0:99999999999", "invalid number in asynchronous annotation: \"99999999999\"");
+		assertInvalid("// sync $a0:4", "synchronous annotations cannot declare memory: \"$a0:4\"");
+	}
+
+	@Test
+	public void testInvalidSnapshots() throws MemoryException, HeapException, StackException {
+		try {
+			snapshot("missing:4");
+			fail();
+		} catch(IllegalArgumentException e) {
+			assertEquals("unknown label in asynchronous annotation: \"missing\"", e.getMessage());
+		}
+
+		cpu.setRegisterValue(Register.t0, 0);
+		try {
+			snapshot("msg:$t0");
+			fail();
+		} catch(IllegalArgumentException e) {
+			assertEquals("the memory declared by an asynchronous annotation must have a positive length (not 0)", e.getMessage());
+		}
+
+		try {
+			snapshot("0:4"); // reserved memory
+			fail();
+		} catch(MemoryException ignored) {
+		}
+	}
+
+	@Test
+	public void testRegisters() throws MemoryException, HeapException, StackException {
+		cpu.setRegisterValue(Register.t0, -5);
+		AnnotationSnapshot s = snapshot();
+		cpu.setRegisterValue(Register.t0, 7);
+		assertEquals(-5, s.getRegisterValue(Register.t0));
+	}
+
+	@Test
+	public void testRead() throws MemoryException, HeapException, StackException {
+		cpu.setRegisterValue(Register.a0, msg);
+		cpu.setRegisterValue(Register.a1, 3);
+		AnnotationSnapshot s = snapshot("$a0+1:$a1", "words+8:8");
+
+		assertArrayEquals("ell".getBytes(StandardCharsets.US_ASCII), s.read(msg + 1, 3));
+		assertArrayEquals("l".getBytes(StandardCharsets.US_ASCII), s.read(msg + 3, 1));
+		assertArrayEquals(new byte[0], s.read(msg + 4, 0));
+		assertArrayEquals(new byte[]{0, 0, 0, 3, 0, 0, 0, 4}, s.read(words + 8, 8));
+
+		// each read must be within a single region
+		for(int[] outside : new int[][]{{msg, 1}, {msg + 1, 4}, {msg + 4, 1}, {words + 4, 8}, {words + 12, 8}, {words + 16, 1}}) {
+			try {
+				s.read(outside[0], outside[1]);
+				fail("read " + Arrays.toString(outside) + " should be outside the snapshot");
+			} catch(IllegalStateException e) {
+				assertEquals(String.format("the memory 0x%08x to 0x%08x was not declared by the asynchronous annotation",
+						outside[0], outside[0] + outside[1]), e.getMessage());
+			}
+		}
+
+		// a copy, not the memory itself
+		cpu.getMainMemory().writeToMem(msg + 1, new byte[]{'a'});
+		assertArrayEquals("ell".getBytes(StandardCharsets.US_ASCII), s.read(msg + 1, 3));
+	}
+
+	@Test
+	public void testReadUntilNull() throws MemoryException, HeapException, StackException {
+		AnnotationSnapshot s = snapshot("msg:6");
+		assertArrayEquals("hello".getBytes(StandardCharsets.US_ASCII), s.readUntilNull(msg));
+		assertArrayEquals("lo".getBytes(StandardCharsets.US_ASCII), s.readUntilNull(msg + 3));
+		assertArrayEquals(new byte[0], s.readUntilNull(msg + 5));
+
+		try {
+			s.readUntilNull(msg + 6);
+			fail();
+		} catch(IllegalStateException e) {
+			assertEquals(String.format("the memory 0x%08x to 0x%08x was not declared by the asynchronous annotation", msg + 6, msg + 7), e.getMessage());
+		}
+
+		// the null character is not part of the snapshot
+		s = snapshot("msg:5");
+		try {
+			s.readUntilNull(msg);
+			fail();
+		} catch(IllegalStateException e) {
+			assertEquals(String.format("the string at 0x%08x continues past the memory declared by the asynchronous annotation", msg), e.getMessage());
+		}
+	}
+
+	@Test
+	public void testView() throws MemoryException, HeapException, StackException {
+		AnnotationSnapshot s = snapshot("words:20");
+		MemoryView v = s.view(words + 4, 8);
+		assertEquals(words + 4, v.getStart());
+		assertEquals(2, v.getWord(0));
+		assertEquals(3, v.getWord(4));
+		try {
+			v.getWord(8);
+			fail();
+		} catch(IndexOutOfBoundsException ignored) {
+		}
+		try {
+			s.view(words + 4, 20);
+			fail();
+		} catch(IllegalStateException ignored) {
+		}
+	}
+
+	@Test
+	public void testReadUnsignedWords() throws MemoryException, HeapException, StackException {
+		SimulationBridge bridge = new SimulationBridge();
+		bridge.cpu = cpu;
+
+		// reading from the CPU includes the word at startAddress + length
+		List<Long> expected = Arrays.asList(1L, 2L, 3L, 4L);
+		assertEquals(expected, bridge.readUnsignedWordsFromMem(words, 12));
+
+		// so the same read from a snapshot needs length + 4 bytes to be declared
+		bridge.snapshot = snapshot("words:16");
+		assertEquals(expected, bridge.readUnsignedWordsFromMem(words, 12));
+		try {
+			bridge.readUnsignedWordsFromMem(words, 16);
+			fail();
+		} catch(IllegalStateException e) {
+			assertEquals(String.format("the memory 0x%08x to 0x%08x was not declared by the asynchronous annotation", words, words + 20), e.getMessage());
+		}
+	}
+}
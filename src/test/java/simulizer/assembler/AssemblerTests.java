@@ -0,0 +1,82 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Statement;
+import simulizer.assembler.representation.operand.AddressOperand;
+
+/**
+ * test the Assembler class
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class AssemblerTests {
+
+	@Test
+	public void testLabelsResolved() {
+		String p = "" +
+				".data\n" +
+				"a: .word 1\n" +
+				"b: .word 2\n" +
+				".text\n" +
+				"main:\n" +
+				"  la $t0, b+4\n" +
+				"  lw $t1, a+4($t0)\n" +
+				"  j main\n";
+
+		StoreProblemLogger log = new StoreProblemLogger();
+		Program program = Assembler.assemble(p, log, false);
+		assertTrue(log.getProblems().isEmpty());
+		assertNotNull(program);
+
+		int text = program.textSegmentStart.getValue();
+		int data = program.dataSegmentStart.getValue();
+
+		AddressOperand la = addressOperand(program, text, 1);
+		assertTrue(la.isResolved());
+		assertEquals(data + 4 + 4, la.getConstantAddress());
+
+		// the register is still added during the simulation
+		AddressOperand lw = addressOperand(program, text + 4, 1);
+		assertTrue(lw.isResolved());
+		assertEquals(data + 4, lw.getConstantAddress());
+		assertTrue(lw.register.isPresent());
+
+		AddressOperand j = addressOperand(program, text + 8, 0);
+		assertEquals(text, j.getConstantAddress());
+	}
+
+	@Test
+	public void testUndefinedLabel() {
+		String p = "" +
+				".text\n" +
+				"main:\n" +
+				"  la $t0, missing\n";
+
+		StoreProblemLogger log = new StoreProblemLogger();
+		assertNull(Assembler.assemble(p, log, true));
+		assertEquals(1, log.getProblems().size());
+
+		Problem problem = log.getProblems().get(0);
+		assertEquals(Problem.Severity.CRITICAL, problem.severity);
+		assertTrue(problem.message.contains("\"missing\""));
+		assertEquals(3, problem.lineNum);
+
+		// the same problem is found when only checking the program
+		assertEquals(1, Assembler.checkForProblems(p).size());
+	}
+
+	private static AddressOperand addressOperand(Program program, int address, int operand) {
+		Statement s = program.textSegment.get(new Address(address));
+		return s.getOperandList().get(operand).asAddressOp();
+	}
+}
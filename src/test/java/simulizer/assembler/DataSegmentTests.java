@@ -0,0 +1,102 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.DataSegment;
+import simulizer.assembler.representation.Program;
+
+/**
+ * test building the static data segment
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class DataSegmentTests {
+
+	@Test
+	public void testValues() {
+		DataSegment.Builder b = new DataSegment.Builder(0);
+		b.putByte(0x1FF);
+		b.putHalf(0x1234);
+		b.putWord(-2);
+		b.putASCII("hi\u00e9");
+		b.putZeroes(3);
+		b.putByte(7);
+		DataSegment d = b.build();
+
+		assertEquals(14, d.length());
+		assertArrayEquals(new byte[]{
+				(byte) 0xFF,
+				0x12, 0x34,
+				(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFE,
+				'h', 'i', '?',
+				0, 0, 0,
+				7
+		}, d.toArray());
+		assertEquals(1, d.getChunks().size());
+	}
+
+	@Test
+	public void testSparseSpace() {
+		DataSegment.Builder b = new DataSegment.Builder(8);
+		b.putWord(1);
+		b.putZeroes(4000000);
+		b.putWord(2);
+		b.putZeroes(4000000); // trailing space
+		DataSegment d = b.build();
+
+		assertEquals(8000008, d.length());
+		assertEquals(2, d.getChunks().size());
+		assertEquals(0, d.getChunks().get(0).offset);
+		assertEquals(4, d.getChunks().get(0).data.length);
+		assertEquals(4000004, d.getChunks().get(1).offset);
+		assertEquals(4, d.getChunks().get(1).data.length);
+
+		byte[] all = d.toArray();
+		assertEquals(1, all[3]);
+		assertEquals(2, all[4000007]);
+		assertEquals(0, all[all.length - 1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSpace() {
+		new DataSegment.Builder(0).putZeroes(-1);
+	}
+
+	@Test
+	public void testAssembled() {
+		String program = "" +
+				".data\n" +
+				"a: .word 0x01020304\n" +
+				"big: .space 1000000\n" +
+				"b: .half 5\n" +
+				"s: .asciiz \"ok\"\n" +
+				".text\n" +
+				"main:\n" +
+				"    li $v0, 10\n" +
+				"    syscall\n";
+		ProblemCountLogger log = new ProblemCountLogger(null);
+		Program p = Assembler.assemble(program, log, false);
+		assertEquals(0, log.problemCount);
+
+		DataSegment d = p.dataSegment;
+		assertEquals(4 + 1000000 + 2 + 3, d.length());
+		int stored = 0;
+		for(DataSegment.Chunk c : d.getChunks()) {
+			stored += c.data.length;
+		}
+		assertTrue(stored < 100);
+
+		byte[] all = d.toArray();
+		assertEquals(4, all[3]);
+		assertEquals(5, all[1000005]);
+		assertEquals('o', all[1000006]);
+		assertEquals('k', all[1000007]);
+		assertEquals(0, all[1000008]);
+	}
+}
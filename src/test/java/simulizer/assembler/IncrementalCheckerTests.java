@@ -0,0 +1,121 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.Problem;
+
+/**
+ * test the IncrementalChecker class
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class IncrementalCheckerTests {
+
+	private static final String program = "" +
+			"# @{ init() }@\n" +
+			".data\n" +
+			"msg: .asciiz \"hello\"\n" +
+			"nums: .word 1, 2, 3\n" +
+			"\n" +
+			".text\n" +
+			"main:\n" +
+			"    la $a0, msg   # @{ log(msg) }@\n" +
+			"    li $v0, 4\n" +
+			"    syscall\n" +
+			"loop: lw $t0, nums+4($zero); j loop\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private static List<String> describe(List<Problem> problems) {
+		return problems.stream().map(p -> p.toString() + p.severity).collect(Collectors.toList());
+	}
+
+	private static void assertSameAsFullCheck(IncrementalChecker checker, String p) {
+		assertEquals(describe(Assembler.checkForProblems(p)), describe(checker.checkForProblems(p)));
+	}
+
+	@Test
+	public void testSameProblems() {
+		IncrementalChecker checker = new IncrementalChecker();
+
+		assertTrue(checker.checkForProblems(program).isEmpty());
+
+		String[] broken = {
+			program.replace("li $v0, 4", "lo $v0, 4"),              // unknown instruction
+			program.replace("li $v0, 4", "li $v0"),                 // wrong number of operands
+			program.replace("la $a0, msg", "la $a0, missing"),      // undefined label
+			program.replace("loop:", "main:"),                      // duplicate label
+			program.replace("nums:", "nums: .word 1\nmain:"),       // main in the wrong segment
+			program.replace(".data\n", ".data\nlabel:\n.text\n"),   // label crossing a segment
+			program.replace("syscall\nloop", "syscall # @{ x()\nloop"), // annotation not closed
+			program.replace("\"hello\"", "\"hello"),                // unterminated string
+			program + "    li $v0, 10 # @{ }@\n.data\n.word 5",     // annotation at the end of the text segment
+			program.replace(".text\n", ""),                         // no text segment
+			"",
+		};
+		for(String p : broken) {
+			assertSameAsFullCheck(checker, p);
+		}
+	}
+
+	@Test
+	public void testOnlyChangedLinesParsed() {
+		IncrementalChecker checker = new IncrementalChecker();
+		int lines = program.split("\n", -1).length;
+
+		checker.checkForProblems(program);
+		assertTrue(checker.getLinesParsed() > 0);
+		assertTrue(checker.getLinesParsed() <= lines);
+
+		// no changes
+		checker.checkForProblems(program);
+		assertEquals(0, checker.getLinesParsed());
+
+		// a single line changed
+		String edited = program.replace("li $v0, 4", "li $v0, 5");
+		assertSameAsFullCheck(checker, edited);
+		assertEquals(1, checker.getLinesParsed());
+
+		// lines which have moved do not have to be parsed again
+		String moved = "# a new first line\n" + edited;
+		List<Problem> problems = checker.checkForProblems(moved);
+		assertEquals(1, checker.getLinesParsed());
+		assertEquals(describe(Assembler.checkForProblems(moved)), describe(problems));
+
+		// problems are reported at the new position of the line
+		String error = moved.replace("la $a0, msg", "la $a0, missing");
+		problems = checker.checkForProblems(error);
+		assertEquals(1, problems.size());
+		assertEquals(9, problems.get(0).lineNum);
+	}
+
+	@Test
+	public void testCancelled() {
+		IncrementalChecker checker = new IncrementalChecker();
+
+		// cancelled after 5 lines
+		int[] linesChecked = {0};
+		try {
+			checker.checkForProblems(program, () -> ++linesChecked[0] > 5);
+			fail("should have been cancelled");
+		} catch(CancellationException e) {
+			// expected
+		}
+		assertEquals(5, checker.getLinesParsed());
+
+		// the lines parsed before being cancelled are not parsed again
+		IncrementalChecker fresh = new IncrementalChecker();
+		fresh.checkForProblems(program);
+		assertSameAsFullCheck(checker, program);
+		assertEquals(fresh.getLinesParsed() - 5, checker.getLinesParsed());
+	}
+}
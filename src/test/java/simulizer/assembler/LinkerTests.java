@@ -0,0 +1,209 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.Label;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Statement;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+
+/**
+ * test assembling programs made from several files
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class LinkerTests {
+
+	private static final String main = "" +
+			".data\n" +
+			"msg: .asciiz \"sum: \"\n" +
+			".text\n" +
+			"main:\n" +
+			"    la $a0, msg\n" +
+			"    jal print_string\n" +
+			"    li $a0, 20\n" +
+			"    li $a1, 22\n" +
+			"    jal add\n" +
+			"    move $a0, $v0\n" +
+			"    li $v0, 1\n" +
+			"    syscall\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private static final String lib = "" +
+			".data\n" +
+			".globl counter\n" +
+			"counter: .byte 1\n" +
+			".text\n" +
+			".globl print_string, add\n" +
+			"print_string:\n" +
+			"    li $v0, 4\n" +
+			"    syscall\n" +
+			"    jr $ra\n" +
+			"add:\n" +
+			"    j helper\n" +
+			"helper:\n" + // local to this file
+			"    add $v0, $a0, $a1\n" +
+			"    lb $t0, counter\n" +
+			"    jr $ra\n";
+
+	private static LinkedHashMap<String, String> files(String... namesAndSources) {
+		LinkedHashMap<String, String> files = new LinkedHashMap<>();
+		for(int i = 0; i < namesAndSources.length; i += 2) {
+			files.put(namesAndSources[i], namesAndSources[i + 1]);
+		}
+		return files;
+	}
+
+	private static String run(Program p) {
+		BufferIO io = new BufferIO();
+		CPU cpu = new CPU(io);
+		cpu.loadProgram(p);
+		cpu.runProgram();
+		cpu.shutdown();
+		return io.getOutput(IOStream.STANDARD);
+	}
+
+	private static List<Problem> problems(LinkedHashMap<String, String> files) {
+		StoreProblemLogger log = new StoreProblemLogger();
+		assertNull(new ProgramCache(4).assemble(files, log, false));
+		return log.getProblems();
+	}
+
+	private static boolean hasLabel(Program p, String name) {
+		for(Label l : p.labels.keySet()) {
+			if(l.getName().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Test
+	public void testLink() {
+		StoreProblemLogger log = new StoreProblemLogger();
+		Program p = new ProgramCache(4).assemble(files("main.s", main, "lib.s", lib), log, false);
+		assertEquals(Arrays.asList(), log.getProblems());
+		assertNotNull(p);
+
+		assertEquals("sum: 42", run(p));
+
+		// only the global labels of the library are part of the program
+		assertTrue(hasLabel(p, "main"));
+		assertTrue(hasLabel(p, "msg"));
+		assertTrue(hasLabel(p, "add"));
+		assertTrue(hasLabel(p, "counter"));
+		assertFalse(hasLabel(p, "helper"));
+
+		// the library is placed after the main program
+		assertEquals(10, p.lineNumbers.keySet().stream().filter(a -> a.getValue() < 0x10000000).count());
+		assertEquals(10 + 7, p.textSegment.size());
+
+		// the data of the library starts on a word boundary
+		Address counter = p.labels.entrySet().stream()
+				.filter(e -> e.getKey().getName().equals("counter")).findFirst().get().getValue();
+		assertEquals(0x10010008, counter.getValue());
+	}
+
+	@Test
+	public void testLocalLabelsSeparate() {
+		String other = "" +
+				".text\n" +
+				".globl other\n" +
+				"other:\n" +
+				"    j helper\n" +
+				"helper:\n" +
+				"    jr $ra\n";
+		String program = "" +
+				".text\n" +
+				"main:\n" +
+				"    jal other\n" +
+				"    jal add\n" +
+				"    li $v0, 10\n" +
+				"    syscall\n";
+
+		// both libraries define helper, which is not a problem since neither exports it
+		StoreProblemLogger log = new StoreProblemLogger();
+		Program p = new ProgramCache(4).assemble(files("main.s", program, "lib.s", lib, "other.s", other), log, false);
+		assertEquals(Arrays.asList(), log.getProblems());
+		assertNotNull(p);
+
+		// each refers to its own helper
+		Statement libJump = p.textSegment.get(new Address(0x00400000 + 4 * (4 + 3)));
+		Statement otherJump = p.textSegment.get(new Address(0x00400000 + 4 * (4 + 7)));
+		assertEquals(0x00400000 + 4 * (4 + 4), libJump.getOperandList().get(0).asAddressOp().getConstantAddress());
+		assertEquals(0x00400000 + 4 * (4 + 8), otherJump.getOperandList().get(0).asAddressOp().getConstantAddress());
+	}
+
+	@Test
+	public void testProblems() {
+		// not exported
+		List<Problem> problems = problems(files("main.s", main, "lib.s", lib.replace(".globl print_string, add\n", "")));
+		assertEquals(2, problems.size());
+		assertEquals("main.s: the label \"print_string\" is not defined", problems.get(0).message);
+		assertEquals(6, problems.get(0).lineNum);
+		assertEquals("main.s: the label \"add\" is not defined", problems.get(1).message);
+
+		// defined twice
+		problems = problems(files("main.s", main.replace("msg", "counter"), "lib.s", lib));
+		assertEquals(1, problems.size());
+		assertEquals("the global label \"counter\" is defined in both main.s and lib.s", problems.get(0).message);
+
+		// problems inside a file
+		problems = problems(files("main.s", main, "lib.s", lib.replace("jr $ra\nadd", "jr $ra, $ra\nadd")));
+		assertEquals(1, problems.size());
+		assertTrue(problems.get(0).message.startsWith("lib.s: Wrong number of operands"));
+		assertEquals(9, problems.get(0).lineNum);
+
+		// no main
+		problems = problems(files("lib.s", lib));
+		assertEquals(1, problems.size());
+		assertEquals("The program has no 'main' label", problems.get(0).message);
+	}
+
+	@Test
+	public void testSingleFileSameAsAssemble() {
+		Program linked = new ProgramCache(4).assemble(files("main.s", lib + ".text\nmain: jal add\n"), null, false);
+		Program assembled = Assembler.assemble(lib + ".text\nmain: jal add\n", null, false);
+		assertEquals(assembled.textSegment.size(), linked.textSegment.size());
+		for(Map.Entry<Address, Statement> e : assembled.textSegment.entrySet()) {
+			assertEquals(e.getValue().toString(), linked.textSegment.get(e.getKey()).toString());
+		}
+		assertArrayEquals(assembled.dataSegment.toArray(), linked.dataSegment.toArray());
+		assertEquals(assembled.labels.size(), linked.labels.size());
+		assertEquals(assembled.lineNumbers, linked.lineNumbers);
+	}
+
+	@Test
+	public void testUnitsCached() {
+		ProgramCache cache = new ProgramCache(8);
+
+		Program first = cache.assemble(files("main.s", main, "lib.s", lib), null, false);
+		assertEquals(2, cache.getUnitMisses());
+
+		// only the changed file is parsed again
+		Program second = cache.assemble(files("main.s", main.replace("20", "21"), "lib.s", lib), null, false);
+		assertEquals(3, cache.getUnitMisses());
+		assertEquals(1, cache.getUnitHits());
+		assertSame(cache.getUnit("lib.s", lib), cache.getUnit("lib.s", lib));
+
+		// linking again does not change the programs which share the library
+		assertEquals("sum: 43", run(second));
+		assertEquals("sum: 42", run(first));
+	}
+}
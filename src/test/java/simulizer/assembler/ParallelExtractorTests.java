@@ -0,0 +1,143 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.ParallelExtractor;
+import simulizer.assembler.extractor.ProgramExtractor;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Statement;
+import simulizer.assembler.representation.Variable;
+import simulizer.parser.SimpParser;
+
+/**
+ * test that extracting the segments in parallel gives the same results as walking
+ * the whole program on a single thread
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class ParallelExtractorTests {
+
+	private static String describe(ProgramExtractor e, List<Problem> problems) {
+		StringBuilder sb = new StringBuilder();
+		for(Statement s : e.textSegment) {
+			sb.append(s).append(" @").append(s.getLineNumber()).append('\n');
+		}
+		for(Variable v : e.dataSegment) {
+			sb.append(v.getType()).append(' ').append(v.getSize()).append(' ')
+					.append(v.getInitialValue()).append(" @").append(v.getLineNumber()).append('\n');
+		}
+		sb.append(e.textSegmentLabels).append('\n');
+		sb.append(e.dataSegmentLabels).append('\n');
+		sb.append(e.annotations).append('\n');
+		sb.append(e.initAnnotationCode).append('\n');
+		for(Problem p : problems) {
+			sb.append(p.severity).append(' ').append(p.message).append(" @").append(p.lineNum)
+					.append(' ').append(p.rangeStart).append('-').append(p.rangeEnd).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static String serial(String program) {
+		SimpParser.ProgramContext tree = ProgramParser.parse(program + '\n');
+		StoreProblemLogger log = new StoreProblemLogger();
+		ProgramExtractor e = new ProgramExtractor(log);
+		ParseTreeWalker.DEFAULT.walk(e, tree);
+		return describe(e, log.getProblems());
+	}
+
+	private static String parallel(String program) {
+		SimpParser.ProgramContext tree = ProgramParser.parse(program + '\n');
+		StoreProblemLogger log = new StoreProblemLogger();
+		ProgramExtractor e = ParallelExtractor.extract(tree, log);
+		return describe(e, log.getProblems());
+	}
+
+	private static void assertSame(String program) {
+		assertEquals(serial(program), parallel(program));
+	}
+
+	private static String manySegments(int segments) {
+		StringBuilder sb = new StringBuilder("# @{ var count = 0 }@\n");
+		for(int i = 0; i < segments; ++i) {
+			sb.append(".data\n");
+			sb.append("msg").append(i).append(": .asciiz \"segment ").append(i).append("\"\n");
+			sb.append("num").append(i).append(": .word ").append(i).append(", ").append(-i).append('\n');
+			sb.append(".text\n");
+			if(i == 0) {
+				sb.append("main:\n");
+			}
+			sb.append("f").append(i).append(": # @{ count++ }@\n");
+			for(int j = 0; j < 20; ++j) {
+				sb.append("    lw $t0, num").append(i).append(" # @{ log(").append(j).append(") }@\n");
+				sb.append("    addi $t0, $t0, ").append(j).append('\n');
+			}
+			sb.append("    j f").append((i + 1) % segments).append('\n');
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testValidPrograms() {
+		assertSame(manySegments(1));
+		assertSame(manySegments(2));
+		assertSame(manySegments(50));
+
+		// the result is used by the assembler
+		assertNotNull(Assembler.assemble(manySegments(50), null, false));
+	}
+
+	@Test
+	public void testProblemsWithinSegments() {
+		String program = manySegments(10)
+				.replace("addi $t0, $t0, 3\n", "addi $t0, 3\n")
+				.replace("num4: .word", "num4: .wrd")
+				.replace("lw $t0, num7 # @{ log(5) }@", "lo $t0, num7");
+		assertSame(program);
+		assertEquals(parallel(program).split("\n").length, serial(program).split("\n").length);
+		assertTrue(parallel(program).contains("Unknown instruction"));
+	}
+
+	@Test
+	public void testSegmentsDependingOnEachOther() {
+		List<String> programs = new ArrayList<>();
+		// label defined in two segments
+		programs.add(manySegments(5).replace("f3:", "f1:"));
+		programs.add(manySegments(5).replace("msg2:", "f0:"));
+		// label crossing a segment boundary
+		programs.add(manySegments(5).replace("    j f3\n", "    j f3\ndangling:\n"));
+		// label at the end of the program
+		programs.add(manySegments(5) + "end:\n");
+		// annotation binding to the last statement of the previous text segment
+		programs.add(manySegments(5).replace("f2: # @{ count++ }@\n", "# @{ count++ }@\nf2:\n"));
+		programs.add(manySegments(5) + ".text\nlast: # @{ done() }@\n");
+		// labels before any segment
+		programs.add("outside:\n" + manySegments(3));
+		// no main
+		programs.add(manySegments(5).replace("main:", "notMain:"));
+
+		for(String program : programs) {
+			assertSame(program);
+		}
+	}
+
+	@Test
+	public void testSwitchedOff() {
+		ParallelExtractor.setEnabled(false);
+		try {
+			assertSame(manySegments(10));
+			assertSame(manySegments(5).replace("f3:", "f1:"));
+		} finally {
+			ParallelExtractor.setEnabled(true);
+		}
+	}
+}
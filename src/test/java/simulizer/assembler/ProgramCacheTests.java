@@ -0,0 +1,130 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+import simulizer.assembler.representation.Program;
+
+/**
+ * test the ProgramCache class
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class ProgramCacheTests {
+
+	private static String program(int exitCode) {
+		return "" +
+				".text\n" +
+				"main:\n" +
+				"    li $a0, " + exitCode + "\n" +
+				"    li $v0, 17\n" +
+				"    syscall\n";
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		ProgramCache cache = new ProgramCache(4);
+
+		Program a = cache.assemble(program(1), null, false);
+		assertNotNull(a);
+		assertEquals(0, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		for(int i = 0; i < 10; ++i) {
+			assertSame(a, cache.assemble(program(1), null, false));
+		}
+		assertEquals(10, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// different source
+		Program b = cache.assemble(program(2), null, false);
+		assertNotSame(a, b);
+		assertEquals(2, cache.getMisses());
+
+		// different options
+		Program c = cache.assemble(program(1), null, true);
+		assertNotSame(a, c);
+		assertEquals(3, cache.getMisses());
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		ProgramCache cache = new ProgramCache(2);
+
+		Program a = cache.assemble(program(1), null, false);
+		cache.assemble(program(2), null, false);
+		assertSame(a, cache.assemble(program(1), null, false)); // 2 is now the least recently used
+		cache.assemble(program(3), null, false); // evicts 2
+		assertEquals(2, cache.size());
+
+		long misses = cache.getMisses();
+		assertSame(a, cache.assemble(program(1), null, false));
+		assertEquals(misses, cache.getMisses());
+
+		cache.assemble(program(2), null, false);
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	@Test
+	public void testProblemsRepeated() {
+		ProgramCache cache = new ProgramCache(4);
+		String broken = program(1).replace("li $v0, 17", "lo $v0, 17");
+
+		for(int i = 0; i < 3; ++i) {
+			StoreProblemLogger log = new StoreProblemLogger();
+			assertNull(cache.assemble(broken, log, false));
+			assertEquals(1, log.getProblems().size());
+			assertTrue(log.getProblems().get(0).message.contains("Unknown instruction"));
+		}
+		assertEquals(1, cache.getMisses());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testProblemsCopied() {
+		ProgramCache cache = new ProgramCache(4);
+		String broken = program(1).replace("li $v0, 17", "lo $v0, 17");
+
+		// a logger which modifies the problems (eg to give the name of the file)
+		StoreProblemLogger log = new StoreProblemLogger();
+		cache.assemble(broken, log, false);
+		Problem p = log.getProblems().get(0);
+		String message = p.message;
+		int lineNum = p.lineNum;
+		p.message = "file.s: " + p.message;
+		p.lineNum += 10;
+
+		log = new StoreProblemLogger();
+		cache.assemble(broken, log, false);
+		assertNotSame(p, log.getProblems().get(0));
+		assertEquals(message, log.getProblems().get(0).message);
+		assertEquals(lineNum, log.getProblems().get(0).lineNum);
+	}
+
+	@Test
+	public void testUnreadable() {
+		ProgramCache cache = new ProgramCache(4);
+		StoreProblemLogger log = new StoreProblemLogger();
+		assertNull(cache.assemble((String) null, log, false));
+		assertEquals(1, log.getProblems().size());
+		assertEquals(Problem.Severity.CRITICAL, log.getProblems().get(0).severity);
+		assertEquals(0, cache.size());
+
+		LinkedHashMap<String, String> files = new LinkedHashMap<>();
+		files.put("main.s", program(1));
+		files.put("missing.s", null);
+		log = new StoreProblemLogger();
+		assertNull(cache.assemble(files, log, false));
+		assertEquals(1, log.getProblems().size());
+		assertEquals("the file \"missing.s\" could not be read", log.getProblems().get(0).message);
+	}
+}
@@ -0,0 +1,68 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.parser.SimpLexer;
+import simulizer.parser.SimpParser;
+
+/**
+ * test the ProgramParser class
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class ProgramParserTests {
+
+	private static final String program = "" +
+			".data\n" +
+			"nums: .word 1, 2, 3\n" +
+			".text\n" +
+			"main:\n" +
+			"    la $t0, nums + 4($zero)\n" +
+			"    lw $t1, 4($t0); add $t1, $t1, $t1 # comment\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	/**
+	 * parse a program the slow way: LL prediction with error recovery
+	 */
+	private static String parseLL(String input) {
+		SimpLexer lexer = new SimpLexer(new ANTLRInputStream(input));
+		SimpParser parser = new SimpParser(new CommonTokenStream(lexer));
+		lexer.removeErrorListeners();
+		parser.removeErrorListeners();
+		return parser.program().toStringTree(parser);
+	}
+
+	private static String parse(String input) {
+		return ProgramParser.parse(input).toStringTree(new SimpParser(null));
+	}
+
+	@Test
+	public void testValidProgram() {
+		assertEquals(parseLL(program), parse(program));
+		assertFalse(ProgramParser.getLastParseTiming().fellBackToLL);
+
+		// parsing again with the same parser
+		String p = program.replace("10", "11");
+		assertEquals(parseLL(p), parse(p));
+		assertFalse(ProgramParser.getLastParseTiming().fellBackToLL);
+	}
+
+	@Test
+	public void testSyntaxError() {
+		String p = program.replace("lw $t1, 4($t0)", "lw $t1, 4($t0") + ".data; .asciiz \"\\hello\\\"\n";
+		assertEquals(parseLL(p), parse(p));
+		assertTrue(ProgramParser.getLastParseTiming().fellBackToLL);
+
+		// the parser can still be used after falling back
+		assertEquals(parseLL(program), parse(program));
+		assertFalse(ProgramParser.getLastParseTiming().fellBackToLL);
+	}
+}
@@ -0,0 +1,174 @@
+package simulizer.assembler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.Label;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.ProgramSerializer;
+import simulizer.assembler.representation.Statement;
+import simulizer.assembler.representation.Variable;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+import simulizer.utils.FileUtils;
+
+/**
+ * test saving and loading assembled programs with ProgramSerializer
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class ProgramSerializerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String program = "" +
+			"# @{ var x = 1 }@\n" +
+			".data\n" +
+			"msg: .asciiz \"hello\\n\"\n" +
+			"nums: .word 1, -2, 3\n" +
+			"small: .byte 7\n" +
+			".align 2\n" +
+			"buf: .space 64\n" +
+			".text\n" +
+			".globl main\n" +
+			"main:\n" +
+			"    la $a0, msg   # @{ log(x) }@\n" +
+			"    li $v0, 4\n" +
+			"    syscall\n" +
+			"    la $t0, nums\n" +
+			"    lw $a0, 4($t0)\n" +
+			"    lw $t1, nums+8($zero)\n" +
+			"    add $a0, $a0, $t1\n" +
+			"    li $v0, 1\n" +
+			"    syscall\n" +
+			"    sw $a0, buf+4\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private Program saveAndLoad(Program p) throws IOException {
+		File f = folder.newFile("program.simpc");
+		ProgramSerializer.write(p, f);
+		return ProgramSerializer.read(f);
+	}
+
+	private static Program assemble(String source) {
+		ProblemCountLogger log = new ProblemCountLogger(null);
+		Program p = Assembler.assemble(source, log, false);
+		assertEquals(0, log.problemCount);
+		return p;
+	}
+
+	private static String run(Program p) {
+		BufferIO io = new BufferIO();
+		CPU cpu = new CPU(io);
+		cpu.loadProgram(p);
+		cpu.runProgram();
+		cpu.shutdown();
+		return io.getOutput(IOStream.STANDARD);
+	}
+
+	private static Map<String, Integer> labels(Program p) {
+		Map<String, Integer> labels = new HashMap<>();
+		for(Map.Entry<Label, Address> l : p.labels.entrySet()) {
+			labels.put(l.getKey().getName() + ":" + l.getKey().getType() + ":" + l.getKey().getLineNumber(), l.getValue().getValue());
+		}
+		return labels;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Program original = assemble(program);
+		Program loaded = saveAndLoad(original);
+
+		assertEquals(original.sourceHash, loaded.sourceHash);
+		assertEquals(original.textSegmentStart, loaded.textSegmentStart);
+		assertEquals(original.textSegmentLast, loaded.textSegmentLast);
+		assertEquals(original.dataSegmentStart, loaded.dataSegmentStart);
+		assertEquals(original.dynamicSegmentStart, loaded.dynamicSegmentStart);
+		assertArrayEquals(original.initialGP.getBytes(), loaded.initialGP.getBytes());
+		assertArrayEquals(original.initialSP.getBytes(), loaded.initialSP.getBytes());
+		assertArrayEquals(original.dataSegment.toArray(), loaded.dataSegment.toArray());
+
+		assertEquals(original.textSegment.size(), loaded.textSegment.size());
+		for(Map.Entry<Address, Statement> e : original.textSegment.entrySet()) {
+			Statement s = loaded.textSegment.get(e.getKey());
+			assertEquals(e.getValue().toString(), s.toString());
+			assertEquals(e.getValue().getLineNumber(), s.getLineNumber());
+		}
+
+		assertEquals(original.dataSegmentVariables.size(), loaded.dataSegmentVariables.size());
+		for(Map.Entry<Address, Variable> e : original.dataSegmentVariables.entrySet()) {
+			Variable v = loaded.dataSegmentVariables.get(e.getKey());
+			assertEquals(e.getValue().getType(), v.getType());
+			assertEquals(e.getValue().getSize(), v.getSize());
+			assertEquals(e.getValue().getLineNumber(), v.getLineNumber());
+			assertEquals(e.getValue().getInitialValue().toString(), v.getInitialValue().toString());
+		}
+
+		assertEquals(labels(original), labels(loaded));
+		assertEquals(original.lineNumbers, loaded.lineNumbers);
+		assertEquals(original.annotations.size(), loaded.annotations.size());
+		for(Map.Entry<Address, ?> e : original.annotations.entrySet()) {
+			assertEquals(e.getValue().toString(), loaded.annotations.get(e.getKey()).toString());
+		}
+		assertEquals(original.initAnnotation.code, loaded.initAnnotation.code);
+
+		// the label addresses are still resolved
+		Statement lw = loaded.textSegment.get(new Address(original.textSegmentStart.getValue() + 5 * 4));
+		assertTrue(lw.getOperandList().get(1).asAddressOp().isResolved());
+
+		assertEquals("hello\n1", run(original));
+		assertEquals(run(original), run(loaded));
+	}
+
+	@Test
+	public void testLargeProgram() throws IOException {
+		StringBuilder source = new StringBuilder(".data\nbig: .space 1000000\n");
+		for(int i = 0; i < 1000; ++i) {
+			source.append("w").append(i).append(": .word ").append(i * 31).append('\n');
+		}
+		source.append(".text\nmain:\n");
+		for(int i = 0; i < 1000; ++i) {
+			source.append("    lw $t0, w").append(i).append('\n');
+		}
+
+		Program original = assemble(source.toString());
+		Program loaded = saveAndLoad(original);
+		assertArrayEquals(original.dataSegment.toArray(), loaded.dataSegment.toArray());
+		assertEquals(original.textSegment.size(), loaded.textSegment.size());
+		assertEquals(labels(original), labels(loaded));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAProgram() throws IOException {
+		File f = folder.newFile("program.s");
+		FileUtils.writeToFile(f, program);
+		ProgramSerializer.read(f);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		File f = folder.newFile("program.simpc");
+		ProgramSerializer.write(assemble(program), f);
+		byte[] content = Files.readAllBytes(f.toPath());
+		Files.write(f.toPath(), Arrays.copyOf(content, content.length / 2));
+		ProgramSerializer.read(f);
+	}
+}
@@ -0,0 +1,152 @@
+package simulizer.cmd;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import category.UnitTests;
+import simulizer.cmd.BatchRunner.Report;
+import simulizer.cmd.BatchRunner.Status;
+
+/**
+ * test checking many programs at once
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class BatchRunnerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String hello = "" +
+			".data\n" +
+			"msg: .asciiz \"hello\"\n" +
+			".text\n" +
+			"main:\n" +
+			"    la $a0, msg\n" +
+			"    li $v0, 4\n" +
+			"    syscall\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private static final String echo = "" +
+			".text\n" +
+			"main:\n" +
+			"    li $v0, 5\n" +
+			"    syscall\n" +
+			"    addi $a0, $v0, 1\n" +
+			"    li $v0, 1\n" +
+			"    syscall\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private static final String invalid = "" +
+			".text\n" +
+			"main:\n" +
+			"    addi $t0, 1\n";
+
+	private static final String forever = "" +
+			".text\n" +
+			"main:\n" +
+			"    j main\n";
+
+	private static final String badAccess = "" +
+			".text\n" +
+			"main:\n" +
+			"    lw $t0, 0($zero)\n" +
+			"    li $v0, 10\n" +
+			"    syscall\n";
+
+	private File write(String name, String content) throws IOException {
+		File f = new File(folder.getRoot(), name);
+		f.getParentFile().mkdirs();
+		Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
+	@Test
+	public void testRun() throws IOException {
+		List<File> files = Arrays.asList(
+				write("hello.s", hello),
+				write("echo.s", echo),
+				write("invalid.s", invalid),
+				write("forever.s", forever),
+				write("badAccess.s", badAccess),
+				new File(folder.getRoot(), "missing.s"));
+
+		List<Report> reports = new BatchRunner(false, true, "41\n", 500, 4).check(files);
+		assertEquals(files.size(), reports.size());
+		for(int i = 0; i < files.size(); ++i) {
+			assertEquals(files.get(i).getPath(), reports.get(i).file);
+		}
+
+		Report r = reports.get(0);
+		assertEquals(Status.FINISHED, r.status);
+		assertEquals("hello", r.output);
+		assertEquals(Collections.emptyList(), r.problems);
+		assertEquals(5, r.instructions); // la is two instructions
+
+		// each program gets its own input and output
+		assertEquals(Status.FINISHED, reports.get(1).status);
+		assertEquals("42", reports.get(1).output);
+
+		r = reports.get(2);
+		assertEquals(Status.INVALID, r.status);
+		assertEquals(1, r.problems.size());
+		assertEquals(3, r.problems.get(0).lineNum);
+		assertEquals(0, r.instructions);
+
+		r = reports.get(3);
+		assertEquals(Status.TIMED_OUT, r.status);
+		assertTrue(r.instructions > 0);
+		assertTrue(r.runMillis >= 500);
+
+		r = reports.get(4);
+		assertEquals(Status.RUNTIME_ERROR, r.status);
+		assertEquals(1, r.runtimeProblems.size());
+
+		assertEquals(Status.UNREADABLE, reports.get(5).status);
+	}
+
+	@Test
+	public void testAssembleOnly() throws IOException {
+		List<File> files = Arrays.asList(write("forever.s", forever), write("invalid.s", invalid));
+		List<Report> reports = new BatchRunner(false, false, "", 0, 2).check(files);
+		assertEquals(Status.ASSEMBLED, reports.get(0).status);
+		assertEquals(0, reports.get(0).instructions);
+		assertEquals(Status.INVALID, reports.get(1).status);
+	}
+
+	@Test
+	public void testNoInput() throws IOException {
+		// reading input which was not given stops the program rather than waiting
+		List<Report> reports = new BatchRunner(false, true, "", 0, 1).check(Collections.singletonList(write("echo.s", echo)));
+		assertEquals(Status.CRASHED, reports.get(0).status);
+		assertEquals(1, reports.get(0).runtimeProblems.size());
+	}
+
+	@Test
+	public void testFindPrograms() throws IOException {
+		File b = write("dir/b.s", hello);
+		File a = write("dir/a.s", hello);
+		File nested = write("dir/sub/c.s", hello);
+		write("dir/notes.txt", "not a program");
+		File other = write("other.asm", hello);
+
+		List<File> found = BatchRunner.findPrograms(Arrays.asList(
+				new File(folder.getRoot(), "dir").getPath(), other.getPath()));
+		assertEquals(Arrays.asList(a, b, nested, other), found);
+	}
+}
@@ -486,4 +486,46 @@ public class ALUTest {
 			assertEquals(0,DataConverter.decodeAsSigned(cpu.getHi().getBytes()));
 		}
 	}
+
+	/**testing the int based exec and branch methods directly
+	 * @throws InstructionException when a bad instruction is used
+	 */
+	@Test
+	public void testIntOps() throws InstructionException
+	{
+		CPU cpu = new CPU(null);
+
+		{//arithmetic wraps around like the hardware
+			assertEquals(Integer.MIN_VALUE, ALU.exec(Instruction.addu.ordinal(), Integer.MAX_VALUE, 1, cpu));
+			assertEquals(-1, ALU.exec(Instruction.subu.ordinal(), 0, 1, cpu));
+			assertEquals(0x7FFFFFFF, ALU.exec(Instruction.divu.ordinal(), -1, 2, cpu));
+			assertEquals(-2, ALU.exec(Instruction.div.ordinal(), -5, 2, cpu));
+		}
+
+		{//shifts
+			assertEquals(0, ALU.exec(Instruction.sll.ordinal(), 1, 32, cpu));
+			assertEquals(1, ALU.exec(Instruction.sll.ordinal(), 1, 64, cpu)); // the count is taken mod 64
+			assertEquals(1, ALU.exec(Instruction.sllv.ordinal(), 1, 32, cpu));
+			assertEquals(-1, ALU.exec(Instruction.sra.ordinal(), -2, 1, cpu));
+			assertEquals(0x7FFFFFFF, ALU.exec(Instruction.srl.ordinal(), -2, 1, cpu));
+		}
+
+		{//mul writes lo and hi
+			assertEquals(-8, ALU.exec(Instruction.mul.ordinal(), -4, 2, cpu));
+			assertEquals(-8, cpu.getLoValue());
+			assertEquals(-1, cpu.getHiValue());
+		}
+
+		{//unsigned comparisons
+			assertEquals(1, ALU.exec(Instruction.sltu.ordinal(), 1, -1, cpu));
+			assertEquals(0, ALU.exec(Instruction.slt.ordinal(), 1, -1, cpu));
+		}
+
+		{//branches
+			assertEquals(true, ALU.branch(Instruction.bltu.ordinal(), 1, -1));
+			assertEquals(false, ALU.branch(Instruction.blt.ordinal(), 1, -1));
+			assertEquals(true, ALU.branch(Instruction.bltz.ordinal(), -1, 0));
+			assertEquals(true, ALU.branch(Instruction.b.ordinal(), 0, 0));
+		}
+	}
 }
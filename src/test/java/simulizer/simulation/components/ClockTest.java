@@ -0,0 +1,81 @@
+package simulizer.simulation.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.SlowTests;
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+
+/**
+ * check that the clock keeps time and responds to the simulation being stopped.
+ * These measure wall clock time so may fail on a heavily loaded machine
+ * @author mbway
+ */
+@Category({SlowTests.class})
+public class ClockTest {
+
+	private Program countTo(int n) {
+		String program = "" +
+				".text\n" +
+				"main:\n" +
+				"li $t0, 0\n" +
+				"li $t1, " + n + "\n" +
+				"LOOP: beq $t0, $t1, END\n" +
+				"addi $t0, $t0, 1\n" +
+				"j LOOP\n" +
+				"END:\n" +
+				"li $v0, 10\n" +
+				"syscall\n";
+		ProblemCountLogger log = new ProblemCountLogger(null);
+		Program p = Assembler.assemble(program, log, false);
+		assertEquals(0, log.problemCount);
+		return p;
+	}
+
+	@Test
+	public void testBatchedFrequency() {
+		CPU cpu = new CPU(new BufferIO());
+		cpu.loadProgram(countTo(100)); // 2 + 3*100 + 1 + 2 = 305 cycles
+		cpu.setCycleFreq(2000); // 6000 ticks per second, so ticks are batched
+
+		long start = System.nanoTime();
+		cpu.runProgram();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		assertEquals(100, cpu.getRegisterValue(Register.t0));
+		// should take around 150ms
+		assertTrue("too fast: " + seconds, seconds > 0.1);
+		assertTrue("too slow: " + seconds, seconds < 2);
+
+		cpu.shutdown();
+	}
+
+	@Test
+	public void testStopWakesSimulation() throws InterruptedException {
+		CPU cpu = new CPU(new BufferIO());
+		cpu.loadProgram(countTo(100));
+		cpu.setCycleFreq(0.1); // one cycle every 10 seconds
+
+		Thread sim = new Thread(cpu::runProgram);
+		sim.start();
+		Thread.sleep(100);
+
+		long start = System.nanoTime();
+		cpu.stopRunning();
+		sim.join(5000);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		assertTrue("did not stop", !sim.isAlive());
+		assertTrue("slow to stop: " + seconds, seconds < 1);
+
+		cpu.shutdown();
+	}
+}
@@ -0,0 +1,181 @@
+package simulizer.simulation.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.simulation.cpu.user_interaction.ConsoleLog;
+
+/**
+ * tests for the line based log used by the Logger window
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class ConsoleLogTest {
+
+	@Test
+	public void testLines() {
+		ConsoleLog log = new ConsoleLog(100);
+		log.append("hello ");
+		log.append("world\nsecond");
+		log.append(" line\n\nlast");
+
+		assertEquals(3, log.lineCount());
+		assertEquals("hello world\nsecond line\n\nlast", log.getText());
+
+		ConsoleLog.Delta d = log.changesSince(0, 0, 0);
+		assertEquals(Arrays.asList("hello world", "second line", ""), d.newLines);
+		assertEquals("last", d.partialText);
+		assertEquals(0, d.firstLine);
+		assertEquals(3, d.endLine);
+	}
+
+	@Test
+	public void testDeltas() {
+		ConsoleLog log = new ConsoleLog(100);
+		log.append("a\nb");
+		ConsoleLog.Delta d = log.changesSince(0, 0, 0);
+		assertEquals(Collections.singletonList("a"), d.newLines);
+		assertEquals("b", d.partialText);
+
+		// only the lines completed since are returned
+		log.append("c\nd\n");
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(Arrays.asList("bc", "d"), d.newLines);
+		assertEquals("", d.partialText);
+		assertEquals(3, d.endLine);
+
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(Collections.emptyList(), d.newLines);
+	}
+
+	@Test
+	public void testScrollback() {
+		ConsoleLog log = new ConsoleLog(3);
+		for(int i = 0; i < 10; ++i) {
+			log.append(i + "\n");
+		}
+		assertEquals(3, log.lineCount());
+		assertEquals("7\n8\n9\n", log.getText());
+
+		// a display which is behind only gets the lines which are still stored
+		ConsoleLog.Delta d = log.changesSince(0, 2, 0);
+		assertEquals(7, d.firstLine);
+		assertEquals(10, d.endLine);
+		assertEquals(Arrays.asList("7", "8", "9"), d.newLines);
+
+		log.append("10\n");
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(8, d.firstLine);
+		assertEquals(Collections.singletonList("10"), d.newLines);
+	}
+
+	@Test
+	public void testClear() {
+		ConsoleLog log = new ConsoleLog(10);
+		log.append("a\nb\n");
+		ConsoleLog.Delta before = log.changesSince(0, 0, 0);
+
+		log.clear();
+		log.append("c\n");
+		ConsoleLog.Delta after = log.changesSince(before.generation, before.endLine, before.partialLength);
+
+		// a different generation means the display must start again
+		assertNotEquals(before.generation, after.generation);
+		assertEquals(Collections.singletonList("c"), after.newLines);
+		assertEquals("c\n", log.getText());
+	}
+
+	@Test
+	public void testGrowing() {
+		// the whole scrollback is not allocated up front
+		ConsoleLog log = new ConsoleLog(Integer.MAX_VALUE);
+		for(int i = 0; i < 1000; ++i) {
+			log.append(i + "\n");
+		}
+		assertEquals(1000, log.lineCount());
+		ConsoleLog.Delta d = log.changesSince(0, 998, 0);
+		assertEquals(Arrays.asList("998", "999"), d.newLines);
+
+		// growing while lines are being evicted keeps them in order
+		log = new ConsoleLog(100);
+		for(int i = 0; i < 1000; ++i) {
+			log.append(i + "\n");
+		}
+		assertEquals(100, log.lineCount());
+		d = log.changesSince(0, 0, 0);
+		assertEquals(900, d.firstLine);
+		assertEquals("900", d.newLines.get(0));
+		assertEquals("999", d.newLines.get(99));
+
+		log.clear();
+		log.append("a\nb\n");
+		assertEquals("a\nb\n", log.getText());
+	}
+
+	@Test
+	public void testPartialLine() {
+		ConsoleLog log = new ConsoleLog(100);
+		log.append("a\nbc");
+		ConsoleLog.Delta d = log.changesSince(0, 0, 0);
+		assertEquals(0, d.partialStart);
+		assertEquals("bc", d.partialText);
+		assertEquals(2, d.partialLength);
+
+		// only the text appended to the partial line since is returned
+		log.append("de");
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(Collections.emptyList(), d.newLines);
+		assertEquals(2, d.partialStart);
+		assertEquals("de", d.partialText);
+		assertEquals(4, d.partialLength);
+
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(4, d.partialStart);
+		assertEquals("", d.partialText);
+
+		// once the line is complete, the new partial line replaces it
+		log.append("f\ng");
+		d = log.changesSince(d.generation, d.endLine, d.partialLength);
+		assertEquals(Collections.singletonList("bcdef"), d.newLines);
+		assertEquals(0, d.partialStart);
+		assertEquals("g", d.partialText);
+	}
+
+	@Test
+	public void testWrapping() {
+		// text printed without line breaks is wrapped so the scrollback still applies
+		ConsoleLog log = new ConsoleLog(3);
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 10000; ++i) {
+			log.append("12");
+			expected.append("12");
+		}
+		assertEquals(3, log.lineCount());
+		ConsoleLog.Delta d = log.changesSince(0, 0, 0);
+		assertEquals(4, d.endLine);
+		for(String line : d.newLines) {
+			assertEquals(4096, line.length());
+		}
+		assertEquals(20000 - 4 * 4096, d.partialLength);
+		assertEquals(expected.substring(4 * 4096), d.partialText);
+
+		// a line which is exactly the maximum length is not followed by an empty line
+		log = new ConsoleLog(10);
+		char[] line = new char[4096];
+		Arrays.fill(line, 'x');
+		log.append(new String(line) + "\ny");
+		assertEquals(new String(line) + "\ny", log.getText());
+		assertEquals(1, log.lineCount());
+
+		log.append("\n" + new String(line) + "z");
+		assertEquals(3, log.lineCount());
+		assertEquals("z", log.changesSince(0, 0, 0).partialText);
+	}
+}
@@ -73,9 +73,9 @@ public class ExecuteTest {
 	{
 		Field reg = cpu.getClass().getDeclaredField("registers");//accesing private stuff for testing
 		reg.setAccessible(true);
-		Word[] registers = (Word[])reg.get(cpu);
+		int[] registers = (int[])reg.get(cpu);
 		
-		return DataConverter.decodeAsSigned(registers[register.getID()].getBytes());
+		return registers[register.getID()];
 	}
 	
 	/**method will access a register and get it's unsigned long value
@@ -88,9 +88,9 @@ public class ExecuteTest {
 	{
 		Field reg = cpu.getClass().getDeclaredField("registers");//accesing private stuff for testing
 		reg.setAccessible(true);
-		Word[] registers = (Word[])reg.get(cpu);
+		int[] registers = (int[])reg.get(cpu);
 		
-		return DataConverter.decodeAsUnsigned(registers[register.getID()].getBytes());
+		return Integer.toUnsignedLong(registers[register.getID()]);
 	}
 	
 	/**method creates a cpu and then runs a program on it
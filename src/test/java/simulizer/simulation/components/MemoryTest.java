@@ -14,6 +14,7 @@ import simulizer.assembler.representation.Program;
 import simulizer.assembler.representation.Statement;
 import simulizer.simulation.cpu.components.CPU;
 import simulizer.simulation.cpu.components.MainMemory;
+import simulizer.simulation.cpu.components.MemoryView;
 import simulizer.simulation.data.representation.DataConverter;
 import simulizer.simulation.exceptions.DecodeException;
 import simulizer.simulation.exceptions.ExecuteException;
@@ -127,7 +128,7 @@ public class MemoryTest {
 			assertEquals(0x12,result[1]);
 			assertEquals(0x13,result[2]);
 
-			int endOfStaticSegment = dataSegStart.getValue() + program.dataSegment.length;
+			int endOfStaticSegment = dataSegStart.getValue() + program.dataSegment.length();
 			memory.writeToMem(endOfStaticSegment-4, new byte[]{0x11,0x12,0x13,0x11});
 			try {
 				result = memory.readUntilNull(endOfStaticSegment-4);
@@ -264,4 +265,160 @@ public class MemoryTest {
 
 		cpu.shutdown();
 	}
+
+	/**test the boundaries of the stack, which is mapped onto the same memory as the other segments
+	 * (the top of the stack is the initial stack pointer and the stack may grow down to 1 MiB above
+	 * the start of the heap)
+	 */
+	@Test
+	public void testStack() throws MemoryException, HeapException, StackException
+	{
+		Program program = createProgram("li $v0, 10\nsyscall\n");
+		CPU cpu = new CPU(new IOTest());
+		cpu.loadProgram(program);
+		MainMemory memory = cpu.getMainMemory();
+		int top = (int) DataConverter.decodeAsSigned(program.initialSP.getBytes());
+		int bottom = program.dynamicSegmentStart.getValue() + 1024 * 1024;
+
+		{//valid write and read at the top of the stack
+			memory.writeToMem(top - 4, new byte[]{0x11, 0x10, 0x21, 0x20});
+			assertArrayEquals(new byte[]{0x11, 0x10, 0x21, 0x20}, memory.readFromMem(top - 4, 4));
+			assertArrayEquals(new byte[]{0x21, 0x20}, memory.readFromMem(top - 2, 2));
+		}
+
+		{//valid write and read at the bottom of the stack
+			memory.writeToMem(bottom, new byte[]{0x01, 0x02, 0x03, 0x04});
+			assertArrayEquals(new byte[]{0x01, 0x02, 0x03, 0x04}, memory.readFromMem(bottom, 4));
+		}
+
+		{//invalid read and write (attempt to access above the top of the stack)
+			for(int address : new int[]{top - 2, top}) {
+				try {
+					memory.readFromMem(address, 4);
+					fail();
+				} catch(MemoryException e) {
+					assertEquals("Reading from invalid area of memory", e.getMessage());
+				}
+				try {
+					memory.writeToMem(address, new byte[]{0x11, 0x12, 0x13, 0x14});
+					fail();
+				} catch(MemoryException e) {
+					assertEquals("Writing to an invalid area of memory", e.getMessage());
+				}
+			}
+		}
+
+		{//invalid read and write (attempt to access below the maximum size of the stack)
+			try {
+				memory.readFromMem(bottom - 2, 4);
+				fail();
+			} catch(MemoryException e) {
+				assertEquals("Reading from invalid area of memory", e.getMessage());
+			}
+			try {
+				memory.writeToMem(bottom - 2, new byte[]{0x11, 0x12, 0x13, 0x14});
+				fail();
+			} catch(MemoryException e) {
+				assertEquals("Writing to an invalid area of memory", e.getMessage());
+			}
+		}
+
+		{//invalid read and write (non-positive length)
+			try {
+				memory.readFromMem(top - 4, 0);
+				fail();
+			} catch(StackException e) {
+				assertEquals("Invalid read on stack. (non-positive length)", e.getMessage());
+			}
+			try {
+				memory.readFromMem(top - 4, -4);
+				fail();
+			} catch(StackException e) {
+				assertEquals("Invalid read on stack. (non-positive length)", e.getMessage());
+			}
+			try {
+				memory.writeToMem(top - 4, new byte[0]);
+				fail();
+			} catch(StackException e) {
+				assertEquals("Invalid write on stack. (non-positive length)", e.getMessage());
+			}
+		}
+
+		{//reading a string from the stack
+			memory.writeToMem(top - 8, new byte[]{'a', 'b', 'c', 0});
+			assertArrayEquals(new byte[]{'a', 'b', 'c'}, memory.readUntilNull(top - 8));
+
+			// no null character before the top of the stack
+			memory.writeToMem(top - 4, new byte[]{'d', 'e', 'f', 'g'});
+			try {
+				memory.readUntilNull(top - 4);
+				fail();
+			} catch(StackException e) {
+				assertEquals("Reading from invalid area of memory (scanning for a null character)", e.getMessage());
+			}
+		}
+
+		cpu.shutdown();
+	}
+
+	/**test that views read the current contents of memory and follow the same bounds as readFromMem
+	 */
+	@Test
+	public void testView() throws MemoryException, HeapException, StackException
+	{
+		Program program = createProgram("li $v0, 10\nsyscall\n");
+		CPU cpu = new CPU(new IOTest());
+		cpu.loadProgram(program);
+		MainMemory memory = cpu.getMainMemory();
+		int start = program.dataSegmentStart.getValue();
+
+		MemoryView view = memory.view(start, 28);
+		assertEquals(28, view.length());
+		assertEquals('T', view.getByte(0));
+		assertEquals(-10, view.getWord(23)); // mynum (unaligned: straight after the string)
+		assertEquals(0xFFFFFFF6L, view.getUnsignedWord(23));
+		assertEquals(10, view.getUnsignedByte(27));
+		assertTrue(view.getBool(1));
+		assertFalse(view.getBool(22)); // null terminator
+
+		// not a copy
+		memory.storeByte(start, (byte) 0);
+		assertFalse(view.getBool(0));
+
+		try {
+			view.getWord(25);
+			fail();
+		} catch(IndexOutOfBoundsException ignored) {
+		}
+		try {
+			view.getByte(-1);
+			fail();
+		} catch(IndexOutOfBoundsException ignored) {
+		}
+
+		// a view of a copy is not affected by later writes
+		MemoryView copy = new MemoryView(memory.readFromMem(start, 28), 20, start + 20, 8);
+		memory.storeByte(start + 27, (byte) 5);
+		assertEquals(-10, copy.getWord(3));
+		assertEquals(10, copy.getByte(7));
+		try {
+			copy.getByte(8);
+			fail();
+		} catch(IndexOutOfBoundsException ignored) {
+		}
+
+		// the same rules as reading
+		try {
+			memory.view(start, 1000);
+			fail();
+		} catch(MemoryException ignored) {
+		}
+		try {
+			memory.view(program.textSegmentStart.getValue(), 4);
+			fail();
+		} catch(MemoryException ignored) {
+		}
+
+		cpu.shutdown();
+	}
 }
@@ -0,0 +1,66 @@
+package simulizer.simulation.components;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.simulation.cpu.components.PagedMemory;
+
+/**
+ * tests for the paged memory store used by MainMemory
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class PagedMemoryTest {
+
+	@Test
+	public void testUnwrittenIsZero() {
+		PagedMemory m = new PagedMemory();
+		assertEquals(0, m.loadWord(0x10010000));
+		assertEquals(0, m.loadHalf(0x7ffffffe));
+		assertEquals(0, m.loadByte(-1));
+		assertArrayEquals(new byte[5], m.read(0x1000fffe, 5));
+	}
+
+	@Test
+	public void testBigEndian() {
+		PagedMemory m = new PagedMemory();
+		m.storeWord(0x10010000, 0x11223344);
+		assertEquals(0x11, m.loadByte(0x10010000));
+		assertEquals(0x44, m.loadByte(0x10010003));
+		assertEquals(0x1122, m.loadHalf(0x10010000));
+		assertEquals(0x3344, m.loadHalf(0x10010002));
+		assertArrayEquals(new byte[]{0x11, 0x22, 0x33, 0x44}, m.read(0x10010000, 4));
+
+		m.storeHalf(0x20, (short) -2);
+		assertEquals(-2, m.loadHalf(0x20));
+		assertEquals(0xFFFE, m.loadHalf(0x20) & 0xFFFF);
+		m.storeByte(0x30, (byte) -1);
+		assertEquals(-1, m.loadByte(0x30));
+	}
+
+	@Test
+	public void testStraddlingPages() {
+		PagedMemory m = new PagedMemory();
+		int boundary = 0x10020000; // page boundary
+
+		m.storeWord(boundary - 2, 0xAABBCCDD);
+		assertEquals(0xAABBCCDD, m.loadWord(boundary - 2));
+		assertEquals((short) 0xBBCC, m.loadHalf(boundary - 1));
+
+		m.write(boundary - 3, new byte[]{1, 2, 3, 4, 5, 6});
+		assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, m.read(boundary - 3, 6));
+		assertEquals(0x03040506, m.loadWord(boundary - 1));
+	}
+
+	@Test
+	public void testFindNull() {
+		PagedMemory m = new PagedMemory();
+		m.write(100, new byte[]{'a', 'b', 'c'});
+		assertEquals(103, m.findNull(100, 200));
+		assertEquals(-1, m.findNull(100, 103));
+	}
+}
@@ -0,0 +1,166 @@
+package simulizer.simulation.components;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Address;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.components.CPUPipeline;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+import simulizer.simulation.exceptions.MemoryException;
+import simulizer.simulation.instructions.PredecodedInstruction;
+
+/**
+ * check that the pipelined CPU stalls for hazards so that it gives the same results
+ * as the sequential CPU
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class PipelineTest {
+
+	private Program createProgram(String myInstructions) {
+		String program = "" +
+				".data\n" +
+				"mynum: .word -10\n" +
+				".align 2\n" +
+				"buf: .space 16\n" +
+				".text\n" +
+				".globl main\n" +
+				"main:\n" +
+				myInstructions;
+
+		ProblemCountLogger log = new ProblemCountLogger(null);
+
+		Program p = Assembler.assemble(program, log, false);
+		assertEquals(0, log.problemCount);
+		return p;
+	}
+
+	/**
+	 * run the program on both CPUs and check that the registers and output match
+	 */
+	private void assertSameBehaviour(String myInstructions) {
+		Program program = createProgram(myInstructions);
+
+		BufferIO sequentialIO = new BufferIO("4\n");
+		CPU sequential = new CPU(sequentialIO);
+		sequential.setCycleFreq(0);
+		sequential.loadProgram(program);
+		sequential.runProgram();
+
+		BufferIO pipelinedIO = new BufferIO("4\n");
+		CPU pipelined = new CPUPipeline(pipelinedIO);
+		pipelined.setCycleFreq(0);
+		pipelined.loadProgram(program);
+		pipelined.runProgram();
+
+		for(Register r : Register.values()) {
+			assertEquals(r.getName(), sequential.getRegisterValue(r), pipelined.getRegisterValue(r));
+		}
+		assertEquals(sequential.getLoValue(), pipelined.getLoValue());
+		assertEquals(sequential.getHiValue(), pipelined.getHiValue());
+		assertEquals(sequentialIO.getOutput(IOStream.STANDARD), pipelinedIO.getOutput(IOStream.STANDARD));
+
+		sequential.shutdown();
+		pipelined.shutdown();
+	}
+
+	@Test
+	public void testMasks() throws MemoryException {
+		Program p = createProgram("" +
+				"add $t2, $t0, $t1\n" +
+				"sw $t2, 4($s0)\n" +
+				"lw $t3, buf\n" +
+				"jal main\n" +
+				"mult $t1, $t2\n" +
+				"syscall\n");
+		CPU cpu = new CPU(new BufferIO());
+		cpu.loadProgram(p);
+		int start = p.textSegmentStart.getValue();
+
+		PredecodedInstruction add = cpu.getMainMemory().readPredecoded(new Address(start));
+		assertEquals(bits(Register.t0, Register.t1), add.readMask);
+		assertEquals(bits(Register.t2), add.writeMask);
+
+		PredecodedInstruction sw = cpu.getMainMemory().readPredecoded(new Address(start + 4));
+		assertEquals(bits(Register.t2, Register.s0), sw.readMask);
+		assertEquals(0, sw.writeMask);
+
+		PredecodedInstruction lw = cpu.getMainMemory().readPredecoded(new Address(start + 8));
+		assertEquals(0, lw.readMask);
+		assertEquals(bits(Register.t3), lw.writeMask);
+
+		PredecodedInstruction jal = cpu.getMainMemory().readPredecoded(new Address(start + 12));
+		assertEquals(bits(Register.ra), jal.writeMask);
+
+		PredecodedInstruction mult = cpu.getMainMemory().readPredecoded(new Address(start + 16));
+		assertEquals(bits(Register.t1, Register.t2), mult.readMask);
+		assertEquals(0, mult.writeMask);
+
+		// depends on the syscall code
+		PredecodedInstruction syscall = cpu.getMainMemory().readPredecoded(new Address(start + 20));
+		assertEquals(0, syscall.readMask);
+		assertEquals(0, syscall.writeMask);
+
+		cpu.shutdown();
+	}
+
+	private static int bits(Register... registers) {
+		int mask = 0;
+		for(Register r : registers) {
+			mask |= 1 << r.getID();
+		}
+		return mask;
+	}
+
+	@Test
+	public void testDataHazards() {
+		assertSameBehaviour("" +
+				"li $t0, 7\n" +
+				"li $t1, -3\n" +
+				"add $t2, $t0, $t1\n" +
+				"sub $t3, $t2, $t0\n" +
+				"mult $t3, $t2\n" +
+				"mflo $s0\n" +
+				"move $s1, $s0\n" +
+				"la $s2, buf\n" +
+				"sw $s1, 4($s2)\n" +
+				"lw $s3, 4($s2)\n" +
+				"addi $s4, $s3, 1\n" +
+				"beq $s4, $s3, END\n" +
+				"li $v0, 5\n" +
+				"syscall\n" +
+				"addi $s5, $v0, 1\n" +
+				"END:\n" +
+				"li $v0, 10\n" +
+				"syscall\n");
+	}
+
+	@Test
+	public void testControlFlow() {
+		assertSameBehaviour("" +
+				"li $t0, 0\n" +
+				"li $t1, 10\n" +
+				"LOOP:\n" +
+				"beq $t0, $t1, END\n" +
+				"move $a0, $t0\n" +
+				"jal PRINT\n" +
+				"addi $t0, $t0, 1\n" +
+				"j LOOP\n" +
+				"PRINT:\n" +
+				"li $v0, 1\n" +
+				"syscall\n" +
+				"jr $ra\n" +
+				"END:\n" +
+				"li $v0, 10\n" +
+				"syscall\n");
+	}
+}
@@ -0,0 +1,149 @@
+package simulizer.simulation.components;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.Assembler;
+import simulizer.assembler.extractor.problem.ProblemCountLogger;
+import simulizer.assembler.representation.Program;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.components.CPU;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+
+/**
+ * check that running a program with CPU.runUnobserved gives the same results as
+ * running it normally
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class UnobservedTest {
+
+    private Program createProgram(String myInstructions) {
+        String program = "" +
+                ".data\n" +
+                "mystr: .asciiz \"This is my test String\"\n"+
+                "mynum: .word -10\n" +
+                "mynewnum: .byte 10\n" +
+                ".align 2\n" +
+                "buf: .space 16\n" +
+                ".text\n" +
+                ".globl main\n" +
+                "main:\n" +
+                myInstructions;
+
+        ProblemCountLogger log = new ProblemCountLogger(null);
+
+        Program p = Assembler.assemble(program, log, false);
+        assertEquals(0, log.problemCount);
+        return p;
+    }
+
+    /**
+     * run the program both ways and check that the registers and output match
+     */
+    private void assertSameBehaviour(String myInstructions) {
+        Program program = createProgram(myInstructions);
+
+        BufferIO normalIO = new BufferIO();
+        CPU normal = new CPU(normalIO);
+        normal.loadProgram(program);
+        normal.runProgram();
+
+        BufferIO fastIO = new BufferIO();
+        CPU fast = new CPU(fastIO);
+        fast.loadProgram(program);
+        fast.runUnobserved();
+
+        for(Register r : Register.values()) {
+            assertEquals(r.getName(), normal.getRegisterValue(r), fast.getRegisterValue(r));
+        }
+        assertEquals(normal.getLoValue(), fast.getLoValue());
+        assertEquals(normal.getHiValue(), fast.getHiValue());
+        assertEquals(normalIO.getOutput(IOStream.STANDARD), fastIO.getOutput(IOStream.STANDARD));
+        assertEquals(normalIO.getOutput(IOStream.ERROR), fastIO.getOutput(IOStream.ERROR));
+
+        normal.shutdown();
+        fast.shutdown();
+    }
+
+    @Test
+    public void testArithmetic() {
+        assertSameBehaviour("" +
+                "li $t0, 7\n" +
+                "li $t1, -3\n" +
+                "add $t2, $t0, $t1\n" +
+                "subu $t3, $t1, $t0\n" +
+                "addiu $t4, $t1, 100\n" +
+                "mul $t5, $t0, $t1\n" +
+                "mult $t1, $t1\n" +
+                "mflo $s0\n" +
+                "mfhi $s1\n" +
+                "div $s2, $t0, $t1\n" +
+                "rem $s3, $t0, $t1\n" +
+                "sll $s4, $t0, 3\n" +
+                "sra $s5, $t1, 1\n" +
+                "srl $s6, $t1, 1\n" +
+                "lui $s7, 0x1234\n" +
+                "nor $t6, $t0, $t1\n" +
+                "slt $t7, $t1, $t0\n" +
+                "sltu $t8, $t1, $t0\n" +
+                "neg $t9, $t0\n" +
+                "li $v0, 10\n" +
+                "syscall\n");
+    }
+
+    @Test
+    public void testMemory() {
+        assertSameBehaviour("" +
+                "la $s0, buf\n" +
+                "lw $t0, mynum\n" +
+                "lb $t1, mynewnum\n" +
+                "li $t2, -2\n" +
+                "sw $t2, 0($s0)\n" +
+                "sh $t2, 4($s0)\n" +
+                "sb $t2, 6($s0)\n" +
+                "lw $t3, 0($s0)\n" +
+                "lh $t4, 4($s0)\n" +
+                "lhu $t5, 4($s0)\n" +
+                "lb $t6, 6($s0)\n" +
+                "lbu $t7, 6($s0)\n" +
+                "la $a0, mystr\n" +
+                "li $v0, 4\n" +
+                "syscall\n" +
+                "li $v0, 10\n" +
+                "syscall\n");
+    }
+
+    @Test
+    public void testControlFlow() {
+        assertSameBehaviour("" +
+                "li $t0, 0\n" +
+                "li $t1, 10\n" +
+                "LOOP:\n" +
+                "beq $t0, $t1, END\n" +
+                "move $a0, $t0\n" +
+                "jal PRINT\n" +
+                "addi $t0, $t0, 1\n" +
+                "bltz $t0, END\n" +
+                "j LOOP\n" +
+                "PRINT:\n" +
+                "li $v0, 1\n" +
+                "syscall\n" +
+                "jr $ra\n" +
+                "END:\n" +
+                "li $v0, 10\n" +
+                "syscall\n");
+    }
+
+    @Test
+    public void testRunningOffTheEnd() {
+        // no exit syscall: both should stop at the end of the text segment
+        assertSameBehaviour("" +
+                "li $t0, 5\n" +
+                "addi $t0, $t0, 5\n");
+    }
+}
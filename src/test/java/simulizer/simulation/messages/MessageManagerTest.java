@@ -0,0 +1,299 @@
+package simulizer.simulation.messages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import category.UnitTests;
+import simulizer.assembler.representation.Register;
+import simulizer.simulation.cpu.user_interaction.BufferIO;
+import simulizer.simulation.cpu.user_interaction.IOStream;
+
+/**
+ * tests for delivering messages to listeners
+ * @author mbway
+ */
+@Category({UnitTests.class})
+public class MessageManagerTest {
+
+	private static class RecordingListener extends SimulationListener {
+		final List<Message> received = Collections.synchronizedList(new ArrayList<>());
+
+		@Override public void processMessage(Message m) {
+			received.add(m);
+		}
+	}
+
+	private static List<Message> createMessages(int count) {
+		List<Message> messages = new ArrayList<>();
+		for(int i = 0; i < count; ++i) {
+			messages.add(new RegisterChangedMessage(Register.fromID(i % 32)));
+		}
+		return messages;
+	}
+
+	@Test
+	public void testInOrderToEveryListener() {
+		BufferIO io = new BufferIO();
+		MessageManager manager = new MessageManager(io);
+		RecordingListener a = new RecordingListener();
+		RecordingListener b = new RecordingListener();
+		manager.registerListener(a);
+		manager.registerListener(b);
+
+		// more than fit in the buffer at once
+		List<Message> messages = createMessages(20000);
+		for(Message m : messages) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+
+		assertEquals(messages.size(), a.received.size());
+		assertEquals(messages.size(), b.received.size());
+		for(int i = 0; i < messages.size(); ++i) {
+			assertSame(messages.get(i), a.received.get(i));
+			assertSame(messages.get(i), b.received.get(i));
+		}
+		assertEquals("", io.getOutput(IOStream.ERROR));
+
+		manager.shutdown();
+	}
+
+	/**
+	 * @return the messages received by the listener which are one of the given messages, in the order received
+	 */
+	private static List<Message> receivedFrom(RecordingListener l, List<Message> sent) {
+		Set<Message> sentSet = Collections.newSetFromMap(new IdentityHashMap<>());
+		sentSet.addAll(sent);
+		List<Message> received = new ArrayList<>();
+		for(Message m : l.received) {
+			if(sentSet.contains(m)) {
+				received.add(m);
+			}
+		}
+		return received;
+	}
+
+	@Test(timeout = 10000)
+	public void testListenerSending() {
+		BufferIO io = new BufferIO();
+		MessageManager manager = new MessageManager(io);
+		// more than fit in the buffer, sent by the slowest listener (eg an annotation)
+		List<Message> sentByListener = createMessages(20000);
+		RecordingListener sender = new RecordingListener() {
+			@Override public void processMessage(Message m) {
+				super.processMessage(m);
+				if(received.size() == 1) {
+					for(Message toSend : sentByListener) {
+						manager.sendMessage(toSend);
+					}
+				}
+			}
+		};
+		RecordingListener other = new RecordingListener();
+		manager.registerListener(sender);
+		manager.registerListener(other);
+
+		Message first = new Message();
+		manager.sendMessage(first);
+		// the simulation keeps sending while the listener is filling the buffer
+		List<Message> sentBySimulation = createMessages(20000);
+		for(Message m : sentBySimulation) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+
+		assertEquals(1 + 2 * 20000, sender.received.size());
+		assertEquals(sender.received, other.received);
+		// each sender's messages arrive in the order they were sent
+		assertEquals(sentByListener, receivedFrom(sender, sentByListener));
+		assertEquals(sentBySimulation, receivedFrom(sender, sentBySimulation));
+		assertEquals("", io.getOutput(IOStream.ERROR));
+
+		manager.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void testStalledListener() throws InterruptedException {
+		BufferIO io = new BufferIO();
+		MessageManager manager = new MessageManager(io);
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingListener stalled = new RecordingListener() {
+			@Override public void processMessage(Message m) {
+				super.processMessage(m);
+				try {
+					release.await();
+				} catch (InterruptedException ignored) {}
+			}
+		};
+		RecordingListener other = new RecordingListener();
+		manager.registerListener(stalled);
+		manager.registerListener(other);
+
+		// the sender gives up on the stalled listener rather than waiting forever
+		List<Message> messages = createMessages(20000);
+		for(Message m : messages) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+
+		assertEquals(messages, other.received);
+		assertEquals(1, stalled.received.size());
+		assertTrue(io.getOutput(IOStream.ERROR).contains("The listener will no longer receive messages."));
+
+		release.countDown();
+		manager.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void testListenerError() {
+		BufferIO io = new BufferIO();
+		MessageManager manager = new MessageManager(io);
+		RecordingListener failing = new RecordingListener() {
+			@Override public void processMessage(Message m) {
+				super.processMessage(m);
+				if(received.size() == 1) {
+					throw new StackOverflowError();
+				}
+			}
+		};
+		manager.registerListener(failing);
+
+		// the listener keeps receiving messages after an error
+		List<Message> messages = createMessages(20000);
+		for(Message m : messages) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+
+		assertEquals(messages, failing.received);
+		assertEquals("", io.getOutput(IOStream.ERROR));
+
+		manager.shutdown();
+	}
+
+	@Test(timeout = 10000)
+	public void testMessagesReleased() throws NoSuchFieldException, IllegalAccessException, InterruptedException {
+		MessageManager manager = new MessageManager(new BufferIO());
+		RecordingListener a = new RecordingListener();
+		RecordingListener b = new RecordingListener();
+		manager.registerListener(a);
+		manager.registerListener(b);
+
+		for(Message m : createMessages(20000)) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+
+		// once processed by every listener, messages are no longer referenced by the buffer
+		Field bufferField = MessageManager.class.getDeclaredField("buffer");
+		bufferField.setAccessible(true);
+		Message[] buffer = (Message[]) bufferField.get(manager);
+		for(int i = 0; i < buffer.length; ++i) {
+			// the listeners may still be clearing after the last batch
+			while(buffer[i] != null) {
+				Thread.sleep(1);
+			}
+			assertNull(buffer[i]);
+		}
+
+		manager.shutdown();
+	}
+
+	@Test
+	public void testWaitForAll() {
+		MessageManager manager = new MessageManager(new BufferIO());
+		RecordingListener slow = new RecordingListener() {
+			@Override public void processMessage(Message m) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException ignored) {}
+				super.processMessage(m);
+			}
+		};
+		manager.registerListener(slow);
+
+		for(Message m : createMessages(20)) {
+			manager.sendMessage(m);
+		}
+		manager.waitForAll();
+		assertEquals(20, slow.received.size());
+
+		manager.shutdown();
+	}
+
+	@Test
+	public void testRegistering() {
+		MessageManager manager = new MessageManager(new BufferIO());
+		RecordingListener early = new RecordingListener();
+		RecordingListener late = new RecordingListener();
+
+		manager.registerListener(early);
+		manager.sendMessage(new Message());
+		manager.waitForAll();
+
+		manager.registerListener(late);
+		manager.sendMessage(new Message());
+		manager.waitForAll();
+
+		manager.unregisterListener(early);
+		manager.sendMessage(new Message());
+		manager.waitForAll();
+
+		// only receive messages sent while registered
+		assertEquals(2, early.received.size());
+		assertEquals(2, late.received.size());
+
+		manager.shutdown();
+	}
+
+	@Test
+	public void testSubscriptions() {
+		MessageManager manager = new MessageManager(new BufferIO());
+		RecordingListener registers = new RecordingListener();
+		RecordingListener stages = new RecordingListener();
+
+		assertFalse(manager.isSubscribed(Message.Type.RegisterChanged));
+
+		manager.registerListener(registers, EnumSet.of(Message.Type.RegisterChanged));
+		assertTrue(manager.isSubscribed(Message.Type.RegisterChanged));
+		assertFalse(manager.isSubscribed(Message.Type.StageEnter));
+
+		manager.registerListener(stages, EnumSet.of(Message.Type.StageEnter));
+		assertTrue(manager.isSubscribed(Message.Type.StageEnter));
+
+		Message registerChanged = new RegisterChangedMessage(Register.t0);
+		Message hiLo = new HiLoChangeMessage();
+		Message stage = new StageEnterMessage(StageEnterMessage.Stage.Fetch);
+		manager.sendMessage(registerChanged);
+		manager.sendMessage(stage);
+		manager.sendMessage(new Message());
+		manager.sendMessage(hiLo);
+		manager.waitForAll();
+
+		assertEquals(2, registers.received.size());
+		assertSame(registerChanged, registers.received.get(0));
+		assertSame(hiLo, registers.received.get(1));
+		assertEquals(1, stages.received.size());
+		assertSame(stage, stages.received.get(0));
+
+		manager.unregisterListener(stages);
+		assertFalse(manager.isSubscribed(Message.Type.StageEnter));
+
+		manager.shutdown();
+	}
+}
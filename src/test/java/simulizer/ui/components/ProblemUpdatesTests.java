@@ -0,0 +1,205 @@
+package simulizer.ui.components;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import com.google.gson.Gson;
+
+import category.UnitTests;
+import simulizer.assembler.extractor.problem.Problem;
+import simulizer.assembler.extractor.problem.StoreProblemLogger;
+
+/**
+ * tests for sending only the changed problems to the editor, in batches
+ *
+ * @author mbway
+ */
+@Category({ UnitTests.class })
+public class ProblemUpdatesTests {
+	private static final Gson gson = new Gson();
+
+	/**
+	 * a batch as received by the editor
+	 */
+	private static class Batch {
+		List<Integer> removed;
+		List<Shown> added;
+		boolean last;
+	}
+
+	private static class Shown {
+		int id;
+		String message;
+		int lineNum;
+		int rangeStart;
+		int rangeEnd;
+	}
+
+	private static List<Problem> problems(String... messages) {
+		StoreProblemLogger log = new StoreProblemLogger();
+		for(int i = 0; i < messages.length; ++i) {
+			log.logProblem(messages[i], i + 1, 2 * i, 2 * i + 1, Problem.Severity.CRITICAL);
+		}
+		return log.getProblems();
+	}
+
+	private static Batch next(ProblemUpdates u, int maxProblems) {
+		return gson.fromJson(u.nextBatch(maxProblems), Batch.class);
+	}
+
+	/**
+	 * apply every pending batch to the problems shown by the editor (by ID)
+	 * @return the number of batches
+	 */
+	private static int drain(ProblemUpdates u, int maxProblems, Map<Integer, String> shown) {
+		int batches = 0;
+		while(u.hasPending()) {
+			Batch b = next(u, maxProblems);
+			assertTrue(b.removed.size() + b.added.size() <= maxProblems);
+			for(int id : b.removed) {
+				assertNotNull("removed a problem which was not shown", shown.remove(id));
+			}
+			for(Shown s : b.added) {
+				assertNull("added a problem twice", shown.put(s.id, s.message));
+			}
+			++batches;
+			assertEquals(!u.hasPending(), b.last);
+		}
+		return batches;
+	}
+
+	@Test
+	public void testNothingPending() {
+		ProblemUpdates u = new ProblemUpdates();
+		assertFalse(u.hasPending());
+		assertEquals(0, u.getShownCount());
+	}
+
+	@Test
+	public void testAdded() {
+		ProblemUpdates u = new ProblemUpdates();
+		u.setProblems(problems("a", "b"));
+		assertTrue(u.hasPending());
+
+		Batch b = next(u, 10);
+		assertEquals(Collections.emptyList(), b.removed);
+		assertEquals(2, b.added.size());
+		assertTrue(b.last);
+		assertFalse(u.hasPending());
+		assertEquals(2, u.getShownCount());
+
+		Shown s = b.added.get(1);
+		assertEquals("b", s.message);
+		assertEquals(2, s.lineNum);
+		assertEquals(2, s.rangeStart);
+		assertEquals(3, s.rangeEnd);
+		assertNotEquals(b.added.get(0).id, s.id);
+	}
+
+	@Test
+	public void testDiff() {
+		ProblemUpdates u = new ProblemUpdates();
+		u.setProblems(problems("a", "b", "c"));
+		Map<Integer, String> shown = new HashMap<>();
+		drain(u, 10, shown);
+
+		// b is unchanged so keeps its ID, a and c have moved to a different line
+		u.setProblems(problems("x", "b", "y", "a"));
+		Batch b = next(u, 10);
+		assertEquals(2, b.removed.size());
+		List<String> added = new ArrayList<>();
+		for(Shown s : b.added) {
+			added.add(s.message);
+		}
+		assertEquals(Arrays.asList("x", "y", "a"), added);
+		for(int id : b.removed) {
+			shown.remove(id);
+		}
+		for(Shown s : b.added) {
+			shown.put(s.id, s.message);
+		}
+		assertEquals(4, shown.size());
+		assertEquals(4, u.getShownCount());
+
+		// identical problems are only shown once
+		StoreProblemLogger log = new StoreProblemLogger();
+		log.logProblem("dup", 1, Problem.Severity.CRITICAL);
+		log.logProblem("dup", 1, Problem.Severity.NON_CRITICAL);
+		u.setProblems(log.getProblems());
+		drain(u, 10, shown);
+		assertEquals(1, shown.size());
+		assertEquals(1, u.getShownCount());
+	}
+
+	@Test
+	public void testRefresh() {
+		ProblemUpdates u = new ProblemUpdates();
+		u.setProblems(problems("a"));
+		drain(u, 10, new HashMap<>());
+
+		// a batch is still sent when nothing changes so the editor can replace its markers
+		u.setProblems(problems("a"));
+		assertTrue(u.hasPending());
+		Batch b = next(u, 10);
+		assertEquals(Collections.emptyList(), b.removed);
+		assertEquals(Collections.emptyList(), b.added);
+		assertTrue(b.last);
+		assertFalse(u.hasPending());
+	}
+
+	@Test
+	public void testBatches() {
+		String[] first = new String[25];
+		String[] second = new String[25];
+		for(int i = 0; i < 25; ++i) {
+			first[i] = "first " + i;
+			second[i] = "second " + i;
+		}
+
+		ProblemUpdates u = new ProblemUpdates();
+		Map<Integer, String> shown = new HashMap<>();
+		u.setProblems(problems(first));
+		assertEquals(3, drain(u, 10, shown));
+		assertEquals(25, shown.size());
+
+		// removals are sent before additions
+		u.setProblems(problems(second));
+		Batch b = next(u, 30);
+		assertEquals(25, b.removed.size());
+		assertEquals(5, b.added.size());
+		assertFalse(b.last);
+		for(int id : b.removed) {
+			shown.remove(id);
+		}
+		for(Shown s : b.added) {
+			shown.put(s.id, s.message);
+		}
+		assertEquals(1, drain(u, 30, shown));
+		assertEquals(25, shown.size());
+		assertTrue(shown.values().stream().allMatch(m -> m.startsWith("second")));
+	}
+
+	@Test
+	public void testReplacedBeforeSent() {
+		ProblemUpdates u = new ProblemUpdates();
+		Map<Integer, String> shown = new HashMap<>();
+		u.setProblems(problems("a", "b", "c"));
+		Batch b = next(u, 1);
+		shown.put(b.added.get(0).id, b.added.get(0).message);
+
+		// the changes not sent yet are discarded
+		u.setProblems(problems("d"));
+		drain(u, 10, shown);
+		assertEquals(Collections.singletonList("d"), new ArrayList<>(shown.values()));
+		assertEquals(1, u.getShownCount());
+	}
+}